@@ -15,6 +15,10 @@
  */
 package io.actor4j.cache;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import io.actor4j.core.utils.Cache;
 
 public interface ConcurrentCache<K, V> extends Cache<K, V> {
@@ -23,5 +27,19 @@ public interface ConcurrentCache<K, V> extends Cache<K, V> {
 	
 	public void writeAround(K key, V value);
 	
+	// Like put, but without returning the previous value (avoids copying it, e.g. off-heap)
+	public default void set(K key, V value) {
+		put(key, value);
+	}
+	
+	// Completed, if the value is available (by default the result of get)
+	public default CompletableFuture<V> getAsync(K key) {
+		return CompletableFuture.completedFuture(get(key));
+	}
+	
+	public default CompletableFuture<Map<K, V>> getAsync(List<K> keys) {
+		return CompletableFuture.completedFuture(get(keys));
+	}
+	
 	public void synchronizeWithStorage();
 }
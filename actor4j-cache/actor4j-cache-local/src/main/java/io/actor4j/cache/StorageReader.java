@@ -15,6 +15,33 @@
  */
 package io.actor4j.cache;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public interface StorageReader<K, V> {
 	 void get(K key, CacheReaderHandler<V> handler);
+	 
+	 /**
+	  * Multi-key load of distinct keys. The handler is called exactly once, after all keys have been
+	  * loaded, with the values of the found keys. Absent keys may be omitted or mapped to {@code null}.
+	  */
+	 default void get(List<K> keys, CacheReaderHandler<Map<K, V>> handler) {
+		 if (keys.isEmpty())
+			 handler.accept(Collections.emptyMap());
+		 else {
+			 Map<K, V> result = new HashMap<>();
+			 AtomicInteger pending = new AtomicInteger(keys.size());
+			 for (K key : keys)
+				 get(key, (value) -> {
+					 synchronized (result) {
+						 result.put(key, value);
+					 }
+					 if (pending.decrementAndGet()==0)
+						 handler.accept(result);
+				 });
+		 }
+	 }
 }
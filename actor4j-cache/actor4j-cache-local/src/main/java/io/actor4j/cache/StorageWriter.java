@@ -15,7 +15,36 @@
  */
 package io.actor4j.cache;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public interface StorageWriter<K, V> {
 	void put(K key, V value, CacheWriterHandler handler);
 	void remove(K key, CacheWriterHandler handler);
+	
+	// Multi-key write, the handler is called once after all entries have been written
+	default void put(Map<K, V> entries, CacheWriterHandler handler) {
+		CacheWriterHandler countDownHandler = countDown(entries.size(), handler);
+		for (Map.Entry<K, V> entry : entries.entrySet())
+			put(entry.getKey(), entry.getValue(), countDownHandler);
+	}
+	
+	// Multi-key remove, the handler is called once after all keys have been removed
+	default void remove(List<K> keys, CacheWriterHandler handler) {
+		CacheWriterHandler countDownHandler = countDown(keys.size(), handler);
+		for (K key : keys)
+			remove(key, countDownHandler);
+	}
+	
+	private static CacheWriterHandler countDown(int count, CacheWriterHandler handler) {
+		if (handler==null)
+			return null;
+		
+		AtomicInteger counter = new AtomicInteger(count);
+		return () -> {
+			if (counter.decrementAndGet()==0)
+				handler.apply();
+		};
+	}
 }
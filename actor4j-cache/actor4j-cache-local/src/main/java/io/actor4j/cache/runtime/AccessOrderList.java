@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Access ordered list of keys (least recently used first) with intrusive nodes.
+ *
+ * All operations are O(1). Cache hits are recorded in striped, lossy read buffers and
+ * replayed to the list by the thread that holds the list lock (amortized reordering),
+ * so concurrent readers do not contend on a single lock.
+ *
+ * @param <K> the type of the keys
+ */
+public final class AccessOrderList<K> extends AbstractCollection<K> {
+	private static final int READ_BUFFER_SIZE = 16; // power of two
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE-1;
+
+	private static final int NUMBER_OF_STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes<Runtime.getRuntime().availableProcessors())
+			stripes <<= 1;
+		NUMBER_OF_STRIPES = stripes;
+	}
+
+	private static final class Node<K> {
+		private final K key;
+
+		private Node<K> prev;
+		private Node<K> next;
+		private boolean linked;
+
+		public Node(K key) {
+			this.key = key;
+		}
+	}
+
+	private static final class ReadBuffer<K> {
+		private final AtomicReferenceArray<Node<K>> buffer;
+		private final AtomicLong writeCounter;
+		private volatile long readCounter; // only changed while holding the list lock
+
+		public ReadBuffer() {
+			buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+			writeCounter = new AtomicLong(0);
+		}
+
+		public boolean offer(Node<K> node) {
+			long tail = writeCounter.get();
+			if (tail-readCounter>=READ_BUFFER_SIZE)
+				return false; // full, the access is dropped
+
+			if (writeCounter.compareAndSet(tail, tail+1)) {
+				buffer.lazySet((int)(tail & READ_BUFFER_MASK), node);
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	private final Map<K, Node<K>> index;
+	private final ReadBuffer<K>[] readBuffers;
+	private final ReentrantLock lock;
+
+	private Node<K> head;
+	private Node<K> tail;
+
+	@SuppressWarnings("unchecked")
+	public AccessOrderList() {
+		super();
+
+		index = new ConcurrentHashMap<>();
+		readBuffers = new ReadBuffer[NUMBER_OF_STRIPES];
+		for (int i=0; i<readBuffers.length; i++)
+			readBuffers[i] = new ReadBuffer<>();
+		lock = new ReentrantLock();
+	}
+
+	/**
+	 * Appends the key as most recently used, or moves it to the end if already present.
+	 */
+	public void addLast(K key) {
+		lock.lock();
+		try {
+			drainReadBuffers();
+
+			Node<K> node = index.get(key);
+			if (node==null) {
+				node = new Node<>(key);
+				index.put(key, node);
+			}
+			else
+				unlink(node);
+			linkLast(node);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean add(K key) {
+		addLast(key);
+		
+		return true;
+	}
+	
+	/**
+	 * Records an access of the key. The reordering may be deferred if the list is busy.
+	 */
+	public void touch(K key) {
+		Node<K> node = index.get(key);
+		if (node==null)
+			return;
+
+		if (lock.tryLock()) {
+			try {
+				drainReadBuffers();
+				moveToLast(node);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		else
+			readBuffers[stripe()].offer(node);
+	}
+
+	/**
+	 * Records an access of the keys, see {@link #touch(Object)}.
+	 */
+	public void touch(Collection<K> keys) {
+		if (lock.tryLock()) {
+			try {
+				drainReadBuffers();
+				for (K key : keys) {
+					Node<K> node = index.get(key);
+					if (node!=null)
+						moveToLast(node);
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		else {
+			ReadBuffer<K> readBuffer = readBuffers[stripe()];
+			for (K key : keys) {
+				Node<K> node = index.get(key);
+				if (node!=null && !readBuffer.offer(node))
+					break;
+			}
+		}
+	}
+	
+	@Override
+	public boolean remove(Object key) {
+		Node<K> node = index.remove(key);
+		if (node==null)
+			return false;
+
+		lock.lock();
+		try {
+			unlink(node);
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes and returns the least recently used key, or {@code null} if empty.
+	 */
+	public K pollFirst() {
+		K result = null;
+
+		lock.lock();
+		try {
+			drainReadBuffers();
+
+			Node<K> node = head;
+			if (node!=null) {
+				unlink(node);
+				index.remove(node.key, node);
+				result = node.key;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the least recently used key without removing it, or {@code null} if empty.
+	 */
+	public K peekFirst() {
+		K result = null;
+
+		lock.lock();
+		try {
+			drainReadBuffers();
+
+			if (head!=null)
+				result = head.key;
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return index.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			drainReadBuffers();
+
+			for (Node<K> node=head; node!=null; node=node.next)
+				node.linked = false;
+			head = null;
+			tail = null;
+			index.clear();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a snapshot iterator, from least to most recently used.
+	 */
+	@Override
+	public Iterator<K> iterator() {
+		List<K> result = new ArrayList<>(index.size());
+
+		lock.lock();
+		try {
+			drainReadBuffers();
+
+			for (Node<K> node=head; node!=null; node=node.next)
+				result.add(node.key);
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return result.iterator();
+	}
+
+	private int stripe() {
+		int h = Thread.currentThread().hashCode();
+		h ^= (h >>> 16);
+
+		return h & (NUMBER_OF_STRIPES-1);
+	}
+
+	private void drainReadBuffers() {
+		for (ReadBuffer<K> readBuffer : readBuffers) {
+			long head = readBuffer.readCounter;
+			long tail = readBuffer.writeCounter.get();
+			for (; head<tail; head++) {
+				int i = (int)(head & READ_BUFFER_MASK);
+				Node<K> node = readBuffer.buffer.get(i);
+				if (node==null)
+					break; // not yet published
+				readBuffer.buffer.lazySet(i, null);
+				moveToLast(node);
+			}
+			readBuffer.readCounter = head;
+		}
+	}
+
+	private void moveToLast(Node<K> node) {
+		if (node.linked && node!=tail) {
+			unlink(node);
+			linkLast(node);
+		}
+	}
+
+	private void linkLast(Node<K> node) {
+		node.prev = tail;
+		node.next = null;
+		if (tail!=null)
+			tail.next = node;
+		else
+			head = node;
+		tail = node;
+		node.linked = true;
+	}
+
+	private void unlink(Node<K> node) {
+		if (!node.linked)
+			return;
+
+		if (node.prev!=null)
+			node.prev.next = node.next;
+		else
+			head = node.next;
+		if (node.next!=null)
+			node.next.prev = node.prev;
+		else
+			tail = node.prev;
+		node.prev = null;
+		node.next = null;
+		node.linked = false;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A gate between the clients of a cache and exclusive maintenance operations (e.g. clear).
+ * 
+ * Clients are counted by striped counters, so entering and exiting does not contend on a single
+ * cache line. A thread always enters and exits on the same stripe, so each stripe counts exactly
+ * and the gate is drained when all stripes are zero. Waiting clients and the disabling thread are
+ * parked instead of spinning.
+ */
+public final class CacheGate {
+	private static final int PADDING = 8; // one counter per cache line
+	private static final int NUMBER_OF_STRIPES;
+	
+	static {
+		int stripes = 1;
+		while (stripes<Runtime.getRuntime().availableProcessors())
+			stripes <<= 1;
+		NUMBER_OF_STRIPES = stripes;
+	}
+	
+	private final AtomicLongArray clients;
+	private volatile boolean disabled;
+	
+	private final ReentrantLock lock;
+	private final Condition enabledCondition;
+	private final Condition drainedCondition;
+	private final ReentrantLock disableLock;
+	
+	public CacheGate() {
+		super();
+		
+		clients = new AtomicLongArray(NUMBER_OF_STRIPES*PADDING);
+		lock = new ReentrantLock();
+		enabledCondition = lock.newCondition();
+		drainedCondition = lock.newCondition();
+		disableLock = new ReentrantLock();
+	}
+	
+	/**
+	 * Enters the gate, waits while the gate is disabled.
+	 */
+	public void enter() {
+		int stripe = stripe();
+		while (true) {
+			clients.incrementAndGet(stripe);
+			if (!disabled)
+				return;
+			release(stripe);
+			
+			lock.lock();
+			try {
+				while (disabled)
+					enabledCondition.awaitUninterruptibly();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Enters the gate, if it is currently enabled.
+	 */
+	public boolean tryEnter() {
+		if (disabled)
+			return false;
+		
+		int stripe = stripe();
+		clients.incrementAndGet(stripe);
+		if (!disabled)
+			return true;
+		release(stripe);
+		
+		return false;
+	}
+	
+	/**
+	 * Exits the gate, must be called by the thread that has entered.
+	 */
+	public void exit() {
+		release(stripe());
+	}
+	
+	/**
+	 * Disables the gate and waits until all clients have exited.
+	 */
+	public void disable() {
+		disableLock.lock();
+		
+		lock.lock();
+		try {
+			disabled = true;
+			while (!drained())
+				drainedCondition.awaitUninterruptibly();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Enables the gate and wakes up waiting clients.
+	 */
+	public void enable() {
+		lock.lock();
+		try {
+			disabled = false;
+			enabledCondition.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		disableLock.unlock();
+	}
+	
+	private boolean drained() {
+		boolean result = true;
+		for (int i=0; i<NUMBER_OF_STRIPES && result; i++)
+			result = clients.get(i*PADDING)==0;
+		
+		return result;
+	}
+	
+	private int stripe() {
+		int h = Thread.currentThread().hashCode();
+		h ^= (h >>> 16);
+		
+		return (h & (NUMBER_OF_STRIPES-1))*PADDING;
+	}
+	
+	private void release(int stripe) {
+		clients.decrementAndGet(stripe);
+		if (disabled) {
+			lock.lock();
+			try {
+				drainedCondition.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -15,29 +15,31 @@
  */
 package io.actor4j.cache.runtime;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import io.actor4j.cache.StorageReader;
 import io.actor4j.cache.StorageWriter;
 import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.core.utils.Pair;
 
 public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 	private final String cacheName;
 	
-	private final Map<K, V> map;
-	private final Set<K> cacheMiss;
-	private final Set<K> cacheDirty;
-	private final Set<K> cacheDel;
+	private Map<K, V> map;
+	private final Map<K, CompletableFuture<V>> cacheMiss; // loads in flight
+	private Set<K> cacheDirty;
+	private Set<K> cacheDel;
 	
-	private final LockManager<K> lockManager;
+	private final LockStrategy<K> lockManager;
 	
-	private final AtomicBoolean disabled;
-	private final AtomicInteger clients;
+	private final CacheGate gate;
+	private final boolean copyOnClear;
 	
 	private final StorageReader<K, V> storageReader;
 	private final StorageWriter<K, V> storageWriter;
@@ -49,13 +51,21 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 	}
 	
 	public ConcurrentCacheAsMap(String cacheName, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache) {
+		this(cacheName, storageReader, storageWriter, primaryCache, new LockManager<>());
+	}
+	
+	public ConcurrentCacheAsMap(String cacheName, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy) {
+		this(cacheName, storageReader, storageWriter, primaryCache, lockStrategy, false);
+	}
+	
+	public ConcurrentCacheAsMap(String cacheName, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy, boolean copyOnClear) {
 		map = new ConcurrentHashMap<>();
-		cacheMiss = ConcurrentHashMap.newKeySet();
+		cacheMiss = new ConcurrentHashMap<>();
 		cacheDirty = ConcurrentHashMap.newKeySet();
 		cacheDel = ConcurrentHashMap.newKeySet();
-		lockManager = new LockManager<>();
-		disabled = new AtomicBoolean(false);
-		clients = new AtomicInteger(0);
+		lockManager = lockStrategy;
+		gate = new CacheGate();
+		this.copyOnClear = copyOnClear;
 		
 		this.cacheName = cacheName;
 		this.storageReader = storageReader;
@@ -83,75 +93,186 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 	
 	@Override
 	public boolean containsKey(K key) {
-		while (disabled.get());
-		
 		boolean result = false;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.containsKey(key);
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 
 	@Override
 	public V get(K key) {
-		while (disabled.get());
-		
 		V result = null;
+		CompletableFuture<V> future = null;
+		List<K> misses = null;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.get(key);
 			
 			if (result==null && !map.containsKey(key)) {
-				if (storageReader!=null) {
-					if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
-						cacheMiss.add(key);
-						storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
-					}
-				}
+				misses = new ArrayList<>(1);
+				future = load(key, misses);
+			}
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		if (misses!=null && misses.size()>0)
+			loadFromStorage(key, future);
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the value of the key, if missing completed after it was loaded from the storage. All
+	 * concurrent callers of a missing key share one load.
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key) {
+		CompletableFuture<V> result = null;
+		List<K> misses = null;
+		
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			V value = map.get(key);
+			
+			if (value==null && !map.containsKey(key)) {
+				misses = new ArrayList<>(1);
+				result = load(key, misses);
+			}
+			else {
+				result = CompletableFuture.completedFuture(value);
 			}
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+		
+		if (misses!=null && misses.size()>0)
+			loadFromStorage(key, result);
 		
 		return result;
 	}
 	
+	// Registers the load of a missing key (to be started by the caller) or joins the load in flight, the key must be locked
+	private CompletableFuture<V> load(K key, List<K> misses) {
+		CompletableFuture<V> result = cacheMiss.get(key);
+		
+		if (result==null) {
+			if (storageReader==null || cacheDel.contains(key))
+				result = CompletableFuture.completedFuture(null);
+			else {
+				result = new CompletableFuture<>();
+				cacheMiss.put(key, result);
+				misses.add(key); // loaded by the caller, after the key was unlocked
+			}
+		}
+		
+		return result;
+	}
+	
+	// Loaded without holding locks, the reader may call back synchronously
+	private void loadFromStorage(K key, CompletableFuture<V> future) {
+		try {
+			storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			failLoad(key, future, e);
+		}
+	}
+	
+	private void loadFromStorage(List<K> misses, Map<K, CompletableFuture<V>> loads) {
+		try {
+			storageReader.get(misses, (entries) -> putIfAbsentLocal(misses, entries));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			for (K key : misses)
+				failLoad(key, loads.get(key), e);
+		}
+	}
+	
+	// The failed load is not joined by later callers, the key is loaded again on the next miss
+	private void failLoad(K key, CompletableFuture<V> future, Throwable t) {
+		cacheMiss.remove(key, future);
+		future.completeExceptionally(t); // no effect, if completed by the reader before failing
+	}
+	
+	// Completes the load, a value put in the meantime takes precedence over the loaded value
 	private void putIfAbsentLocal(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		CompletableFuture<V> future = null;
+		V result = value;
+		
+		gate.enter();
 		lockManager.lock(key);
 		try {
-			V oldValue = map.putIfAbsent(key, value);
+			V oldValue = value!=null ? map.putIfAbsent(key, value) : map.get(key);
 			
-			if (oldValue==null)
-				cacheMiss.remove(key);
+			if (oldValue!=null)
+				result = oldValue;
+			future = cacheMiss.remove(key);
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+		
+		// completed without holding locks, dependent stages may access the cache
+		if (future!=null)
+			future.complete(result);
+	}
+	
+	// Completes the loads of all requested misses, absent keys (omitted by the reader) are completed with null
+	private void putIfAbsentLocal(List<K> misses, Map<K, V> entries) {
+		List<Pair<CompletableFuture<V>, V>> futures = new ArrayList<>(misses.size());
+		
+		gate.enter();
+		try {
+			for (K key : misses) {
+				V value = entries.get(key);
+				lockManager.lock(key);
+				try {
+					V oldValue = value!=null ? map.putIfAbsent(key, value) : map.get(key);
+					
+					if (oldValue!=null)
+						value = oldValue;
+					CompletableFuture<V> future = cacheMiss.remove(key);
+					if (future!=null)
+						futures.add(Pair.of(future, value));
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+		}
+		finally {
+			gate.exit();
+		}
+		
+		for (Pair<CompletableFuture<V>, V> pair : futures)
+			pair.a().complete(pair.b());
 	}
 	
 	@Override
 	public V put(K key, V value) {
-		while (disabled.get());
-		
 		V result = null;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.put(key, value);
@@ -165,16 +286,14 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 	
 	private void removeDirty(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDirty.contains(key)) {
@@ -185,8 +304,13 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeDirty(Map<K, V> entries) {
+		for (Map.Entry<K, V> entry : entries.entrySet())
+			removeDirty(entry.getKey(), entry.getValue());
 	}
 	
 	@Override
@@ -200,9 +324,7 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 	public boolean compareAndSet(K key, V expectedValue, V newValue) {
 		boolean result = false;
 		
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			V value = map.get(key);
@@ -219,17 +341,24 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 
 		return result;
 	}
 	
 	@Override
 	public void remove(K key) {
-		while (disabled.get());
-		
-		clients.incrementAndGet();
+		gate.enter();
+		try {
+			removeLocal(key, null);
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	private void removeLocal(K key, List<K> storageRemoves) {
 		lockManager.lock(key);
 		try {
 			map.remove(key);
@@ -239,19 +368,19 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 					if (cacheDirty.contains(key))
 						cacheDirty.remove(key);
 					cacheDel.add(key);
-					storageWriter.remove(key, () -> removeIfDelLocal(key));
+					if (storageRemoves!=null)
+						storageRemoves.add(key);
+					else
+						storageWriter.remove(key, () -> removeIfDelLocal(key));
 				}
 		}
 		finally {
 			lockManager.unLock(key);
 		}
-		clients.decrementAndGet();
 	}
 	
 	private void removeIfDelLocal(K key) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDel.contains(key))
@@ -259,21 +388,35 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeIfDelLocal(List<K> keys) {
+		for (K key : keys)
+			removeIfDelLocal(key);
 	}
 	
 	@Override
 	public void clear() {
-		while (!disabled.compareAndSet(false, true));
-		
-		while (clients.get()>0);
-		map.clear();
-		cacheMiss.clear();
-		cacheDirty.clear();
-		cacheDel.clear();
-
-		disabled.set(false);
+		gate.disable();
+		try {
+			// loads in flight are kept, their waiters are completed by the storage reader
+			if (copyOnClear) {
+				// swaps in fresh structures, the old ones are left to the garbage collector
+				map = new ConcurrentHashMap<>();
+				cacheDirty = ConcurrentHashMap.newKeySet();
+				cacheDel = ConcurrentHashMap.newKeySet();
+			}
+			else {
+				map.clear();
+				cacheDirty.clear();
+				cacheDel.clear();
+			}
+		}
+		finally {
+			gate.enable();
+		}
 	}
 	
 	@Override
@@ -283,29 +426,33 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 	
 	@Override
 	public void synchronizeWithStorage() {
-		while (disabled.get());
-
-		clients.incrementAndGet();
-		for (K key : cacheDirty) {
-			lockManager.lock(key);
-			try {
-				V value = map.get(key);
-				storageWriter.put(key, value, () -> removeDirty(key, value));
-			}
-			finally {
-				lockManager.unLock(key);
+		Map<K, V> storageWrites = new HashMap<>();
+		List<K> storageRemoves = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : cacheDirty) {
+				lockManager.lock(key);
+				try {
+					V value = map.get(key);
+					if (value!=null)
+						storageWrites.put(key, value);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
 			}
+			storageRemoves.addAll(cacheDel);
+			
+			// one batch for all dirty entries and one for all deleted keys
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+			if (storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
 		}
-		for (K key : cacheDel) {
-			lockManager.lock(key);
-			try {
-				storageWriter.remove(key, () -> removeIfDelLocal(key));
-			}
-			finally {
-				lockManager.unLock(key);
-			}
+		finally {
+			gate.exit();
 		}
-		clients.decrementAndGet();
 	}
 
 	@Override
@@ -315,20 +462,111 @@ public class ConcurrentCacheAsMap<K, V> implements ConcurrentCache<K, V> {
 
 	@Override
 	public Map<K, V> get(List<K> keys) {
-		// TODO Auto-generated method stub
-		return null;
+		return get(keys, new HashMap<>());
+	}
+	
+	/**
+	 * Returns the values of the keys, completed after all missing keys were loaded from the storage.
+	 * Misses are merged into one multi-key request, loads already in flight are shared.
+	 */
+	@Override
+	public CompletableFuture<Map<K, V>> getAsync(List<K> keys) {
+		Map<K, CompletableFuture<V>> loads = new HashMap<>();
+		Map<K, V> result = get(keys, loads);
+		
+		if (loads.isEmpty())
+			return CompletableFuture.completedFuture(result);
+		
+		return CompletableFuture.allOf(loads.values().toArray(new CompletableFuture[0])).thenApply((v) -> {
+			for (Map.Entry<K, CompletableFuture<V>> entry : loads.entrySet()) {
+				V value = entry.getValue().join();
+				if (value!=null)
+					result.put(entry.getKey(), value);
+			}
+			return result;
+		});
+	}
+	
+	// Keys are locked one after another (never nested), misses are loaded with one multi-key request
+	private Map<K, V> get(List<K> keys, Map<K, CompletableFuture<V>> loads) {
+		Map<K, V> result = new HashMap<>();
+		List<K> misses = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : keys) {
+				lockManager.lock(key);
+				try {
+					V value = map.get(key);
+					
+					if (value==null && !map.containsKey(key))
+						loads.put(key, load(key, misses));
+					else
+						result.put(key, value);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+		}
+		finally {
+			gate.exit();
+		}
+		
+		if (misses.size()>0)
+			loadFromStorage(misses, loads);
+		
+		return result;
 	}
 
 	@Override
 	public void put(Map<K, V> entries) {
-		// TODO Auto-generated method stub
+		Map<K, V> storageWrites = new HashMap<>();
 		
+		gate.enter();
+		try {
+			for (Map.Entry<K, V> entry : entries.entrySet()) {
+				K key = entry.getKey();
+				V value = entry.getValue();
+				lockManager.lock(key);
+				try {
+					map.put(key, value);
+					
+					if (storageWriter!=null) {
+						if (cacheDel.contains(key))
+							cacheDel.remove(key);
+						cacheDirty.add(key);
+						storageWrites.put(key, value);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+		}
+		finally {
+			gate.exit();
+		}
 	}
 
 	@Override
 	public void remove(List<K> keys) {
-		// TODO Auto-generated method stub
+		List<K> storageRemoves = storageWriter!=null ? new ArrayList<>(keys.size()) : null;
 		
+		gate.enter();
+		try {
+			for (K key : keys)
+				removeLocal(key, storageRemoves);
+			
+			if (storageRemoves!=null && storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
 	}
 	
 	@Override
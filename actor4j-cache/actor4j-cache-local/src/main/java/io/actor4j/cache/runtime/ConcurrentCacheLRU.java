@@ -15,33 +15,39 @@
  */
 package io.actor4j.cache.runtime;
 
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.actor4j.cache.StorageReader;
 import io.actor4j.cache.StorageWriter;
+import io.actor4j.cache.Weigher;
 import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.core.utils.Pair;
 
 public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 	private final String cacheName;
 	
-	private final Map<K, V> map;
-	private final Deque<K> lru;
-	private final Set<K> cacheMiss;
-	private final Set<K> cacheDirty;
-	private final Set<K> cacheDel;
+	private Map<K, V> map;
+	private AccessOrderList<K> lru;
+	private final Map<K, CompletableFuture<V>> cacheMiss; // loads in flight
+	private Set<K> cacheDirty;
+	private Set<K> cacheDel;
 	
-	private final LockManager<K> lockManager;
+	private final LockStrategy<K> lockManager;
 	private final int size;
 	
-	private final AtomicBoolean disabled;
-	private final AtomicInteger clients;
+	private final long maximumWeight;
+	private final Weigher<K, V> weigher; // null, if bounded by entry count only
+	private final AtomicLong weight;
+	
+	private final CacheGate gate;
+	private final boolean copyOnClear;
 	
 	private final StorageReader<K, V> storageReader;
 	private final StorageWriter<K, V> storageWriter;
@@ -53,22 +59,47 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 	}
 	
 	public ConcurrentCacheLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache) {
+		this(cacheName, size, storageReader, storageWriter, primaryCache, new LockManager<>());
+	}
+	
+	public ConcurrentCacheLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy) {
+		this(cacheName, size, storageReader, storageWriter, primaryCache, lockStrategy, false);
+	}
+	
+	public ConcurrentCacheLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy, boolean copyOnClear) {
+		this(cacheName, size, 0, null, storageReader, storageWriter, primaryCache, lockStrategy, copyOnClear);
+	}
+	
+	public ConcurrentCacheLRU(String cacheName, long maximumWeight, Weigher<K, V> weigher, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter) {
+		this(cacheName, Integer.MAX_VALUE, maximumWeight, weigher, storageReader, storageWriter, true, new LockManager<>(), false);
+	}
+	
+	public ConcurrentCacheLRU(String cacheName, long maximumWeight, Weigher<K, V> weigher) {
+		this(cacheName, maximumWeight, weigher, null, null);
+	}
+	
+	// Bounded by entry count and, if a weigher is given, by the total weight of all entries
+	public ConcurrentCacheLRU(String cacheName, int size, long maximumWeight, Weigher<K, V> weigher, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy, boolean copyOnClear) {
 		super();
 		
-		map = new ConcurrentHashMap<>(size);
-		lru = new ConcurrentLinkedDeque<>();
-		cacheMiss = ConcurrentHashMap.newKeySet();
+		map = new ConcurrentHashMap<>(initialCapacity(size, weigher));
+		lru = new AccessOrderList<>();
+		cacheMiss = new ConcurrentHashMap<>();
 		cacheDirty = ConcurrentHashMap.newKeySet();
 		cacheDel = ConcurrentHashMap.newKeySet();
-		lockManager = new LockManager<>();
-		disabled = new AtomicBoolean(false);
-		clients = new AtomicInteger(0);
+		lockManager = lockStrategy;
+		gate = new CacheGate();
+		this.copyOnClear = copyOnClear;
 		
 		this.cacheName = cacheName;
 		this.size = size;
 		this.storageReader = storageReader;
 		this.storageWriter = storageWriter;
 		this.primaryCache = primaryCache;
+		
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		weight = new AtomicLong(0);
 	}
 	
 	public ConcurrentCacheLRU(String cacheName, int size) {
@@ -79,7 +110,7 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		return map;
 	}
 
-	public Deque<K> getLru() {
+	public AccessOrderList<K> getLru() {
 		return lru;
 	}
 	
@@ -92,6 +123,15 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		return size;
 	}
 	
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+	
+	// Current total weight of all cached entries, zero if no weigher is used
+	public long weight() {
+		return weight.get();
+	}
+	
 	@Override
 	public boolean isPrimary() {
 		return primaryCache;
@@ -99,93 +139,212 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 	
 	@Override
 	public boolean containsKey(K key) {
-		while (disabled.get());
-		
 		boolean result = false;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.containsKey(key);
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 	
 	@Override
 	public V get(K key) {
-		while (disabled.get());
-		
 		V result = null;
+		CompletableFuture<V> future = null;
+		List<K> misses = null;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.get(key);
 			
 			if (result==null && !map.containsKey(key)) {
-				if (storageReader!=null) {
-					if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
-						cacheMiss.add(key);
-						storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
-					}
-				}
+				misses = new ArrayList<>(1);
+				future = load(key, misses);
+			}
+			else
+				lru.touch(key);
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		if (misses!=null && misses.size()>0)
+			loadFromStorage(key, future);
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the value of the key, if missing completed after it was loaded from the storage. All
+	 * concurrent callers of a missing key share one load.
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key) {
+		CompletableFuture<V> result = null;
+		List<K> misses = null;
+		
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			V value = map.get(key);
+			
+			if (value==null && !map.containsKey(key)) {
+				misses = new ArrayList<>(1);
+				result = load(key, misses);
 			}
 			else {
-				lru.remove(key);
-				lru.addLast(key);
+				lru.touch(key);
+				result = CompletableFuture.completedFuture(value);
 			}
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		if (misses!=null && misses.size()>0)
+			loadFromStorage(key, result);
+		
+		return result;
+	}
+	
+	// Registers the load of a missing key (to be started by the caller) or joins the load in flight, the key must be locked
+	private CompletableFuture<V> load(K key, List<K> misses) {
+		CompletableFuture<V> result = cacheMiss.get(key);
+		
+		if (result==null) {
+			if (storageReader==null || cacheDel.contains(key))
+				result = CompletableFuture.completedFuture(null);
+			else {
+				result = new CompletableFuture<>();
+				cacheMiss.put(key, result);
+				misses.add(key); // loaded by the caller, after the key was unlocked
+			}
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 	
+	// Loaded without holding locks, the reader may call back synchronously
+	private void loadFromStorage(K key, CompletableFuture<V> future) {
+		try {
+			storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			failLoad(key, future, e);
+		}
+	}
+	
+	private void loadFromStorage(List<K> misses, Map<K, CompletableFuture<V>> loads) {
+		try {
+			storageReader.get(misses, (entries) -> putIfAbsentLocal(misses, entries));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			for (K key : misses)
+				failLoad(key, loads.get(key), e);
+		}
+	}
+	
+	// The failed load is not joined by later callers, the key is loaded again on the next miss
+	private void failLoad(K key, CompletableFuture<V> future, Throwable t) {
+		cacheMiss.remove(key, future);
+		future.completeExceptionally(t); // no effect, if completed by the reader before failing
+	}
+	
+	// Completes the load, a value put in the meantime takes precedence over the loaded value
 	private void putIfAbsentLocal(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		CompletableFuture<V> future = null;
+		V result = value;
+		
+		gate.enter();
 		lockManager.lock(key);
 		try {
-			V oldValue = map.putIfAbsent(key, value);
+			V oldValue = value!=null ? map.putIfAbsent(key, value) : map.get(key);
 			
-			if (oldValue==null) {
+			if (oldValue!=null)
+				result = oldValue;
+			else if (value!=null) {
+				weigh(key, null, value);
 				resize();
 				lru.addLast(key);
-				cacheMiss.remove(key);
 			}
+			future = cacheMiss.remove(key);
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		// completed without holding locks, dependent stages may access the cache
+		if (future!=null)
+			future.complete(result);
+	}
+	
+	// Completes the loads of all requested misses, absent keys (omitted by the reader) are completed with null
+	private void putIfAbsentLocal(List<K> misses, Map<K, V> entries) {
+		List<Pair<CompletableFuture<V>, V>> futures = new ArrayList<>(misses.size());
+		
+		gate.enter();
+		try {
+			for (K key : misses) {
+				V value = entries.get(key);
+				lockManager.lock(key);
+				try {
+					V oldValue = value!=null ? map.putIfAbsent(key, value) : map.get(key);
+					
+					if (oldValue!=null)
+						value = oldValue;
+					else if (value!=null) {
+						weigh(key, null, value);
+						lru.addLast(key);
+					}
+					CompletableFuture<V> future = cacheMiss.remove(key);
+					if (future!=null)
+						futures.add(Pair.of(future, value));
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			resize();
 		}
-		clients.decrementAndGet();
+		finally {
+			gate.exit();
+		}
+		
+		for (Pair<CompletableFuture<V>, V> pair : futures)
+			pair.a().complete(pair.b());
 	}
 	
 	@Override
 	public V put(K key, V value) {
-		while (disabled.get());
-		
 		V result = null;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.put(key, value);
+			weigh(key, result, value);
 			
 			if (result==null) {
 				resize();
 				lru.addLast(key);
 			}
 			else {
-				lru.remove(key);
 				lru.addLast(key);
+				if (weigher!=null)
+					resize();
 			}
 			
 			if (storageWriter!=null) {
@@ -197,16 +356,14 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 	
 	private void removeDirty(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDirty.contains(key)) {
@@ -217,8 +374,13 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeDirty(Map<K, V> entries) {
+		for (Map.Entry<K, V> entry : entries.entrySet())
+			removeDirty(entry.getKey(), entry.getValue());
 	}
 	
 	@Override
@@ -232,17 +394,17 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 	public boolean compareAndSet(K key, V expectedValue, V newValue) {
 		boolean result = false;
 		
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			V value = map.get(key);
 			if (value!=null && value.equals(expectedValue)) {
 				map.put(key, newValue);
+				weigh(key, value, newValue);
 				
-				lru.remove(key);
 				lru.addLast(key);
+				if (weigher!=null)
+					resize();
 				
 				if (storageWriter!=null) {
 					if (cacheDel.contains(key))
@@ -254,20 +416,27 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 
 		return result;
 	}
 	
 	@Override
 	public void remove(K key) {
-		while (disabled.get());
-		
-		clients.incrementAndGet();
+		gate.enter();
+		try {
+			removeLocal(key, null);
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	private void removeLocal(K key, List<K> storageRemoves) {
 		lockManager.lock(key);
 		try {
-			map.remove(key);
+			weigh(key, map.remove(key), null);
 			lru.remove(key);
 			
 			if (storageWriter!=null)
@@ -275,19 +444,19 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 					if (cacheDirty.contains(key))
 						cacheDirty.remove(key);
 					cacheDel.add(key);
-					storageWriter.remove(key, () -> removeIfDelLocal(key));
+					if (storageRemoves!=null)
+						storageRemoves.add(key);
+					else
+						storageWriter.remove(key, () -> removeIfDelLocal(key));
 				}
 		}
 		finally {
 			lockManager.unLock(key);
 		}
-		clients.decrementAndGet();
 	}
 	
 	private void removeIfDelLocal(K key) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDel.contains(key))
@@ -295,31 +464,66 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeIfDelLocal(List<K> keys) {
+		for (K key : keys)
+			removeIfDelLocal(key);
 	}
 	
 	@Override
 	public void clear() {
-		while (!disabled.compareAndSet(false, true));
-		
-		while (clients.get()>0);
-		map.clear();
-		lru.clear();
-		cacheMiss.clear();
-		cacheDirty.clear();
-		cacheDel.clear();
-
-		disabled.set(false);
+		gate.disable();
+		try {
+			// loads in flight are kept, their waiters are completed by the storage reader
+			if (copyOnClear) {
+				// swaps in fresh structures, the old ones are left to the garbage collector
+				map = new ConcurrentHashMap<>(initialCapacity(size, weigher));
+				lru = new AccessOrderList<>();
+				cacheDirty = ConcurrentHashMap.newKeySet();
+				cacheDel = ConcurrentHashMap.newKeySet();
+			}
+			else {
+				map.clear();
+				lru.clear();
+				cacheDirty.clear();
+				cacheDel.clear();
+			}
+			weight.set(0);
+		}
+		finally {
+			gate.enable();
+		}
 	}
 	
 	private void resize() {
-		if (map.size()>size) {
-			map.remove(lru.getFirst());
-			lru.removeFirst();
+		while (map.size()>size || (weigher!=null && weight.get()>maximumWeight)) {
+			K first = lru.pollFirst();
+			if (first==null)
+				break;
+			weigh(first, map.remove(first), null);
 		}
 	}
 	
+	// Adds the difference of the weights, if a weigher is used
+	private void weigh(K key, V oldValue, V newValue) {
+		if (weigher!=null) {
+			long delta = 0;
+			if (oldValue!=null)
+				delta -= weigher.weigh(key, oldValue);
+			if (newValue!=null)
+				delta += weigher.weigh(key, newValue);
+			if (delta!=0)
+				weight.addAndGet(delta);
+		}
+	}
+	
+	private static int initialCapacity(int size, Weigher<?, ?> weigher) {
+		return weigher!=null ? 16 : size;
+	}
+	
 	@Override
 	public void evict(long duration) {
 		// empty
@@ -327,29 +531,33 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 	
 	@Override
 	public void synchronizeWithStorage() {
-		while (disabled.get());
-
-		clients.incrementAndGet();
-		for (K key : cacheDirty) {
-			lockManager.lock(key);
-			try {
-				V value = map.get(key);
-				storageWriter.put(key, value, () -> removeDirty(key, value));
-			}
-			finally {
-				lockManager.unLock(key);
+		Map<K, V> storageWrites = new HashMap<>();
+		List<K> storageRemoves = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : cacheDirty) {
+				lockManager.lock(key);
+				try {
+					V value = map.get(key);
+					if (value!=null)
+						storageWrites.put(key, value);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
 			}
+			storageRemoves.addAll(cacheDel);
+			
+			// one batch for all dirty entries and one for all deleted keys
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+			if (storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
 		}
-		for (K key : cacheDel) {
-			lockManager.lock(key);
-			try {
-				storageWriter.remove(key, () -> removeIfDelLocal(key));
-			}
-			finally {
-				lockManager.unLock(key);
-			}
+		finally {
+			gate.exit();
 		}
-		clients.decrementAndGet();
 	}
 
 	@Override
@@ -359,20 +567,117 @@ public class ConcurrentCacheLRU<K, V> implements ConcurrentCache<K, V> {
 
 	@Override
 	public Map<K, V> get(List<K> keys) {
-		// TODO Auto-generated method stub
-		return null;
+		return get(keys, new HashMap<>());
+	}
+	
+	/**
+	 * Returns the values of the keys, completed after all missing keys were loaded from the storage.
+	 * Misses are merged into one multi-key request, loads already in flight are shared.
+	 */
+	@Override
+	public CompletableFuture<Map<K, V>> getAsync(List<K> keys) {
+		Map<K, CompletableFuture<V>> loads = new HashMap<>();
+		Map<K, V> result = get(keys, loads);
+		
+		if (loads.isEmpty())
+			return CompletableFuture.completedFuture(result);
+		
+		return CompletableFuture.allOf(loads.values().toArray(new CompletableFuture[0])).thenApply((v) -> {
+			for (Map.Entry<K, CompletableFuture<V>> entry : loads.entrySet()) {
+				V value = entry.getValue().join();
+				if (value!=null)
+					result.put(entry.getKey(), value);
+			}
+			return result;
+		});
+	}
+	
+	// Keys are locked one after another (never nested), misses are loaded with one multi-key request
+	private Map<K, V> get(List<K> keys, Map<K, CompletableFuture<V>> loads) {
+		Map<K, V> result = new HashMap<>();
+		List<K> hits = new ArrayList<>(keys.size());
+		List<K> misses = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : keys) {
+				lockManager.lock(key);
+				try {
+					V value = map.get(key);
+					
+					if (value==null && !map.containsKey(key))
+						loads.put(key, load(key, misses));
+					else {
+						result.put(key, value);
+						hits.add(key);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			lru.touch(hits);
+		}
+		finally {
+			gate.exit();
+		}
+		
+		if (misses.size()>0)
+			loadFromStorage(misses, loads);
+		
+		return result;
 	}
 
 	@Override
 	public void put(Map<K, V> entries) {
-		// TODO Auto-generated method stub
+		Map<K, V> storageWrites = new HashMap<>();
 		
+		gate.enter();
+		try {
+			for (Map.Entry<K, V> entry : entries.entrySet()) {
+				K key = entry.getKey();
+				V value = entry.getValue();
+				lockManager.lock(key);
+				try {
+					weigh(key, map.put(key, value), value);
+					lru.addLast(key); // under the key lock, a concurrent remove must not leave the key in the LRU
+					
+					if (storageWriter!=null) {
+						if (cacheDel.contains(key))
+							cacheDel.remove(key);
+						cacheDirty.add(key);
+						storageWrites.put(key, value);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+			resize();
+		}
+		finally {
+			gate.exit();
+		}
 	}
 
 	@Override
 	public void remove(List<K> keys) {
-		// TODO Auto-generated method stub
+		List<K> storageRemoves = storageWriter!=null ? new ArrayList<>(keys.size()) : null;
 		
+		gate.enter();
+		try {
+			for (K key : keys)
+				removeLocal(key, storageRemoves);
+			
+			if (storageRemoves!=null && storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
 	}
 	
 	@Override
@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.cache.StorageReader;
+import io.actor4j.cache.StorageWriter;
+import io.actor4j.core.serializer.api.SerializerService;
+
+/**
+ * LRU cache, that stores the serialized values off-heap in direct slabs (see {@link SlabAllocator}).
+ * 
+ * The block addresses of the values are kept in a compact primitive index (see {@link OffHeapIndex}), without
+ * boxing or entry objects, so the heap only holds the keys and one access order node per entry.
+ * Values are encoded and decoded outside of the key locks. If the off-heap memory is exhausted, least
+ * recently used entries are evicted.
+ */
+public class ConcurrentCacheOffHeap<K, V> implements ConcurrentCache<K, V> {
+	private final String cacheName;
+	
+	private final OffHeapIndex<K> index; // key -> address of the first block
+	private final AccessOrderList<K> lru;
+	private final Set<K> cacheMiss;
+	private final Set<K> cacheDirty;
+	private final Set<K> cacheDel;
+	
+	private final LockStrategy<K> lockManager;
+	private final int size;
+	
+	private final SlabAllocator allocator;
+	private final SerializerService serializer;
+	private final Class<V> valueType;
+	
+	private final CacheGate gate;
+	
+	private final StorageReader<K, V> storageReader;
+	private final StorageWriter<K, V> storageWriter;
+	
+	private final boolean primaryCache;
+	
+	public ConcurrentCacheOffHeap(String cacheName, int size, long maximumMemory, SerializerService serializer, Class<V> valueType, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter) {
+		this(cacheName, size, maximumMemory, serializer, valueType, storageReader, storageWriter, true);
+	}
+	
+	public ConcurrentCacheOffHeap(String cacheName, int size, long maximumMemory, SerializerService serializer, Class<V> valueType, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache) {
+		this(cacheName, size, new SlabAllocator(maximumMemory), serializer, valueType, storageReader, storageWriter, primaryCache, new LockManager<>());
+	}
+	
+	public ConcurrentCacheOffHeap(String cacheName, int size, SlabAllocator allocator, SerializerService serializer, Class<V> valueType, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy) {
+		super();
+		
+		index = new OffHeapIndex<>();
+		lru = new AccessOrderList<>();
+		cacheMiss = ConcurrentHashMap.newKeySet();
+		cacheDirty = ConcurrentHashMap.newKeySet();
+		cacheDel = ConcurrentHashMap.newKeySet();
+		lockManager = lockStrategy;
+		gate = new CacheGate();
+		
+		this.cacheName = cacheName;
+		this.size = size;
+		this.allocator = allocator;
+		this.serializer = serializer;
+		this.valueType = valueType;
+		this.storageReader = storageReader;
+		this.storageWriter = storageWriter;
+		this.primaryCache = primaryCache;
+	}
+	
+	public ConcurrentCacheOffHeap(String cacheName, int size, long maximumMemory, SerializerService serializer, Class<V> valueType) {
+		this(cacheName, size, maximumMemory, serializer, valueType, null, null);
+	}
+	
+	public OffHeapIndex<K> getIndex() {
+		return index;
+	}
+	
+	public AccessOrderList<K> getLru() {
+		return lru;
+	}
+	
+	public SlabAllocator getAllocator() {
+		return allocator;
+	}
+	
+	@Override
+	public String name() {
+		return cacheName;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isPrimary() {
+		return primaryCache;
+	}
+	
+	@Override
+	public boolean containsKey(K key) {
+		boolean result = false;
+		
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			result = index.containsKey(key);
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public V get(K key) {
+		byte[] data = null;
+		boolean load = false;
+		
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			long address = index.get(key);
+			
+			if (address==OffHeapIndex.NO_ADDRESS) {
+				if (storageReader!=null) {
+					if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
+						cacheMiss.add(key);
+						load = true;
+					}
+				}
+			}
+			else {
+				data = allocator.read(address);
+				lru.touch(key);
+			}
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+		
+		// loaded without holding locks, the reader may call back synchronously
+		if (load)
+			try {
+				storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				cacheMiss.remove(key); // the key is loaded again on the next miss
+			}
+		
+		return data!=null ? decode(data) : null;
+	}
+	
+	private void putIfAbsentLocal(K key, V value) {
+		if (value==null) {
+			cacheMiss.remove(key); // absent in the storage, may be loaded again
+			return;
+		}
+		byte[] data = serializer.encode(value);
+		
+		gate.enter();
+		try {
+			long address = allocate(data);
+			boolean inserted = false;
+			
+			lockManager.lock(key);
+			try {
+				if (!index.containsKey(key)) {
+					index.put(key, address);
+					lru.addLast(key);
+					inserted = true;
+				}
+				cacheMiss.remove(key);
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+			
+			if (inserted)
+				resize();
+			else
+				allocator.free(address);
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	// Completes the loads of all requested misses, also of absent keys (omitted by the reader)
+	private void putIfAbsentLocal(List<K> misses, Map<K, V> entries) {
+		for (K key : misses)
+			putIfAbsentLocal(key, entries.get(key));
+	}
+	
+	@Override
+	public V put(K key, V value) {
+		return putLocal(key, value, true);
+	}
+	
+	// Overwrites without reading and decoding the previous value from off-heap
+	@Override
+	public void set(K key, V value) {
+		putLocal(key, value, false);
+	}
+	
+	private V putLocal(K key, V value, boolean previous) {
+		byte[] result = null;
+		byte[] data = serializer.encode(value);
+		
+		gate.enter();
+		try {
+			long address = allocate(data);
+			
+			lockManager.lock(key);
+			try {
+				long oldAddress = index.put(key, address);
+				lru.addLast(key);
+				if (oldAddress!=OffHeapIndex.NO_ADDRESS) {
+					if (previous)
+						result = allocator.read(oldAddress);
+					allocator.free(oldAddress);
+				}
+				
+				if (storageWriter!=null) {
+					if (cacheDel.contains(key))
+						cacheDel.remove(key);
+					cacheDirty.add(key);
+					storageWriter.put(key, value, () -> removeDirty(key, data));
+				}
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+			resize();
+		}
+		finally {
+			gate.exit();
+		}
+		
+		return result!=null ? decode(result) : null;
+	}
+	
+	// The entry is clean, if it was not overwritten with another value in the meantime
+	private void removeDirty(K key, byte[] data) {
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			long current = index.get(key);
+			if (current!=OffHeapIndex.NO_ADDRESS && Arrays.equals(allocator.read(current), data))
+				cacheDirty.remove(key);
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+	}
+	
+	private void removeDirty(Map<K, byte[]> entries) {
+		for (Map.Entry<K, byte[]> entry : entries.entrySet())
+			removeDirty(entry.getKey(), entry.getValue());
+	}
+	
+	@Override
+	public void writeAround(K key, V value) {
+		if (storageWriter!=null)
+			storageWriter.put(key, value, null);
+	}
+	
+	// Works only if already available in the cache
+	@Override
+	public boolean compareAndSet(K key, V expectedValue, V newValue) {
+		boolean result = false;
+		byte[] data = serializer.encode(newValue);
+		
+		gate.enter();
+		try {
+			long address = allocate(data);
+			
+			lockManager.lock(key);
+			try {
+				long oldAddress = index.get(key);
+				if (oldAddress!=OffHeapIndex.NO_ADDRESS && expectedValue!=null && expectedValue.equals(decode(allocator.read(oldAddress)))) {
+					index.put(key, address);
+					lru.addLast(key);
+					allocator.free(oldAddress);
+					result = true;
+					
+					if (storageWriter!=null) {
+						if (cacheDel.contains(key))
+							cacheDel.remove(key);
+						cacheDirty.add(key);
+						storageWriter.put(key, newValue, () -> removeDirty(key, data));
+					}
+				}
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+			
+			if (!result)
+				allocator.free(address);
+		}
+		finally {
+			gate.exit();
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public void remove(K key) {
+		gate.enter();
+		try {
+			removeLocal(key, null);
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	private void removeLocal(K key, List<K> storageRemoves) {
+		lockManager.lock(key);
+		try {
+			long address = index.remove(key);
+			if (address!=OffHeapIndex.NO_ADDRESS) {
+				lru.remove(key);
+				allocator.free(address);
+			}
+			
+			if (storageWriter!=null)
+				if (!cacheDel.contains(key)) {
+					if (cacheDirty.contains(key))
+						cacheDirty.remove(key);
+					cacheDel.add(key);
+					if (storageRemoves!=null)
+						storageRemoves.add(key);
+					else
+						storageWriter.remove(key, () -> removeIfDelLocal(key));
+				}
+		}
+		finally {
+			lockManager.unLock(key);
+		}
+	}
+	
+	private void removeIfDelLocal(K key) {
+		gate.enter();
+		lockManager.lock(key);
+		try {
+			if (cacheDel.contains(key))
+				cacheDel.remove(key);
+		}
+		finally {
+			lockManager.unLock(key);
+			gate.exit();
+		}
+	}
+	
+	private void removeIfDelLocal(List<K> keys) {
+		for (K key : keys)
+			removeIfDelLocal(key);
+	}
+	
+	@Override
+	public void clear() {
+		gate.disable();
+		try {
+			index.clear();
+			lru.clear();
+			allocator.clear();
+			cacheMiss.clear();
+			cacheDirty.clear();
+			cacheDel.clear();
+		}
+		finally {
+			gate.enable();
+		}
+	}
+	
+	// Allocates and writes the blocks for the value, must be called without holding a key lock
+	private long allocate(byte[] data) {
+		long result;
+		while ((result = allocator.allocate(data.length))<0)
+			if (!evictFirst())
+				throw new IllegalStateException("Value exceeds the off-heap memory of the cache");
+		allocator.write(result, data);
+		
+		return result;
+	}
+	
+	// Must be called without holding a key lock
+	private void resize() {
+		while (lru.size()>size)
+			if (!evictFirst())
+				break;
+	}
+	
+	private boolean evictFirst() {
+		K first = lru.peekFirst();
+		if (first==null)
+			return false;
+		
+		lockManager.lock(first);
+		try {
+			long address = index.remove(first); // may already be removed concurrently
+			if (address!=OffHeapIndex.NO_ADDRESS) {
+				lru.remove(first);
+				allocator.free(address);
+			}
+		}
+		finally {
+			lockManager.unLock(first);
+		}
+		
+		return true;
+	}
+	
+	private V decode(byte[] data) {
+		return serializer.decode(data, valueType);
+	}
+	
+	@Override
+	public void evict(long duration) {
+		// empty
+	}
+	
+	@Override
+	public void synchronizeWithStorage() {
+		Map<K, V> storageWrites = new HashMap<>();
+		Map<K, byte[]> dirtyData = new HashMap<>();
+		List<K> storageRemoves = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : cacheDirty) {
+				byte[] data = null;
+				lockManager.lock(key);
+				try {
+					long address = index.get(key);
+					if (address!=OffHeapIndex.NO_ADDRESS)
+						data = allocator.read(address);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+				if (data!=null) {
+					storageWrites.put(key, decode(data));
+					dirtyData.put(key, data);
+				}
+			}
+			storageRemoves.addAll(cacheDel);
+			
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(dirtyData));
+			if (storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "ConcurrentCacheOffHeap [lru=" + lru + ", size=" + size + ", usedMemory=" + allocator.usedMemory() + "]";
+	}
+	
+	// Misses are loaded with one multi-key request
+	@Override
+	public Map<K, V> get(List<K> keys) {
+		Map<K, V> result = new HashMap<>();
+		List<K> misses = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : keys) {
+				byte[] data = null;
+				lockManager.lock(key);
+				try {
+					long address = index.get(key);
+					
+					if (address==OffHeapIndex.NO_ADDRESS) {
+						if (storageReader!=null) {
+							if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
+								cacheMiss.add(key);
+								misses.add(key);
+							}
+						}
+					}
+					else {
+						data = allocator.read(address);
+						lru.touch(key);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+				if (data!=null)
+					result.put(key, decode(data));
+			}
+		}
+		finally {
+			gate.exit();
+		}
+		
+		if (misses.size()>0)
+			try {
+				storageReader.get(misses, (entries) -> putIfAbsentLocal(misses, entries));
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				cacheMiss.removeAll(misses);
+			}
+		
+		return result;
+	}
+	
+	@Override
+	public void put(Map<K, V> entries) {
+		Map<K, V> storageWrites = new HashMap<>();
+		Map<K, byte[]> dirtyData = new HashMap<>();
+		
+		gate.enter();
+		try {
+			for (Map.Entry<K, V> entry : entries.entrySet()) {
+				K key = entry.getKey();
+				V value = entry.getValue();
+				byte[] data = serializer.encode(value);
+				long address = allocate(data);
+				
+				lockManager.lock(key);
+				try {
+					long oldAddress = index.put(key, address);
+					lru.addLast(key);
+					if (oldAddress!=OffHeapIndex.NO_ADDRESS)
+						allocator.free(oldAddress);
+					
+					if (storageWriter!=null) {
+						if (cacheDel.contains(key))
+							cacheDel.remove(key);
+						cacheDirty.add(key);
+						storageWrites.put(key, value);
+						dirtyData.put(key, data);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(dirtyData));
+			resize();
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	@Override
+	public void remove(List<K> keys) {
+		List<K> storageRemoves = storageWriter!=null ? new ArrayList<>(keys.size()) : null;
+		
+		gate.enter();
+		try {
+			for (K key : keys)
+				removeLocal(key, storageRemoves);
+			
+			if (storageRemoves!=null && storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	@Override
+	public void close() {
+		clear();
+	}
+}
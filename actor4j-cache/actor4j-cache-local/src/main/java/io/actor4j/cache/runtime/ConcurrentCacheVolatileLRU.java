@@ -15,19 +15,19 @@ r * Copyright (c) 2015-2023, David A. Bauer. All rights reserved.
  */
 package io.actor4j.cache.runtime;
 
-import java.util.Deque;
 import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import io.actor4j.cache.StorageReader;
 import io.actor4j.cache.StorageWriter;
 import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.cache.ExpiryPolicy;
 
 public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>  {
 	private final String cacheName;
@@ -35,24 +35,31 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 	private static class Pair<V> {
 		public final V value;
 		public long timestamp;
+		public long expiration;
 		
-		public Pair(V value, long timestamp) {
+		public Pair(V value, long timestamp, long expiration) {
 			this.value = value;
 			this.timestamp = timestamp;
+			this.expiration = expiration;
 		}
 	}
 	
-	private final Map<K, Pair<V>> map;
-	private final Deque<K> lru;
-	private final Set<K> cacheMiss;
-	private final Set<K> cacheDirty;
-	private final Set<K> cacheDel;
+	private Map<K, Pair<V>> map;
+	private AccessOrderList<K> lru;
+	private Set<K> cacheMiss;
+	private Set<K> cacheDirty;
+	private Set<K> cacheDel;
 	
-	private final LockManager<K> lockManager;
+	private final LockStrategy<K> lockManager;
 	private final int size;
 	
-	private final AtomicBoolean disabled;
-	private final AtomicInteger clients;
+	private final CacheGate gate;
+	private final boolean copyOnClear;
+	
+	private final long duration; // time to live in nanoseconds, zero means no expiration
+	private final ExpiryPolicy expiryPolicy;
+	private final TimerWheel<K> timerWheel;
+	private final ReentrantLock timerWheelLock;
 	
 	private final StorageReader<K, V> storageReader;
 	private final StorageWriter<K, V> storageWriter;
@@ -64,31 +71,63 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 	}
 	
 	public ConcurrentCacheVolatileLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache) {
+		this(cacheName, size, storageReader, storageWriter, primaryCache, new LockManager<>());
+	}
+	
+	public ConcurrentCacheVolatileLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy) {
+		this(cacheName, size, storageReader, storageWriter, primaryCache, lockStrategy, false);
+	}
+	
+	public ConcurrentCacheVolatileLRU(String cacheName, int size, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy, boolean copyOnClear) {
+		this(cacheName, size, 0, ExpiryPolicy.EXPIRE_AFTER_ACCESS, storageReader, storageWriter, primaryCache, lockStrategy, copyOnClear);
+	}
+	
+	public ConcurrentCacheVolatileLRU(String cacheName, int size, long duration, ExpiryPolicy expiryPolicy, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter) {
+		this(cacheName, size, duration, expiryPolicy, storageReader, storageWriter, true, new LockManager<>(), false);
+	}
+	
+	// duration in milliseconds
+	public ConcurrentCacheVolatileLRU(String cacheName, int size, long duration, ExpiryPolicy expiryPolicy, StorageReader<K, V> storageReader, StorageWriter<K, V> storageWriter, boolean primaryCache, LockStrategy<K> lockStrategy, boolean copyOnClear) {
 		map = new ConcurrentHashMap<>(size);
-		lru = new ConcurrentLinkedDeque<>();
+		lru = new AccessOrderList<>();
 		cacheMiss = ConcurrentHashMap.newKeySet();
 		cacheDirty = ConcurrentHashMap.newKeySet();
 		cacheDel = ConcurrentHashMap.newKeySet();
-		lockManager = new LockManager<>();
-		disabled = new AtomicBoolean(false);
-		clients = new AtomicInteger(0);
+		lockManager = lockStrategy;
+		gate = new CacheGate();
+		this.copyOnClear = copyOnClear;
 		
 		this.cacheName = cacheName;
 		this.size = size;
 		this.storageReader = storageReader;
 		this.storageWriter = storageWriter;
 		this.primaryCache = primaryCache;
+		
+		this.duration = duration*1_000_000;
+		this.expiryPolicy = expiryPolicy;
+		if (duration>0) {
+			timerWheel = new TimerWheel<>(System.nanoTime());
+			timerWheelLock = new ReentrantLock();
+		}
+		else {
+			timerWheel = null;
+			timerWheelLock = null;
+		}
 	}
 	
 	public ConcurrentCacheVolatileLRU(String cacheName, int size) {
 		this(cacheName, size, null, null);
 	}
+	
+	public ConcurrentCacheVolatileLRU(String cacheName, int size, long duration, ExpiryPolicy expiryPolicy) {
+		this(cacheName, size, duration, expiryPolicy, null, null);
+	}
 		
 	public Map<K, Pair<V>> getMap() {
 		return map;
 	}
 	
-	public Deque<K> getLru() {
+	public AccessOrderList<K> getLru() {
 		return lru;
 	}
 	
@@ -101,6 +140,10 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		return size;
 	}
 	
+	public ExpiryPolicy getExpiryPolicy() {
+		return expiryPolicy;
+	}
+	
 	@Override
 	public boolean isPrimary() {
 		return primaryCache;
@@ -108,67 +151,72 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 	
 	@Override
 	public boolean containsKey(K key) {
-		while (disabled.get());
-		
 		boolean result = false;
 		
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			result = map.containsKey(key);
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 
 	@Override
 	public V get(K key) {
-		while (disabled.get());
-		
 		V result = null;
+		boolean load = false;
 		
-		clients.incrementAndGet();
+		gate.enter();
+		expire();
 		lockManager.lock(key);
 		try {
 			Pair<V> pair = map.get(key);
+			if (pair!=null && isExpired(pair, System.nanoTime()) && !cacheDirty.contains(key)) {
+				expireLocal(key);
+				pair = null;
+			}
 			
 			if (pair==null) {
 				if (storageReader!=null) {
 					if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
 						cacheMiss.add(key);
-						storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
+						load = true;
 					}
 				}
 			}
 			else {
-				lru.remove(key);
-				pair.timestamp = System.nanoTime();
-				lru.addLast(key);
+				touch(pair, System.nanoTime());
+				lru.touch(key);
 				result = pair.value;
 			}
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+		
+		// loaded without holding locks, the reader may call back synchronously
+		if (load)
+			storageReader.get(key, (v) -> putIfAbsentLocal(key, v));
 		
 		return result;
 	}
 	
 	private void putIfAbsentLocal(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			long timestamp = System.nanoTime();
-			Pair<V> oldPair = map.putIfAbsent(key, new Pair<V>(value, timestamp));
+			Pair<V> pair = createPair(value, timestamp);
+			Pair<V> oldPair = map.putIfAbsent(key, pair);
 			
 			if (oldPair==null) {
+				schedule(key, pair.expiration);
 				resize();
 				lru.addLast(key);
 				cacheMiss.remove(key);
@@ -176,28 +224,55 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
+		}
+	}
+	
+	// Completes the loads of all requested misses, also of absent keys (omitted by the reader)
+	private void putIfAbsentLocal(List<K> misses, Map<K, V> entries) {
+		gate.enter();
+		try {
+			long timestamp = System.nanoTime();
+			for (K key : misses) {
+				V value = entries.get(key);
+				lockManager.lock(key);
+				try {
+					Pair<V> pair = createPair(value, timestamp);
+					if (value!=null && map.putIfAbsent(key, pair)==null) {
+						schedule(key, pair.expiration);
+						lru.addLast(key);
+					}
+					cacheMiss.remove(key);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			resize();
+		}
+		finally {
+			gate.exit();
 		}
-		clients.decrementAndGet();
 	}
 	
 	@Override
 	public V put(K key, V value) {
-		while (disabled.get());
-		
 		V result = null;
 		
-		clients.incrementAndGet();
+		gate.enter();
+		expire();
 		lockManager.lock(key);
 		try {
 			long timestamp = System.nanoTime();
-			Pair<V> pair = map.put(key, new Pair<V>(value, timestamp));
+			Pair<V> newPair = createPair(value, timestamp);
+			Pair<V> pair = map.put(key, newPair);
 			
 			if (pair==null) {
+				schedule(key, newPair.expiration);
 				resize();
 				lru.addLast(key);
 			}
 			else {
-				lru.remove(key);
 				lru.addLast(key);
 				result = pair.value;
 			}
@@ -211,16 +286,14 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 		
 		return result;
 	}
 	
 	private void removeDirty(K key, V value) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDirty.contains(key)) {
@@ -231,8 +304,13 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeDirty(Map<K, V> entries) {
+		for (Map.Entry<K, V> entry : entries.entrySet())
+			removeDirty(entry.getKey(), entry.getValue());
 	}
 	
 	@Override
@@ -246,17 +324,16 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 	public boolean compareAndSet(K key, V expectedValue, V newValue) {
 		boolean result = false;
 		
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			Pair<V> pairGet = map.get(key);
 			if (pairGet!=null && pairGet.value!=null && pairGet.value.equals(expectedValue)) {
 				long timestamp = System.nanoTime();
-				map.put(key, new Pair<V>(newValue, timestamp));
+				Pair<V> pair = createPair(newValue, timestamp);
+				map.put(key, pair);
+				// a rescheduled expiration is picked up lazily when the timer fires
 				
-				lru.remove(key);
 				lru.addLast(key);
 				
 				if (storageWriter!=null) {
@@ -269,40 +346,48 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
 
 		return result;
 	}
 	
 	@Override
 	public void remove(K key) {
-		while (disabled.get());
-		
-		clients.incrementAndGet();
+		gate.enter();
+		try {
+			removeLocal(key, null);
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	private void removeLocal(K key, List<K> storageRemoves) {
 		lockManager.lock(key);
 		try {
 			lru.remove(key);
-			map.remove(key);
+			if (map.remove(key)!=null)
+				deschedule(key);
 			
 			if (storageWriter!=null)
 				if (!cacheDel.contains(key)) {
 					if (cacheDirty.contains(key))
 						cacheDirty.remove(key);
 					cacheDel.add(key);
-					storageWriter.remove(key, () -> removeIfDelLocal(key));
+					if (storageRemoves!=null)
+						storageRemoves.add(key);
+					else
+						storageWriter.remove(key, () -> removeIfDelLocal(key));
 				}
 		}
 		finally {
 			lockManager.unLock(key);
 		}
-		clients.decrementAndGet();
 	}
 	
 	private void removeIfDelLocal(K key) {
-		while (disabled.get());
-
-		clients.incrementAndGet();
+		gate.enter();
 		lockManager.lock(key);
 		try {
 			if (cacheDel.contains(key))
@@ -310,84 +395,203 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		}
 		finally {
 			lockManager.unLock(key);
+			gate.exit();
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void removeIfDelLocal(List<K> keys) {
+		for (K key : keys)
+			removeIfDelLocal(key);
 	}
 	
 	@Override
 	public void clear() {
-		while (!disabled.compareAndSet(false, true));
-		
-		while (clients.get()>0);
-		map.clear();
-		lru.clear();
-		cacheMiss.clear();
-		cacheDirty.clear();
-		cacheDel.clear();
-
-		disabled.set(false);
+		gate.disable();
+		try {
+			if (copyOnClear) {
+				// swaps in fresh structures, the old ones are left to the garbage collector
+				map = new ConcurrentHashMap<>(size);
+				lru = new AccessOrderList<>();
+				cacheMiss = ConcurrentHashMap.newKeySet();
+				cacheDirty = ConcurrentHashMap.newKeySet();
+				cacheDel = ConcurrentHashMap.newKeySet();
+			}
+			else {
+				map.clear();
+				lru.clear();
+				cacheMiss.clear();
+				cacheDirty.clear();
+				cacheDel.clear();
+			}
+			if (timerWheel!=null) {
+				timerWheelLock.lock();
+				try {
+					timerWheel.clear();
+				}
+				finally {
+					timerWheelLock.unlock();
+				}
+			}
+		}
+		finally {
+			gate.enable();
+		}
 	}
 	
 	private void resize() {
-		if (map.size()>size) {
-			map.remove(lru.getFirst());
-			lru.removeFirst();
+		while (map.size()>size) {
+			K first = lru.pollFirst();
+			if (first==null)
+				break;
+			map.remove(first);
+			deschedule(first);
 		}
 	}
 	
-	@Override
-	public void evict(long duration) {
-		if (disabled.get())
-			return;
-
-		clients.incrementAndGet();
-		long currentTime = System.nanoTime();
-		Iterator<K> iterator = map.keySet().iterator();
-		while (iterator.hasNext()) {
-			K key = iterator.next();
-			lockManager.lock(key);
+	private Pair<V> createPair(V value, long timestamp) {
+		return new Pair<V>(value, timestamp, duration>0 ? timestamp+duration : 0);
+	}
+	
+	private void touch(Pair<V> pair, long timestamp) {
+		pair.timestamp = timestamp;
+		if (duration>0 && expiryPolicy==ExpiryPolicy.EXPIRE_AFTER_ACCESS)
+			pair.expiration = timestamp+duration;
+	}
+	
+	private boolean isExpired(Pair<V> pair, long currentTime) {
+		return duration>0 && currentTime-pair.expiration>=0;
+	}
+	
+	// Lock order is always key lock before timer wheel lock
+	private void schedule(K key, long expiration) {
+		if (timerWheel!=null) {
+			timerWheelLock.lock();
 			try {
-				Pair<V> pairGet = map.get(key);
-				if (pairGet!=null && currentTime-pairGet.timestamp/1_000_000>duration) {
-					if (!cacheDirty.contains(key)) {
-						lru.remove(key);
-						iterator.remove();
-					}
-				}
+				timerWheel.schedule(key, expiration);
 			}
 			finally {
-				lockManager.unLock(key);
+				timerWheelLock.unlock();
 			}
 		}
-		clients.decrementAndGet();
 	}
 	
-	@Override
-	public void synchronizeWithStorage() {
-		while (disabled.get());
-
-		clients.incrementAndGet();
-		for (K key : cacheDirty) {
-			lockManager.lock(key);
+	private void deschedule(K key) {
+		if (timerWheel!=null) {
+			timerWheelLock.lock();
 			try {
-				Pair<V> pair = map.get(key);
-				if (pair!=null)
-					storageWriter.put(key, pair.value, () -> removeDirty(key, pair.value));
+				timerWheel.deschedule(key);
 			}
 			finally {
-				lockManager.unLock(key);
+				timerWheelLock.unlock();
 			}
 		}
-		for (K key : cacheDel) {
+	}
+	
+	/**
+	 * Advances the timer wheel, expired keys are collected first and removed afterwards under their key lock.
+	 * If another thread is already advancing the wheel, nothing is done.
+	 */
+	private void expire() {
+		if (timerWheel==null || !timerWheelLock.tryLock())
+			return;
+		
+		List<K> expiredKeys = new ArrayList<>();
+		try {
+			timerWheel.advance(System.nanoTime(), expiredKeys::add);
+		}
+		finally {
+			timerWheelLock.unlock();
+		}
+		
+		for (K key : expiredKeys) {
 			lockManager.lock(key);
 			try {
-				storageWriter.remove(key, () -> removeIfDelLocal(key));
+				Pair<V> pair = map.get(key);
+				if (pair!=null) {
+					if (isExpired(pair, System.nanoTime()) && !cacheDirty.contains(key)) {
+						lru.remove(key);
+						map.remove(key);
+					}
+					else if (cacheDirty.contains(key))
+						schedule(key, System.nanoTime()+duration); // retry after the write completed
+					else
+						schedule(key, pair.expiration); // accessed or updated in the meantime
+				}
 			}
 			finally {
 				lockManager.unLock(key);
 			}
 		}
-		clients.decrementAndGet();
+	}
+	
+	private void expireLocal(K key) {
+		lru.remove(key);
+		map.remove(key);
+		deschedule(key);
+	}
+	
+	@Override
+	public void evict(long duration) {
+		if (!gate.tryEnter())
+			return;
+
+		try {
+			expire();
+			
+			long currentTime = System.nanoTime();
+			Iterator<K> iterator = map.keySet().iterator();
+			while (iterator.hasNext()) {
+				K key = iterator.next();
+				lockManager.lock(key);
+				try {
+					Pair<V> pairGet = map.get(key);
+					if (pairGet!=null && (currentTime-pairGet.timestamp)/1_000_000>duration) {
+						if (!cacheDirty.contains(key)) {
+							lru.remove(key);
+							iterator.remove();
+							deschedule(key);
+						}
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+		}
+		finally {
+			gate.exit();
+		}
+	}
+	
+	@Override
+	public void synchronizeWithStorage() {
+		Map<K, V> storageWrites = new HashMap<>();
+		List<K> storageRemoves = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			for (K key : cacheDirty) {
+				lockManager.lock(key);
+				try {
+					Pair<V> pair = map.get(key);
+					if (pair!=null)
+						storageWrites.put(key, pair.value);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			storageRemoves.addAll(cacheDel);
+			
+			// one batch for all dirty entries and one for all deleted keys
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+			if (storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
 	}
 
 	@Override
@@ -395,22 +599,110 @@ public class ConcurrentCacheVolatileLRU<K, V> implements ConcurrentCache<K, V>
 		return "ConcurrentCacheVolatileLRU [map=" + map + ", lru=" + lru + ", size=" + size + "]";
 	}
 
+	// Keys are locked one after another (never nested), misses are loaded with one multi-key request
 	@Override
 	public Map<K, V> get(List<K> keys) {
-		// TODO Auto-generated method stub
-		return null;
+		Map<K, V> result = new HashMap<>();
+		List<K> hits = new ArrayList<>(keys.size());
+		List<K> misses = new ArrayList<>();
+		
+		gate.enter();
+		try {
+			expire();
+			long timestamp = System.nanoTime();
+			for (K key : keys) {
+				lockManager.lock(key);
+				try {
+					Pair<V> pair = map.get(key);
+					if (pair!=null && isExpired(pair, timestamp) && !cacheDirty.contains(key)) {
+						expireLocal(key);
+						pair = null;
+					}
+					
+					if (pair==null) {
+						if (storageReader!=null) {
+							if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
+								cacheMiss.add(key);
+								misses.add(key);
+							}
+						}
+					}
+					else {
+						touch(pair, timestamp);
+						result.put(key, pair.value);
+						hits.add(key);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			lru.touch(hits);
+		}
+		finally {
+			gate.exit();
+		}
+		
+		if (misses.size()>0)
+			storageReader.get(misses, (entries) -> putIfAbsentLocal(misses, entries));
+		
+		return result;
 	}
 
 	@Override
 	public void put(Map<K, V> entries) {
-		// TODO Auto-generated method stub
+		Map<K, V> storageWrites = new HashMap<>();
 		
+		gate.enter();
+		try {
+			expire();
+			long timestamp = System.nanoTime();
+			for (Map.Entry<K, V> entry : entries.entrySet()) {
+				K key = entry.getKey();
+				V value = entry.getValue();
+				lockManager.lock(key);
+				try {
+					Pair<V> pair = createPair(value, timestamp);
+					if (map.put(key, pair)==null)
+						schedule(key, pair.expiration);
+					lru.addLast(key);
+					
+					if (storageWriter!=null) {
+						if (cacheDel.contains(key))
+							cacheDel.remove(key);
+						cacheDirty.add(key);
+						storageWrites.put(key, value);
+					}
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+			}
+			
+			if (storageWrites.size()>0)
+				storageWriter.put(storageWrites, () -> removeDirty(storageWrites));
+			resize();
+		}
+		finally {
+			gate.exit();
+		}
 	}
 
 	@Override
 	public void remove(List<K> keys) {
-		// TODO Auto-generated method stub
+		List<K> storageRemoves = storageWriter!=null ? new ArrayList<>(keys.size()) : null;
 		
+		gate.enter();
+		try {
+			for (K key : keys)
+				removeLocal(key, storageRemoves);
+			
+			if (storageRemoves!=null && storageRemoves.size()>0)
+				storageWriter.remove(storageRemoves, () -> removeIfDelLocal(storageRemoves));
+		}
+		finally {
+			gate.exit();
+		}
 	}
 	
 	@Override
@@ -28,7 +28,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Greg Luck
  */
 // Changed implementation
-public final class LockManager<K> {
+public final class LockManager<K> implements LockStrategy<K> {
 	private final ConcurrentHashMap<K, ReentrantLock> locks;
 	
 	private static final LockFactory lockFactory;
@@ -51,6 +51,7 @@ public final class LockManager<K> {
 	 *
 	 * @param key the key
 	 */
+	@Override
 	public void lock(K key) {
 		ReentrantLock newLock  = lockFactory.aquire();
 
@@ -71,6 +72,7 @@ public final class LockManager<K> {
 	 *
 	 * @param key the object
 	 */
+	@Override
 	public void unLock(K key) {
 		ReentrantLock lock = locks.remove(key);
 		
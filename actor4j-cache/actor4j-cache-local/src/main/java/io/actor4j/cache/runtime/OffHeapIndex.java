@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compact index of the off-heap block addresses (see {@link ConcurrentCacheOffHeap}).
+ *
+ * Open addressing with linear probing, per segment one array of keys and one primitive array of
+ * addresses, so there are no entry objects and no boxed addresses on the heap. Segments are locked
+ * independently.
+ *
+ * @param <K> the type of the keys
+ */
+public final class OffHeapIndex<K> {
+	/**
+	 * Returned, if the key is not present.
+	 */
+	public static final long NO_ADDRESS = -1;
+	
+	private static final int INITIAL_CAPACITY = 16; // per segment, power of two
+	
+	private static final int SEGMENT_BITS;
+	
+	static {
+		int bits = 0;
+		while ((1<<bits)<4*Runtime.getRuntime().availableProcessors())
+			bits++;
+		SEGMENT_BITS = bits;
+	}
+	
+	private static final class Segment {
+		private final ReentrantLock lock;
+		
+		private Object[] keys;
+		private long[] addresses;
+		private int size;
+		
+		public Segment() {
+			lock = new ReentrantLock();
+			init();
+		}
+		
+		private void init() {
+			keys = new Object[INITIAL_CAPACITY];
+			addresses = new long[INITIAL_CAPACITY];
+			size = 0;
+		}
+		
+		// Returns the slot of the key, or the free slot where it would be inserted
+		private int slot(Object key, int hash) {
+			int mask = keys.length-1;
+			int result = hash & mask;
+			while (keys[result]!=null && !keys[result].equals(key))
+				result = (result+1) & mask;
+			
+			return result;
+		}
+		
+		private void grow() {
+			Object[] oldKeys = keys;
+			long[] oldAddresses = addresses;
+			keys = new Object[oldKeys.length*2];
+			addresses = new long[oldKeys.length*2];
+			
+			for (int i=0; i<oldKeys.length; i++)
+				if (oldKeys[i]!=null) {
+					int slot = slot(oldKeys[i], hash(oldKeys[i]));
+					keys[slot] = oldKeys[i];
+					addresses[slot] = oldAddresses[i];
+				}
+		}
+		
+		// Backward shift deletion, keeps the probe sequences without tombstones
+		private void delete(int slot) {
+			int mask = keys.length-1;
+			int i = slot;
+			int j = slot;
+			keys[i] = null;
+			
+			while (true) {
+				j = (j+1) & mask;
+				if (keys[j]==null)
+					break;
+				
+				int k = hash(keys[j]) & mask; // home slot
+				boolean reachable = i<=j ? (i<k && k<=j) : (i<k || k<=j);
+				if (!reachable) {
+					keys[i] = keys[j];
+					addresses[i] = addresses[j];
+					keys[j] = null;
+					i = j;
+				}
+			}
+		}
+	}
+	
+	private final Segment[] segments;
+	
+	public OffHeapIndex() {
+		super();
+		
+		segments = new Segment[1<<SEGMENT_BITS];
+		for (int i=0; i<segments.length; i++)
+			segments[i] = new Segment();
+	}
+	
+	private static int hash(Object key) {
+		int h = key.hashCode()*0x9E3779B9;
+		
+		return h ^ (h>>>16);
+	}
+	
+	private Segment segment(int hash) {
+		return segments[SEGMENT_BITS>0 ? hash>>>(32-SEGMENT_BITS) : 0];
+	}
+	
+	/**
+	 * Returns the address of the key, or {@link #NO_ADDRESS} if not present.
+	 */
+	public long get(Object key) {
+		long result = NO_ADDRESS;
+		int hash = hash(key);
+		Segment segment = segment(hash);
+		
+		segment.lock.lock();
+		try {
+			int slot = segment.slot(key, hash);
+			if (segment.keys[slot]!=null)
+				result = segment.addresses[slot];
+		}
+		finally {
+			segment.lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	public boolean containsKey(Object key) {
+		return get(key)!=NO_ADDRESS;
+	}
+	
+	/**
+	 * Sets the address of the key.
+	 * 
+	 * @return the previous address of the key, or {@link #NO_ADDRESS}
+	 */
+	public long put(K key, long address) {
+		long result = NO_ADDRESS;
+		int hash = hash(key);
+		Segment segment = segment(hash);
+		
+		segment.lock.lock();
+		try {
+			int slot = segment.slot(key, hash);
+			if (segment.keys[slot]!=null)
+				result = segment.addresses[slot];
+			else {
+				if ((segment.size+1)*4>segment.keys.length*3) {
+					segment.grow();
+					slot = segment.slot(key, hash);
+				}
+				segment.keys[slot] = key;
+				segment.size++;
+			}
+			segment.addresses[slot] = address;
+		}
+		finally {
+			segment.lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Removes the key.
+	 * 
+	 * @return the address of the key, or {@link #NO_ADDRESS} if not present
+	 */
+	public long remove(Object key) {
+		long result = NO_ADDRESS;
+		int hash = hash(key);
+		Segment segment = segment(hash);
+		
+		segment.lock.lock();
+		try {
+			int slot = segment.slot(key, hash);
+			if (segment.keys[slot]!=null) {
+				result = segment.addresses[slot];
+				segment.delete(slot);
+				segment.size--;
+			}
+		}
+		finally {
+			segment.lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	public int size() {
+		int result = 0;
+		
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				result += segment.size;
+			}
+			finally {
+				segment.lock.unlock();
+			}
+		}
+		
+		return result;
+	}
+	
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				if (segment.keys.length>INITIAL_CAPACITY)
+					segment.init(); // releases the grown arrays
+				else {
+					Arrays.fill(segment.keys, null);
+					segment.size = 0;
+				}
+			}
+			finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+}
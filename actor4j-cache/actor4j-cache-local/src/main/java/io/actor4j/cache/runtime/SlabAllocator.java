@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocator for off-heap memory, organized in direct slabs of equally sized blocks.
+ * 
+ * A value is stored in a chain of blocks, each block starts with the address of the next block,
+ * the first block additionally holds the length of the value. Free blocks are kept in an intrusive
+ * free list (inside the off-heap memory), so the heap only holds a few counters per allocator.
+ * Because all blocks have the same size, any freed block can be reused by any value.
+ * 
+ * Allocation and release are guarded by a lock. Reading and writing the blocks of an allocated
+ * chain is lock free, the caller has to ensure exclusive ownership of the chain.
+ */
+public final class SlabAllocator {
+	public static final int DEFAULT_SLAB_SIZE = 64*1024*1024;
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+	
+	private static final int NEXT_SIZE = 8;
+	private static final int LENGTH_SIZE = 4;
+	private static final long NIL = -1;
+	
+	private final int slabSize;
+	private final int blockSize;
+	private final ByteBuffer[] slabs;
+	private int slabCount; // slabs in use
+	private int allocatedSlabs;
+	private int slabOffset; // bump pointer in the last slab
+	
+	private long freeList;
+	private long usedBlocks;
+	
+	private final ReentrantLock lock;
+	
+	public SlabAllocator(long maximumMemory, int slabSize, int blockSize) {
+		super();
+		
+		if (blockSize<=NEXT_SIZE+LENGTH_SIZE || slabSize<blockSize)
+			throw new IllegalArgumentException();
+		
+		this.slabSize = slabSize-slabSize%blockSize;
+		this.blockSize = blockSize;
+		slabs = new ByteBuffer[(int)Math.max(1, maximumMemory/slabSize)];
+		slabOffset = this.slabSize;
+		freeList = NIL;
+		
+		lock = new ReentrantLock();
+	}
+	
+	public SlabAllocator(long maximumMemory) {
+		this(maximumMemory, (int)Math.min(DEFAULT_SLAB_SIZE, maximumMemory), DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * Allocates a chain of blocks for a value of the given length.
+	 * 
+	 * @return the address of the first block, or -1 if the memory is exhausted
+	 */
+	public long allocate(int length) {
+		int blocks = blocks(length);
+		long result = NIL;
+		
+		lock.lock();
+		try {
+			// the chain is built backwards, the first block is allocated last
+			for (int i=0; i<blocks; i++) {
+				long block = nextFreeBlock();
+				if (block==NIL) {
+					release(result);
+					return NIL;
+				}
+				slab(block).putLong(offset(block), result);
+				result = block;
+				usedBlocks++;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	public void free(long address) {
+		lock.lock();
+		try {
+			release(address);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	public void write(long address, byte[] src) {
+		slab(address).putInt(offset(address)+NEXT_SIZE, src.length);
+		
+		int position = 0;
+		int header = NEXT_SIZE+LENGTH_SIZE;
+		for (long block=address; block!=NIL && position<src.length; block=slab(block).getLong(offset(block))) {
+			int length = Math.min(blockSize-header, src.length-position);
+			slab(block).put(offset(block)+header, src, position, length);
+			position += length;
+			header = NEXT_SIZE;
+		}
+	}
+	
+	public byte[] read(long address) {
+		byte[] result = new byte[slab(address).getInt(offset(address)+NEXT_SIZE)];
+		
+		int position = 0;
+		int header = NEXT_SIZE+LENGTH_SIZE;
+		for (long block=address; block!=NIL && position<result.length; block=slab(block).getLong(offset(block))) {
+			int length = Math.min(blockSize-header, result.length-position);
+			slab(block).get(offset(block)+header, result, position, length);
+			position += length;
+			header = NEXT_SIZE;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Releases all blocks, the slabs are kept for reuse.
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			// already allocated slabs are reused by the bump pointer
+			slabCount = 0;
+			slabOffset = slabSize;
+			freeList = NIL;
+			usedBlocks = 0;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	public long usedMemory() {
+		return usedBlocks*blockSize;
+	}
+	
+	public long allocatedMemory() {
+		return (long)allocatedSlabs*slabSize;
+	}
+	
+	public long maximumMemory() {
+		return (long)slabs.length*slabSize;
+	}
+	
+	private int blocks(int length) {
+		int payload = length+LENGTH_SIZE;
+		int capacity = blockSize-NEXT_SIZE;
+		
+		return Math.max(1, (payload+capacity-1)/capacity);
+	}
+	
+	private long nextFreeBlock() {
+		long result = freeList;
+		if (result!=NIL)
+			freeList = slab(result).getLong(offset(result));
+		else {
+			if (slabOffset==slabSize) {
+				if (slabCount==slabs.length)
+					return NIL;
+				if (slabs[slabCount]==null) {
+					slabs[slabCount] = ByteBuffer.allocateDirect(slabSize);
+					allocatedSlabs++;
+				}
+				slabCount++;
+				slabOffset = 0;
+			}
+			result = address(slabCount-1, slabOffset);
+			slabOffset += blockSize;
+		}
+		
+		return result;
+	}
+	
+	private void release(long address) {
+		for (long block=address; block!=NIL;) {
+			long next = slab(block).getLong(offset(block));
+			slab(block).putLong(offset(block), freeList);
+			freeList = block;
+			usedBlocks--;
+			block = next;
+		}
+	}
+	
+	private ByteBuffer slab(long address) {
+		return slabs[(int)(address >>> 32)];
+	}
+	
+	private static int offset(long address) {
+		return (int)address;
+	}
+	
+	private static long address(int slab, int offset) {
+		return ((long)slab << 32) | offset;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-size table of locks, where each key is mapped to one stripe by its hash code.
+ * 
+ * Unlike {@link LockManager}, no lock is allocated, pooled or registered per call. Different
+ * keys may share a stripe, so a thread must not wait on a second key while holding a lock,
+ * unless the stripes are acquired in ascending order (see {@link #stripe(Object)}).
+ *
+ * @param <K> the type of the object to be locked
+ */
+public final class StripedLockManager<K> implements LockStrategy<K> {
+	private final ReentrantLock[] locks;
+	private final int mask;
+	
+	public StripedLockManager(int stripes) {
+		super();
+		
+		int size = 1;
+		while (size<stripes)
+			size <<= 1;
+		
+		locks = new ReentrantLock[size];
+		for (int i=0; i<size; i++)
+			locks[i] = new ReentrantLock();
+		mask = size-1;
+	}
+	
+	public StripedLockManager() {
+		this(Runtime.getRuntime().availableProcessors()*16/**factor*/);
+	}
+	
+	public int stripes() {
+		return locks.length;
+	}
+	
+	public int stripe(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16); // spread higher bits, see ConcurrentHashMap
+		
+		return h & mask;
+	}
+
+	@Override
+	public void lock(K key) {
+		locks[stripe(key)].lock();
+	}
+
+	@Override
+	public void unLock(K key) {
+		locks[stripe(key)].unlock();
+	}
+	
+	/**
+	 * Locks the stripes of all keys in ascending order, so that multi-key locks can not deadlock with
+	 * each other. Returns the locked stripes, that must be passed to {@link #unLock(int[])}.
+	 */
+	public int[] lock(Collection<K> keys) {
+		int[] result = keys.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+		for (int stripe : result)
+			locks[stripe].lock();
+		
+		return result;
+	}
+	
+	public void unLock(int[] stripes) {
+		for (int i=stripes.length-1; i>=0; i--)
+			locks[stripes[i]].unlock();
+	}
+}
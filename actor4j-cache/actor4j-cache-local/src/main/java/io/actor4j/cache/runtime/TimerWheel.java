@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel for the expiration of keys (not thread-safe).
+ * 
+ * Keys are scheduled into buckets with a resolution of about one second, one minute, one hour,
+ * one day and one week. Advancing the wheel only visits the buckets whose time span has passed,
+ * entries of coarser wheels are cascaded into finer wheels. Scheduling, rescheduling and
+ * descheduling are O(1), expiration is amortized O(1) per key.
+ *
+ * @param <K> the type of the keys
+ */
+public final class TimerWheel<K> {
+	private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+	private static final long[] SPANS = {
+		1L << 30, // 1.07s
+		1L << 36, // 1.14m
+		1L << 42, // 1.22h
+		1L << 46, // 0.81d
+		1L << 50, // 6.5d
+		1L << 50, // 6.5d
+	};
+	private static final int[] SHIFT = { 30, 36, 42, 46, 50 };
+	
+	private static final class Node<K> {
+		private final K key;
+		private long time;
+		
+		private Node<K> prev;
+		private Node<K> next;
+		
+		public Node(K key) {
+			this.key = key;
+		}
+		
+		public Node() {
+			this(null);
+			prev = this;
+			next = this;
+		}
+	}
+	
+	private final Node<K>[][] wheel;
+	private final Map<K, Node<K>> index;
+	private final long origin;
+	private long nanos;
+	
+	@SuppressWarnings("unchecked")
+	public TimerWheel(long currentTimeNanos) {
+		super();
+		
+		wheel = new Node[BUCKETS.length][];
+		for (int i=0; i<wheel.length; i++) {
+			wheel[i] = new Node[BUCKETS[i]];
+			for (int j=0; j<wheel[i].length; j++)
+				wheel[i][j] = new Node<>();
+		}
+		index = new HashMap<>();
+		
+		// relative to the origin, the time is always positive
+		origin = currentTimeNanos;
+		nanos = 0;
+	}
+	
+	public int size() {
+		return index.size();
+	}
+	
+	public boolean contains(K key) {
+		return index.containsKey(key);
+	}
+	
+	/**
+	 * Schedules the key to expire at the given time, or reschedules it if already present.
+	 */
+	public void schedule(K key, long expirationTimeNanos) {
+		Node<K> node = index.get(key);
+		if (node==null) {
+			node = new Node<>(key);
+			index.put(key, node);
+		}
+		else
+			unlink(node);
+		
+		node.time = Math.max(expirationTimeNanos-origin, 0);
+		link(findBucket(node.time), node);
+	}
+	
+	public void deschedule(K key) {
+		Node<K> node = index.remove(key);
+		if (node!=null)
+			unlink(node);
+	}
+	
+	/**
+	 * Advances the wheel to the current time and reports all expired keys to the handler.
+	 */
+	public void advance(long currentTimeNanos, Consumer<K> expiredHandler) {
+		long previousTimeNanos = nanos;
+		nanos = Math.max(currentTimeNanos-origin, previousTimeNanos);
+		
+		for (int i=0; i<SHIFT.length; i++) {
+			long previousTicks = previousTimeNanos >>> SHIFT[i];
+			long currentTicks = nanos >>> SHIFT[i];
+			long delta = currentTicks-previousTicks;
+			if (delta<=0)
+				break;
+			expire(i, previousTicks, delta, expiredHandler);
+		}
+	}
+	
+	public void clear() {
+		for (Node<K>[] buckets : wheel)
+			for (Node<K> sentinel : buckets) {
+				sentinel.prev = sentinel;
+				sentinel.next = sentinel;
+			}
+		index.clear();
+	}
+	
+	private void expire(int level, long previousTicks, long delta, Consumer<K> expiredHandler) {
+		Node<K>[] buckets = wheel[level];
+		int mask = buckets.length-1;
+		int steps = (int)Math.min(1+delta, buckets.length);
+		int start = (int)(previousTicks & mask);
+		int end = start+steps;
+		
+		for (int i=start; i<end; i++) {
+			Node<K> sentinel = buckets[i & mask];
+			Node<K> node = sentinel.next;
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+			
+			while (node!=sentinel) {
+				Node<K> next = node.next;
+				node.prev = null;
+				node.next = null;
+				
+				if (node.time-nanos>0)
+					link(findBucket(node.time), node); // cascade
+				else {
+					index.remove(node.key, node);
+					expiredHandler.accept(node.key);
+				}
+				node = next;
+			}
+		}
+	}
+	
+	private Node<K> findBucket(long time) {
+		long duration = time-nanos;
+		int length = wheel.length-1;
+		for (int i=0; i<length; i++)
+			if (duration<SPANS[i+1]) {
+				long ticks = time >>> SHIFT[i];
+				return wheel[i][(int)(ticks & (wheel[i].length-1))];
+			}
+		
+		return wheel[length][0];
+	}
+	
+	private void link(Node<K> sentinel, Node<K> node) {
+		node.prev = sentinel.prev;
+		node.next = sentinel;
+		sentinel.prev.next = node;
+		sentinel.prev = node;
+	}
+	
+	private void unlink(Node<K> node) {
+		if (node.next!=null) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.runtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.actor4j.cache.CacheWriterHandler;
+import io.actor4j.cache.StorageWriter;
+
+/**
+ * A write-behind stage in front of a {@link StorageWriter}.
+ * 
+ * Writes are buffered and coalesced per key (only the last put or remove of a key is written),
+ * and flushed to the underlying storage writer as one batch, either after {@code maxDelay}
+ * milliseconds or when {@code maxBatchSize} distinct keys are pending. The handlers of all
+ * coalesced writes are called, after the batch has been written. Writes of a failed batch are kept
+ * pending and retried with the next flush.
+ * 
+ * All instances share one timer thread, the flushes themselves are running on virtual threads.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class WriteBehindStorageWriter<K, V> implements StorageWriter<K, V>, AutoCloseable {
+	// only triggers the flushes, a slow storage writer does not delay the other instances
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "actor4j-cache-write-behind");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private static final class PendingWrite<V> {
+		public V value;
+		public boolean remove;
+		public final List<CacheWriterHandler> handlers;
+		
+		public PendingWrite() {
+			handlers = new ArrayList<>(1);
+		}
+	}
+	
+	private final StorageWriter<K, V> storageWriter;
+	private final int maxBatchSize;
+	
+	private Map<K, PendingWrite<V>> pending;
+	private final ReentrantLock lock;
+	private final ReentrantLock flushLock;
+	
+	private final ScheduledFuture<?> timerFuture;
+	private final AtomicBoolean flushRequested;
+	
+	public WriteBehindStorageWriter(StorageWriter<K, V> storageWriter, int maxBatchSize, long maxDelay) {
+		super();
+		
+		this.storageWriter = storageWriter;
+		this.maxBatchSize = maxBatchSize;
+		
+		pending = new HashMap<>();
+		lock = new ReentrantLock();
+		flushLock = new ReentrantLock();
+		flushRequested = new AtomicBoolean(false);
+		
+		timerFuture = SCHEDULER.scheduleWithFixedDelay(this::requestFlush, maxDelay, maxDelay, TimeUnit.MILLISECONDS);
+	}
+	
+	public StorageWriter<K, V> getStorageWriter() {
+		return storageWriter;
+	}
+
+	@Override
+	public void put(K key, V value, CacheWriterHandler handler) {
+		enqueue(key, value, false, handler);
+	}
+
+	@Override
+	public void remove(K key, CacheWriterHandler handler) {
+		enqueue(key, null, true, handler);
+	}
+	
+	protected void enqueue(K key, V value, boolean remove, CacheWriterHandler handler) {
+		int size = 0;
+		
+		lock.lock();
+		try {
+			PendingWrite<V> pendingWrite = pending.get(key);
+			if (pendingWrite==null) {
+				pendingWrite = new PendingWrite<>();
+				pending.put(key, pendingWrite);
+			}
+			pendingWrite.value = value;
+			pendingWrite.remove = remove;
+			if (handler!=null)
+				pendingWrite.handlers.add(handler);
+			
+			size = pending.size();
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		if (size>=maxBatchSize)
+			requestFlush();
+	}
+	
+	// Starts a flush, unless one is already requested and not yet started
+	protected void requestFlush() {
+		if (flushRequested.compareAndSet(false, true))
+			Thread.ofVirtual().name("actor4j-cache-write-behind-flush").start(this::flush);
+	}
+	
+	public int pendingSize() {
+		lock.lock();
+		try {
+			return pending.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes all pending (coalesced) writes as one batch to the underlying storage writer.
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			flushRequested.set(false);
+			
+			Map<K, PendingWrite<V>> batch = null;
+			lock.lock();
+			try {
+				if (!pending.isEmpty()) {
+					batch = pending;
+					pending = new HashMap<>();
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+			if (batch!=null)
+				write(batch);
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes only the pending writes of the keys as one batch, other pending writes are left for the
+	 * next flush. Returns after a flush that is currently in progress has been completed.
+	 */
+	public void flush(List<K> keys) {
+		flushLock.lock();
+		try {
+			Map<K, PendingWrite<V>> batch = new HashMap<>();
+			lock.lock();
+			try {
+				for (K key : keys) {
+					PendingWrite<V> pendingWrite = pending.remove(key);
+					if (pendingWrite!=null)
+						batch.put(key, pendingWrite);
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+			if (!batch.isEmpty())
+				write(batch);
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+	
+	// Must be called while holding the flush lock
+	protected void write(Map<K, PendingWrite<V>> batch) {
+		Map<K, V> puts = new HashMap<>();
+		List<K> removes = new ArrayList<>();
+		List<CacheWriterHandler> putHandlers = new ArrayList<>();
+		List<CacheWriterHandler> removeHandlers = new ArrayList<>();
+		for (Map.Entry<K, PendingWrite<V>> entry : batch.entrySet()) {
+			PendingWrite<V> pendingWrite = entry.getValue();
+			if (pendingWrite.remove) {
+				removes.add(entry.getKey());
+				removeHandlers.addAll(pendingWrite.handlers);
+			}
+			else {
+				puts.put(entry.getKey(), pendingWrite.value);
+				putHandlers.addAll(pendingWrite.handlers);
+			}
+		}
+		
+		if (!puts.isEmpty()) {
+			try {
+				storageWriter.put(puts, () -> apply(putHandlers));
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				requeue(batch, puts.keySet());
+			}
+		}
+		if (!removes.isEmpty()) {
+			try {
+				storageWriter.remove(removes, () -> apply(removeHandlers));
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				requeue(batch, removes);
+			}
+		}
+	}
+	
+	// A failing handler must not fail the written batch, otherwise it would be written again
+	protected static void apply(List<CacheWriterHandler> handlers) {
+		for (CacheWriterHandler handler : handlers)
+			try {
+				handler.apply();
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+			}
+	}
+	
+	/**
+	 * Puts the failed writes back to the pending writes, to be retried with the next flush. A newer
+	 * write of the same key takes precedence, it inherits the handlers of the failed write.
+	 */
+	protected void requeue(Map<K, PendingWrite<V>> batch, Iterable<K> keys) {
+		lock.lock();
+		try {
+			for (K key : keys) {
+				PendingWrite<V> failedWrite = batch.get(key);
+				PendingWrite<V> newerWrite = pending.get(key);
+				if (newerWrite==null)
+					pending.put(key, failedWrite);
+				else
+					newerWrite.handlers.addAll(0, failedWrite.handlers);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Ensures that the last write of the key has reached the underlying storage writer. Writes only
+	 * the key, if a write of it is pending, otherwise waits for a flush that is currently in progress.
+	 */
+	public void flush(K key) {
+		flush(List.of(key));
+	}
+	
+	/**
+	 * Flushes pending writes and stops the background flushing.
+	 */
+	@Override
+	public void close() {
+		timerFuture.cancel(false);
+		flush();
+	}
+}
@@ -20,10 +20,14 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.cache.ExpiryPolicy;
 import io.actor4j.cache.StorageReader;
 import io.actor4j.cache.StorageWriter;
+import io.actor4j.cache.Weigher;
+import io.actor4j.core.serializer.api.SerializerService;
 import io.actor4j.cache.runtime.ConcurrentCacheAsMap;
 import io.actor4j.cache.runtime.ConcurrentCacheLRU;
+import io.actor4j.cache.runtime.ConcurrentCacheOffHeap;
 import io.actor4j.cache.runtime.ConcurrentCacheVolatileLRU;
 
 public final class LocalActorCacheManager {
@@ -82,6 +86,10 @@ public final class LocalActorCacheManager {
 		return createCache(cacheName, (name) -> new ConcurrentCacheLRU<>(name, size, reader, writer));
 	}
 	
+	public <K, V> ConcurrentCache<K, V> createLRUCache(String cacheName, long maximumWeight, Weigher<K, V> weigher, StorageReader<K, V> reader, StorageWriter<K, V> writer) {
+		return createCache(cacheName, (name) -> new ConcurrentCacheLRU<>(name, maximumWeight, weigher, reader, writer));
+	}
+	
 	public <K, V> ConcurrentCache<K, V> createVolatileLRUCache(String cacheName, int size) {
 		return createCache(cacheName, (name) -> new ConcurrentCacheVolatileLRU<>(name, size));
 	}
@@ -89,4 +97,16 @@ public final class LocalActorCacheManager {
 	public <K, V> ConcurrentCache<K, V> createVolatileLRUCache(String cacheName, int size, StorageReader<K, V> reader, StorageWriter<K, V> writer) {
 		return createCache(cacheName, (name) -> new ConcurrentCacheVolatileLRU<>(name, size, reader, writer));
 	}
+	
+	public <K, V> ConcurrentCache<K, V> createVolatileLRUCache(String cacheName, int size, long duration, ExpiryPolicy expiryPolicy) {
+		return createCache(cacheName, (name) -> new ConcurrentCacheVolatileLRU<>(name, size, duration, expiryPolicy));
+	}
+	
+	public <K, V> ConcurrentCache<K, V> createVolatileLRUCache(String cacheName, int size, long duration, ExpiryPolicy expiryPolicy, StorageReader<K, V> reader, StorageWriter<K, V> writer) {
+		return createCache(cacheName, (name) -> new ConcurrentCacheVolatileLRU<>(name, size, duration, expiryPolicy, reader, writer));
+	}
+	
+	public <K, V> ConcurrentCache<K, V> createOffHeapCache(String cacheName, int size, long maximumMemory, SerializerService serializer, Class<V> valueType, StorageReader<K, V> reader, StorageWriter<K, V> writer) {
+		return createCache(cacheName, (name) -> new ConcurrentCacheOffHeap<>(name, size, maximumMemory, serializer, valueType, reader, writer));
+	}
 }
@@ -17,20 +17,38 @@ package io.actor4j.cache.features;
 
 import org.junit.Test;
 
+import io.actor4j.cache.CacheReaderHandler;
 import io.actor4j.cache.CacheWriterHandler;
+import io.actor4j.cache.ConcurrentCache;
+import io.actor4j.cache.ExpiryPolicy;
 import io.actor4j.cache.StorageReader;
 import io.actor4j.cache.StorageWriter;
+import io.actor4j.cache.Weigher;
 import io.actor4j.cache.runtime.ConcurrentCacheAsMap;
 import io.actor4j.cache.runtime.ConcurrentCacheLRU;
+import io.actor4j.cache.runtime.ConcurrentCacheOffHeap;
 import io.actor4j.cache.runtime.ConcurrentCacheVolatileLRU;
+import io.actor4j.cache.runtime.OffHeapIndex;
+import io.actor4j.cache.runtime.SlabAllocator;
+import io.actor4j.cache.runtime.StripedLockManager;
+import io.actor4j.cache.runtime.WriteBehindStorageWriter;
+import io.actor4j.core.serializer.api.SerializerService;
+import io.actor4j.core.utils.GenericType;
 
 import static org.junit.Assert.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConcurrentCacheFeature {
 	@Test
@@ -247,4 +265,621 @@ public class ConcurrentCacheFeature {
 		assertEquals(data[5][0], iterator.next());
 		assertEquals(data[4][0], iterator.next());
 	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__concurrent_get_put() throws InterruptedException {
+		ConcurrentCacheLRU<Integer, Integer> cache = new ConcurrentCacheLRU<>("cacheLRU_Concurrent", 100);
+		
+		Thread[] threads = new Thread[4];
+		for (int t=0; t<threads.length; t++) {
+			final int offset = t*1_000;
+			threads[t] = new Thread(() -> {
+				for (int i=0; i<10_000; i++) {
+					int key = offset+(i%200);
+					if (cache.get(key)==null)
+						cache.put(key, key);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		
+		assertTrue(cache.getMap().size()<=100);
+		assertEquals(cache.getMap().size(), cache.getLru().size());
+		for (Integer key : cache.getLru())
+			assertTrue(cache.getMap().containsKey(key));
+	}
+	
+	// Removes the keys concurrently, while the batch put of the cache writes them to the storage
+	protected static class RemovingStorageWriter implements StorageWriter<Integer, Integer> {
+		protected ConcurrentCache<Integer, Integer> cache;
+		
+		@Override
+		public void put(Integer key, Integer value, CacheWriterHandler handler) {
+			handler.apply();
+		}
+		
+		@Override
+		public void remove(Integer key, CacheWriterHandler handler) {
+			handler.apply();
+		}
+		
+		@Override
+		public void put(Map<Integer, Integer> entries, CacheWriterHandler handler) {
+			Thread thread = new Thread(() -> cache.remove(new ArrayList<>(entries.keySet())));
+			thread.start();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			handler.apply();
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__batch_put_concurrent_remove() {
+		RemovingStorageWriter writer = new RemovingStorageWriter();
+		ConcurrentCacheLRU<Integer, Integer> cache = new ConcurrentCacheLRU<>("cacheLRU_BatchPutRemove", 10, null, writer);
+		writer.cache = cache;
+		
+		// no key may remain in the access order only
+		cache.put(Map.of(1, 1, 2, 2, 3, 3));
+		assertEquals(0, cache.getMap().size());
+		assertEquals(0, cache.getLru().size());
+		
+		ConcurrentCacheVolatileLRU<Integer, Integer> volatileCache = new ConcurrentCacheVolatileLRU<>("cacheVolatileLRU_BatchPutRemove", 10, null, writer);
+		writer.cache = volatileCache;
+		
+		volatileCache.put(Map.of(1, 1, 2, 2, 3, 3));
+		assertEquals(0, volatileCache.getMap().size());
+		assertEquals(0, volatileCache.getLru().size());
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_as_map__striped_locks() throws InterruptedException {
+		ConcurrentCacheAsMap<Integer, Integer> cache = new ConcurrentCacheAsMap<>("cacheAsMap_Striped", null, null, true, new StripedLockManager<>(4));
+		
+		Thread[] threads = new Thread[4];
+		for (int t=0; t<threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i=0; i<10_000; i++) {
+					Integer value = cache.get(i%100);
+					if (value==null)
+						cache.put(i%100, 1);
+					else
+						cache.compareAndSet(i%100, value, value+1);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		
+		assertEquals(100, cache.getMap().size());
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__clear_concurrent() throws InterruptedException {
+		for (boolean copyOnClear : new boolean[] { false, true }) {
+			ConcurrentCacheLRU<Integer, Integer> cache = new ConcurrentCacheLRU<>("cacheLRU_Clear", 1_000, null, null, true, new StripedLockManager<>(), copyOnClear);
+			
+			Thread[] threads = new Thread[4];
+			for (int t=0; t<threads.length; t++) {
+				threads[t] = new Thread(() -> {
+					for (int i=0; i<10_000; i++) {
+						cache.put(i%500, i);
+						cache.get(i%500);
+					}
+				});
+				threads[t].start();
+			}
+			for (int i=0; i<10; i++)
+				cache.clear();
+			for (Thread thread : threads)
+				thread.join();
+			
+			cache.clear();
+			assertEquals(0, cache.getMap().size());
+			assertEquals(0, cache.getLru().size());
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__batch_get_put_remove() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		storage.put("A", "AA");
+		storage.put("B", "BB");
+		storage.put("C", "CC");
+		
+		AtomicInteger batchLoads = new AtomicInteger(0);
+		StorageReader<String, String> reader = new StorageReader<>() {
+			@Override
+			public void get(String key, CacheReaderHandler<String> handler) {
+				handler.accept(storage.get(key));
+			}
+			
+			@Override
+			public void get(List<String> keys, CacheReaderHandler<Map<String, String>> handler) {
+				batchLoads.incrementAndGet();
+				Map<String, String> result = new HashMap<>();
+				for (String key : keys)
+					result.put(key, storage.get(key));
+				handler.accept(result);
+			}
+		};
+		
+		ConcurrentCacheLRU<String, String> cache = new ConcurrentCacheLRU<>("cacheLRU_Batch", 3, reader, null);
+		
+		// Trigger cache misses, loaded with one request
+		assertTrue(cache.get(List.of("A", "B", "C", "D")).isEmpty());
+		assertEquals(1, batchLoads.get());
+		assertEquals(3, cache.getMap().size());
+		
+		Map<String, String> result = cache.get(List.of("A", "B", "C"));
+		assertEquals(3, result.size());
+		assertEquals("BB", result.get("B"));
+		
+		Map<String, String> entries = new HashMap<>();
+		entries.put("E", "EE");
+		entries.put("F", "FF");
+		cache.put(entries);
+		assertEquals(3, cache.getMap().size());
+		assertEquals(3, cache.getLru().size());
+		assertTrue(cache.containsKey("C"));
+		assertTrue(cache.containsKey("E"));
+		assertTrue(cache.containsKey("F"));
+		
+		cache.remove(List.of("C", "E"));
+		assertEquals(1, cache.getMap().size());
+		assertEquals(1, cache.getLru().size());
+		assertTrue(cache.containsKey("F"));
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_write_behind__coalescing() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		
+		AtomicInteger batchWrites = new AtomicInteger(0);
+		StorageWriter<String, String> writer = new StorageWriter<>() {
+			@Override
+			public void put(String key, String value, CacheWriterHandler handler) {
+				put(Map.of(key, value), handler);
+			}
+
+			@Override
+			public void remove(String key, CacheWriterHandler handler) {
+				remove(List.of(key), handler);
+			}
+			
+			@Override
+			public void put(Map<String, String> entries, CacheWriterHandler handler) {
+				batchWrites.incrementAndGet();
+				storage.putAll(entries);
+				handler.apply();
+			}
+			
+			@Override
+			public void remove(List<String> keys, CacheWriterHandler handler) {
+				batchWrites.incrementAndGet();
+				keys.forEach(storage::remove);
+				handler.apply();
+			}
+		};
+		
+		try (WriteBehindStorageWriter<String, String> writeBehind = new WriteBehindStorageWriter<>(writer, 1_000, 60_000)) {
+			ConcurrentCacheAsMap<String, String> cache = new ConcurrentCacheAsMap<>("cacheAsMap_WriteBehind", null, writeBehind);
+			
+			for (int i=0; i<1_000; i++)
+				cache.put("A", "A"+i);
+			cache.put("B", "BB");
+			cache.put("C", "CC");
+			cache.remove("C");
+			assertEquals(0, batchWrites.get());
+			assertEquals(3, writeBehind.pendingSize());
+			
+			writeBehind.flush();
+			assertEquals(2, batchWrites.get()); // one put batch, one remove batch
+			assertEquals("A999", storage.get("A"));
+			assertEquals("BB", storage.get("B"));
+			assertFalse(storage.containsKey("C"));
+			assertEquals(0, writeBehind.pendingSize());
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_write_behind__retry() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		
+		AtomicBoolean failing = new AtomicBoolean(true);
+		StorageWriter<String, String> writer = new StorageWriter<>() {
+			@Override
+			public void put(String key, String value, CacheWriterHandler handler) {
+				put(Map.of(key, value), handler);
+			}
+
+			@Override
+			public void remove(String key, CacheWriterHandler handler) {
+				remove(List.of(key), handler);
+			}
+			
+			@Override
+			public void put(Map<String, String> entries, CacheWriterHandler handler) {
+				if (failing.get())
+					throw new IllegalStateException("storage unavailable");
+				storage.putAll(entries);
+				handler.apply();
+			}
+			
+			@Override
+			public void remove(List<String> keys, CacheWriterHandler handler) {
+				keys.forEach(storage::remove);
+				handler.apply();
+			}
+		};
+		
+		try (WriteBehindStorageWriter<String, String> writeBehind = new WriteBehindStorageWriter<>(writer, 1_000, 60_000)) {
+			AtomicInteger handled = new AtomicInteger(0);
+			writeBehind.put("A", "A1", handled::incrementAndGet);
+			writeBehind.put("B", "BB", handled::incrementAndGet);
+			storage.put("C", "CC");
+			writeBehind.remove("C", handled::incrementAndGet);
+			
+			writeBehind.flush();
+			assertFalse(storage.containsKey("C")); // removes are written, although the puts have failed
+			assertEquals(2, writeBehind.pendingSize());
+			assertEquals(1, handled.get());
+			
+			writeBehind.put("A", "A2", handled::incrementAndGet); // newer write
+			failing.set(false);
+			writeBehind.flush();
+			assertEquals("A2", storage.get("A"));
+			assertEquals("BB", storage.get("B"));
+			assertEquals(0, writeBehind.pendingSize());
+			assertEquals(4, handled.get());
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_write_behind__failing_handler() {
+		AtomicInteger writes = new AtomicInteger(0);
+		StorageWriter<String, String> writer = new StorageWriter<>() {
+			@Override
+			public void put(String key, String value, CacheWriterHandler handler) {
+				put(Map.of(key, value), handler);
+			}
+
+			@Override
+			public void remove(String key, CacheWriterHandler handler) {
+				remove(List.of(key), handler);
+			}
+			
+			@Override
+			public void put(Map<String, String> entries, CacheWriterHandler handler) {
+				writes.addAndGet(entries.size());
+				handler.apply(); // synchronously
+			}
+		};
+		
+		try (WriteBehindStorageWriter<String, String> writeBehind = new WriteBehindStorageWriter<>(writer, 1_000, 60_000)) {
+			AtomicInteger handled = new AtomicInteger(0);
+			writeBehind.put("A", "AA", () -> { throw new IllegalStateException("handler failed"); });
+			writeBehind.put("B", "BB", handled::incrementAndGet);
+			
+			// the batch was written, it is not retried
+			writeBehind.flush();
+			writeBehind.flush();
+			assertEquals(2, writes.get());
+			assertEquals(0, writeBehind.pendingSize());
+			assertEquals(1, handled.get());
+		}
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_write_behind__flush_keys() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		
+		StorageWriter<String, String> writer = new StorageWriter<>() {
+			@Override
+			public void put(String key, String value, CacheWriterHandler handler) {
+				put(Map.of(key, value), handler);
+			}
+
+			@Override
+			public void remove(String key, CacheWriterHandler handler) {
+				remove(List.of(key), handler);
+			}
+			
+			@Override
+			public void put(Map<String, String> entries, CacheWriterHandler handler) {
+				storage.putAll(entries);
+				handler.apply();
+			}
+			
+			@Override
+			public void remove(List<String> keys, CacheWriterHandler handler) {
+				keys.forEach(storage::remove);
+				handler.apply();
+			}
+		};
+		
+		try (WriteBehindStorageWriter<String, String> writeBehind = new WriteBehindStorageWriter<>(writer, 1_000, 60_000)) {
+			writeBehind.put("A", "AA", null);
+			writeBehind.put("B", "BB", null);
+			writeBehind.put("C", "CC", null);
+			
+			// only the pending writes of the keys are written
+			writeBehind.flush("A");
+			assertEquals(Map.of("A", "AA"), storage);
+			writeBehind.flush(List.of("B", "D"));
+			assertEquals(Map.of("A", "AA", "B", "BB"), storage);
+			assertEquals(1, writeBehind.pendingSize());
+			
+			writeBehind.flush();
+			assertEquals("CC", storage.get("C"));
+			assertEquals(0, writeBehind.pendingSize());
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void test_cache_volatile_lru__expiry() throws InterruptedException {
+		ConcurrentCacheVolatileLRU<String, String> cache = new ConcurrentCacheVolatileLRU<>("cacheVolatileLRU_Expiry", 100, 200, ExpiryPolicy.EXPIRE_AFTER_WRITE);
+		
+		for (int i=0; i<50; i++)
+			cache.put("K"+i, "V"+i);
+		assertEquals("V0", cache.get("K0"));
+		assertEquals(50, cache.getMap().size());
+		
+		Thread.sleep(300);
+		assertNull(cache.get("K0")); // expired on read
+		
+		// the timer wheel has a resolution of about one second
+		Thread.sleep(2_500);
+		cache.put("A", "AA");
+		assertEquals(1, cache.getMap().size());
+		assertEquals(1, cache.getLru().size());
+		assertEquals("AA", cache.get("A"));
+	}
+	
+	@Test
+	public void test_cache_lru__weight() {
+		Weigher<String, String> weigher = (key, value) -> value.length();
+		ConcurrentCacheLRU<String, String> cache = new ConcurrentCacheLRU<>("cacheLRU_Weight", 100, weigher);
+		
+		cache.put("A", "x".repeat(30));
+		cache.put("B", "x".repeat(30));
+		cache.put("C", "x".repeat(30));
+		assertEquals(90, cache.weight());
+		cache.get("A");
+		
+		cache.put("D", "x".repeat(50)); // evicts B and C
+		assertEquals(80, cache.weight());
+		assertTrue(cache.getMap().containsKey("A"));
+		assertFalse(cache.getMap().containsKey("B"));
+		assertFalse(cache.getMap().containsKey("C"));
+		
+		cache.put("A", "x".repeat(10));
+		assertEquals(60, cache.weight());
+		cache.put("A", "x".repeat(70)); // evicts D
+		assertEquals(70, cache.weight());
+		assertEquals(1, cache.getMap().size());
+		
+		cache.remove("A");
+		assertEquals(0, cache.weight());
+	}
+	
+	@Test
+	public void test_cache_off_heap__get_put_evict() {
+		SerializerService serializer = new SerializerService() {
+			@Override
+			public byte[] encode(Object obj) {
+				return ((String)obj).getBytes(StandardCharsets.UTF_8);
+			}
+			
+			@Override
+			public <T> T decode(byte[] src) {
+				throw new UnsupportedOperationException();
+			}
+			
+			@Override
+			public <T> T decode(byte[] src, Class<T> type) {
+				return type.cast(new String(src, StandardCharsets.UTF_8));
+			}
+			
+			@Override
+			public <T> T decode(byte[] src, GenericType<T> type) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		
+		SlabAllocator allocator = new SlabAllocator(64*1024, 16*1024, 256);
+		ConcurrentCacheOffHeap<String, String> cache = new ConcurrentCacheOffHeap<>("cacheOffHeap", 1_000, allocator, serializer, String.class, null, null, true, new StripedLockManager<>());
+		
+		String large = "x".repeat(10_000); // spans several blocks
+		cache.put("L", large);
+		assertEquals(large, cache.get("L"));
+		assertNull(cache.put("A", "old"));
+		assertEquals("old", cache.put("A", "new"));
+		assertEquals("new", cache.get("A"));
+		cache.set("A", "newer");
+		assertEquals("newer", cache.get("A"));
+		
+		// exceeds the off-heap memory, least recently used entries are evicted
+		for (int i=0; i<1_000; i++)
+			cache.put("K"+i, "V"+i+"_".repeat(200));
+		assertTrue(allocator.usedMemory()<=allocator.maximumMemory());
+		assertFalse(cache.containsKey("L"));
+		assertEquals("V999"+"_".repeat(200), cache.get("K999"));
+		for (String key : cache.getLru())
+			assertNotEquals(OffHeapIndex.NO_ADDRESS, cache.getIndex().get(key));
+		
+		cache.remove("K999");
+		assertNull(cache.get("K999"));
+		cache.clear();
+		assertEquals(0, allocator.usedMemory());
+		assertNull(cache.get("K998"));
+	}
+	
+	@Test(timeout=5000)
+	public void test_off_heap_index() {
+		OffHeapIndex<Integer> index = new OffHeapIndex<>();
+		Map<Integer, Long> expected = new HashMap<>();
+		
+		// grows beyond the initial capacity, removes with backward shifts
+		for (int i=0; i<10_000; i++) {
+			assertEquals(OffHeapIndex.NO_ADDRESS, index.put(i, i*8L));
+			expected.put(i, i*8L);
+		}
+		assertEquals(8L, index.put(1, 16L));
+		expected.put(1, 16L);
+		for (int i=0; i<10_000; i+=3) {
+			assertEquals((long)expected.remove(i), index.remove(i));
+			assertEquals(OffHeapIndex.NO_ADDRESS, index.remove(i));
+		}
+		assertEquals(expected.size(), index.size());
+		for (int i=0; i<10_000; i++)
+			assertEquals(expected.containsKey(i) ? expected.get(i) : OffHeapIndex.NO_ADDRESS, index.get(i));
+		
+		index.clear();
+		assertEquals(0, index.size());
+		assertFalse(index.containsKey(2));
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__get_async_single_flight() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		storage.put("A", "AA");
+		storage.put("B", "BB");
+		storage.put("C", "CC");
+		
+		// loads are deferred, until the test completes them
+		List<Runnable> pendingLoads = new ArrayList<>();
+		AtomicInteger loads = new AtomicInteger(0);
+		AtomicInteger batchLoads = new AtomicInteger(0);
+		StorageReader<String, String> reader = new StorageReader<>() {
+			@Override
+			public void get(String key, CacheReaderHandler<String> handler) {
+				loads.incrementAndGet();
+				pendingLoads.add(() -> handler.accept(storage.get(key)));
+			}
+			
+			@Override
+			public void get(List<String> keys, CacheReaderHandler<Map<String, String>> handler) {
+				batchLoads.incrementAndGet();
+				pendingLoads.add(() -> {
+					Map<String, String> result = new HashMap<>();
+					for (String key : keys)
+						result.put(key, storage.get(key));
+					handler.accept(result);
+				});
+			}
+		};
+		
+		ConcurrentCacheLRU<String, String> cache = new ConcurrentCacheLRU<>("cacheLRU_SingleFlight", 10, reader, null);
+		
+		CompletableFuture<String> first = cache.getAsync("A");
+		CompletableFuture<String> second = cache.getAsync("A");
+		assertNull(cache.get("A"));
+		assertEquals(1, loads.get());
+		assertFalse(first.isDone());
+		
+		// misses are merged, the load of A in flight is shared
+		CompletableFuture<Map<String, String>> batch = cache.getAsync(List.of("A", "B", "C", "D"));
+		assertEquals(1, batchLoads.get());
+		
+		for (Runnable load : pendingLoads)
+			load.run();
+		assertEquals("AA", first.join());
+		assertEquals("AA", second.join());
+		Map<String, String> result = batch.join();
+		assertEquals(3, result.size());
+		assertEquals("CC", result.get("C"));
+		assertEquals(1, loads.get());
+		
+		// hits are completed immediately
+		assertTrue(cache.getAsync("B").isDone());
+		assertEquals("BB", cache.getAsync("B").join());
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__batch_get_absent_keys() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		storage.put("A", "AA");
+		
+		AtomicInteger batchLoads = new AtomicInteger(0);
+		StorageReader<String, String> reader = new StorageReader<>() {
+			@Override
+			public void get(String key, CacheReaderHandler<String> handler) {
+				handler.accept(storage.get(key));
+			}
+			
+			@Override
+			public void get(List<String> keys, CacheReaderHandler<Map<String, String>> handler) {
+				batchLoads.incrementAndGet();
+				Map<String, String> result = new HashMap<>();
+				for (String key : keys)
+					if (storage.containsKey(key))
+						result.put(key, storage.get(key)); // absent keys are omitted
+				handler.accept(result);
+			}
+		};
+		
+		ConcurrentCacheLRU<String, String> lru = new ConcurrentCacheLRU<>("cacheLRU_BatchAbsent", 10, reader, null);
+		Map<String, String> result = lru.getAsync(List.of("A", "B")).join();
+		assertEquals(Map.of("A", "AA"), result);
+		assertNull(lru.getAsync("B").join());
+		
+		storage.put("B", "BB"); // loaded again, the miss has been completed
+		assertEquals("BB", lru.getAsync(List.of("B", "C")).join().get("B"));
+		assertEquals(2, batchLoads.get());
+		
+		ConcurrentCacheAsMap<String, String> asMap = new ConcurrentCacheAsMap<>("cacheAsMap_BatchAbsent", reader, null);
+		assertEquals(Map.of("A", "AA", "B", "BB"), asMap.getAsync(List.of("A", "B", "D")).join());
+		assertNull(asMap.getAsync("D").join());
+	}
+	
+	@Test(timeout=5000)
+	public void test_cache_lru__failed_load() {
+		Map<String, String> storage = new ConcurrentHashMap<>();
+		storage.put("A", "AA");
+		storage.put("B", "BB");
+		
+		AtomicBoolean failing = new AtomicBoolean(true);
+		StorageReader<String, String> reader = new StorageReader<>() {
+			@Override
+			public void get(String key, CacheReaderHandler<String> handler) {
+				if (failing.get())
+					throw new IllegalStateException("storage unavailable");
+				handler.accept(storage.get(key));
+			}
+			
+			@Override
+			public void get(List<String> keys, CacheReaderHandler<Map<String, String>> handler) {
+				if (failing.get())
+					throw new IllegalStateException("storage unavailable");
+				Map<String, String> result = new HashMap<>();
+				for (String key : keys)
+					result.put(key, storage.get(key));
+				handler.accept(result);
+			}
+		};
+		
+		ConcurrentCacheLRU<String, String> lru = new ConcurrentCacheLRU<>("cacheLRU_FailedLoad", 10, reader, null);
+		assertTrue(lru.getAsync("A").isCompletedExceptionally());
+		assertTrue(lru.getAsync(List.of("A", "B")).isCompletedExceptionally());
+		assertNull(lru.get("A"));
+		
+		// the failed loads are not joined, the keys are loaded again
+		failing.set(false);
+		assertEquals("AA", lru.getAsync("A").join());
+		assertEquals(Map.of("A", "AA", "B", "BB"), lru.getAsync(List.of("A", "B")).join());
+		
+		failing.set(true);
+		ConcurrentCacheAsMap<String, String> asMap = new ConcurrentCacheAsMap<>("cacheAsMap_FailedLoad", reader, null);
+		assertTrue(asMap.getAsync("A").isCompletedExceptionally());
+		assertTrue(asMap.getAsync(List.of("A", "B")).isCompletedExceptionally());
+		failing.set(false);
+		assertEquals(Map.of("A", "AA", "B", "BB"), asMap.getAsync(List.of("A", "B")).join());
+	}
 }
@@ -17,6 +17,7 @@ package io.actor4j.jcache.mongo;
 
 import static io.actor4j.database.mongo.MongoOperations.*;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -44,7 +45,11 @@ import io.actor4j.core.utils.Pair;
 import io.actor4j.database.mongo.ConcurrentMongoBufferedBulkWriter;
 import io.actor4j.database.mongo.MongoBufferedBulkWriter;
 
-public class MongoCacheLoaderAndWriter<K, V> implements CacheLoader<K, V>, CacheWriter<K, V> {
+/**
+ * Closed together with the cache (JCache closes loaders and writers, that implement {@link Closeable}),
+ * which writes the pending bulk requests and stops the flusher of the bulk writer.
+ */
+public class MongoCacheLoaderAndWriter<K, V> implements CacheLoader<K, V>, CacheWriter<K, V>, Closeable {
 	public static final String KEY_NAME = "_id";
 	public static final String VALUE_NAME = "value";
 
@@ -201,4 +206,13 @@ public class MongoCacheLoaderAndWriter<K, V> implements CacheLoader<K, V>, Cache
 		else
 			throw new CacheWriterException("bulkWriter is null");
 	}
+	
+	// Returns after the final flush, may be called more than once (e.g., as loader and as writer)
+	@Override
+	public void close() {
+		if (bulkWriter instanceof ConcurrentMongoBufferedBulkWriter concurrentBulkWriter)
+			concurrentBulkWriter.close();
+		else if (bulkWriter != null)
+			bulkWriter.flush();
+	}
 }
@@ -15,46 +15,143 @@
  */
 package io.actor4j.cache.rocks;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.cache.integration.CacheLoaderException;
 import javax.cache.integration.CacheWriterException;
 
+import org.rocksdb.ByteBufferGetStatus;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.OptimisticTransactionDB;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
+import org.rocksdb.Status;
+import org.rocksdb.Transaction;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 
+import io.actor4j.cache.runtime.StripedLockManager;
 import io.actor4j.core.utils.Cache;
 
 public class RocksDBCache<K, V> implements Cache<K, V> {
+	protected static final int INITIAL_KEY_BUFFER_SIZE = 256;
+	protected static final int INITIAL_VALUE_BUFFER_SIZE = 4096;
+	
+	// multiple of the internal batch size of MultiGet (32 keys)
+	protected static final int MULTI_GET_BATCH_SIZE = 1024;
+	protected static final int PARALLEL_MULTI_GET_THRESHOLD = 4*MULTI_GET_BATCH_SIZE;
+	// values of a multi-get batch are read into slots of this size, larger values are read again individually
+	protected static final int MULTI_GET_VALUE_SLOT_SIZE = 512;
+	
 	protected final RocksDB db;
+	protected final ColumnFamilyHandle columnFamily;
+	protected final boolean closeDB; // false, if the database is shared with other column families
+	protected final RocksDBCacheHandles handles; // native handles of the database, closed after it, may be null
+	
+	// reused for all operations, closed together with the cache
+	protected final ReadOptions readOptions;
+	protected final WriteOptions writeOptions;
 	
 	protected final RocksDBCacheSerializer<K> keySerializer;
 	protected final RocksDBCacheSerializer<V> valueSerializer;
+	
+	// null, if only serializers are used
+	protected final RocksDBCacheCodec<K> keyCodec;
+	protected final RocksDBCacheCodec<V> valueCodec;
+	// direct buffers per thread, passed to RocksDB without copying into byte arrays
+	protected final ThreadLocal<ByteBuffer> keyBuffers;
+	protected final ThreadLocal<ByteBuffer> valueBuffers;
+	// direct buffers per thread for the keys and the value slots of a multi-get batch
+	protected final ThreadLocal<ByteBuffer> multiGetKeyBuffers;
+	protected final ThreadLocal<ByteBuffer> multiGetValueBuffers;
+	
+	protected final StripedLockManager<K> lockManager; // for compareAndSet, if not transactional
 
 	public RocksDBCache(RocksDB db, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		this(db, db.getDefaultColumnFamily(), true, keySerializer, valueSerializer);
+	}
+	
+	public RocksDBCache(RocksDB db, RocksDBCacheHandles handles, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		this(db, db.getDefaultColumnFamily(), true, handles, new ReadOptions(), new WriteOptions(), keySerializer, valueSerializer, null, null);
+	}
+	
+	public RocksDBCache(RocksDB db, ColumnFamilyHandle columnFamily, boolean closeDB, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		this(db, columnFamily, closeDB, new ReadOptions(), new WriteOptions(), keySerializer, valueSerializer);
+	}
+	
+	public RocksDBCache(RocksDB db, ColumnFamilyHandle columnFamily, boolean closeDB, ReadOptions readOptions, WriteOptions writeOptions, 
+			RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		this(db, columnFamily, closeDB, null, readOptions, writeOptions, keySerializer, valueSerializer, null, null);
+	}
+	
+	public RocksDBCache(RocksDB db, RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
+		this(db, db.getDefaultColumnFamily(), true, keyCodec, valueCodec);
+	}
+	
+	public RocksDBCache(RocksDB db, RocksDBCacheHandles handles, RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
+		this(db, db.getDefaultColumnFamily(), true, handles, new ReadOptions(), new WriteOptions(), keyCodec.serializer(), valueCodec.serializer(), keyCodec, valueCodec);
+	}
+	
+	public RocksDBCache(RocksDB db, ColumnFamilyHandle columnFamily, boolean closeDB, RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
+		this(db, columnFamily, closeDB, null, new ReadOptions(), new WriteOptions(), keyCodec.serializer(), valueCodec.serializer(), keyCodec, valueCodec);
+	}
+	
+	protected RocksDBCache(RocksDB db, ColumnFamilyHandle columnFamily, boolean closeDB, RocksDBCacheHandles handles, ReadOptions readOptions, WriteOptions writeOptions, 
+			RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer, RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
 		super();
 		
 		this.db = db;
+		this.columnFamily = columnFamily;
+		this.closeDB = closeDB;
+		this.handles = handles;
+		this.readOptions = readOptions;
+		this.writeOptions = writeOptions;
 		this.keySerializer = keySerializer;
 		this.valueSerializer = valueSerializer;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		
+		keyBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_KEY_BUFFER_SIZE));
+		valueBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_VALUE_BUFFER_SIZE));
+		multiGetKeyBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MULTI_GET_BATCH_SIZE*16));
+		multiGetValueBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MULTI_GET_BATCH_SIZE*MULTI_GET_VALUE_SLOT_SIZE));
+		
+		lockManager = new StripedLockManager<>();
 	}
 	
 	public RocksDB getDB() {
 		return db;
 	}
 	
+	public ColumnFamilyHandle getColumnFamily() {
+		return columnFamily;
+	}
+	
 	@Override
 	public boolean containsKey(K key) {
 		boolean result = false;
 		
 		try {
-			result = db.keyExists(keySerializer.encode().apply(key));
+			if (keyCodec!=null)
+				result = db.keyExists(columnFamily, readOptions, encode(keyBuffers, keyCodec, key));
+			else
+				result = db.keyExists(columnFamily, readOptions, keySerializer.encode().apply(key));
 		} catch(Exception e) {
 			throw new CacheLoaderException(e);
 		}
@@ -67,8 +164,12 @@ public class RocksDBCache<K, V> implements Cache<K, V> {
 		V result = null;
 		
 		try {
-			byte[] bytes = db.get(keySerializer.encode().apply(key));
-			result = valueSerializer.decode().apply(bytes);
+			if (keyCodec!=null && valueCodec!=null)
+				result = getDirect(key);
+			else {
+				byte[] bytes = db.get(columnFamily, readOptions, keySerializer.encode().apply(key));
+				result = valueSerializer.decode().apply(bytes);
+			}
 		} catch(Exception e) {
 			throw new CacheLoaderException(e);
 		}
@@ -76,27 +177,201 @@ public class RocksDBCache<K, V> implements Cache<K, V> {
 		return result;
 	}
 	
+	// Reads the value into the direct buffer of the thread, the buffer is enlarged if the value does not fit
+	protected V getDirect(K key) throws RocksDBException {
+		V result = null;
+		
+		ByteBuffer keyBuffer = encode(keyBuffers, keyCodec, key);
+		ByteBuffer valueBuffer = valueBuffers.get();
+		valueBuffer.clear();
+		int size = db.get(columnFamily, readOptions, keyBuffer, valueBuffer);
+		if (size>valueBuffer.capacity()) {
+			valueBuffer = ByteBuffer.allocateDirect(size);
+			valueBuffers.set(valueBuffer);
+			keyBuffer.rewind();
+			size = db.get(columnFamily, readOptions, keyBuffer, valueBuffer);
+		}
+		if (size!=RocksDB.NOT_FOUND)
+			result = valueCodec.decode(valueBuffer);
+		
+		return result;
+	}
+	
+	// Encodes into the direct buffer of the thread, the buffer is enlarged until the object fits
+	protected static <T> ByteBuffer encode(ThreadLocal<ByteBuffer> buffers, RocksDBCacheCodec<T> codec, T obj) {
+		ByteBuffer result = buffers.get();
+		
+		boolean encoded = false;
+		while (!encoded) {
+			result.clear();
+			try {
+				codec.encode(obj, result);
+				result.flip();
+				encoded = true;
+			}
+			catch (BufferOverflowException e) {
+				result = ByteBuffer.allocateDirect(result.capacity()*2);
+				buffers.set(result);
+			}
+		}
+		
+		return result;
+	}
+	
+	// Encodes the objects one after another into the direct buffer of the thread, returns a slice per object
+	protected static <T> List<ByteBuffer> encode(ThreadLocal<ByteBuffer> buffers, RocksDBCacheCodec<T> codec, List<T> objs) {
+		List<ByteBuffer> result = new ArrayList<>(objs.size());
+		ByteBuffer buffer = buffers.get();
+		
+		boolean encoded = false;
+		while (!encoded) {
+			result.clear();
+			buffer.clear();
+			try {
+				for (T obj : objs) {
+					int offset = buffer.position();
+					codec.encode(obj, buffer);
+					result.add(buffer.slice(offset, buffer.position()-offset));
+				}
+				encoded = true;
+			}
+			catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocateDirect(buffer.capacity()*2);
+				buffers.set(buffer);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads the keys in batches of {@link #MULTI_GET_BATCH_SIZE}. Large key lists are read and decoded
+	 * in parallel on the common fork-join pool. Missing keys are not contained in the result.
+	 */
 	@Override
 	public Map<K, V> get(List<K> keys) {
 		Map<K, V> result = new HashMap<>();
+		
+		int batches = (keys.size()+MULTI_GET_BATCH_SIZE-1)/MULTI_GET_BATCH_SIZE;
+		if (keys.size()<PARALLEL_MULTI_GET_THRESHOLD) {
+			for (int i=0; i<batches; i++)
+				get(batch(keys, i), result::put);
+		}
+		else
+			IntStream.range(0, batches)
+				.parallel()
+				.mapToObj(i -> {
+					Map<K, V> batchResult = new HashMap<>();
+					get(batch(keys, i), batchResult::put);
+					return batchResult;
+				})
+				.collect(Collectors.toList())
+				.forEach(result::putAll);
+
+		return result;
+	}
+	
+	/**
+	 * Returns the entries of the existing keys in the order of the keys. Only one batch is read
+	 * ahead, which keeps the memory bounded for very large key lists.
+	 */
+	public Iterator<Map.Entry<K, V>> getIterator(List<K> keys) {
+		return new Iterator<>() {
+			private int batch;
+			private Iterator<Map.Entry<K, V>> entries = Collections.emptyIterator();
+			
+			@Override
+			public boolean hasNext() {
+				while (!entries.hasNext() && batch*MULTI_GET_BATCH_SIZE<keys.size()) {
+					Map<K, V> batchResult = new LinkedHashMap<>();
+					get(batch(keys, batch++), batchResult::put);
+					entries = batchResult.entrySet().iterator();
+				}
+				
+				return entries.hasNext();
+			}
+
+			@Override
+			public Map.Entry<K, V> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				
+				return entries.next();
+			}
+		};
+	}
+	
+	protected static <K> List<K> batch(List<K> keys, int index) {
+		return keys.subList(index*MULTI_GET_BATCH_SIZE, Math.min((index+1)*MULTI_GET_BATCH_SIZE, keys.size()));
+	}
+	
+	protected void get(List<K> keys, BiConsumer<K, V> consumer) {
+		if (keyCodec!=null && valueCodec!=null)
+			getDirect(keys, consumer);
+		else
+			getBytes(keys, consumer);
+	}
+	
+	/**
+	 * Reads the batch with multiGetByteBuffers, without allocating byte arrays. The keys are encoded into
+	 * one direct buffer of the thread, the values are read into fixed slots of another one. Values that
+	 * exceed {@link #MULTI_GET_VALUE_SLOT_SIZE} are truncated by RocksDB and read again individually.
+	 */
+	protected void getDirect(List<K> keys, BiConsumer<K, V> consumer) {
+		List<ByteBuffer> encodedKeys = encode(multiGetKeyBuffers, keyCodec, keys);
+		
+		ByteBuffer valueBuffer = multiGetValueBuffers.get();
+		if (valueBuffer.capacity()<keys.size()*MULTI_GET_VALUE_SLOT_SIZE) {
+			valueBuffer = ByteBuffer.allocateDirect(keys.size()*MULTI_GET_VALUE_SLOT_SIZE);
+			multiGetValueBuffers.set(valueBuffer);
+		}
+		List<ByteBuffer> values = new ArrayList<>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+			values.add(valueBuffer.slice(i*MULTI_GET_VALUE_SLOT_SIZE, MULTI_GET_VALUE_SLOT_SIZE));
+		
 		try {
-			List<byte[]> values = db.multiGetAsList(keys.stream().map(keySerializer.encode()::apply).collect(Collectors.toList()))
-				.stream().filter(value -> value!=null).collect(Collectors.toList());
-			if (values!=null) {
-				for(int i=0; i<values.size(); i++)
-					result.put(keys.get(i), valueSerializer.decode().apply(values.get(i)));
+			List<ByteBufferGetStatus> statuses = db.multiGetByteBuffers(readOptions, Collections.nCopies(keys.size(), columnFamily), encodedKeys, values);
+			for (int i=0; i<statuses.size(); i++) {
+				ByteBufferGetStatus status = statuses.get(i);
+				if (status.status.getCode()==Status.Code.Ok) {
+					K key = keys.get(i);
+					V value = status.requiredSize>MULTI_GET_VALUE_SLOT_SIZE ? getDirect(key) : valueCodec.decode(status.value);
+					if (value!=null) // may be removed in the meantime
+						consumer.accept(key, value);
+				}
+				else if (status.status.getCode()!=Status.Code.NotFound)
+					throw new CacheLoaderException(status.status.getCode().toString());
+			}
+		} catch(RocksDBException e) {
+			throw new CacheLoaderException(e);
+		}
+	}
+	
+	// The values of multiGetAsList are positional, null for missing keys
+	protected void getBytes(List<K> keys, BiConsumer<K, V> consumer) {
+		List<byte[]> encodedKeys = new ArrayList<>(keys.size());
+		for (K key : keys)
+			encodedKeys.add(keySerializer.encode().apply(key));
+		
+		try {
+			List<byte[]> values = db.multiGetAsList(readOptions, Collections.nCopies(keys.size(), columnFamily), encodedKeys);
+			for (int i=0; i<values.size(); i++) {
+				byte[] value = values.get(i);
+				if (value!=null)
+					consumer.accept(keys.get(i), valueSerializer.decode().apply(value));
 			}
 		} catch(RocksDBException e) {
 			throw new CacheLoaderException(e);
 		}
-
-		return result;
 	}
 
 	@Override
 	public V put(K key, V value) {
 		try {
-			db.put(keySerializer.encode().apply(key), valueSerializer.encode().apply(value));
+			if (keyCodec!=null && valueCodec!=null)
+				db.put(columnFamily, writeOptions, encode(keyBuffers, keyCodec, key), encode(valueBuffers, valueCodec, value));
+			else
+				db.put(columnFamily, writeOptions, keySerializer.encode().apply(key), valueSerializer.encode().apply(value));
 		} catch(Exception e) {
 			throw new CacheWriterException(e);
 		}
@@ -112,29 +387,77 @@ public class RocksDBCache<K, V> implements Cache<K, V> {
 				.forEach(entry ->
 					{
 						try {
-							batch.put(keySerializer.encode().apply(entry.getKey()), valueSerializer.encode().apply(entry.getValue()));
+							if (keyCodec!=null && valueCodec!=null)
+								batch.put(columnFamily, encode(keyBuffers, keyCodec, entry.getKey()), encode(valueBuffers, valueCodec, entry.getValue()));
+							else
+								batch.put(columnFamily, keySerializer.encode().apply(entry.getKey()), valueSerializer.encode().apply(entry.getValue()));
 						} catch (Exception e) {
 							throw new CacheWriterException(e);
 						}
 					}
 				);
-			db.write(new WriteOptions(), batch);
+			db.write(writeOptions, batch);
 		} catch(Exception e) {
 			throw new CacheWriterException(e);
 		}
 	}
 	
+	/**
+	 * Within an OptimisticTransactionDB, the read of the current value is conflict checked against all
+	 * writes of the key and retried on conflict. Otherwise, it is only atomic with respect to other
+	 * calls of compareAndSet on this cache.
+	 */
 	@Override
 	public boolean compareAndSet(K key, V expectedValue, V newValue) {
-		// https://github.com/facebook/rocksdb/wiki/Merge-Operator
+		boolean result = false;
 		
-		return false;
+		byte[] keyBytes = keySerializer.encode().apply(key);
+		if (db instanceof OptimisticTransactionDB transactionDB) {
+			boolean retry = true;
+			while (retry) {
+				retry = false;
+				try (Transaction transaction = transactionDB.beginTransaction(writeOptions)) {
+					byte[] bytes = transaction.getForUpdate(readOptions, columnFamily, keyBytes, true);
+					if (bytes!=null && valueSerializer.decode().apply(bytes).equals(expectedValue)) {
+						transaction.put(columnFamily, keyBytes, valueSerializer.encode().apply(newValue));
+						transaction.commit();
+						result = true;
+					}
+				} catch(RocksDBException e) {
+					Status status = e.getStatus();
+					if (status!=null && (status.getCode()==Status.Code.Busy || status.getCode()==Status.Code.TryAgain))
+						retry = true; // written concurrently
+					else
+						throw new CacheWriterException(e);
+				}
+			}
+		}
+		else {
+			lockManager.lock(key);
+			try {
+				byte[] bytes = db.get(columnFamily, readOptions, keyBytes);
+				if (bytes!=null && valueSerializer.decode().apply(bytes).equals(expectedValue)) {
+					db.put(columnFamily, writeOptions, keyBytes, valueSerializer.encode().apply(newValue));
+					result = true;
+				}
+			} catch(RocksDBException e) {
+				throw new CacheWriterException(e);
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+		}
+		
+		return result;
 	}
 
 	@Override
 	public void remove(K key) {
 		try {
-			db.delete(keySerializer.encode().apply(key));
+			if (keyCodec!=null)
+				db.delete(columnFamily, writeOptions, encode(keyBuffers, keyCodec, key));
+			else
+				db.delete(columnFamily, writeOptions, keySerializer.encode().apply(key));
 		} catch(Exception e) {
 			throw new CacheWriterException(e);
 		}
@@ -147,29 +470,85 @@ public class RocksDBCache<K, V> implements Cache<K, V> {
 				.forEach(key ->
 					{
 						try {
-							batch.delete(keySerializer.encode().apply(key));
+							if (keyCodec!=null)
+								batch.delete(columnFamily, encode(keyBuffers, keyCodec, key));
+							else
+								batch.delete(columnFamily, keySerializer.encode().apply(key));
 						} catch (Exception e) {
 							throw new CacheWriterException(e);
 						}
 					}
 				);
-			db.write(new WriteOptions(), batch);
+			db.write(writeOptions, batch);
 		} catch(Exception e) {
 			throw new CacheWriterException(e);
 		}
 	}
 
+	// Deletes all keys with one range tombstone, the range is compacted afterwards
 	@Override
 	public void clear() {
-		try(WriteBatch batch = new WriteBatch(); RocksIterator iterator = db.newIterator()) {
-			for (iterator.seekToFirst(); iterator.isValid(); iterator.next())
-				batch.delete(iterator.key());
-			db.write(new WriteOptions(), batch);
-			db.compactRange();
+		try(ReadOptions options = new ReadOptions().setTotalOrderSeek(true); RocksIterator iterator = db.newIterator(columnFamily, options)) {
+			iterator.seekToFirst();
+			if (iterator.isValid()) {
+				byte[] first = iterator.key();
+				iterator.seekToLast();
+				byte[] last = iterator.key();
+				byte[] end = Arrays.copyOf(last, last.length+1); // exclusive, the smallest key after the last key
+				
+				db.deleteRange(columnFamily, writeOptions, first, end);
+				db.compactRange(columnFamily, first, end);
+			}
+			iterator.status();
 		} catch(Exception e) {
 			throw new CacheWriterException(e);
 		}
 	}
+	
+	/**
+	 * Iterates in key order over all entries from {@code fromKey} (inclusive) to {@code toKey}
+	 * (exclusive). Bounds may be {@code null}. The order is the bytewise order of the encoded keys.
+	 */
+	public void scan(K fromKey, K toKey, BiConsumer<K, V> consumer) {
+		scan(fromKey!=null ? keySerializer.encode().apply(fromKey) : null, toKey!=null ? keySerializer.encode().apply(toKey) : null, consumer);
+	}
+	
+	// Iterates over all entries whose encoded key starts with the prefix
+	public void scanPrefix(byte[] prefix, BiConsumer<K, V> consumer) {
+		scan(prefix, nextPrefix(prefix), consumer);
+	}
+	
+	protected void scan(byte[] from, byte[] to, BiConsumer<K, V> consumer) {
+		// the upper bound allows to use the prefix bloom filters (auto prefix mode)
+		Slice upperBound = to!=null ? new Slice(to) : null;
+		try(ReadOptions options = new ReadOptions().setAutoPrefixMode(true); RocksIterator iterator = db.newIterator(columnFamily, upperBound!=null ? options.setIterateUpperBound(upperBound) : options)) {
+			if (from!=null)
+				iterator.seek(from);
+			else
+				iterator.seekToFirst();
+			for (; iterator.isValid(); iterator.next())
+				consumer.accept(keySerializer.decode().apply(iterator.key()), valueSerializer.decode().apply(iterator.value()));
+			iterator.status();
+		} catch(RocksDBException e) {
+			throw new CacheLoaderException(e);
+		}
+		finally {
+			if (upperBound!=null)
+				upperBound.close();
+		}
+	}
+	
+	// Returns the smallest key greater than all keys with the prefix, or null if there is none
+	protected static byte[] nextPrefix(byte[] prefix) {
+		for (int i=prefix.length-1; i>=0; i--)
+			if (prefix[i]!=(byte)0xFF) {
+				byte[] result = Arrays.copyOf(prefix, i+1);
+				result[i]++;
+				return result;
+			}
+		
+		return null;
+	}
 
 	@Override
 	public void evict(long duration) {
@@ -178,17 +557,22 @@ public class RocksDBCache<K, V> implements Cache<K, V> {
 	
 	public void compact() {
 		try {
-			db.compactRange();
+			db.compactRange(columnFamily);
 		} catch (RocksDBException e) {
 			throw new CacheWriterException(e);
 		}
 	}
 	
 	public void close() {
+		readOptions.close();
+		writeOptions.close();
 		try {
-			db.closeE();
+			if (closeDB)
+				db.closeE();
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
+		if (closeDB && handles!=null)
+			handles.close();
 	}
 }
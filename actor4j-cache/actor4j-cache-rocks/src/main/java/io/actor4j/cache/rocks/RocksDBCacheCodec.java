@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes objects directly into (direct) byte buffers, that are reused across operations.
+ *
+ * {@code encode} writes at the position of the buffer and throws a {@link BufferOverflowException},
+ * if the buffer is too small (it is then retried with a larger buffer). {@code decode} reads from
+ * the position to the limit and must not keep a reference to the buffer.
+ *
+ * @param <T> the type of the objects
+ */
+public interface RocksDBCacheCodec<T> {
+	public void encode(T obj, ByteBuffer buffer);
+	public T decode(ByteBuffer buffer);
+	
+	// Adapter for the operations that are based on byte arrays
+	public default RocksDBCacheSerializer<T> serializer() {
+		return new RocksDBCacheSerializer<>(
+			(obj) -> {
+				ByteBuffer buffer = ByteBuffer.allocate(64);
+				for (;;) {
+					try {
+						encode(obj, buffer);
+						return Arrays.copyOf(buffer.array(), buffer.position());
+					}
+					catch (BufferOverflowException e) {
+						buffer = ByteBuffer.allocate(buffer.capacity()*2);
+					}
+				}
+			},
+			(bytes) -> bytes!=null ? decode(ByteBuffer.wrap(bytes)) : null);
+	}
+}
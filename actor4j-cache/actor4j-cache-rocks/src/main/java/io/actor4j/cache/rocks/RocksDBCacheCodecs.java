@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public final class RocksDBCacheCodecs {
+	private RocksDBCacheCodecs() {
+		super();
+	}
+	
+	// Big-endian with flipped sign bit, the bytewise order of the keys is the numerical order
+	public static RocksDBCacheCodec<Long> longCodec() {
+		return new RocksDBCacheCodec<>() {
+			@Override
+			public void encode(Long obj, ByteBuffer buffer) {
+				buffer.putLong(obj ^ Long.MIN_VALUE);
+			}
+
+			@Override
+			public Long decode(ByteBuffer buffer) {
+				return buffer.getLong(buffer.position()) ^ Long.MIN_VALUE;
+			}
+		};
+	}
+	
+	public static RocksDBCacheCodec<UUID> uuidCodec() {
+		return new RocksDBCacheCodec<>() {
+			@Override
+			public void encode(UUID obj, ByteBuffer buffer) {
+				buffer.putLong(obj.getMostSignificantBits());
+				buffer.putLong(obj.getLeastSignificantBits());
+			}
+
+			@Override
+			public UUID decode(ByteBuffer buffer) {
+				int position = buffer.position();
+				return new UUID(buffer.getLong(position), buffer.getLong(position+8));
+			}
+		};
+	}
+	
+	public static RocksDBCacheCodec<String> stringCodec() {
+		return new RocksDBCacheCodec<>() {
+			@Override
+			public void encode(String obj, ByteBuffer buffer) {
+				buffer.put(obj.getBytes(StandardCharsets.UTF_8));
+			}
+
+			@Override
+			public String decode(ByteBuffer buffer) {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(buffer.position(), bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+	}
+	
+	// Adapter for serializers based on byte arrays, the byte arrays are still allocated
+	public static <T> RocksDBCacheCodec<T> of(RocksDBCacheSerializer<T> serializer) {
+		return new RocksDBCacheCodec<>() {
+			@Override
+			public void encode(T obj, ByteBuffer buffer) {
+				buffer.put(serializer.encode().apply(obj));
+			}
+
+			@Override
+			public T decode(ByteBuffer buffer) {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(buffer.position(), bytes);
+				return serializer.decode().apply(bytes);
+			}
+			
+			@Override
+			public RocksDBCacheSerializer<T> serializer() {
+				return serializer;
+			}
+		};
+	}
+}
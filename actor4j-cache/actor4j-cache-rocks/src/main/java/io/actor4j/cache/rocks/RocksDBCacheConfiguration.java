@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+
+public class RocksDBCacheConfiguration {
+	protected long blockCacheSize; // in bytes, zero for the default block cache
+	protected double bloomFilterBitsPerKey = 10; // zero to disable
+	protected int prefixLength; // length of the fixed key prefix, zero if not used
+	protected boolean optimisticTransactions;
+
+	public long getBlockCacheSize() {
+		return blockCacheSize;
+	}
+
+	public RocksDBCacheConfiguration setBlockCacheSize(long blockCacheSize) {
+		this.blockCacheSize = blockCacheSize;
+		return this;
+	}
+
+	public double getBloomFilterBitsPerKey() {
+		return bloomFilterBitsPerKey;
+	}
+
+	public RocksDBCacheConfiguration setBloomFilterBitsPerKey(double bloomFilterBitsPerKey) {
+		this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+		return this;
+	}
+
+	public int getPrefixLength() {
+		return prefixLength;
+	}
+
+	// Enables prefix bloom filters, used by prefix scans of the same length
+	public RocksDBCacheConfiguration setPrefixLength(int prefixLength) {
+		this.prefixLength = prefixLength;
+		return this;
+	}
+
+	public boolean isOptimisticTransactions() {
+		return optimisticTransactions;
+	}
+
+	// Opens an OptimisticTransactionDB, compareAndSet is then conflict checked against all writes
+	public RocksDBCacheConfiguration setOptimisticTransactions(boolean optimisticTransactions) {
+		this.optimisticTransactions = optimisticTransactions;
+		return this;
+	}
+	
+	// ---
+	
+	// The created native handles are added to the handles, that are closed together with the database
+	
+	public BlockBasedTableConfig createTableConfig(RocksDBCacheHandles handles) {
+		BlockBasedTableConfig result = new BlockBasedTableConfig();
+		if (blockCacheSize>0)
+			result.setBlockCache(handles.add(new LRUCache(blockCacheSize)));
+		if (bloomFilterBitsPerKey>0) {
+			result.setFilterPolicy(handles.add(new BloomFilter(bloomFilterBitsPerKey)));
+			// point lookups need the whole key filter, prefix scans the prefix filter
+			result.setWholeKeyFiltering(true);
+		}
+		
+		return result;
+	}
+	
+	public ColumnFamilyOptions createColumnFamilyOptions(RocksDBCacheHandles handles) {
+		ColumnFamilyOptions result = handles.add(new ColumnFamilyOptions());
+		result.setTableFormatConfig(createTableConfig(handles));
+		if (prefixLength>0) {
+			result.useFixedLengthPrefixExtractor(prefixLength);
+			result.setMemtablePrefixBloomSizeRatio(0.1);
+		}
+		
+		return result;
+	}
+	
+	public DBOptions createDBOptions(RocksDBCacheHandles handles) {
+		return handles.add(new DBOptions())
+			.setCreateIfMissing(true)
+			.setCreateMissingColumnFamilies(true);
+	}
+	
+	public Options createOptions(RocksDBCacheHandles handles) {
+		return handles.add(new Options(createDBOptions(handles), createColumnFamilyOptions(handles)));
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rocksdb.RocksObject;
+
+/**
+ * Native handles (options, block cache, bloom filter), that were created for a database. They must
+ * outlive the database and are closed after it, in reverse order of their creation.
+ */
+public class RocksDBCacheHandles implements AutoCloseable {
+	protected final List<RocksObject> handles;
+	
+	public RocksDBCacheHandles() {
+		super();
+		
+		handles = new ArrayList<>();
+	}
+	
+	public synchronized <T extends RocksObject> T add(T handle) {
+		handles.add(handle);
+		
+		return handle;
+	}
+	
+	public synchronized int size() {
+		return handles.size();
+	}
+	
+	@Override
+	public synchronized void close() {
+		for (int i=handles.size()-1; i>=0; i--)
+			handles.get(i).close();
+		handles.clear();
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import io.actor4j.cache.StorageWriter;
+import io.actor4j.cache.runtime.ConcurrentCacheLRU;
+import io.actor4j.cache.runtime.StripedLockManager;
+import io.actor4j.cache.runtime.WriteBehindStorageWriter;
+import io.actor4j.core.utils.Cache;
+
+/**
+ * A bounded on-heap {@link ConcurrentCacheLRU} tier in front of a {@link RocksDBCache}.
+ * 
+ * Hits of the near cache skip the JNI call and the decoding of the value. Misses are read through
+ * from RocksDB and added to the near cache. Writes go through to RocksDB, either directly or via a
+ * {@link WriteBehindStorageWriter}, and update the near cache.
+ * 
+ * Loads and writes of a key are serialized by a striped lock, batch writes hold the stripes of all
+ * their keys (in ascending order) across the write to RocksDB and the update of the near cache. Each
+ * stripe has a version, that is incremented by every write, so that a load does not add values that
+ * were overwritten in the meantime. Pending writes of the write-behind writer are flushed before a
+ * load, but without holding the stripe lock. {@code clear} excludes all loads and writes.
+ */
+public class RocksDBNearCache<K, V> implements Cache<K, V> {
+	protected final ConcurrentCacheLRU<K, V> nearCache;
+	protected final RocksDBCache<K, V> cache;
+	
+	protected final StorageWriter<K, V> storageWriter;
+	protected final WriteBehindStorageWriter<K, V> writeBehind; // null, if written through
+	
+	protected final StripedLockManager<K> lockManager;
+	protected final AtomicLongArray versions;
+	protected final ReentrantReadWriteLock clearLock;
+	
+	public RocksDBNearCache(RocksDBCache<K, V> cache, int nearCacheSize) {
+		this(cache, nearCacheSize, null);
+	}
+	
+	public RocksDBNearCache(RocksDBCache<K, V> cache, int nearCacheSize, int maxBatchSize, long maxDelay) {
+		this(cache, nearCacheSize, new WriteBehindStorageWriter<>(new RocksDBStorageWriter<>(cache), maxBatchSize, maxDelay));
+	}
+	
+	protected RocksDBNearCache(RocksDBCache<K, V> cache, int nearCacheSize, WriteBehindStorageWriter<K, V> writeBehind) {
+		super();
+		
+		nearCache = new ConcurrentCacheLRU<>("rocksdb-near-cache", nearCacheSize);
+		this.cache = cache;
+		this.writeBehind = writeBehind;
+		storageWriter = writeBehind!=null ? writeBehind : new RocksDBStorageWriter<>(cache);
+		
+		lockManager = new StripedLockManager<>();
+		versions = new AtomicLongArray(lockManager.stripes());
+		clearLock = new ReentrantReadWriteLock();
+	}
+	
+	public ConcurrentCacheLRU<K, V> getNearCache() {
+		return nearCache;
+	}
+	
+	public RocksDBCache<K, V> getRocksDBCache() {
+		return cache;
+	}
+	
+	@Override
+	public boolean containsKey(K key) {
+		return nearCache.containsKey(key) || load(key)!=null;
+	}
+	
+	@Override
+	public V get(K key) {
+		V result = nearCache.get(key);
+		if (result==null)
+			result = load(key);
+		
+		return result;
+	}
+	
+	protected V load(K key) {
+		V result = null;
+		
+		clearLock.readLock().lock();
+		try {
+			long version = flush(key);
+			lockManager.lock(key);
+			try {
+				result = read(key, version);
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+		}
+		finally {
+			clearLock.readLock().unlock();
+		}
+		
+		return result;
+	}
+	
+	// Flushes the pending write of the key without holding its lock, returns the version before the flush
+	protected long flush(K key) {
+		long result = versions.get(lockManager.stripe(key));
+		if (writeBehind!=null)
+			writeBehind.flush(key);
+		
+		return result;
+	}
+	
+	// Must be called while holding the lock of the key, it is only flushed again if written since the version
+	protected V read(K key, long version) {
+		V result = nearCache.get(key);
+		if (result==null) {
+			if (writeBehind!=null && versions.get(lockManager.stripe(key))!=version)
+				writeBehind.flush(key);
+			result = cache.get(key);
+			if (result!=null)
+				nearCache.put(key, result);
+		}
+		
+		return result;
+	}
+	
+	// Misses of the near cache are read with one multi get
+	@Override
+	public Map<K, V> get(List<K> keys) {
+		Map<K, V> result = new HashMap<>(nearCache.get(keys));
+		List<K> misses = new ArrayList<>();
+		for (K key : keys)
+			if (!result.containsKey(key))
+				misses.add(key);
+		if (misses.isEmpty())
+			return result;
+		
+		List<K> written = new ArrayList<>();
+		clearLock.readLock().lock();
+		try {
+			long[] missVersions = new long[misses.size()];
+			for (int i=0; i<misses.size(); i++)
+				missVersions[i] = versions.get(lockManager.stripe(misses.get(i)));
+			
+			// only the pending writes of the misses are flushed
+			if (writeBehind!=null)
+				writeBehind.flush(misses);
+			Map<K, V> loaded = cache.get(misses);
+			
+			for (int i=0; i<misses.size(); i++) {
+				K key = misses.get(i);
+				V value = loaded.get(key);
+				
+				lockManager.lock(key);
+				try {
+					if (versions.get(lockManager.stripe(key))!=missVersions[i]) {
+						written.add(key);
+						value = null;
+					}
+					else if (value!=null)
+						nearCache.put(key, value);
+				}
+				finally {
+					lockManager.unLock(key);
+				}
+				
+				if (value!=null)
+					result.put(key, value);
+			}
+		}
+		finally {
+			clearLock.readLock().unlock();
+		}
+		
+		// written in the meantime, loaded again with their latest writes
+		for (K key : written) {
+			V value = load(key);
+			if (value!=null)
+				result.put(key, value);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public V put(K key, V value) {
+		clearLock.readLock().lock();
+		lockManager.lock(key);
+		try {
+			versions.incrementAndGet(lockManager.stripe(key));
+			storageWriter.put(key, value, null);
+			nearCache.put(key, value);
+		}
+		finally {
+			lockManager.unLock(key);
+			clearLock.readLock().unlock();
+		}
+		
+		return null;
+	}
+	
+	// Written to RocksDB first, then to the near cache, while holding the locks of all keys
+	@Override
+	public void put(Map<K, V> entries) {
+		clearLock.readLock().lock();
+		int[] stripes = lockManager.lock(entries.keySet());
+		try {
+			for (K key : entries.keySet())
+				versions.incrementAndGet(lockManager.stripe(key));
+			storageWriter.put(entries, null);
+			nearCache.put(entries);
+		}
+		finally {
+			lockManager.unLock(stripes);
+			clearLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean compareAndSet(K key, V expectedValue, V newValue) {
+		boolean result = false;
+		
+		clearLock.readLock().lock();
+		try {
+			long version = flush(key);
+			lockManager.lock(key);
+			try {
+				V value = read(key, version);
+				if (value!=null && value.equals(expectedValue)) {
+					versions.incrementAndGet(lockManager.stripe(key));
+					storageWriter.put(key, newValue, null);
+					nearCache.put(key, newValue);
+					result = true;
+				}
+			}
+			finally {
+				lockManager.unLock(key);
+			}
+		}
+		finally {
+			clearLock.readLock().unlock();
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public void remove(K key) {
+		clearLock.readLock().lock();
+		lockManager.lock(key);
+		try {
+			versions.incrementAndGet(lockManager.stripe(key));
+			storageWriter.remove(key, null);
+			nearCache.remove(key);
+		}
+		finally {
+			lockManager.unLock(key);
+			clearLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void remove(List<K> keys) {
+		clearLock.readLock().lock();
+		int[] stripes = lockManager.lock(keys);
+		try {
+			for (K key : keys)
+				versions.incrementAndGet(lockManager.stripe(key));
+			storageWriter.remove(keys, null);
+			nearCache.remove(keys);
+		}
+		finally {
+			lockManager.unLock(stripes);
+			clearLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void clear() {
+		clearLock.writeLock().lock();
+		try {
+			if (writeBehind!=null)
+				writeBehind.flush();
+			cache.clear();
+			nearCache.clear();
+		}
+		finally {
+			clearLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void evict(long duration) {
+		nearCache.evict(duration);
+	}
+	
+	public void flush() {
+		if (writeBehind!=null)
+			writeBehind.flush();
+	}
+	
+	@Override
+	public void close() {
+		if (writeBehind!=null)
+			writeBehind.close();
+		nearCache.close();
+		cache.close();
+	}
+}
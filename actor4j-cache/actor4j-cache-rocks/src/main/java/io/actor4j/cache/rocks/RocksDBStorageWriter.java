@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks;
+
+import java.util.List;
+import java.util.Map;
+
+import io.actor4j.cache.CacheWriterHandler;
+import io.actor4j.cache.StorageWriter;
+
+// Synchronous storage writer on top of a RocksDBCache, the handler is called after the write succeeded
+public class RocksDBStorageWriter<K, V> implements StorageWriter<K, V> {
+	protected final RocksDBCache<K, V> cache;
+	
+	public RocksDBStorageWriter(RocksDBCache<K, V> cache) {
+		super();
+		
+		this.cache = cache;
+	}
+
+	@Override
+	public void put(K key, V value, CacheWriterHandler handler) {
+		cache.put(key, value);
+		if (handler!=null)
+			handler.apply();
+	}
+
+	@Override
+	public void remove(K key, CacheWriterHandler handler) {
+		cache.remove(key);
+		if (handler!=null)
+			handler.apply();
+	}
+	
+	@Override
+	public void put(Map<K, V> entries, CacheWriterHandler handler) {
+		cache.put(entries);
+		if (handler!=null)
+			handler.apply();
+	}
+	
+	@Override
+	public void remove(List<K> keys, CacheWriterHandler handler) {
+		cache.remove(keys);
+		if (handler!=null)
+			handler.apply();
+	}
+}
@@ -15,16 +15,51 @@
  */
 package io.actor4j.cache.rocks.spi;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.OptimisticTransactionDB;
 import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 
 import io.actor4j.cache.rocks.RocksDBCache;
+import io.actor4j.cache.rocks.RocksDBCacheCodec;
+import io.actor4j.cache.rocks.RocksDBCacheConfiguration;
+import io.actor4j.cache.rocks.RocksDBCacheHandles;
 import io.actor4j.cache.rocks.RocksDBCacheSerializer;
+import io.actor4j.cache.rocks.RocksDBNearCache;
 
 public final class RocksDBCacheManager {
+	// Database with one column family per cache
+	protected static final class SharedDB {
+		protected final RocksDB db;
+		protected final RocksDBCacheHandles handles;
+		protected final ColumnFamilyOptions columnFamilyOptions;
+		protected final Map<String, ColumnFamilyHandle> columnFamilies;
+		
+		public SharedDB(RocksDB db, RocksDBCacheHandles handles, ColumnFamilyOptions columnFamilyOptions) {
+			super();
+			
+			this.db = db;
+			this.handles = handles;
+			this.columnFamilyOptions = columnFamilyOptions;
+			columnFamilies = new HashMap<>();
+		}
+	}
+	
+	protected final Map<String, SharedDB> sharedDBs;
+	
 	protected RocksDBCacheManager() {
 		super();
+		
+		sharedDBs = new HashMap<>();
 	}
 	
 	public RocksDB createDB(String path) {
@@ -51,4 +86,200 @@ public final class RocksDBCacheManager {
 		
 		return result;
 	}
+	
+	public <K, V> RocksDBNearCache<K, V> createNearCache(String path, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer, int nearCacheSize) {
+		RocksDBNearCache<K, V> result = null;
+		
+		RocksDBCache<K, V> cache = createCache(path, keySerializer, valueSerializer);
+		if (cache!=null)
+			result = new RocksDBNearCache<>(cache, nearCacheSize);
+		
+		return result;
+	}
+	
+	public <K, V> RocksDBNearCache<K, V> createNearCache(String path, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer, int nearCacheSize, int maxBatchSize, long maxDelay) {
+		RocksDBNearCache<K, V> result = null;
+		
+		RocksDBCache<K, V> cache = createCache(path, keySerializer, valueSerializer);
+		if (cache!=null)
+			result = new RocksDBNearCache<>(cache, nearCacheSize, maxBatchSize, maxDelay);
+		
+		return result;
+	}
+	
+	/**
+	 * Opens the database with the configuration. The native handles created for it are added to the handles,
+	 * that must be closed after the database. If the database could not be opened, they are closed already.
+	 */
+	public RocksDB createDB(String path, RocksDBCacheConfiguration configuration, RocksDBCacheHandles handles) {
+		RocksDB result = null;
+		
+		try {
+			final Options options = configuration.createOptions(handles);
+			if (configuration.isOptimisticTransactions())
+				result = OptimisticTransactionDB.open(options, path);
+			else
+				result = RocksDB.open(options, path);
+		}
+		catch (RocksDBException e) {
+			e.printStackTrace();
+		}
+		finally {
+			if (result==null)
+				handles.close();
+		}
+		
+		return result;
+	}
+	
+	public <K, V> RocksDBCache<K, V> createCache(String path, RocksDBCacheConfiguration configuration, RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		RocksDBCache<K, V> result = null;
+		
+		RocksDBCacheHandles handles = new RocksDBCacheHandles();
+		RocksDB db = createDB(path, configuration, handles);
+		if (db!=null)
+			result = new RocksDBCache<>(db, handles, keySerializer, valueSerializer);
+		
+		return result;
+	}
+	
+	/**
+	 * Creates a cache in its own column family of the database under the path. The database is opened
+	 * on first use with the given configuration and shared by all caches, see {@link #closeDB(String)}.
+	 */
+	public synchronized <K, V> RocksDBCache<K, V> createCache(String path, String cacheName, RocksDBCacheConfiguration configuration, 
+			RocksDBCacheSerializer<K> keySerializer, RocksDBCacheSerializer<V> valueSerializer) {
+		RocksDBCache<K, V> result = null;
+		
+		try {
+			SharedDB sharedDB = openSharedDB(path, configuration);
+			result = new RocksDBCache<>(sharedDB.db, createColumnFamily(sharedDB, cacheName), false, keySerializer, valueSerializer);
+		}
+		catch (RocksDBException e) {
+			e.printStackTrace();
+		}
+		
+		return result;
+	}
+	
+	// Like createCache, but keys and values are encoded directly into reused direct buffers
+	public <K, V> RocksDBCache<K, V> createCache(String path, RocksDBCacheConfiguration configuration, RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
+		RocksDBCache<K, V> result = null;
+		
+		RocksDBCacheHandles handles = new RocksDBCacheHandles();
+		RocksDB db = createDB(path, configuration, handles);
+		if (db!=null)
+			result = new RocksDBCache<>(db, handles, keyCodec, valueCodec);
+		
+		return result;
+	}
+	
+	public synchronized <K, V> RocksDBCache<K, V> createCache(String path, String cacheName, RocksDBCacheConfiguration configuration, 
+			RocksDBCacheCodec<K> keyCodec, RocksDBCacheCodec<V> valueCodec) {
+		RocksDBCache<K, V> result = null;
+		
+		try {
+			SharedDB sharedDB = openSharedDB(path, configuration);
+			result = new RocksDBCache<>(sharedDB.db, createColumnFamily(sharedDB, cacheName), false, keyCodec, valueCodec);
+		}
+		catch (RocksDBException e) {
+			e.printStackTrace();
+		}
+		
+		return result;
+	}
+	
+	protected ColumnFamilyHandle createColumnFamily(SharedDB sharedDB, String cacheName) throws RocksDBException {
+		ColumnFamilyHandle result = sharedDB.columnFamilies.get(cacheName);
+		if (result==null) {
+			result = sharedDB.db.createColumnFamily(
+				new ColumnFamilyDescriptor(cacheName.getBytes(StandardCharsets.UTF_8), sharedDB.columnFamilyOptions));
+			sharedDB.columnFamilies.put(cacheName, result);
+		}
+		
+		return result;
+	}
+	
+	// Returns the already opened database under the path or opens it
+	protected SharedDB openSharedDB(String path, RocksDBCacheConfiguration configuration) throws RocksDBException {
+		SharedDB result = sharedDBs.get(path);
+		if (result==null) {
+			result = openDB(path, configuration);
+			sharedDBs.put(path, result);
+		}
+		
+		return result;
+	}
+	
+	// Opens the database with all its existing column families
+	protected SharedDB openDB(String path, RocksDBCacheConfiguration configuration) throws RocksDBException {
+		List<byte[]> names = null;
+		try (Options options = new Options()) {
+			names = RocksDB.listColumnFamilies(options, path);
+		}
+		catch (RocksDBException e) {
+			names = null; // does not exist yet
+		}
+		if (names==null || names.isEmpty())
+			names = List.of(RocksDB.DEFAULT_COLUMN_FAMILY);
+		
+		SharedDB result = null;
+		RocksDBCacheHandles handles = new RocksDBCacheHandles();
+		try {
+			ColumnFamilyOptions columnFamilyOptions = configuration.createColumnFamilyOptions(handles);
+			
+			List<ColumnFamilyDescriptor> descriptors = new ArrayList<>(names.size());
+			for (byte[] name : names)
+				descriptors.add(new ColumnFamilyDescriptor(name, columnFamilyOptions));
+			List<ColumnFamilyHandle> columnFamilies = new ArrayList<>(names.size());
+			
+			RocksDB db = null;
+			if (configuration.isOptimisticTransactions())
+				db = OptimisticTransactionDB.open(configuration.createDBOptions(handles), path, descriptors, columnFamilies);
+			else
+				db = RocksDB.open(configuration.createDBOptions(handles), path, descriptors, columnFamilies);
+			
+			result = new SharedDB(db, handles, columnFamilyOptions);
+			for (int i=0; i<names.size(); i++)
+				result.columnFamilies.put(new String(names.get(i), StandardCharsets.UTF_8), columnFamilies.get(i));
+		}
+		finally {
+			if (result==null)
+				handles.close();
+		}
+		
+		return result;
+	}
+	
+	// Drops the column family of the cache, the cache must not be used afterwards
+	public synchronized void dropCache(String path, String cacheName) {
+		SharedDB sharedDB = sharedDBs.get(path);
+		if (sharedDB!=null) {
+			ColumnFamilyHandle columnFamily = sharedDB.columnFamilies.remove(cacheName);
+			if (columnFamily!=null)
+				try {
+					sharedDB.db.dropColumnFamily(columnFamily);
+					columnFamily.close();
+				}
+				catch (RocksDBException e) {
+					e.printStackTrace();
+				}
+		}
+	}
+	
+	// Closes the shared database and all its column families, after its caches were closed
+	public synchronized void closeDB(String path) {
+		SharedDB sharedDB = sharedDBs.remove(path);
+		if (sharedDB!=null) {
+			for (ColumnFamilyHandle columnFamily : sharedDB.columnFamilies.values())
+				columnFamily.close();
+			try {
+				sharedDB.db.closeE();
+			}
+			catch (RocksDBException e) {
+				e.printStackTrace();
+			}
+			sharedDB.handles.close();
+		}
+	}
 }
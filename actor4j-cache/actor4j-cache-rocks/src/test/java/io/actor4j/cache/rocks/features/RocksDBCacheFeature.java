@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks.features;
+
+import org.junit.Test;
+import org.rocksdb.OptimisticTransactionDB;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+import io.actor4j.cache.rocks.RocksDBCache;
+import io.actor4j.cache.rocks.RocksDBCacheCodec;
+import io.actor4j.cache.rocks.RocksDBCacheCodecs;
+import io.actor4j.cache.rocks.RocksDBCacheConfiguration;
+import io.actor4j.cache.rocks.spi.CachingProvider;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+public class RocksDBCacheFeature {
+	// even keys are present, odd keys are absent
+	protected void test_get_mixed(RocksDBCache<Long, String> cache) {
+		for (long key=0; key<10_000; key+=2)
+			cache.put(key, value(key));
+		
+		// single batch, several batches, parallel (>=4096 keys)
+		for (int size : new int[] { 10, 1_500, 5_000, 10_000 }) {
+			List<Long> keys = new ArrayList<>(size);
+			for (long key=0; key<size; key++)
+				keys.add(key);
+			
+			Map<Long, String> result = cache.get(keys);
+			assertEquals(size/2, result.size());
+			for (long key=0; key<size; key++)
+				if (key%2==0)
+					assertEquals(value(key), result.get(key));
+				else
+					assertFalse(result.containsKey(key));
+		}
+	}
+	
+	protected void test_get_iterator(RocksDBCache<Long, String> cache) {
+		for (long key=0; key<10_000; key+=2)
+			cache.put(key, value(key));
+		
+		// the first batches are completely absent
+		List<Long> keys = new ArrayList<>();
+		for (long key=1; key<4_096; key+=2)
+			keys.add(key);
+		for (long key=0; key<10_000; key++)
+			keys.add(key);
+		
+		Iterator<Map.Entry<Long, String>> iterator = cache.getIterator(keys);
+		for (long key=0; key<10_000; key+=2) {
+			assertTrue(iterator.hasNext());
+			Map.Entry<Long, String> entry = iterator.next();
+			assertEquals(Long.valueOf(key), entry.getKey());
+			assertEquals(value(key), entry.getValue());
+		}
+		assertFalse(iterator.hasNext());
+		assertFalse(cache.getIterator(List.of(1L, 3L, 5L)).hasNext());
+	}
+	
+	// every 100th value exceeds the value slots of a multi-get batch
+	protected static String value(long key) {
+		return key%100==0 ? String.valueOf(key).repeat(1_000) : "V"+key;
+	}
+	
+	protected void test(BiFunction<RocksDB, RocksDBCacheCodec<String>, RocksDBCache<Long, String>> factory, boolean iterator) throws Exception {
+		RocksDB.loadLibrary();
+		Path path = Files.createTempDirectory("actor4j-rocksdb-cache");
+		try (Options options = new Options().setCreateIfMissing(true)) {
+			RocksDBCache<Long, String> cache = factory.apply(RocksDB.open(options, path.toString()), RocksDBCacheCodecs.stringCodec());
+			try {
+				if (iterator)
+					test_get_iterator(cache);
+				else
+					test_get_mixed(cache);
+			}
+			finally {
+				cache.close();
+			}
+		}
+		finally {
+			try (Stream<Path> files = Files.walk(path)) {
+				files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+			}
+		}
+	}
+	
+	@Test
+	public void test_get_mixed_codec() throws Exception {
+		test((db, valueCodec) -> new RocksDBCache<>(db, RocksDBCacheCodecs.longCodec(), valueCodec), false);
+	}
+	
+	@Test
+	public void test_get_mixed_serializer() throws Exception {
+		test((db, valueCodec) -> new RocksDBCache<>(db, RocksDBCacheCodecs.longCodec().serializer(), valueCodec.serializer()), false);
+	}
+	
+	@Test
+	public void test_get_iterator_codec() throws Exception {
+		test((db, valueCodec) -> new RocksDBCache<>(db, RocksDBCacheCodecs.longCodec(), valueCodec), true);
+	}
+	
+	@Test
+	public void test_get_iterator_serializer() throws Exception {
+		test((db, valueCodec) -> new RocksDBCache<>(db, RocksDBCacheCodecs.longCodec().serializer(), valueCodec.serializer()), true);
+	}
+	
+	@Test(timeout=10000)
+	public void test_clear() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBCache<Long, String> cache = db.openCache();
+			try {
+				cache.clear(); // empty
+				for (long key=-500; key<500; key++)
+					cache.put(key, value(key));
+				
+				cache.clear();
+				for (long key=-500; key<500; key++)
+					assertFalse(cache.containsKey(key));
+				List<Long> keys = new ArrayList<>();
+				cache.scan(null, null, (key, value) -> keys.add(key));
+				assertTrue(keys.isEmpty());
+				
+				// the range tombstone does not hide later writes
+				cache.put(0L, "A");
+				assertEquals("A", cache.get(0L));
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void test_scan() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBCache<Long, String> cache = db.openCache();
+			try {
+				for (long key=-10; key<10; key++)
+					cache.put(key, value(key));
+				
+				// negative keys are ordered before positive keys
+				List<Long> keys = new ArrayList<>();
+				cache.scan(-3L, 3L, (key, value) -> { assertEquals(value(key), value); keys.add(key); });
+				assertEquals(List.of(-3L, -2L, -1L, 0L, 1L, 2L), keys);
+				keys.clear();
+				cache.scan(7L, null, (key, value) -> keys.add(key));
+				assertEquals(List.of(7L, 8L, 9L), keys);
+				keys.clear();
+				cache.scan(null, -8L, (key, value) -> keys.add(key));
+				assertEquals(List.of(-10L, -9L), keys);
+			}
+			finally {
+				cache.close();
+			}
+			
+			RocksDBCache<String, String> stringCache = new RocksDBCache<>(db.open(), RocksDBCacheCodecs.stringCodec(), RocksDBCacheCodecs.stringCodec());
+			try {
+				for (String key : List.of("a", "ab", "abc", "abd", "b", "\u00FFa"))
+					stringCache.put(key, key.toUpperCase());
+				
+				List<String> keys = new ArrayList<>();
+				stringCache.scanPrefix("ab".getBytes(StandardCharsets.UTF_8), (key, value) -> keys.add(key));
+				assertEquals(List.of("ab", "abc", "abd"), keys);
+				keys.clear();
+				stringCache.scanPrefix(new byte[] { (byte)0xC3 }, (key, value) -> keys.add(key)); // first byte of \u00FF
+				assertEquals(List.of("\u00FFa"), keys);
+				keys.clear();
+				// no upper bound for a prefix of 0xFF bytes
+				stringCache.scanPrefix(new byte[] { (byte)0xFF }, (key, value) -> keys.add(key));
+				assertTrue(keys.isEmpty());
+			}
+			finally {
+				stringCache.close();
+			}
+		}
+	}
+	
+	protected void test_compare_and_set(RocksDBCache<Long, String> cache) throws Exception {
+		assertFalse(cache.compareAndSet(1L, "0", "1")); // absent
+		cache.put(1L, "0");
+		assertFalse(cache.compareAndSet(1L, "1", "2"));
+		assertTrue(cache.compareAndSet(1L, "0", "1"));
+		assertEquals("1", cache.get(1L));
+		
+		// concurrent increments, none may be lost
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		for (int i=0; i<4; i++)
+			executorService.execute(() -> {
+				for (int j=0; j<250; j++) {
+					boolean done = false;
+					while (!done) {
+						String value = cache.get(1L);
+						done = cache.compareAndSet(1L, value, String.valueOf(Integer.parseInt(value)+1));
+					}
+				}
+			});
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(20, TimeUnit.SECONDS));
+		assertEquals("1001", cache.get(1L));
+	}
+	
+	@Test(timeout=30000)
+	public void test_compare_and_set() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBCache<Long, String> cache = db.openCache();
+			try {
+				test_compare_and_set(cache);
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+	
+	@Test(timeout=30000)
+	public void test_compare_and_set_transactional() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBCache<Long, String> cache = CachingProvider.getCachingProvider().getCacheManager().createCache(db.path().toString(), 
+				new RocksDBCacheConfiguration().setOptimisticTransactions(true), RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+			try {
+				assertTrue(cache.getDB() instanceof OptimisticTransactionDB);
+				test_compare_and_set(cache);
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks.features;
+
+import org.junit.Test;
+import org.rocksdb.RocksDB;
+
+import io.actor4j.cache.rocks.RocksDBCache;
+import io.actor4j.cache.rocks.RocksDBCacheCodecs;
+import io.actor4j.cache.rocks.RocksDBCacheConfiguration;
+import io.actor4j.cache.rocks.RocksDBCacheHandles;
+import io.actor4j.cache.rocks.spi.CachingProvider;
+import io.actor4j.cache.rocks.spi.RocksDBCacheManager;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class RocksDBCacheManagerFeature {
+	protected RocksDBCacheManager cacheManager() {
+		return CachingProvider.getCachingProvider().getCacheManager();
+	}
+	
+	@Test(timeout=10000)
+	public void test_column_families() throws Exception {
+		RocksDBCacheManager cacheManager = cacheManager();
+		RocksDBCacheConfiguration configuration = new RocksDBCacheConfiguration().setBlockCacheSize(1024*1024);
+		
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			String path = db.path().toString();
+			RocksDBCache<Long, String> cacheA = cacheManager.createCache(path, "A", configuration, RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+			RocksDBCache<Long, String> cacheB = cacheManager.createCache(path, "B", configuration, RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+			try {
+				assertSame(cacheA.getDB(), cacheB.getDB());
+				assertNotEquals(cacheA.getColumnFamily(), cacheB.getColumnFamily());
+				
+				// the same keys in both column families
+				cacheA.put(Map.of(1L, "A1", 2L, "A2"));
+				cacheB.put(Map.of(1L, "B1", 3L, "B3"));
+				assertEquals(Map.of(1L, "A1", 2L, "A2"), cacheA.get(List.of(1L, 2L, 3L)));
+				assertEquals(Map.of(1L, "B1", 3L, "B3"), cacheB.get(List.of(1L, 2L, 3L)));
+				
+				cacheA.clear();
+				assertNull(cacheA.get(1L));
+				assertEquals("B1", cacheB.get(1L));
+			}
+			finally {
+				cacheA.close();
+				cacheB.close();
+				cacheManager.closeDB(path);
+			}
+			
+			// reopened with its existing column families
+			cacheB = cacheManager.createCache(path, "B", configuration, RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+			try {
+				assertEquals("B3", cacheB.get(3L));
+				
+				cacheManager.dropCache(path, "B");
+				RocksDBCache<Long, String> cacheC = cacheManager.createCache(path, "B", configuration, RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+				assertNull(cacheC.get(3L));
+				cacheC.close();
+			}
+			finally {
+				cacheB.close();
+				cacheManager.closeDB(path);
+			}
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void test_handles() throws Exception {
+		RocksDBCacheManager cacheManager = cacheManager();
+		RocksDBCacheConfiguration configuration = new RocksDBCacheConfiguration().setBlockCacheSize(1024*1024).setPrefixLength(4);
+		
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBCacheHandles handles = new RocksDBCacheHandles();
+			RocksDB rocksDB = cacheManager.createDB(db.path().toString(), configuration, handles);
+			assertNotNull(rocksDB);
+			// options, database and column family options, block cache, bloom filter
+			assertEquals(5, handles.size());
+			rocksDB.close();
+			handles.close();
+			assertEquals(0, handles.size());
+			
+			// closed already, if the database could not be opened
+			Path file = Files.createFile(db.path().resolve("file"));
+			assertNull(cacheManager.createDB(file.toString(), configuration, handles));
+			assertEquals(0, handles.size());
+			
+			// closed with the cache
+			RocksDBCache<Long, String> cache = cacheManager.createCache(db.path().toString(), configuration, RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+			cache.put(1L, "A");
+			assertEquals("A", cache.get(1L));
+			cache.close();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks.features;
+
+import org.junit.Test;
+
+import io.actor4j.cache.rocks.RocksDBNearCache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class RocksDBNearCacheFeature {
+	@Test(timeout=10000)
+	public void test_near_cache_hits() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBNearCache<Long, String> cache = new RocksDBNearCache<>(db.openCache(), 100);
+			try {
+				cache.put(1L, "A");
+				cache.getNearCache().clear();
+				assertEquals("A", cache.get(1L)); // read through
+				assertEquals("A", cache.getNearCache().get(1L));
+				
+				// served by the near cache, without reading RocksDB
+				cache.getRocksDBCache().remove(1L);
+				assertEquals("A", cache.get(1L));
+				assertEquals(Map.of(1L, "A"), cache.get(List.of(1L, 2L)));
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void test_near_cache_invalidation() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBNearCache<Long, String> cache = new RocksDBNearCache<>(db.openCache(), 100);
+			try {
+				cache.put(1L, "A");
+				assertEquals("A", cache.get(1L));
+				cache.put(1L, "B");
+				assertEquals("B", cache.get(1L));
+				assertEquals("B", cache.getRocksDBCache().get(1L));
+				
+				cache.remove(1L);
+				assertNull(cache.get(1L));
+				assertFalse(cache.getNearCache().containsKey(1L));
+				
+				cache.put(Map.of(1L, "C", 2L, "D"));
+				assertEquals(Map.of(1L, "C", 2L, "D"), cache.get(List.of(1L, 2L, 3L)));
+				assertTrue(cache.compareAndSet(2L, "D", "E"));
+				assertFalse(cache.compareAndSet(2L, "D", "F"));
+				assertEquals("E", cache.get(2L));
+				
+				cache.remove(List.of(1L, 2L));
+				assertTrue(cache.get(List.of(1L, 2L)).isEmpty());
+				assertFalse(cache.getNearCache().containsKey(1L) || cache.getNearCache().containsKey(2L));
+				assertNull(cache.getRocksDBCache().get(2L));
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+	
+	// After concurrent single and batch writes of the same keys, the near cache must agree with RocksDB
+	@Test(timeout=30000)
+	public void test_near_cache_concurrent_put() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			RocksDBNearCache<Long, String> cache = new RocksDBNearCache<>(db.openCache(), 1_000);
+			try {
+				final int KEYS = 32;
+				final int ROUNDS = 200;
+				
+				CountDownLatch start = new CountDownLatch(1);
+				List<Thread> threads = new ArrayList<>();
+				for (int t=0; t<4; t++) {
+					final int thread = t;
+					threads.add(new Thread(() -> {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int i=0; i<ROUNDS; i++)
+							if (thread%2==0) {
+								Map<Long, String> entries = new HashMap<>();
+								for (long key=0; key<KEYS; key++)
+									entries.put(key, "M"+thread+"_"+i);
+								cache.put(entries);
+							}
+							else {
+								for (long key=0; key<KEYS; key++)
+									cache.put(key, "S"+thread+"_"+i);
+								cache.get(List.of(0L, 1L, 2L));
+							}
+					}));
+				}
+				for (Thread thread : threads)
+					thread.start();
+				start.countDown();
+				for (Thread thread : threads)
+					thread.join();
+				
+				for (long key=0; key<KEYS; key++) {
+					String value = cache.getNearCache().get(key);
+					if (value!=null)
+						assertEquals(cache.getRocksDBCache().get(key), value);
+				}
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void test_near_cache_write_behind_read_your_writes() throws Exception {
+		try (TemporaryRocksDB db = new TemporaryRocksDB()) {
+			// flushed only on demand
+			RocksDBNearCache<Long, String> cache = new RocksDBNearCache<>(db.openCache(), 100, 1_000, 60_000);
+			try {
+				cache.put(1L, "A");
+				cache.put(Map.of(2L, "B", 3L, "C"));
+				assertNull(cache.getRocksDBCache().get(1L)); // still pending
+				
+				// evicted from the near cache, the pending writes of the misses are flushed on load
+				cache.getNearCache().clear();
+				assertEquals("A", cache.get(1L));
+				assertEquals(Map.of(2L, "B", 3L, "C"), cache.get(List.of(2L, 3L, 4L)));
+				
+				cache.remove(1L);
+				cache.getNearCache().clear();
+				assertNull(cache.get(1L));
+				assertTrue(cache.compareAndSet(2L, "B", "D"));
+				cache.getNearCache().clear();
+				assertEquals("D", cache.get(2L));
+				
+				cache.flush();
+				assertEquals("D", cache.getRocksDBCache().get(2L));
+				assertEquals("C", cache.getRocksDBCache().get(3L));
+			}
+			finally {
+				cache.close();
+			}
+		}
+	}
+}
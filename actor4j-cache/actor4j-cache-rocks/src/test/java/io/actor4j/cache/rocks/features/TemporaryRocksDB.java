@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.cache.rocks.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import io.actor4j.cache.rocks.RocksDBCache;
+import io.actor4j.cache.rocks.RocksDBCacheCodecs;
+
+// A database in a temporary directory, that is deleted on close (after the database was closed)
+public class TemporaryRocksDB implements AutoCloseable {
+	protected final Path path;
+	protected final Options options;
+	
+	public TemporaryRocksDB() throws IOException {
+		super();
+		
+		RocksDB.loadLibrary();
+		path = Files.createTempDirectory("actor4j-rocksdb");
+		options = new Options().setCreateIfMissing(true);
+	}
+	
+	public Path path() {
+		return path;
+	}
+	
+	public RocksDB open() throws RocksDBException {
+		return RocksDB.open(options, path.toString());
+	}
+	
+	public RocksDBCache<Long, String> openCache() throws RocksDBException {
+		return new RocksDBCache<>(open(), RocksDBCacheCodecs.longCodec(), RocksDBCacheCodecs.stringCodec());
+	}
+	
+	@Override
+	public void close() throws IOException {
+		options.close();
+		try (Stream<Path> files = Files.walk(path)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+}
@@ -53,6 +53,8 @@ public class MongoCacheConfiguration<K, V> extends MutableConfiguration<K, V> {
 	
 	protected BiConsumer<Pair<K, V>, Throwable> asyncLoadHandler;
 	protected BiConsumer<Map<K,V>, Throwable> asyncLoadAllHandler;
+	protected long coalescingDelay = AsyncMongoCacheLoaderAndWriter.DEFAULT_COALESCING_DELAY;
+	protected int maxBatchSize = AsyncMongoCacheLoaderAndWriter.DEFAULT_MAX_BATCH_SIZE;
 
 	public MongoClient getMongoClient() {
 		return mongoClient;
@@ -173,6 +175,25 @@ public class MongoCacheConfiguration<K, V> extends MutableConfiguration<K, V> {
 		this.asyncLoadAllHandler = asyncLoadAllHandler;
 	}
 	
+	public long getCoalescingDelay() {
+		return coalescingDelay;
+	}
+
+	// In ms, concurrent asynchronous loads within the delay are merged into one query (zero to disable)
+	public MongoCacheConfiguration<K, V> setCoalescingDelay(long coalescingDelay) {
+		this.coalescingDelay = coalescingDelay;
+		return this;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public MongoCacheConfiguration<K, V> setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+	
 	// ---
 
 	public MongoCacheConfiguration<K, V> build() {
@@ -185,6 +206,8 @@ public class MongoCacheConfiguration<K, V> extends MutableConfiguration<K, V> {
 		
 		cacheLoaderAndWriter.setAsyncLoadHandler(asyncLoadHandler);
 		cacheLoaderAndWriter.setAsyncLoadAllHandler(asyncLoadAllHandler);
+		cacheLoaderAndWriter.setCoalescingDelay(coalescingDelay);
+		cacheLoaderAndWriter.setMaxBatchSize(maxBatchSize);
 		
 		setReadThrough(true);
 		setWriteThrough(true);
@@ -15,11 +15,14 @@
  */
 package io.actor4j.jcache.mongo.runtime;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -36,65 +39,214 @@ import io.actor4j.core.utils.Pair;
 import io.actor4j.jcache.AsyncCacheLoader;
 import io.actor4j.jcache.mongo.MongoCacheLoaderAndWriter;
 
+/**
+ * Loads asynchronously, by default on virtual threads. Concurrent calls of {@code asyncLoad} within
+ * the coalescing delay are merged into one query ({@code Filters.in}), a key that is already part
+ * of the pending batch shares its load.
+ */
 public class AsyncMongoCacheLoaderAndWriter<K, V> extends MongoCacheLoaderAndWriter<K, V> implements AsyncCacheLoader<K, V> {
+	public static final long DEFAULT_COALESCING_DELAY = 1; // in ms
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+	
+	protected static final Executor VIRTUAL_THREAD_EXECUTOR = (task) -> Thread.ofVirtual().start(task);
+	
 	protected BiConsumer<Pair<K, V>, Throwable> asyncLoadHandler;
 	protected BiConsumer<Map<K,V>, Throwable> asyncLoadAllHandler;
+	
+	protected long coalescingDelay; // zero, if not coalesced
+	protected int maxBatchSize;
+	
+	protected final ReentrantLock batchLock;
+	protected Batch batch; // pending, null if none
+	
+	protected final LoadMetrics metrics;
+	
+	protected class Batch {
+		protected final Map<K, CompletableFuture<V>> futures;
+		protected final Map<K, Long> startTimes;
+		protected final Executor executor;
+		
+		public Batch(Executor executor) {
+			super();
+			
+			futures = new HashMap<>();
+			startTimes = new HashMap<>();
+			this.executor = executor;
+		}
+	}
 
 	public AsyncMongoCacheLoaderAndWriter(MongoClient mongoClient, String databaseName, String collectionName,
 			Class<V> valueType, Function<Document, V> valueReadMapper, Function<V, ?> valueWriteMapper,
 			boolean bulkOrdered, int bulkSize, Consumer<List<Pair<UUID, WriteModel<Document>>>> onBulkWriterSuccess, 
 			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onBulkWriterError) {
 		super(mongoClient, databaseName, collectionName, valueType, valueReadMapper, valueWriteMapper, bulkOrdered, bulkSize, onBulkWriterSuccess, onBulkWriterError);
+		
+		coalescingDelay = DEFAULT_COALESCING_DELAY;
+		maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+		batchLock = new ReentrantLock();
+		metrics = new LoadMetrics();
 	}
 
 	public AsyncMongoCacheLoaderAndWriter(MongoClient mongoClient, String databaseName, String collectionName,
 			GenericType<V> valueTypeReference, boolean bulkOrdered, int bulkSize, Consumer<List<Pair<UUID, WriteModel<Document>>>> onBulkWriterSuccess, 
 			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onBulkWriterError) {
 		super(mongoClient, databaseName, collectionName, valueTypeReference, bulkOrdered, bulkSize, onBulkWriterSuccess, onBulkWriterError);
+		
+		coalescingDelay = DEFAULT_COALESCING_DELAY;
+		maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+		batchLock = new ReentrantLock();
+		metrics = new LoadMetrics();
+	}
+	
+	public CompletableFuture<V> asyncLoad(K key) {
+		return asyncLoad(key, VIRTUAL_THREAD_EXECUTOR);
 	}
 
+	// The executor runs the query of the batch, if coalesced the executor of the first call of the batch
 	@Override
 	public CompletableFuture<V> asyncLoad(K key, Executor executor) {
+		if (executor==null)
+			executor = VIRTUAL_THREAD_EXECUTOR;
+		if (coalescingDelay<=0)
+			return load(key, executor);
+		
+		CompletableFuture<V> result = null;
+		Batch flushBatch = null;
+		
+		batchLock.lock();
+		try {
+			boolean scheduled = batch!=null;
+			if (batch==null)
+				batch = new Batch(executor);
+			
+			result = batch.futures.get(key);
+			if (result==null) {
+				result = new CompletableFuture<>();
+				batch.futures.put(key, result);
+				batch.startTimes.put(key, System.nanoTime());
+			}
+			
+			if (batch.futures.size()>=maxBatchSize) {
+				flushBatch = batch;
+				batch = null;
+			}
+			else if (!scheduled) {
+				Batch scheduledBatch = batch;
+				Thread.ofVirtual().start(() -> {
+					try {
+						Thread.sleep(coalescingDelay);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					flush(scheduledBatch);
+				});
+			}
+		}
+		finally {
+			batchLock.unlock();
+		}
+		
+		if (flushBatch!=null)
+			execute(flushBatch);
+		
+		return result;
+	}
+	
+	protected CompletableFuture<V> load(K key, Executor executor) {
 		CompletableFuture<V> result = new CompletableFuture<>();
+		long startTime = System.nanoTime();
 		executor.execute(() -> {
 			V value = null;
 			
-			Exception exception = null;
+			CacheLoaderException exception = null;
 			try {
+				metrics.recordQuery();
 				value = load(key);
 			}
 			catch(CacheLoaderException e) {
 				exception = e;
 			}
-			if (asyncLoadHandler!=null)
-				asyncLoadHandler.accept(Pair.of(key, value), exception.getCause());
-			
-			if (exception!=null)
-				result.complete(value);
-			else
-				result.completeExceptionally(exception);
+			complete(key, value, exception, result, startTime);
 		});
 		
 		return result;
 	}
+	
+	// Flushes the batch, if it was not already flushed because it became full
+	protected void flush(Batch scheduledBatch) {
+		boolean current = false;
+		
+		batchLock.lock();
+		try {
+			if (batch==scheduledBatch) {
+				batch = null;
+				current = true;
+			}
+		}
+		finally {
+			batchLock.unlock();
+		}
+		
+		if (current)
+			execute(scheduledBatch);
+	}
+	
+	protected void execute(Batch batch) {
+		batch.executor.execute(() -> {
+			Map<K, V> map = null;
+			
+			CacheLoaderException exception = null;
+			try {
+				metrics.recordQuery();
+				map = loadAll(new ArrayList<>(batch.futures.keySet()));
+			}
+			catch(CacheLoaderException e) {
+				exception = e;
+			}
+			for (Map.Entry<K, CompletableFuture<V>> entry : batch.futures.entrySet())
+				complete(entry.getKey(), map!=null ? map.get(entry.getKey()) : null, exception, entry.getValue(), batch.startTimes.get(entry.getKey()));
+		});
+	}
+	
+	protected void complete(K key, V value, CacheLoaderException exception, CompletableFuture<V> future, long startTime) {
+		metrics.recordRequest(System.nanoTime()-startTime, exception!=null);
+		if (asyncLoadHandler!=null)
+			asyncLoadHandler.accept(Pair.of(key, value), exception!=null ? exception.getCause() : null);
+		
+		if (exception==null)
+			future.complete(value);
+		else
+			future.completeExceptionally(exception);
+	}
+	
+	public CompletableFuture<Map<K,V>> asyncLoadAll(Iterable<? extends K> keys) {
+		return asyncLoadAll(keys, VIRTUAL_THREAD_EXECUTOR);
+	}
 
 	@Override
 	public CompletableFuture<Map<K,V>> asyncLoadAll(Iterable<? extends K> keys, Executor executor) {
+		if (executor==null)
+			executor = VIRTUAL_THREAD_EXECUTOR;
+		
 		CompletableFuture<Map<K,V>> result = new CompletableFuture<>();
+		long startTime = System.nanoTime();
 		executor.execute(() -> {
 			Map<K,V> map = null;
 			
-			Exception exception = null;
+			CacheLoaderException exception = null;
 			try {
+				metrics.recordQuery();
 				map = loadAll(keys);
 			}
 			catch(CacheLoaderException e) {
 				exception = e;
 			}
+			metrics.recordRequest(System.nanoTime()-startTime, exception!=null);
 			if (asyncLoadAllHandler!=null)
-				asyncLoadAllHandler.accept(map, exception.getCause());
+				asyncLoadAllHandler.accept(map, exception!=null ? exception.getCause() : null);
 			
-			if (exception!=null)
+			if (exception==null)
 				result.complete(map);
 			else
 				result.completeExceptionally(exception);
@@ -110,4 +262,25 @@ public class AsyncMongoCacheLoaderAndWriter<K, V> extends MongoCacheLoaderAndWri
 	public void setAsyncLoadAllHandler(BiConsumer<Map<K, V>, Throwable> asyncLoadAllHandler) {
 		this.asyncLoadAllHandler = asyncLoadAllHandler;
 	}
+	
+	public long getCoalescingDelay() {
+		return coalescingDelay;
+	}
+	
+	// Zero disables the coalescing, each key is then loaded with its own query
+	public void setCoalescingDelay(long coalescingDelay) {
+		this.coalescingDelay = coalescingDelay;
+	}
+	
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+	
+	public LoadMetrics getMetrics() {
+		return metrics;
+	}
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.jcache.mongo.runtime;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of the asynchronous loads, the latency is measured from the request until the completion
+public class LoadMetrics {
+	protected final LongAdder requests;
+	protected final LongAdder queries;
+	protected final LongAdder failures;
+	protected final LongAdder totalLatencyNanos;
+	protected final LongAccumulator maxLatencyNanos;
+	
+	public LoadMetrics() {
+		super();
+		
+		requests = new LongAdder();
+		queries = new LongAdder();
+		failures = new LongAdder();
+		totalLatencyNanos = new LongAdder();
+		maxLatencyNanos = new LongAccumulator(Math::max, 0);
+	}
+	
+	public void recordQuery() {
+		queries.increment();
+	}
+	
+	public void recordRequest(long latencyNanos, boolean failed) {
+		requests.increment();
+		if (failed)
+			failures.increment();
+		totalLatencyNanos.add(latencyNanos);
+		maxLatencyNanos.accumulate(latencyNanos);
+	}
+	
+	public long getRequests() {
+		return requests.sum();
+	}
+	
+	// Number of database queries, less than the number of requests if loads were coalesced
+	public long getQueries() {
+		return queries.sum();
+	}
+	
+	public long getFailures() {
+		return failures.sum();
+	}
+	
+	public long getAverageLatencyNanos() {
+		long count = requests.sum();
+		
+		return count>0 ? totalLatencyNanos.sum()/count : 0;
+	}
+	
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos.get();
+	}
+	
+	public void reset() {
+		requests.reset();
+		queries.reset();
+		failures.reset();
+		totalLatencyNanos.reset();
+		maxLatencyNanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "LoadMetrics [requests=" + getRequests() + ", queries=" + getQueries() + ", failures=" + getFailures()
+				+ ", averageLatencyNanos=" + getAverageLatencyNanos() + ", maxLatencyNanos=" + getMaxLatencyNanos() + "]";
+	}
+}
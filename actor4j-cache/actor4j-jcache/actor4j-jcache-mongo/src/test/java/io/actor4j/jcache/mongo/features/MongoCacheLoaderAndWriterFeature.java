@@ -16,8 +16,11 @@
 package io.actor4j.jcache.mongo.features;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.awt.Point;
+import java.util.concurrent.CompletableFuture;
 
 import javax.cache.Cache;
 
@@ -31,6 +34,7 @@ import com.mongodb.client.MongoClients;
 import de.bwaldvogel.mongo.MongoServer;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
 import io.actor4j.jcache.mongo.MongoCacheConfiguration;
+import io.actor4j.jcache.mongo.runtime.AsyncMongoCacheLoaderAndWriter;
 import io.actor4j.jcache.spi.CachingProvider;
 import io.actor4j.jcache.spi.LocalActorCacheManager;
 import io.actor4j.jcache.utils.DummyCacheEntry;
@@ -223,4 +227,31 @@ public class MongoCacheLoaderAndWriterFeature {
 		assertEquals(cache.get(102).x, 14);
 		assertEquals(cache.get(103).y, 58);
 	}
+	
+	@Test(timeout=5000)
+	public void test_async_load_coalescing() {
+		MongoCacheConfiguration<String, String> configuration = new MongoCacheConfiguration<>();
+		configuration
+			.setMongoClient(client)
+			.setDatabaseName("database")
+			.setCollectionName("collection06")
+			.setValueType(String.class)
+			.setCoalescingDelay(100)
+			.build();
+		AsyncMongoCacheLoaderAndWriter<String, String> loader = configuration.getCacheLoaderAndWriter();
+		
+		loader.write(DummyCacheEntry.create("key01", "value01"));
+		loader.write(DummyCacheEntry.create("key02", "value02"));
+		
+		CompletableFuture<String> future01 = loader.asyncLoad("key01");
+		CompletableFuture<String> future02 = loader.asyncLoad("key02");
+		CompletableFuture<String> future03 = loader.asyncLoad("key03");
+		assertSame(future01, loader.asyncLoad("key01"));
+		
+		assertEquals("value01", future01.join());
+		assertEquals("value02", future02.join());
+		assertNull(future03.join());
+		assertEquals(1, loader.getMetrics().getQueries());
+		assertEquals(3, loader.getMetrics().getRequests());
+	}
 }
@@ -15,17 +15,46 @@
  */
 package io.actor4j.core.data.access.jpa;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
 import io.actor4j.core.messages.ActorMessage;
 import io.actor4j.core.data.access.DataAccessActor;
+import io.actor4j.database.jpa.JPAWriteModel;
 
 public class JPADataAccessActor<K, E> extends DataAccessActor<K, E> {
 	protected JPADataAccessActorImpl<K, E> impl;
+	protected ScheduledFuture<?> timerFuture;
 	
+	/**
+	 * @param maxLingerTime max time in ms a write request stays buffered, before the batch writer is flushed (0 = disabled)
+	 * @param maxBytes max estimated size of the buffered write requests, before the batch writer is flushed (0 = disabled)
+	 * @param sizeEstimator estimates the size of a write request, required if maxBytes is enabled
+	 */
 	public JPADataAccessActor(String name, String persistenceUnitName, boolean batchWrite, 
-			boolean batchOrdered, int batchSize, Class<E> entityType, int maxFailures, long resetTimeout) {
+			boolean batchOrdered, int batchSize, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator, Class<E> entityType, int maxFailures, long resetTimeout) {
 		super(name, true); // @Stateful
 		
-		impl = new JPADataAccessActorImpl<K, E>(this, persistenceUnitName, batchWrite, batchOrdered, batchSize, entityType, maxFailures, resetTimeout);
+		impl = new JPADataAccessActorImpl<K, E>(this, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, maxBytes, sizeEstimator, entityType, maxFailures, resetTimeout);
+	}
+	
+	/**
+	 * @param maxLingerTime max time in ms a write request stays buffered, before the batch writer is flushed (0 = disabled)
+	 */
+	public JPADataAccessActor(String name, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, long maxLingerTime, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(name, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, 0, null, entityType, maxFailures, resetTimeout);
+	}
+	
+	public JPADataAccessActor(String name, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, long maxLingerTime, Class<E> entityType) {
+		this(name, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, entityType, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+	}
+	
+	public JPADataAccessActor(String name, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(name, persistenceUnitName, batchWrite, batchOrdered, batchSize, 0, entityType, maxFailures, resetTimeout);
 	}
 
 	public JPADataAccessActor(String persistenceUnitName, boolean batchWrite, 
@@ -58,15 +87,27 @@ public class JPADataAccessActor<K, E> extends DataAccessActor<K, E> {
 	@Override
 	public void preStart() {
 		impl.preStart();
+		
+		if (impl.batchWrite && impl.getMaxLingerTime()>0) {
+			// ticks twice per linger time, so buffered requests are flushed after at most 1.5x max linger time
+			long period = Math.max(impl.getMaxLingerTime()/2, 1);
+			timerFuture = getSystem().timer().schedule(ActorMessage.create(null, FLUSH, self(), self()), self(), period, period, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	@Override
 	public void receive(ActorMessage<?> message) {
-		impl.receive(message);
+		if (message.tag()==FLUSH && message.value()==null)
+			impl.flushExpired(); // timer
+		else
+			impl.receive(message);
 	}
 	
 	@Override
 	public void postStop() {
+		if (timerFuture!=null)
+			timerFuture.cancel(true);
+		
 		impl.close();
 	}
 }
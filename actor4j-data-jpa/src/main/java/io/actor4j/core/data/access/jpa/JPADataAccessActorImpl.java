@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.function.ToLongFunction;
 
 import io.actor4j.core.actors.ActorRef;
 import io.actor4j.core.actors.ActorWithCache;
@@ -52,31 +53,70 @@ public class JPADataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E>
 	protected final boolean batchWrite;
 	protected final boolean batchOrdered;
 	protected final int batchSize;
+	protected final long maxLingerTime;
+	protected final long maxBytes;
+	protected final ToLongFunction<JPAWriteModel> sizeEstimator;
 	protected final Map<String, Class<E>> entityTypes;
 	protected final Map<String, JPABatchWriter<K, E>> batchWriters;
 	protected final Map<UUID, BatchWriterRequest<K, E>> batchWriterRequests; // id -> request
 	
 	protected JPABatchWriter<K, E> selectedBatchWriter;
 	
+	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, maxBytes, sizeEstimator, Map.of(entityType.getClass().getSimpleName(), entityType), maxFailures, resetTimeout);
+	}
+	
+	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, long maxLingerTime, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, 0, null, entityType, maxFailures, resetTimeout);
+	}
+	
 	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
 			boolean batchOrdered, int batchSize, Class<E> entityType, int maxFailures, long resetTimeout) {
-		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, Map.of(entityType.getClass().getSimpleName(), entityType), maxFailures, resetTimeout);
+		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, 0, entityType, maxFailures, resetTimeout);
 	}
 	
+	/**
+	 * @param maxBytes max estimated size of the buffered write requests, before the batch writer is flushed (0 = disabled)
+	 * @param sizeEstimator estimates the size of a write request, required if maxBytes is enabled
+	 */
 	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
-			boolean batchOrdered, int batchSize, Map<String, Class<E>> entityTypes, int maxFailures, long resetTimeout) {
+			boolean batchOrdered, int batchSize, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator, Map<String, Class<E>> entityTypes, int maxFailures, long resetTimeout) {
 		super(dataAccess, maxFailures, resetTimeout);
 		
 		this.persistenceUnitName = persistenceUnitName;
 		this.batchWrite = batchWrite;
 		this.batchOrdered = batchOrdered;
 		this.batchSize = batchSize;
+		this.maxLingerTime = maxLingerTime;
+		this.maxBytes = maxBytes;
+		this.sizeEstimator = sizeEstimator;
 		this.entityTypes = entityTypes;
 		
 		batchWriters = new HashMap<>();
 		batchWriterRequests = new HashMap<>();
 	}
 	
+	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, long maxLingerTime, Map<String, Class<E>> entityTypes, int maxFailures, long resetTimeout) {
+		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, maxLingerTime, 0, null, entityTypes, maxFailures, resetTimeout);
+	}
+	
+	public JPADataAccessActorImpl(ActorRef dataAccess, String persistenceUnitName, boolean batchWrite, 
+			boolean batchOrdered, int batchSize, Map<String, Class<E>> entityTypes, int maxFailures, long resetTimeout) {
+		this(dataAccess, persistenceUnitName, batchWrite, batchOrdered, batchSize, 0, entityTypes, maxFailures, resetTimeout);
+	}
+	
+	public long getMaxLingerTime() {
+		return maxLingerTime;
+	}
+	
+	public void flushExpired() {
+		for (JPABatchWriter<K, E> batchWriter : batchWriters.values())
+			batchWriter.flushIfExpired();
+	}
+	
 	protected Pair<String, Class<E>> getEntityTypeAsPair(PersistentContext context) {
 		if (context==null && entityTypes.size()==1) {
 			Entry<String, Class<E>> entry = entityTypes.entrySet().iterator().next();
@@ -134,14 +174,14 @@ public class JPADataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E>
 			
 			JPABatchWriter<K, E> batchWriter = batchWriters.get(pair.key());
 			if (batchWriter==null) {
-				batchWriter = JPABatchWriter.create(entityManager, pair.value(), batchOrdered, batchSize, 
+				batchWriter = JPABatchWriter.create(entityManager, pair.value(), batchOrdered, batchSize, maxLingerTime, maxBytes, sizeEstimator, 
 					this::onBatchWriterSuccess, this::onBatchWriterError);
 				batchWriters.put(pair.key(), batchWriter);
 			}
 			
 			selectedBatchWriter = batchWriter;
 			
-			if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=HAS_ONE)
+			if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=FIND_ALL && msg.tag()!=ActorWithCache.GET_ALL && msg.tag()!=HAS_ONE)
 				batchWriterRequests.put(dto.id(), new BatchWriterRequest<>(msg.tag(), msg.interaction(), msg.source(), dto));
 		}	
 	}
@@ -181,13 +221,23 @@ public class JPADataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E>
 			dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void findAll(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
-		List<E> entities = JPAOperations.findAll(getEntityType(dto.context()), entityManager);
-		if (entities!=null)
-			dataAccess.tell(dto.shallowCopyWithEntities(entities), FIND_ALL, msg.source(), msg.interaction());
-		else
-			dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
+		if (msg.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List) {
+			// multi-key request of a cache, answered with key -> entity
+			Map<K, E> entries = new HashMap<>();
+			for (E entity : JPAOperations.findAll(dto.keys(), getEntityType(dto.context()), entityManager))
+				entries.put((K)JPAOperations.getPrimaryKey(entity, entityManager), entity);
+			dataAccess.tell(dto.shallowCopyWithEntries(entries), FIND_ALL, msg.source(), msg.interaction());
+		}
+		else {
+			List<E> entities = JPAOperations.findAll(getEntityType(dto.context()), entityManager);
+			if (entities!=null)
+				dataAccess.tell(dto.shallowCopyWithEntities(entities), FIND_ALL, msg.source(), msg.interaction());
+			else
+				dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
+		}
 	}
 	
 	@Override
@@ -229,7 +279,7 @@ public class JPADataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E>
 
 	@Override
 	public void onSuccess(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
-		if (!batchWrite && msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=HAS_ONE)
+		if (!batchWrite && msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=ActorWithCache.GET_ALL && msg.tag()!=HAS_ONE)
 			dataAccess.tell(PersistentSuccessDTO.of(dto, msg.tag()), SUCCESS, msg.source(), msg.interaction());
 	}
 
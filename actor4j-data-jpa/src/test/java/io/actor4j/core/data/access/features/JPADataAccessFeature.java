@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.features;
+
+import static io.actor4j.core.data.access.DataAccessActor.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.actor4j.core.ActorRuntime;
+import io.actor4j.core.ActorSystem;
+import io.actor4j.core.actors.Actor;
+import io.actor4j.core.data.access.PersistentDTO;
+import io.actor4j.core.data.access.jpa.JPADataAccessActor;
+import io.actor4j.core.messages.ActorMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+public class JPADataAccessFeature {
+	protected EntityManagerFactory entityManagerFactory;
+	
+	@Before
+	public void before() {
+		entityManagerFactory = Persistence.createEntityManagerFactory("actor4j-test");
+	}
+	
+	@After
+	public void after() {
+		entityManagerFactory.close();
+	}
+	
+	protected long count(String prefix) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			return entityManager.createQuery("SELECT COUNT(e) FROM TestEntity e WHERE e.id LIKE :prefix", Long.class)
+				.setParameter("prefix", prefix+"%").getSingleResult();
+		}
+		finally {
+			entityManager.close();
+		}
+	}
+	
+	// The success is replied before the transaction is committed
+	protected long awaitCount(String prefix, long expected) throws InterruptedException {
+		long result = count(prefix);
+		for (; result<expected; result=count(prefix))
+			Thread.sleep(10);
+		
+		return result;
+	}
+	
+	// Inserts the entities with the prefix and counts down for each success
+	protected void addClient(ActorSystem system, String prefix, int count, CountDownLatch testDone) {
+		system.addActor(() -> new Actor("client") {
+			@Override 
+			public void preStart() {
+				for (int i=0; i<count; i++)
+					tell(PersistentDTO.create(prefix+i, new TestEntity(prefix+i, "name"+i), self()), INSERT_ONE, "dataAccess");
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				if (message.tag()==SUCCESS)
+					testDone.countDown();
+			}
+		});
+	}
+	
+	@Test(timeout=10000)
+	public void test_linger_flush() throws InterruptedException {
+		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
+		CountDownLatch testDone = new CountDownLatch(3);
+		
+		// the batch is not full, it is flushed by the timer after the max linger time
+		system.setAlias(system.addActor(() -> new JPADataAccessActor<String, TestEntity>("dataAccess", "actor4j-test", true, true, 100, 50, TestEntity.class)), "dataAccess");
+		addClient(system, "linger", 3, testDone);
+		
+		system.start();
+		testDone.await();
+		
+		assertEquals(3, awaitCount("linger", 3));
+		
+		system.shutdownWithActors(true);
+	}
+	
+	@Test(timeout=10000)
+	public void test_max_bytes_flush() throws InterruptedException {
+		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
+		CountDownLatch testDone = new CountDownLatch(3);
+		
+		// flushed, when the third request reaches the max bytes, the fourth stays buffered
+		system.setAlias(system.addActor(() -> new JPADataAccessActor<String, TestEntity>("dataAccess", "actor4j-test", true, true, 100, 0, 300, (request) -> 100, 
+			TestEntity.class, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT)), "dataAccess");
+		addClient(system, "bytes", 4, testDone);
+		
+		system.start();
+		testDone.await();
+		
+		assertEquals(3, awaitCount("bytes", 3));
+		
+		system.shutdownWithActors(true);
+	}
+}
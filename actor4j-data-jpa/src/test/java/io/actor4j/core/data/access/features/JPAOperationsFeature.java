@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.features;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.actor4j.database.jpa.JPAOperations;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+public class JPAOperationsFeature {
+	protected EntityManagerFactory entityManagerFactory;
+	protected EntityManager entityManager;
+	
+	@Before
+	public void before() {
+		entityManagerFactory = Persistence.createEntityManagerFactory("actor4j-test");
+		entityManager = entityManagerFactory.createEntityManager();
+	}
+	
+	@After
+	public void after() {
+		entityManager.close();
+		entityManagerFactory.close();
+	}
+	
+	@Test(timeout=5000)
+	public void test_find_all_primitive_id() {
+		entityManager.getTransaction().begin();
+		for (long i=1; i<=5; i++)
+			entityManager.persist(new TestPrimitiveEntity(i, "name"+i));
+		entityManager.getTransaction().commit();
+		entityManager.clear();
+		
+		List<TestPrimitiveEntity> entities = JPAOperations.findAll(List.of(1L, 3L, 7L), TestPrimitiveEntity.class, entityManager);
+		assertEquals(Set.of(1L, 3L), entities.stream().map(TestPrimitiveEntity::getId).collect(Collectors.toSet()));
+	}
+	
+	@Test(timeout=5000)
+	public void test_find_all() {
+		entityManager.getTransaction().begin();
+		for (int i=1; i<=5; i++)
+			entityManager.persist(new TestEntity("findAll"+i, "name"+i));
+		entityManager.getTransaction().commit();
+		entityManager.clear();
+		
+		List<TestEntity> entities = JPAOperations.findAll(List.of("findAll2", "findAll4", "findAll7"), TestEntity.class, entityManager);
+		assertEquals(Set.of("findAll2", "findAll4"), entities.stream().map(TestEntity::getId).collect(Collectors.toSet()));
+	}
+}
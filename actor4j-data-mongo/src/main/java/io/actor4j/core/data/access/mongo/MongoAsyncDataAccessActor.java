@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.mongo;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import io.actor4j.core.messages.ActorMessage;
+import io.actor4j.core.data.access.DataAccessActor;
+
+public class MongoAsyncDataAccessActor<K, E> extends DataAccessActor<K, E> {
+	public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+	
+	protected MongoAsyncDataAccessActorImpl<K, E> impl;
+	
+	public MongoAsyncDataAccessActor(String name, MongoClient client, String databaseName, Class<E> valueType, int maxInFlight, int maxFailures, long resetTimeout) {
+		super(name, true); // @Stateful
+		
+		impl = new MongoAsyncDataAccessActorImpl<K, E>(this, client, databaseName, valueType, maxInFlight, maxFailures, resetTimeout);
+	}
+	
+	public MongoAsyncDataAccessActor(String name, MongoClient client, String databaseName, Class<E> valueType, int maxInFlight) {
+		this(name, client, databaseName, valueType, maxInFlight, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+	}
+	
+	public MongoAsyncDataAccessActor(String name, MongoClient client, String databaseName, Class<E> valueType) {
+		this(name, client, databaseName, valueType, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+	}
+	
+	public MongoAsyncDataAccessActor(MongoClient client, String databaseName, Class<E> valueType, int maxInFlight) {
+		this(null, client, databaseName, valueType, maxInFlight);
+	}
+	
+	public MongoAsyncDataAccessActor(MongoClient client, String databaseName, Class<E> valueType) {
+		this(null, client, databaseName, valueType);
+	}
+	
+	@Override
+	public void receive(ActorMessage<?> message) {
+		impl.receive(message);
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.mongo;
+
+import static io.actor4j.core.data.access.DataAccessActor.*;
+import static io.actor4j.database.mongo.MongoOperations.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.BiConsumer;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import io.actor4j.core.actors.Actor;
+import io.actor4j.core.actors.ActorRef;
+import io.actor4j.core.actors.ActorWithCache;
+import io.actor4j.core.data.access.AbstractDataAccessActorImpl;
+import io.actor4j.core.data.access.DocPersistentContext;
+import io.actor4j.core.data.access.PersistentDataAccessDTO;
+import io.actor4j.core.data.access.PersistentFailureDTO;
+import io.actor4j.core.data.access.PersistentSuccessDTO;
+import io.actor4j.core.json.JsonObject;
+import io.actor4j.core.messages.ActorMessage;
+
+/**
+ * Data access based on the reactive streams driver. The operations are started within {@code receive}, their results are sent
+ * back to the data access actor as messages and answered from there, so the dispatcher thread is never blocked. The number of
+ * operations in flight is limited, further requests are stashed until an operation completes. A flush is answered, after all
+ * operations started before have completed.
+ */
+public class MongoAsyncDataAccessActorImpl<K, E> extends AbstractDataAccessActorImpl<K, E> {
+	protected record AsyncResult<K, E>(ActorMessage<?> origin, PersistentDataAccessDTO<K, E> dto, List<?> result, Throwable throwable) {
+	}
+	
+	protected static class CollectingSubscriber<T> implements Subscriber<T> {
+		protected final List<T> result;
+		protected final BiConsumer<List<T>, Throwable> onComplete;
+		
+		public CollectingSubscriber(BiConsumer<List<T>, Throwable> onComplete) {
+			super();
+			this.onComplete = onComplete;
+			
+			result = new ArrayList<>(1);
+		}
+		
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(T item) {
+			result.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			onComplete.accept(null, throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			onComplete.accept(result, null);
+		}
+	}
+	
+	protected final MongoClient client;
+	protected final String databaseName;
+	protected final Class<E> entityType;
+	protected final int maxInFlight;
+	
+	protected final Queue<ActorMessage<?>> stash;
+	protected int inFlight;
+	
+	public MongoAsyncDataAccessActorImpl(ActorRef dataAccess, MongoClient client, String databaseName, Class<E> entityType, 
+			int maxInFlight, int maxFailures, long resetTimeout) {
+		super(dataAccess, maxFailures, resetTimeout);
+		this.client = client;
+		this.databaseName = databaseName;
+		this.entityType = entityType;
+		this.maxInFlight = maxInFlight;
+		
+		stash = new ArrayDeque<>();
+		inFlight = 0;
+	}
+	
+	public int getInFlight() {
+		return inFlight;
+	}
+	
+	@Override
+	public void receive(ActorMessage<?> message) {
+		if (message.value()!=null && message.value() instanceof AsyncResult) {
+			@SuppressWarnings("unchecked")
+			AsyncResult<K, E> result = (AsyncResult<K, E>)message.value();
+			inFlight--;
+			onResult(result.origin(), result.dto(), result.result(), result.throwable());
+			
+			while (!stash.isEmpty() && isReady(stash.peek())) {
+				ActorMessage<?> stashed = stash.poll();
+				@SuppressWarnings("unchecked")
+				PersistentDataAccessDTO<K, E> dto = (PersistentDataAccessDTO<K, E>)stashed.value();
+				receive(stashed, dto);
+			}
+		}
+		else if (message.value()!=null && message.value() instanceof PersistentDataAccessDTO) {
+			// stashed in order, behind the already stashed requests
+			if (!stash.isEmpty() || !isReady(message))
+				stash.offer(message);
+			else
+				super.receive(message);
+		}
+		else
+			((Actor)dataAccess).unhandled(message);
+	}
+	
+	// A flush waits for all operations in flight, other requests for a free slot
+	protected boolean isReady(ActorMessage<?> message) {
+		return message.tag()==FLUSH ? inFlight==0 : inFlight<maxInFlight;
+	}
+	
+	@Override
+	protected void execute(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
+		if (dto.context() instanceof DocPersistentContext ctx)
+			execute(msg, dto, ctx);
+		else
+			throw new IllegalArgumentException("Wrong context");
+	}
+	
+	@Override
+	public void onFailure(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto, Throwable t) {
+		dataAccess.tell(PersistentFailureDTO.of(dto, msg.tag(), t), FAILURE, msg.source(), msg.interaction());
+	}
+	
+	protected void execute(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto, DocPersistentContext ctx) {
+		MongoCollection<Document> collection = client.getDatabase(databaseName).getCollection(ctx.collectionName());
+		
+		if (msg.tag()==HAS_ONE)
+			subscribe(collection.countDocuments(filterWithPrimary(dto.key(), ctx), new CountOptions().limit(1)), msg, dto);
+		else if (msg.tag()==FIND_ONE || msg.tag()==ActorWithCache.GET)
+			subscribe(collection.find(filterWithPrimary(dto.key(), ctx)).first(), msg, dto);
+		else if (msg.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List) // multi-key request of a cache
+			subscribe(collection.find(filterWithKeys(ctx.filter()!=null ? Document.parse(ctx.filter().encode()) : null, ctx.keyName(), dto.keys())), msg, dto);
+		else if (msg.tag()==FIND_ALL || msg.tag()==ActorWithCache.GET_ALL)
+			subscribe(ctx.filter()!=null ? collection.find(Document.parse(ctx.filter().encode())) : collection.find(), msg, dto);
+		else if (msg.tag()==ActorWithCache.SET) // one round trip, instead of hasOne and insertOne/replaceOne
+			subscribe(collection.replaceOne(filterWithPrimary(dto.key(), ctx), convertToDocument(dto.value()), new ReplaceOptions().upsert(true)), msg, dto);
+		else if (msg.tag()==INSERT_ONE)
+			subscribe(collection.insertOne(convertToDocument(dto.value())), msg, dto);
+		else if (msg.tag()==REPLACE_ONE)
+			subscribe(collection.replaceOne(filterWithPrimary(dto.key(), ctx), convertToDocument(dto.value())), msg, dto);
+		else if (msg.tag()==UPDATE_ONE || msg.tag()==ActorWithCache.UPDATE)
+			subscribe(collection.updateOne(filterWithPrimary(dto.key(), ctx), Document.parse(ctx.update().encode())), msg, dto);
+		else if (msg.tag()==DELETE_ONE)
+			subscribe(collection.deleteOne(filterWithPrimary(dto.key(), ctx)), msg, dto);
+		else if (msg.tag()==QUERY_ONE || msg.tag()==QUERY_ALL)
+			throw new UnsupportedOperationException(); // as the synchronous data access
+		else if (msg.tag()==FLUSH) // operations are not buffered, all operations started before have completed
+			dataAccess.tell(PersistentSuccessDTO.of(dto, msg.tag()), SUCCESS, msg.source(), msg.interaction());
+		else {
+			((Actor)dataAccess).unhandled(msg);
+			dataAccess.tell(dto, ActorMessage.UNHANDLED, msg.source(), msg.interaction());
+		}
+	}
+	
+	protected <T> void subscribe(Publisher<T> publisher, ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
+		inFlight++;
+		// invoked by a thread of the driver, the result is handed over to the data access actor
+		publisher.subscribe(new CollectingSubscriber<T>((result, t) -> 
+			dataAccess.send(ActorMessage.create(new AsyncResult<>(msg, dto, result, t), msg.tag(), dataAccess.self(), dataAccess.self()))));
+	}
+	
+	protected void onResult(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto, List<?> result, Throwable t) {
+		if (t!=null) {
+			t.printStackTrace();
+			
+			circuitBreaker.failure();
+			onFailure(msg, dto, t);
+			return;
+		}
+		
+		circuitBreaker.success();
+		if (msg.tag()==HAS_ONE) {
+			if (!result.isEmpty() && ((Long)result.get(0))>0)
+				dataAccess.tell(dto.shallowCopy(true), HAS_ONE, msg.source(), msg.interaction());
+			else
+				dataAccess.tell(dto.keyExists() ? dto.shallowCopy(false) : dto, HAS_ONE, msg.source(), msg.interaction());
+		}
+		else if (msg.tag()==FIND_ONE || msg.tag()==ActorWithCache.GET) {
+			E entity = !result.isEmpty() ? convertToEntity((Document)result.get(0), entityType) : null;
+			if (entity!=null)
+				dataAccess.tell(dto.shallowCopy(entity), FIND_ONE, msg.source(), msg.interaction());
+			else
+				dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
+		}
+		else if (msg.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List && dto.context() instanceof DocPersistentContext ctx) {
+			@SuppressWarnings("unchecked")
+			Map<K, E> entries = convertToEntries((List<Document>)result, ctx.keyName(), dto.keys(), entityType);
+			dataAccess.tell(dto.shallowCopyWithEntries(entries), FIND_ALL, msg.source(), msg.interaction());
+		}
+		else {
+			if (msg.tag()==FIND_ALL || msg.tag()==ActorWithCache.GET_ALL) {
+				@SuppressWarnings("unchecked")
+				List<E> entities = convertToEntities((List<Document>)result, entityType);
+				if (entities!=null)
+					dataAccess.tell(dto.shallowCopyWithEntities(entities), FIND_ALL, msg.source(), msg.interaction());
+				else
+					dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
+			}
+			
+			// as the synchronous data access, the result of a cache's GET_ALL is not acknowledged
+			if (msg.tag()!=ActorWithCache.GET_ALL)
+				dataAccess.tell(PersistentSuccessDTO.of(dto, msg.tag()), SUCCESS, msg.source(), msg.interaction());
+		}
+	}
+	
+	protected Bson filterWithPrimary(K key, DocPersistentContext ctx) {
+		JsonObject result = ctx.filter();
+		
+		if(result==null)
+			result = JsonObject.create();
+		result.put(ctx.keyName(), key);
+			
+		return Document.parse(result.encode());
+	}
+}
@@ -15,6 +15,9 @@
  */
 package io.actor4j.core.data.access.mongo;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import com.mongodb.client.MongoClient;
 
 import io.actor4j.core.messages.ActorMessage;
@@ -22,12 +25,35 @@ import io.actor4j.core.data.access.DataAccessActor;
 
 public class MongoDataAccessActor<K, E> extends DataAccessActor<K, E> {
 	protected MongoDataAccessActorImpl<K, E> impl;
+	protected ScheduledFuture<?> timerFuture;
 	
+	/**
+	 * @param maxLingerTime max time in ms a write request stays buffered, before the bulk writer is flushed (0 = disabled)
+	 * @param maxBytes max BSON size of the buffered write requests, before the bulk writer is flushed (0 = disabled)
+	 * @param maxRetries max retries of the requests of a bulk write, that failed with a transient error (0 = disabled),
+	 * the retries are blocking the actor
+	 * @param retryBackoff initial backoff in ms, doubled for each retry
+	 */
 	public MongoDataAccessActor(String name, MongoClient client, String databaseName, 
-			boolean bulkWrite, boolean bulkOrdered, int bulkSize, Class<E> valueType, int maxFailures, long resetTimeout) {
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, long maxLingerTime, long maxBytes, int maxRetries, long retryBackoff, Class<E> valueType, int maxFailures, long resetTimeout) {
 		super(name, true); // @Stateful
 		
-		impl = new MongoDataAccessActorImpl<K, E>(this, client, databaseName, bulkWrite, bulkOrdered, bulkSize, valueType, maxFailures, resetTimeout);
+		impl = new MongoDataAccessActorImpl<K, E>(this, client, databaseName, bulkWrite, bulkOrdered, bulkSize, maxLingerTime, maxBytes, maxRetries, retryBackoff, valueType, maxFailures, resetTimeout);
+	}
+	
+	public MongoDataAccessActor(String name, MongoClient client, String databaseName, 
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, long maxLingerTime, long maxBytes, Class<E> valueType, int maxFailures, long resetTimeout) {
+		this(name, client, databaseName, bulkWrite, bulkOrdered, bulkSize, maxLingerTime, maxBytes, 0, 0, valueType, maxFailures, resetTimeout);
+	}
+	
+	public MongoDataAccessActor(String name, MongoClient client, String databaseName, 
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, long maxLingerTime, long maxBytes, Class<E> valueType) {
+		this(name, client, databaseName, bulkWrite, bulkOrdered, bulkSize, maxLingerTime, maxBytes, valueType, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+	}
+	
+	public MongoDataAccessActor(String name, MongoClient client, String databaseName, 
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, Class<E> valueType, int maxFailures, long resetTimeout) {
+		this(name, client, databaseName, bulkWrite, bulkOrdered, bulkSize, 0, 0, valueType, maxFailures, resetTimeout);
 	}
 	
 	public MongoDataAccessActor(MongoClient client, String databaseName, 
@@ -61,8 +87,26 @@ public class MongoDataAccessActor<K, E> extends DataAccessActor<K, E> {
 		this(null, client, databaseName, valueType, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
 	}
 	
+	@Override
+	public void preStart() {
+		if (impl.bulkWrite && impl.getMaxLingerTime()>0) {
+			// ticks twice per linger time, so buffered requests are flushed after at most 1.5x max linger time
+			long period = Math.max(impl.getMaxLingerTime()/2, 1);
+			timerFuture = getSystem().timer().schedule(ActorMessage.create(null, FLUSH, self(), self()), self(), period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+	
 	@Override
 	public void receive(ActorMessage<?> message) {
-		impl.receive(message);
+		if (message.tag()==FLUSH && message.value()==null)
+			impl.flushExpired(); // timer
+		else
+			impl.receive(message);
+	}
+	
+	@Override
+	public void postStop() {
+		if (timerFuture!=null)
+			timerFuture.cancel(true);
 	}
 }
@@ -52,6 +52,10 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 	protected final boolean bulkWrite;
 	protected final boolean bulkOrdered;
 	protected final int bulkSize;
+	protected final long maxLingerTime;
+	protected final long maxBytes;
+	protected final int maxRetries;
+	protected final long retryBackoff;
 	protected final Class<E> entityType;
 	protected final Map<String, MongoBufferedBulkWriter> bulkWriters;
 	protected final Map<UUID, BulkWriterRequest<K, E>> bulkWriterRequests; // id -> request
@@ -59,7 +63,7 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 	protected MongoBufferedBulkWriter selectedBulkWriter;
 	
 	public MongoDataAccessActorImpl(ActorRef dataAccess, MongoClient client, String databaseName, 
-			boolean bulkWrite, boolean bulkOrdered, int bulkSize, Class<E> entityType, int maxFailures, long resetTimeout) {
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, long maxLingerTime, long maxBytes, int maxRetries, long retryBackoff, Class<E> entityType, int maxFailures, long resetTimeout) {
 		super(dataAccess);
 		
 		this.client = client;
@@ -67,12 +71,35 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 		this.bulkWrite = bulkWrite;
 		this.bulkOrdered = bulkOrdered;
 		this.bulkSize = bulkSize;
+		this.maxLingerTime = maxLingerTime;
+		this.maxBytes = maxBytes;
+		this.maxRetries = maxRetries;
+		this.retryBackoff = retryBackoff;
 		this.entityType = entityType;
 		
 		bulkWriters = new HashMap<>();
 		bulkWriterRequests = new HashMap<>();
 	}
 	
+	public MongoDataAccessActorImpl(ActorRef dataAccess, MongoClient client, String databaseName, 
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, long maxLingerTime, long maxBytes, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(dataAccess, client, databaseName, bulkWrite, bulkOrdered, bulkSize, maxLingerTime, maxBytes, 0, 0, entityType, maxFailures, resetTimeout);
+	}
+	
+	public MongoDataAccessActorImpl(ActorRef dataAccess, MongoClient client, String databaseName, 
+			boolean bulkWrite, boolean bulkOrdered, int bulkSize, Class<E> entityType, int maxFailures, long resetTimeout) {
+		this(dataAccess, client, databaseName, bulkWrite, bulkOrdered, bulkSize, 0, 0, entityType, maxFailures, resetTimeout);
+	}
+	
+	public long getMaxLingerTime() {
+		return maxLingerTime;
+	}
+	
+	public void flushExpired() {
+		for (MongoBufferedBulkWriter bulkWriter : bulkWriters.values())
+			bulkWriter.flushIfExpired();
+	}
+	
 	public void onBulkWriterSuccess(List<Pair<UUID, WriteModel<Document>>> requests) {
 		for (Pair<UUID, WriteModel<Document>> pair : requests) {
 			BulkWriterRequest<K, E> originRequest = bulkWriterRequests.get(pair.a()/*id*/);
@@ -97,14 +124,14 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 			if (dto.context() instanceof DocPersistentContext ctx) {
 				MongoBufferedBulkWriter bulkWriter = bulkWriters.get(ctx.collectionName());
 				if (bulkWriter==null) {
-					bulkWriter = MongoBufferedBulkWriter.create(client, databaseName, ctx.collectionName(), bulkOrdered, bulkSize, 
+					bulkWriter = MongoBufferedBulkWriter.create(client, databaseName, ctx.collectionName(), bulkOrdered, bulkSize, maxLingerTime, maxBytes, maxRetries, retryBackoff, 
 						this::onBulkWriterSuccess, this::onBulkWriterError);
 					bulkWriters.put(ctx.collectionName(), bulkWriter);
 				}
 				
 				selectedBulkWriter = bulkWriter;
 				
-				if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=HAS_ONE)
+				if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=FIND_ALL && msg.tag()!=ActorWithCache.GET_ALL && msg.tag()!=HAS_ONE)
 					bulkWriterRequests.put(dto.id(), new BulkWriterRequest<>(msg.tag(), msg.interaction(), msg.source(), dto));
 			}
 			else
@@ -136,7 +163,13 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 	
 	@Override
 	public void findAll(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
-		if (dto.context() instanceof DocPersistentContext ctx) {
+		if (msg.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List && dto.context() instanceof DocPersistentContext ctx) {
+			// multi-key request of a cache, answered with key -> entity
+			Document filter = filterWithKeys(ctx.filter()!=null ? Document.parse(ctx.filter().encode()) : null, ctx.keyName(), dto.keys());
+			Map<K, E> entries = convertToEntries(MongoOperations.findAll(filter, client, databaseName, ctx.collectionName()), ctx.keyName(), dto.keys(), entityType);
+			dataAccess.tell(dto.shallowCopyWithEntries(entries), FIND_ALL, msg.source(), msg.interaction());
+		}
+		else if (dto.context() instanceof DocPersistentContext ctx) {
 			List<E> entities = convertToEntities(MongoOperations.findAll(ctx.filter()!=null ? Document.parse(ctx.filter().encode()) : null, client, databaseName, ctx.collectionName()), entityType);
 			if (entities!=null)
 				dataAccess.tell(dto.shallowCopyWithEntities(entities), FIND_ALL, msg.source(), msg.interaction());
@@ -205,7 +238,7 @@ public class MongoDataAccessActorImpl<K, E> extends BaseDataAccessActorImpl<K, E
 
 	@Override
 	public void onSuccess(ActorMessage<?> msg, PersistentDataAccessDTO<K, E> dto) {
-		if (!bulkWrite && msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=HAS_ONE)
+		if (!bulkWrite && msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=ActorWithCache.GET_ALL && msg.tag()!=HAS_ONE)
 			dataAccess.tell(PersistentSuccessDTO.of(dto, msg.tag()), SUCCESS, msg.source(), msg.interaction());
 	}
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.features;
+
+import static io.actor4j.core.data.access.DataAccessActor.*;
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.actor4j.core.ActorRuntime;
+import io.actor4j.core.ActorSystem;
+import io.actor4j.core.actors.Actor;
+import io.actor4j.core.actors.ActorWithCache;
+import io.actor4j.core.data.access.DocPersistentContext;
+import io.actor4j.core.data.access.PersistentDTO;
+import io.actor4j.core.data.access.PersistentFailureDTO;
+import io.actor4j.core.data.access.PersistentSuccessDTO;
+import io.actor4j.core.data.access.SqlPersistentContext;
+import io.actor4j.core.data.access.mongo.MongoAsyncDataAccessActor;
+import io.actor4j.core.messages.ActorMessage;
+
+public class MongoAsyncDataAccessFeature {
+	protected MongoServer mongoServer;
+	protected MongoClient client;
+	protected com.mongodb.reactivestreams.client.MongoClient asyncClient;
+	
+	@Before
+	public void before() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		InetSocketAddress address = mongoServer.bind();
+		
+		String connectionString = "mongodb://"+address.getHostString()+":"+address.getPort();
+		client = MongoClients.create(connectionString);
+		asyncClient = com.mongodb.reactivestreams.client.MongoClients.create(connectionString);
+	}
+	
+	@After
+	public void after() {
+		client.close();
+		asyncClient.close();
+		mongoServer.shutdown();
+	}
+	
+	@Test(timeout=10000)
+	public void test_max_in_flight() throws InterruptedException {
+		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
+		final int COUNT = 20;
+		final int MAX_IN_FLIGHT = 2;
+		
+		CountDownLatch testDone = new CountDownLatch(COUNT+1);
+		AtomicInteger maxInFlight = new AtomicInteger(0);
+		AtomicInteger flushed = new AtomicInteger(-1);
+		
+		system.setAlias(system.addActor(() -> new MongoAsyncDataAccessActor<String, TestEntity>("dataAccess", asyncClient, "actor4j-test", TestEntity.class, MAX_IN_FLIGHT) {
+			@Override
+			public void receive(ActorMessage<?> message) {
+				super.receive(message);
+				maxInFlight.accumulateAndGet(impl.getInFlight(), Math::max);
+			}
+		}), "dataAccess");
+		
+		system.addActor(() -> new Actor("client") {
+			protected int succeeded = 0;
+			
+			@Override 
+			public void preStart() {
+				DocPersistentContext ctx = DocPersistentContext.of("key", "test");
+				for (int i=0; i<COUNT; i++)
+					tell(PersistentDTO.create("key"+i, new TestEntity("key"+i, "value"+i), ctx, self(), false), ActorWithCache.SET, "dataAccess");
+				// answered after all writes
+				tell(PersistentDTO.create(null, ctx, self()), FLUSH, "dataAccess");
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				if (message.tag()==SUCCESS) {
+					if (((PersistentSuccessDTO<?, ?>)message.value()).tag()==FLUSH)
+						flushed.set(succeeded);
+					else
+						succeeded++;
+					testDone.countDown();
+				}
+			}
+		});
+		
+		system.start();
+		testDone.await();
+		
+		assertTrue(maxInFlight.get()>0);
+		assertTrue(maxInFlight.get()<=MAX_IN_FLIGHT);
+		assertEquals(COUNT, flushed.get());
+		assertEquals(COUNT, client.getDatabase("actor4j-test").getCollection("test").countDocuments());
+		
+		system.shutdownWithActors(true);
+	}
+	
+	@Test(timeout=10000)
+	public void test_circuit_breaker_open() throws InterruptedException {
+		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
+		
+		CountDownLatch testDone = new CountDownLatch(3);
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		
+		system.setAlias(system.addActor(() -> new MongoAsyncDataAccessActor<String, TestEntity>("dataAccess", asyncClient, "actor4j-test", TestEntity.class, 
+			MongoAsyncDataAccessActor.DEFAULT_MAX_IN_FLIGHT, 1, 60_000)), "dataAccess");
+		
+		system.addActor(() -> new Actor("client") {
+			@Override 
+			public void preStart() {
+				// wrong context, the requests are failing
+				tell(PersistentDTO.create("key1", new TestEntity("key1", "value1"), SqlPersistentContext.of("test"), self(), false), ActorWithCache.SET, "dataAccess");
+				tell(PersistentDTO.create("key1", new TestEntity("key1", "value1"), SqlPersistentContext.of("test"), self(), false), ActorWithCache.SET, "dataAccess");
+				// rejected, while the circuit breaker is open
+				tell(PersistentDTO.create("key1", new TestEntity("key1", "value1"), DocPersistentContext.of("key", "test"), self(), false), ActorWithCache.SET, "dataAccess");
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				if (message.tag()==FAILURE) {
+					failures.add(((PersistentFailureDTO<?, ?>)message.value()).throwable());
+					testDone.countDown();
+				}
+			}
+		});
+		
+		system.start();
+		testDone.await();
+		
+		assertEquals(3, failures.size());
+		assertTrue(failures.get(2) instanceof IllegalStateException);
+		assertEquals(0, client.getDatabase("actor4j-test").getCollection("test").countDocuments());
+		
+		system.shutdownWithActors(true);
+	}
+}
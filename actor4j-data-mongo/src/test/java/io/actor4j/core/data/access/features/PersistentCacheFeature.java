@@ -37,6 +37,7 @@ import io.actor4j.core.data.access.PersistentDTO;
 import io.actor4j.core.data.access.PrimaryPersistentCacheActor;
 import io.actor4j.core.data.access.SecondaryPersistentCacheActor;
 import io.actor4j.core.data.access.VolatileDTO;
+import io.actor4j.core.data.access.mongo.MongoAsyncDataAccessActor;
 import io.actor4j.core.data.access.mongo.MongoDataAccessActor;
 import io.actor4j.core.data.access.utils.PersistentActorCacheManager;
 import io.actor4j.core.id.ActorId;
@@ -53,6 +54,7 @@ import static io.actor4j.core.data.access.AckMode.*;
 public class PersistentCacheFeature {
 	protected MongoServer mongoServer;
 	protected MongoClient client;
+	protected com.mongodb.reactivestreams.client.MongoClient asyncClient;
 	
 	@Before
 	public void before() {
@@ -64,11 +66,13 @@ public class PersistentCacheFeature {
 		mongoServer.bind("localhost", 27027);
 		
 		client = MongoClients.create("mongodb://localhost:27027");
+		asyncClient = com.mongodb.reactivestreams.client.MongoClients.create("mongodb://localhost:27027");
 	}
 	
 	@After
 	public void after() {
 		client.close();
+		asyncClient.close();
 		mongoServer.shutdown();
 	}
 	
@@ -142,6 +146,76 @@ public class PersistentCacheFeature {
 		system.shutdownWithActors(true);
 	}
 	
+	@Test(timeout=5000)
+	public void test_primary_secondary_persistent_cache_actor_read_through_async() {
+		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
+		final int COUNT = 3/*system.getParallelismMin()*system.getParallelismFactor()*/;
+		
+		CountDownLatch testDone = new CountDownLatch(COUNT);
+		
+		ActorId mediator = system.addActor(() -> new Actor("mediator") {
+			protected final String[] keys = {"key4", "key1", "key3", "key2"};
+			protected final String[] values = {"value4", "value1", "value3", "value2"};
+			protected int i = 0;
+			
+			@Override 
+			public void preStart() {
+				ActorId dataAccess = system.addActor(() -> new MongoAsyncDataAccessActor<String, TestEntity>("dataAccess", asyncClient, "actor4j-test", TestEntity.class, 2));
+				system.setAlias(dataAccess, "dataAccess");
+				
+				ActorGroup group = new ActorGroupSet();
+				AtomicInteger k = new AtomicInteger(0);
+				system.addActor(() -> new PrimaryPersistentCacheActor<String, TestEntity>(
+						"primary", group, "cache1", (id) -> () -> new SecondaryPersistentCacheActor<String, TestEntity>("secondary-"+k.getAndIncrement(), group, id, 500), COUNT-1, 500, dataAccess, NONE));
+
+				DocPersistentContext ctx = DocPersistentContext.of("key", "test");
+				tell(PersistentDTO.create("key1", new TestEntity("key1", "value1"), ctx, self(), false), ActorWithCache.SET, "dataAccess");
+				tell(PersistentDTO.create("key2", new TestEntity("key2", "value2"), ctx, self(), false), ActorWithCache.SET, "dataAccess");
+				tell(PersistentDTO.create("key3", new TestEntity("key3", "value3"), ctx, self(), false), ActorWithCache.SET, "dataAccess");
+				tell(PersistentDTO.create("key4", new TestEntity("key4", "value4"), ctx, self(), false), ActorWithCache.SET, "dataAccess");
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				tell(PersistentDTO.create(keys[i], DocPersistentContext.of("key", "test"), self()), ActorWithCache.GET, "cache1");
+				
+				await((msg) -> msg.tag()==ActorWithCache.GET && msg.source()!=system.SYSTEM_ID() && msg.value()!=null, (msg) -> {
+					@SuppressWarnings("unchecked")
+					VolatileDTO<String, TestEntity> payload = ((VolatileDTO<String, TestEntity>)msg.value());
+					if (payload.value()!=null) {
+						assertEquals(values[i], payload.entity().value);
+						logger().log(DEBUG, payload.entity().value);
+						if (i<keys.length-1)
+							i++;
+						testDone.countDown();
+					}/*
+					else
+						logger().debug(false);*/
+					unbecome();
+				});
+			}
+		});
+		
+		system.start();
+		
+		Timer timer = new Timer();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				system.send(ActorMessage.create(null, 0, system.SYSTEM_ID(), mediator));
+			}
+		}, 0, 100);
+		
+		try {
+			testDone.await();
+			timer.cancel();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		system.shutdownWithActors(true);
+	}
+	
 	@Test(timeout=5000)
 	public void test_primary_secondary_persistent_cache_actor() {
 		ActorSystem system = ActorSystem.create(ActorRuntime.factory());
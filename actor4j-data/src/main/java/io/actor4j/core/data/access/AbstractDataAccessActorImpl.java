@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access;
+
+import static io.actor4j.core.data.access.DataAccessActor.*;
+
+import io.actor4j.core.actors.Actor;
+import io.actor4j.core.actors.ActorRef;
+import io.actor4j.core.messages.ActorMessage;
+import io.actor4j.core.utils.CircuitBreaker;
+
+/**
+ * Guards the requests of a data access actor by a circuit breaker. While the circuit breaker is open,
+ * the requests are rejected with a failure.
+ */
+public abstract class AbstractDataAccessActorImpl<K, V> {
+	protected final ActorRef dataAccess;
+	
+	protected final CircuitBreaker circuitBreaker;
+	
+	public AbstractDataAccessActorImpl(ActorRef dataAccess, int maxFailures, long resetTimeout) {
+		super();
+		this.dataAccess = dataAccess;
+		
+		circuitBreaker = new CircuitBreaker(maxFailures, resetTimeout);
+	}
+	
+	public AbstractDataAccessActorImpl(ActorRef dataAccess) {
+		this(dataAccess, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+	}
+	
+	/**
+	 * Executes the request, an exception thrown is counted as failure of the circuit breaker.
+	 */
+	protected abstract void execute(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto);
+	
+	public abstract void onFailure(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto, Throwable t);
+	
+	public void receive(ActorMessage<?> message) {
+		if (message.value()!=null && message.value() instanceof PersistentDataAccessDTO) {
+			@SuppressWarnings("unchecked")
+			PersistentDataAccessDTO<K,V> dto = (PersistentDataAccessDTO<K,V>)message.value();
+			
+			receive(message, dto);
+		}
+		else
+			((Actor)dataAccess).unhandled(message);
+	}
+	
+	protected void receive(ActorMessage<?> message, PersistentDataAccessDTO<K,V> dto) {
+		if (circuitBreaker.isCallable()) {
+			try {
+				execute(message, dto);
+			}
+			catch(Exception e) { 
+				e.printStackTrace();
+				
+				circuitBreaker.failure();
+				onFailure(message, dto, e);
+			}
+		}
+		else
+			onReject(message, dto);
+
+//		systemLogger().log(DEBUG, "circuit breaker: "+circuitBreaker.getState());
+	}
+	
+	// The circuit breaker is open, the request was not executed
+	protected void onReject(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto) {
+		dataAccess.tell(PersistentFailureDTO.of(dto, msg.tag(), new IllegalStateException("Circuit breaker is open")), FAILURE, msg.source(), msg.interaction());
+	}
+}
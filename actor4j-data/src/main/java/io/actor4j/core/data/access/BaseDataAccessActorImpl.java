@@ -16,7 +16,6 @@
 package io.actor4j.core.data.access;
 
 import io.actor4j.core.messages.ActorMessage;
-import io.actor4j.core.utils.CircuitBreaker;
 
 import static io.actor4j.core.data.access.DataAccessActor.*;
 import static io.actor4j.core.actors.ActorWithCache.*;
@@ -24,20 +23,13 @@ import static io.actor4j.core.actors.ActorWithCache.*;
 import io.actor4j.core.actors.Actor;
 import io.actor4j.core.actors.ActorRef;
 
-public abstract class BaseDataAccessActorImpl<K, V> {
-	protected final ActorRef dataAccess;
-	
-	protected final CircuitBreaker circuitBreaker;
-	
+public abstract class BaseDataAccessActorImpl<K, V> extends AbstractDataAccessActorImpl<K, V> {
 	public BaseDataAccessActorImpl(ActorRef dataAccess, int maxFailures, long resetTimeout) {
-		super();
-		this.dataAccess = dataAccess;
-		
-		circuitBreaker = new CircuitBreaker(maxFailures, resetTimeout);;
+		super(dataAccess, maxFailures, resetTimeout);
 	}
 	
 	public BaseDataAccessActorImpl(ActorRef dataAccess) {
-		this(dataAccess, DEFAULT_MAX_FAILURES, DEFAULT_RESET_TIMEOUT);
+		super(dataAccess);
 	}
 	
 	public abstract void onReceiveMessage(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto);
@@ -56,71 +48,52 @@ public abstract class BaseDataAccessActorImpl<K, V> {
 	public abstract boolean handleMessage(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto);
 	
 	public abstract void onSuccess(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto);
-	public abstract void onFailure(ActorMessage<?> msg, PersistentDataAccessDTO<K,V> dto, Throwable t);
 
-	public void receive(ActorMessage<?> message) {
-		if (message.value()!=null && message.value() instanceof PersistentDataAccessDTO) {
-			@SuppressWarnings("unchecked")
-			PersistentDataAccessDTO<K,V> dto = (PersistentDataAccessDTO<K,V>)message.value();
-			
-			if (circuitBreaker.isCallable()) {
-				try {
-					onReceiveMessage(message, dto);
-					
-					boolean unhandled = false;
-					if (message.tag()==HAS_ONE) {
-						if (hasOne(message, dto))
-							dataAccess.tell(dto.shallowCopy(true), HAS_ONE, message.source(), message.interaction());
-						else
-							dataAccess.tell(dto.keyExists() ? dto.shallowCopy(false) : dto, HAS_ONE, message.source(), message.interaction());
-					}
-					else if (message.tag()==FIND_ONE || message.tag()==GET)
-						findOne(message, dto);
-					else if (message.tag()==FIND_ALL || message.tag()==GET_ALL)
-						findAll(message, dto);
-					else if (message.tag()==SET) {
-						if (!((boolean)dto.reserved()) && !hasOne(message, dto))
-							insertOne(message, dto);
-						else
-							replaceOne(message, dto);
-					}
-					else if (message.tag()==INSERT_ONE)
-						insertOne(message, dto);
-					else if (message.tag()==REPLACE_ONE)
-						replaceOne(message, dto);
-					else if (message.tag()==UPDATE_ONE || message.tag()==UPDATE)
-						updateOne(message, dto);
-					else if (message.tag()==DELETE_ONE)
-						deleteOne(message, dto);
-					else if (message.tag()==QUERY_ONE)
-						queryOne(message, dto);
-					else if (message.tag()==QUERY_ALL)
-						queryAll(message, dto);
-					else if (handleMessage(message, dto))
-						;
-					else {
-						unhandled = true;
-						((Actor)dataAccess).unhandled(message);
-					}
-					
-					if (!unhandled) {
-						circuitBreaker.success();
-						onSuccess(message, dto);
-					}
-					else
-						dataAccess.tell(dto, ActorMessage.UNHANDLED, message.source(), message.interaction());
-				}
-				catch(Exception e) { 
-					e.printStackTrace();
-					
-					circuitBreaker.failure();
-					onFailure(message, dto, e);
-				}
-			}
-
-//			systemLogger().log(DEBUG, "circuit breaker: "+circuitBreaker.getState());
+	@Override
+	protected void execute(ActorMessage<?> message, PersistentDataAccessDTO<K,V> dto) {
+		onReceiveMessage(message, dto);
+		
+		boolean unhandled = false;
+		if (message.tag()==HAS_ONE) {
+			if (hasOne(message, dto))
+				dataAccess.tell(dto.shallowCopy(true), HAS_ONE, message.source(), message.interaction());
+			else
+				dataAccess.tell(dto.keyExists() ? dto.shallowCopy(false) : dto, HAS_ONE, message.source(), message.interaction());
 		}
-		else
+		else if (message.tag()==FIND_ONE || message.tag()==GET)
+			findOne(message, dto);
+		else if (message.tag()==FIND_ALL || message.tag()==GET_ALL)
+			findAll(message, dto);
+		else if (message.tag()==SET) {
+			if (!((boolean)dto.reserved()) && !hasOne(message, dto))
+				insertOne(message, dto);
+			else
+				replaceOne(message, dto);
+		}
+		else if (message.tag()==INSERT_ONE)
+			insertOne(message, dto);
+		else if (message.tag()==REPLACE_ONE)
+			replaceOne(message, dto);
+		else if (message.tag()==UPDATE_ONE || message.tag()==UPDATE)
+			updateOne(message, dto);
+		else if (message.tag()==DELETE_ONE)
+			deleteOne(message, dto);
+		else if (message.tag()==QUERY_ONE)
+			queryOne(message, dto);
+		else if (message.tag()==QUERY_ALL)
+			queryAll(message, dto);
+		else if (handleMessage(message, dto))
+			;
+		else {
+			unhandled = true;
 			((Actor)dataAccess).unhandled(message);
+		}
+		
+		if (!unhandled) {
+			circuitBreaker.success();
+			onSuccess(message, dto);
+		}
+		else
+			dataAccess.tell(dto, ActorMessage.UNHANDLED, message.source(), message.interaction());
 	}
 }
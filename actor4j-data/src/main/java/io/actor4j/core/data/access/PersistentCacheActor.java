@@ -15,6 +15,13 @@
  */
 package io.actor4j.core.data.access;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
 import io.actor4j.core.actors.ActorWithCache;
 import io.actor4j.core.data.access.cache.AsyncCache;
 import io.actor4j.core.data.access.cache.AsyncCacheLRU;
@@ -28,11 +35,15 @@ import static io.actor4j.core.data.access.DataAccessActor.*;
 import static io.actor4j.core.data.access.AckMode.*;
 
 public class PersistentCacheActor<K, V> extends ActorWithCache<K, V> {
+	protected record GetAllRequest<K, V>(Map<K, V> entries, List<K> misses) {
+	}
+	
 	protected ActorId dataAccess;
 	protected AckMode ackMode;
 	
 	protected AckWatcher<K> getWatcher;
 	protected AckWatcher<K> delWatcher;
+	protected Map<UUID, GetAllRequest<K, V>> getAllRequests; // id -> hits and misses of a pending GET_ALL
 	
 	public PersistentCacheActor(String name, int cacheSize, ActorId dataAccess, AckMode ackMode) {
 		super(name, cacheSize);
@@ -41,6 +52,7 @@ public class PersistentCacheActor<K, V> extends ActorWithCache<K, V> {
 		
 		getWatcher = new AckWatcher<>();
 		delWatcher = new AckWatcher<>();
+		getAllRequests = new HashMap<>();
 	}
 	
 	public PersistentCacheActor(String name, int cacheSize, ActorId dataAcess) {
@@ -85,6 +97,35 @@ public class PersistentCacheActor<K, V> extends ActorWithCache<K, V> {
 							tell(dto, GET, dto.source(), message.interaction());
 					}
 				}
+				else if (message.tag()==GET_ALL) {
+					Map<K, V> entries = new HashMap<>();
+					List<K> misses = new ArrayList<>();
+					for (K key : dto.keys()) {
+						ActorOptional<V> optional = ((AsyncCache<K,V>)cache).get(key, 
+							() -> misses.add(key),
+							() -> misses.add(key), // already loading, but answered within the same reply
+							() -> {} // flagged as deleted, absent
+						);
+						if (optional.isPresent() && optional.get()!=null) {
+							V value = optional.get();
+							if (value instanceof DeepCopyable)
+								value = ((DeepCopyable<V>)value).deepCopy();
+							entries.put(key, value);
+						}
+					}
+					
+					if (misses.isEmpty())
+						tell(dto.shallowCopyWithEntries(entries), GET_ALL, dto.source(), message.interaction());
+					else {
+						// all misses are loaded with a single query
+						getAllRequests.put(dto.id(), new GetAllRequest<>(entries, misses));
+						tell(dto.shallowCopyWithKeys(misses), GET_ALL, dataAccess, message.interaction());
+					}
+				}
+				else if (message.tag()==SET_ALL) {
+					for (Entry<K, V> entry : dto.entries().entrySet())
+						receive(((ActorMessage<PersistentDataAccessDTO<K,V>>)message).shallowCopy(PersistentDTO.create(entry.getKey(), entry.getValue(), dto.context(), dto.source()), SET));
+				}
 				else if (message.tag()==SET) {
 					Object reserved = cache.containsKey(dto.key());
 					cache.put(dto.key(), (V)dto.value());
@@ -105,9 +146,22 @@ public class PersistentCacheActor<K, V> extends ActorWithCache<K, V> {
 				}
 				else if (message.tag()==CLEAR)
 					cache.clear();
+				else if ((message.tag()==FIND_ALL || message.tag()==FIND_NONE) && message.source()==dataAccess && getAllRequests.containsKey(dto.id())) {
+					GetAllRequest<K, V> request = getAllRequests.remove(dto.id());
+					Map<K, V> loaded = message.tag()==FIND_ALL ? dto.entries() : Map.of();
+					for (K key : request.misses()) {
+						V value = loaded.get(key);
+						if (value!=null) {
+							((AsyncCache<K,V>)cache).complete(FIND_ONE, key, value); // loaded values pass the admission of the cache
+							request.entries().put(key, value);
+						}
+						getWatcher.trigger(key, (source, interaction) -> tell(PersistentDTO.create(key, value, dto.context(), source), GET, source, interaction));
+					}
+					tell(dto.shallowCopyWithEntries(request.entries()), GET_ALL, dto.source(), message.interaction());
+				}
 				else if ((message.tag()==FIND_ONE || message.tag()==FIND_NONE) && message.source()==dataAccess) {
 					if (message.tag()==FIND_ONE)
-						cache.put(dto.key(), (V)dto.value());
+						((AsyncCache<K,V>)cache).complete(FIND_ONE, dto.key(), (V)dto.value()); // loaded values pass the admission of the cache
 					tell(dto, GET, dto.source(), message.interaction());
 					getWatcher.trigger(dto.key(), (source, interaction) -> tell(dto.shallowCopy(source), GET, source, interaction));
 				}
@@ -167,6 +221,7 @@ public class PersistentCacheActor<K, V> extends ActorWithCache<K, V> {
 	}
 	
 	public void handleFailure(ActorMessage<?> message, PersistentFailureDTO<K,V> failure) {
+		getAllRequests.remove(failure.dto().id());
 		tell(failure, DataAccessActor.FAILURE, failure.dto().source(), message.interaction());
 	}
 }
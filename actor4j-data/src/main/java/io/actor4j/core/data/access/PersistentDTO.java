@@ -15,6 +15,10 @@
  */
 package io.actor4j.core.data.access;
 
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 import io.actor4j.core.id.ActorId;
 
 public interface PersistentDTO<K, V> extends VolatileDTO<K, V> {
@@ -51,4 +55,14 @@ public interface PersistentDTO<K, V> extends VolatileDTO<K, V> {
 	public static <K, V> PersistentDataAccessDTO<K, V> create(K key, V value, PersistentContext context, ActorId source, boolean cacheHit) {
 		return new PersistentDataAccessDTO<K, V>(key, value, 0, context, source, cacheHit);
 	}
+	
+	// Multi-key request (GET_ALL), the keys are carried as value
+	public static <K, V> PersistentDataAccessDTO<K, V> createWithKeys(List<K> keys, PersistentContext context, ActorId source) {
+		return new PersistentDataAccessDTO<K, V>(UUID.randomUUID(), false, null, keys, 0, context, source, null);
+	}
+	
+	// Multi-key request (SET_ALL), the entries are carried as value
+	public static <K, V> PersistentDataAccessDTO<K, V> createWithEntries(Map<K, V> entries, PersistentContext context, ActorId source) {
+		return new PersistentDataAccessDTO<K, V>(UUID.randomUUID(), false, null, entries, 0, context, source, null);
+	}
 }
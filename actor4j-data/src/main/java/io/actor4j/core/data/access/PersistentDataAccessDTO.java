@@ -16,6 +16,7 @@
 package io.actor4j.core.data.access;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import io.actor4j.core.id.ActorId;
@@ -68,6 +69,14 @@ public record PersistentDataAccessDTO<K, V>(UUID id, boolean keyExists, K key, O
 		return new PersistentDataAccessDTO<K, V>(id, true, key, entities, hashCodeExpected, context, source, reserved);
 	}
 	
+	public PersistentDataAccessDTO<K, V> shallowCopyWithKeys(List<K> keys) {
+		return new PersistentDataAccessDTO<K, V>(id, keyExists, key, keys, hashCodeExpected, context, source, reserved);
+	}
+	
+	public PersistentDataAccessDTO<K, V> shallowCopyWithEntries(Map<K, V> entries) {
+		return new PersistentDataAccessDTO<K, V>(id, keyExists, key, entries, hashCodeExpected, context, source, reserved);
+	}
+	
 	public PersistentDataAccessDTO<K, V> shallowCopy(K key, V value) {
 		// Presume keyExists=true
 		return new PersistentDataAccessDTO<K, V>(id, true, key, value, hashCodeExpected, context, source, reserved);
@@ -98,4 +107,14 @@ public record PersistentDataAccessDTO<K, V>(UUID id, boolean keyExists, K key, O
 	public List<V> entities() {
 		return (List<V>)value;
 	}
+	
+	@SuppressWarnings("unchecked")
+	public List<K> keys() {
+		return (List<K>)value;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public Map<K, V> entries() {
+		return (Map<K, V>)value;
+	}
 }
@@ -15,6 +15,8 @@
  */
 package io.actor4j.core.data.access;
 
+import io.actor4j.cache.ExpiryPolicy;
+import io.actor4j.cache.Weigher;
 import io.actor4j.core.actors.ActorWithCache;
 import io.actor4j.core.actors.PrimaryActor;
 import io.actor4j.core.data.access.cache.AsyncCache;
@@ -27,6 +29,12 @@ import io.actor4j.core.utils.ActorOptional;
 import io.actor4j.core.utils.Cache;
 import io.actor4j.core.utils.DeepCopyable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
 import java.util.function.Function;
 
 import static io.actor4j.core.actors.ActorWithCache.*;
@@ -35,6 +43,9 @@ import static io.actor4j.core.data.access.AckMode.PRIMARY;
 import static io.actor4j.core.data.access.DataAccessActor.*;
 
 public class PrimaryPersistentCacheActor<K, V> extends PrimaryActor {
+	protected record GetAllRequest<K, V>(Map<K, V> entries, List<K> misses) {
+	}
+	
 	protected int cacheSize;
 	protected Cache<K, V> cache;
 	
@@ -43,22 +54,33 @@ public class PrimaryPersistentCacheActor<K, V> extends PrimaryActor {
 	
 	protected AckWatcher<K> getWatcher;
 	protected AckWatcher<K> delWatcher;
+	protected Map<UUID, GetAllRequest<K, V>> getAllRequests; // id -> hits and misses of a pending GET_ALL
 	
 	public PrimaryPersistentCacheActor(ActorGroup group, String alias, Function<ActorId, ActorFactory> secondary, int instances, int cacheSize, ActorId dataAccess, AckMode ackMode) {
 		this(null, group, alias, secondary, instances, cacheSize, dataAccess, ackMode);
 	}
 
 	public PrimaryPersistentCacheActor(String name, ActorGroup group, String alias, Function<ActorId, ActorFactory> secondary, int instances, int cacheSize, ActorId dataAccess, AckMode ackMode) {
+		this(name, group, alias, secondary, instances, cacheSize, 0, null, dataAccess, ackMode);
+	}
+	
+	public PrimaryPersistentCacheActor(String name, ActorGroup group, String alias, Function<ActorId, ActorFactory> secondary, int instances, long maximumWeight, Weigher<K, V> weigher, ActorId dataAccess, AckMode ackMode) {
+		this(name, group, alias, secondary, instances, Integer.MAX_VALUE, maximumWeight, weigher, dataAccess, ackMode);
+	}
+	
+	// Bounded by entry count and, if a weigher is given, by the total weight of all entries
+	public PrimaryPersistentCacheActor(String name, ActorGroup group, String alias, Function<ActorId, ActorFactory> secondary, int instances, int cacheSize, long maximumWeight, Weigher<K, V> weigher, ActorId dataAccess, AckMode ackMode) {
 		super(name, group, alias, secondary, instances);
 		
 		this.cacheSize = cacheSize;
-		cache = new AsyncCacheVolatileLRU<>(cacheSize);
+		cache = new AsyncCacheVolatileLRU<>(cacheSize, maximumWeight, weigher, 0, ExpiryPolicy.EXPIRE_AFTER_ACCESS);
 		
 		this.dataAccess = dataAccess;
 		this.ackMode = ackMode;
 		
 		getWatcher = new AckWatcher<>();
 		delWatcher = new AckWatcher<>();
+		getAllRequests = new HashMap<>();
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -86,6 +108,35 @@ public class PrimaryPersistentCacheActor<K, V> extends PrimaryActor {
 							tell(dto, GET, dto.source(), message.interaction());
 					}
 				}
+				else if (message.tag()==GET_ALL) {
+					Map<K, V> entries = new HashMap<>();
+					List<K> misses = new ArrayList<>();
+					for (K key : dto.keys()) {
+						ActorOptional<V> optional = ((AsyncCache<K,V>)cache).get(key, 
+							() -> misses.add(key),
+							() -> misses.add(key), // already loading, but answered within the same reply
+							() -> {} // flagged as deleted, absent
+						);
+						if (optional.isPresent() && optional.get()!=null) {
+							V value = optional.get();
+							if (value instanceof DeepCopyable)
+								value = ((DeepCopyable<V>)value).deepCopy();
+							entries.put(key, value);
+						}
+					}
+					
+					if (misses.isEmpty())
+						tell(dto.shallowCopyWithEntries(entries), GET_ALL, dto.source(), message.interaction());
+					else {
+						// all misses are loaded with a single query
+						getAllRequests.put(dto.id(), new GetAllRequest<>(entries, misses));
+						tell(dto.shallowCopyWithKeys(misses), GET_ALL, dataAccess, message.interaction());
+					}
+				}
+				else if (message.tag()==SET_ALL) {
+					for (Entry<K, V> entry : dto.entries().entrySet())
+						receive(((ActorMessage<PersistentDataAccessDTO<K,V>>)message).shallowCopy(PersistentDTO.create(entry.getKey(), entry.getValue(), dto.context(), dto.source()), SET));
+				}
 				else if (message.tag()==SET) {
 					Object reserved = cache.containsKey(dto.key());
 					cache.put(dto.key(), (V)dto.value());
@@ -114,6 +165,21 @@ public class PrimaryPersistentCacheActor<K, V> extends PrimaryActor {
 					cache.clear();
 					publish(VolatileDTO.create(dto.source()), CLEAR);
 				}
+				else if ((message.tag()==FIND_ALL || message.tag()==FIND_NONE) && message.source()==dataAccess && getAllRequests.containsKey(dto.id())) {
+					GetAllRequest<K, V> request = getAllRequests.remove(dto.id());
+					Map<K, V> loaded = message.tag()==FIND_ALL ? dto.entries() : Map.of();
+					for (K key : request.misses()) {
+						V value = loaded.get(key);
+						if (value!=null) {
+							cache.put(key, value);
+							request.entries().put(key, value);
+						}
+						getWatcher.trigger(key, (source, interaction) -> tell(PersistentDTO.create(key, value, dto.context(), source), GET, source, interaction));
+						if (value!=null)
+							publish(VolatileDTO.create(key, value, dto.source()), SET);
+					}
+					tell(dto.shallowCopyWithEntries(request.entries()), GET_ALL, dto.source(), message.interaction());
+				}
 				else if ((message.tag()==FIND_ONE || message.tag()==FIND_NONE) && message.source()==dataAccess) {
 					if (message.tag()==FIND_ONE)
 						cache.put(dto.key(), (V)dto.value());
@@ -183,6 +249,7 @@ public class PrimaryPersistentCacheActor<K, V> extends PrimaryActor {
 	}
 	
 	public void handleFailure(ActorMessage<?> message, PersistentFailureDTO<K,V> failure) {
+		getAllRequests.remove(failure.dto().id());
 		tell(failure, DataAccessActor.FAILURE, failure.dto().source(), message.interaction());
 	}
 }
@@ -15,11 +15,16 @@
  */
 package io.actor4j.core.data.access;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import io.actor4j.core.actors.SecondaryActor;
+import io.actor4j.core.data.access.cache.AsyncCache;
 import io.actor4j.core.data.access.cache.AsyncCacheVolatileLRU;
 import io.actor4j.core.id.ActorId;
 import io.actor4j.core.messages.ActorMessage;
 import io.actor4j.core.utils.ActorGroup;
+import io.actor4j.core.utils.ActorOptional;
 import io.actor4j.core.utils.Cache;
 import io.actor4j.core.utils.DeepCopyable;
 
@@ -40,6 +45,14 @@ public class SecondaryPersistentCacheActor<K, V> extends SecondaryActor {
 		cache = new AsyncCacheVolatileLRU<>(cacheSize);
 	}
 	
+	// Misses are not loaded here, they are answered by the primary
+	@SuppressWarnings("unchecked")
+	protected V getLocal(K key) {
+		ActorOptional<V> optional = ((AsyncCache<K,V>)cache).get(key, () -> {}, () -> {}, () -> {});
+		
+		return optional.isPresent() ? optional.get() : null;
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	public void receive(ActorMessage<?> message) {
@@ -49,7 +62,7 @@ public class SecondaryPersistentCacheActor<K, V> extends SecondaryActor {
 			try {
 				boolean unhandled = false;
 				if (message.tag()==GET) {
-					V value = cache.get(dto.key());
+					V value = getLocal(dto.key());
 					if (value!=null) {
 						if (value instanceof DeepCopyable)
 							value = ((DeepCopyable<V>)value).deepCopy();
@@ -58,7 +71,24 @@ public class SecondaryPersistentCacheActor<K, V> extends SecondaryActor {
 					else
 						publish(message);
 				}
+				else if (message.tag()==GET_ALL) {
+					Map<K, V> entries = new HashMap<>();
+					for (K key : dto.keys()) {
+						V value = getLocal(key);
+						if (value==null)
+							break;
+						if (value instanceof DeepCopyable)
+							value = ((DeepCopyable<V>)value).deepCopy();
+						entries.put(key, value);
+					}
+					
+					if (entries.size()==dto.keys().size())
+						tell(dto.shallowCopyWithEntries(entries), GET_ALL, dto.source(), message.interaction());
+					else
+						publish(message);
+				}
 				else if (message.tag()==SET || 
+						 message.tag()==SET_ALL || 
 						 message.tag()==UPDATE ||
 					     message.tag()==DEL ||
 					     message.tag()==DEL_ALL || 
@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import io.actor4j.cache.Weigher;
 import io.actor4j.core.actors.ActorWithCache;
 import io.actor4j.core.data.access.DataAccessActor;
 import io.actor4j.core.utils.ActorOptional;
@@ -40,17 +41,33 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 	protected final Set<K> cacheDel;
 
 	protected final int size;
+	
+	protected final long maximumWeight;
+	protected final Weigher<K, V> weigher; // null, if bounded by entry count only
+	protected long weight;
 
 	public AsyncCacheLRU(int size) {
+		this(size, 0, null);
+	}
+	
+	public AsyncCacheLRU(long maximumWeight, Weigher<K, V> weigher) {
+		this(Integer.MAX_VALUE, maximumWeight, weigher);
+	}
+	
+	// Bounded by entry count and, if a weigher is given, by the total weight of all entries
+	public AsyncCacheLRU(int size, long maximumWeight, Weigher<K, V> weigher) {
 		super();
 		
-		map = new HashMap<>(size);
-		lru = new ArrayDeque<>(size);
+		int initialCapacity = weigher!=null ? 16 : size;
+		map = new HashMap<>(initialCapacity);
+		lru = new ArrayDeque<>(initialCapacity);
 		cacheMiss = new HashSet<>();
 		cacheDirty = new HashSet<>();
 		cacheDel = new HashSet<>();
 		
 		this.size = size;
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
 	}
 	
 	public Map<K, V> getMap() {
@@ -65,6 +82,15 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 		return size;
 	}
 	
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+	
+	// Current total weight of all cached entries, zero if no weigher is used
+	public long weight() {
+		return weight;
+	}
+	
 	@Override
 	public boolean containsKey(K key) {
 		return map.containsKey(key);
@@ -104,6 +130,7 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 		V oldValue = map.putIfAbsent(key, value);
 		
 		if (oldValue==null) {
+			weigh(key, null, value);
 			resize();
 			lru.addLast(key);
 			cacheMiss.remove(key);
@@ -115,6 +142,7 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 		V result = null;
 		
 		result = map.put(key, value);
+		weigh(key, result, value);
 		
 		if (result==null) {
 			resize();
@@ -123,6 +151,8 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 		else {
 			lru.remove(key);
 			lru.addLast(key);
+			if (weigher!=null)
+				resize();
 		}
 		
 		
@@ -144,7 +174,7 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 	// used with update
 	@Override
 	public void remove(K key) {
-		map.remove(key);
+		weigh(key, map.remove(key), null);
 		lru.remove(key);
 
 		if (!cacheDel.contains(key)) {
@@ -156,7 +186,7 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 	
 	@Override
 	public void remove(K key, Runnable storageWriter, Runnable cacheDelFlaggedHandler) {
-		map.remove(key);
+		weigh(key, map.remove(key), null);
 		lru.remove(key);
 
 		if (!cacheDel.contains(key)) {
@@ -178,15 +208,30 @@ public class AsyncCacheLRU<K, V> implements AsyncCache<K, V> {
 	public void clear() {
 		map.clear();
 		lru.clear();
+		weight = 0;
 		cacheMiss.clear();
 		cacheDirty.clear();
 		cacheDel.clear();
 	}
 	
 	protected void resize() {
-		if (map.size()>size) {
-			map.remove(lru.getFirst());
-			lru.removeFirst();
+		while ((map.size()>size || (weigher!=null && weight>maximumWeight)) && !lru.isEmpty()) {
+			K key = lru.removeFirst();
+			weigh(key, map.remove(key), null);
+		}
+	}
+	
+	// Returns true, if adding the entry would exceed the entry count or the maximum weight
+	protected boolean exceedsCapacity(K key, V value) {
+		return map.size()>=size || (weigher!=null && value!=null && weight+weigher.weigh(key, value)>maximumWeight);
+	}
+	
+	protected void weigh(K key, V oldValue, V newValue) {
+		if (weigher!=null) {
+			if (oldValue!=null)
+				weight -= weigher.weigh(key, oldValue);
+			if (newValue!=null)
+				weight += weigher.weigh(key, newValue);
 		}
 	}
 	
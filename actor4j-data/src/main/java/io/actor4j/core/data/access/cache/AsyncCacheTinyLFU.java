@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.cache;
+
+import io.actor4j.cache.Weigher;
+import io.actor4j.core.utils.ActorOptional;
+
+/**
+ * LRU cache with a TinyLFU admission filter.
+ * 
+ * Accesses (hits and misses) are recorded in a frequency sketch. A value loaded from the storage
+ * into a full cache is only admitted, if its key was accessed more frequently than the least recently
+ * used key, which otherwise would be evicted. Thus a burst of cold keys does not flush the working set.
+ * Explicitly written values are always admitted.
+ */
+public class AsyncCacheTinyLFU<K, V> extends AsyncCacheLRU<K, V> {
+	protected final FrequencySketch<K> sketch;
+	
+	public AsyncCacheTinyLFU(int size) {
+		super(size);
+		
+		sketch = new FrequencySketch<>(size);
+	}
+	
+	// sampleSize is the expected number of entries, used for sizing the sketch
+	public AsyncCacheTinyLFU(int sampleSize, long maximumWeight, Weigher<K, V> weigher) {
+		super(Integer.MAX_VALUE, maximumWeight, weigher);
+		
+		sketch = new FrequencySketch<>(sampleSize);
+	}
+	
+	public FrequencySketch<K> getSketch() {
+		return sketch;
+	}
+	
+	@Override
+	public ActorOptional<V> get(K key, Runnable storageReader, Runnable cacheMissFlaggedHandler, Runnable cacheDelFlaggedHandler) {
+		sketch.increment(key);
+		
+		return super.get(key, storageReader, cacheMissFlaggedHandler, cacheDelFlaggedHandler);
+	}
+	
+	@Override
+	protected void putIfAbsentLocal(K key, V value) {
+		if (!map.containsKey(key) && exceedsCapacity(key, value) && !admit(key)) {
+			cacheMiss.remove(key);
+			return;
+		}
+		
+		super.putIfAbsentLocal(key, value);
+	}
+	
+	protected boolean admit(K candidate) {
+		K victim = lru.peekFirst();
+		
+		return victim==null || sketch.frequency(candidate)>sketch.frequency(victim);
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		sketch.clear();
+	}
+	
+	@Override
+	public String toString() {
+		return "AsyncCacheTinyLFU [map=" + map + ", lru=" + lru + ", size=" + size + "]";
+	}
+}
@@ -18,61 +18,103 @@ package io.actor4j.core.data.access.cache;
 import static io.actor4j.core.actors.ActorWithCache.UPDATE;
 import static io.actor4j.core.data.access.DataAccessActor.INSERT_ONE;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import io.actor4j.cache.ExpiryPolicy;
+import io.actor4j.cache.Weigher;
+import io.actor4j.cache.runtime.TimerWheel;
 import io.actor4j.core.actors.ActorWithCache;
 import io.actor4j.core.data.access.DataAccessActor;
 import io.actor4j.core.utils.ActorOptional;
 
-import java.util.SortedMap;
-import java.util.TreeMap;
-
 public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
-	protected static record Pair<V>(V value, long timestamp) {
-		public static <V> Pair<V> of(V value, long timestamp) {
-			return new Pair<V>(value, timestamp);
+	protected static record Pair<V>(V value, long timestamp, long expiration) {
+		public static <V> Pair<V> of(V value, long timestamp, long expiration) {
+			return new Pair<V>(value, timestamp, expiration);
 		}
 	}
 	
 	protected final Map<K, Pair<V>> map;
-	protected final SortedMap<Long, K> lru;
+	protected final LinkedHashSet<K> lru; // least recently used first
 	protected final Set<K> cacheMiss;
 	protected final Set<K> cacheDirty;
 	protected final Set<K> cacheDel;
 	
 	protected final int size;
+	
+	protected final long maximumWeight;
+	protected final Weigher<K, V> weigher; // null, if bounded by entry count only
+	protected long weight;
+	
+	protected final long duration; // time to live in nanoseconds, zero means no expiration
+	protected final ExpiryPolicy expiryPolicy;
+	protected final TimerWheel<K> timerWheel;
 
 	public AsyncCacheVolatileLRU(int size) {
+		this(size, 0, ExpiryPolicy.EXPIRE_AFTER_ACCESS);
+	}
+	
+	// duration in milliseconds
+	public AsyncCacheVolatileLRU(int size, long duration, ExpiryPolicy expiryPolicy) {
+		this(size, 0, null, duration, expiryPolicy);
+	}
+	
+	public AsyncCacheVolatileLRU(long maximumWeight, Weigher<K, V> weigher) {
+		this(Integer.MAX_VALUE, maximumWeight, weigher, 0, ExpiryPolicy.EXPIRE_AFTER_ACCESS);
+	}
+	
+	// Bounded by entry count and, if a weigher is given, by the total weight of all entries
+	public AsyncCacheVolatileLRU(int size, long maximumWeight, Weigher<K, V> weigher, long duration, ExpiryPolicy expiryPolicy) {
 		super();
 		
-		map = new HashMap<>(size);
-		lru = new TreeMap<>();
+		int initialCapacity = weigher!=null ? 16 : size;
+		map = new HashMap<>(initialCapacity);
+		lru = new LinkedHashSet<>(initialCapacity);
 		cacheMiss = new HashSet<>();
 		cacheDirty = new HashSet<>();
 		cacheDel = new HashSet<>();
 		
 		this.size = size;
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.duration = duration*1_000_000;
+		this.expiryPolicy = expiryPolicy;
+		timerWheel = duration>0 ? new TimerWheel<>(System.nanoTime()) : null;
 	}
 		
 	public Map<K, Pair<V>> getMap() {
 		return map;
 	}
 	
-	public SortedMap<Long, K> getLru() {
+	public LinkedHashSet<K> getLru() {
 		return lru;
 	}
 	
 	public int size() {
 		return size;
 	}
+	
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+	
+	// Current total weight of all cached entries, zero if no weigher is used
+	public long weight() {
+		return weight;
+	}
+	
+	public ExpiryPolicy getExpiryPolicy() {
+		return expiryPolicy;
+	}
 
 	@Override
 	public boolean containsKey(K key) {
@@ -87,7 +129,14 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 	
 	@Override
 	public ActorOptional<V> get(K key, Runnable storageReader, Runnable cacheMissFlaggedHandler, Runnable cacheDelFlaggedHandler) {
+		long timestamp = System.nanoTime();
+		expire(timestamp);
+		
 		Pair<V> pair = map.get(key);
+		if (pair!=null && isExpired(pair, timestamp) && !cacheDirty.contains(key)) {
+			expireLocal(key);
+			pair = null;
+		}
 		
 		if (pair==null) {
 			if (!cacheMiss.contains(key) && !cacheDel.contains(key)) {
@@ -102,10 +151,10 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 			return ActorOptional.none();
 		}
 		else {
-			lru.remove(pair.timestamp());
-			long timestamp = System.nanoTime();
-			map.put(key, new Pair<V>(pair.value(), timestamp));
-			lru.put(timestamp, key);
+			lru.remove(key);
+			lru.add(key);
+			long expiration = expiryPolicy==ExpiryPolicy.EXPIRE_AFTER_ACCESS && duration>0 ? timestamp+duration : pair.expiration();
+			map.put(key, Pair.of(pair.value(), timestamp, expiration)); // same value, same weight
 			
 			return ActorOptional.of(pair.value());
 		}
@@ -113,11 +162,14 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 	
 	protected void putIfAbsentLocal(K key, V value) {
 		long timestamp = System.nanoTime();
-		Pair<V> oldPair = map.putIfAbsent(key, Pair.of(value, timestamp));
+		Pair<V> pair = createPair(value, timestamp);
+		Pair<V> oldPair = map.putIfAbsent(key, pair);
 		
 		if (oldPair==null) {
+			weigh(key, null, value);
+			schedule(key, pair);
 			resize();
-			lru.put(timestamp, key);
+			lru.add(key);
 			cacheMiss.remove(key);
 		}
 	}
@@ -127,20 +179,28 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 		V result = null;
 		
 		long timestamp = System.nanoTime();
-		Pair<V> pair = map.put(key, new Pair<V>(value, timestamp));
+		expire(timestamp);
+		
+		Pair<V> newPair = createPair(value, timestamp);
+		Pair<V> pair = map.put(key, newPair);
+		weigh(key, pair!=null ? pair.value() : null, value);
 		
 		if (pair==null) {
+			schedule(key, newPair);
 			resize();
-			lru.put(timestamp, key);
+			lru.add(key);
 		}
 		else {
-			lru.remove(pair.timestamp);
-			lru.put(timestamp, key);
+			lru.remove(key);
+			lru.add(key);
 			result = pair.value;
+			if (weigher!=null)
+				resize();
 		}
 		
 		if (cacheDel.contains(key))
 			cacheDel.remove(key);
+		cacheMiss.remove(key); // present now
 		cacheDirty.add(key);
 		
 		return result;
@@ -165,10 +225,8 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 	
 	@Override
 	public void remove(K key, Runnable storageWriter, Runnable cacheDelFlaggedHandler) {
-		Pair<V> pair = map.get(key);
-		lru.remove(pair.timestamp);
-		map.remove(key);
-		
+		lru.remove(key);
+		removeEntry(key);
 		
 		if (!cacheDel.contains(key)) {
 			if (cacheDirty.contains(key))
@@ -189,30 +247,102 @@ public class AsyncCacheVolatileLRU<K, V> implements AsyncCache<K, V>  {
 	public void clear() {
 		map.clear();
 		lru.clear();
+		weight = 0;
+		if (timerWheel!=null)
+			timerWheel.clear();
 		cacheMiss.clear();
 		cacheDirty.clear();
 		cacheDel.clear();
 	}
 	
 	protected void resize() {
-		if (map.size()>size) {
-			long timestamp = lru.firstKey();
-			map.remove(lru.get(timestamp));
-			lru.remove(timestamp);
+		Iterator<K> iterator = lru.iterator();
+		while ((map.size()>size || (weigher!=null && weight>maximumWeight)) && iterator.hasNext()) {
+			K key = iterator.next();
+			iterator.remove();
+			removeEntry(key);
+		}
+	}
+	
+	// Removes the entry from the map and the timer wheel, but not from the access order
+	protected void removeEntry(K key) {
+		Pair<V> pair = map.remove(key);
+		if (pair!=null) {
+			weigh(key, pair.value(), null);
+			if (timerWheel!=null)
+				timerWheel.deschedule(key);
+		}
+	}
+	
+	protected void weigh(K key, V oldValue, V newValue) {
+		if (weigher!=null) {
+			if (oldValue!=null)
+				weight -= weigher.weigh(key, oldValue);
+			if (newValue!=null)
+				weight += weigher.weigh(key, newValue);
+		}
+	}
+	
+	protected Pair<V> createPair(V value, long timestamp) {
+		return Pair.of(value, timestamp, duration>0 ? timestamp+duration : 0);
+	}
+	
+	protected boolean isExpired(Pair<V> pair, long currentTime) {
+		return duration>0 && currentTime-pair.expiration()>=0;
+	}
+	
+	protected void schedule(K key, Pair<V> pair) {
+		if (timerWheel!=null)
+			timerWheel.schedule(key, pair.expiration());
+	}
+	
+	/**
+	 * Advances the timer wheel, keys that were accessed or updated in the meantime are rescheduled.
+	 */
+	protected void expire(long currentTime) {
+		if (timerWheel==null)
+			return;
+		
+		List<K> expiredKeys = new ArrayList<>();
+		timerWheel.advance(currentTime, expiredKeys::add);
+		
+		for (K key : expiredKeys) {
+			Pair<V> pair = map.get(key);
+			if (pair!=null) {
+				if (cacheDirty.contains(key))
+					timerWheel.schedule(key, currentTime+duration); // retry after the write completed
+				else if (isExpired(pair, currentTime)) {
+					lru.remove(key);
+					map.remove(key);
+					weigh(key, pair.value(), null);
+				}
+				else
+					timerWheel.schedule(key, pair.expiration());
+			}
 		}
 	}
 	
+	protected void expireLocal(K key) {
+		lru.remove(key);
+		removeEntry(key);
+	}
+	
 	@Override
 	public void evict(long duration) {
 		long currentTime = System.nanoTime();
+		expire(currentTime);
 		
-		Iterator<Entry<Long, K>> iterator = lru.entrySet().iterator();
+		// access ordered, the iteration stops at the first entry that is recent enough
+		Iterator<K> iterator = lru.iterator();
 		while (iterator.hasNext()) {
-			Entry<Long, K> entry = iterator.next();
-			if (currentTime-entry.getKey()/1_000_000>duration) {
-				map.remove(entry.getValue());
+			K key = iterator.next();
+			Pair<V> pair = map.get(key);
+			if ((currentTime-pair.timestamp())/1_000_000>duration) {
 				iterator.remove();
+				removeEntry(key);
 			}
+			else
+				break;
 		}
 	}
 	
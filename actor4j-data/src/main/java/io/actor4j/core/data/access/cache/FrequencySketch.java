@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.cache;
+
+/**
+ * A count-min sketch with 4-bit counters for estimating the access frequency of keys (not thread-safe).
+ * 
+ * Each key is counted in four rows, the estimate is the minimum of its four counters. After a sample
+ * of ten times the maximum size was recorded, all counters are halved (aging), so that the sketch
+ * follows changes of the working set.
+ *
+ * @param <K> the type of the keys
+ */
+public final class FrequencySketch<K> {
+	private static final long[] SEEDS = {
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+	
+	private final long[] table; // sixteen 4-bit counters per slot
+	private final int tableMask;
+	private final int sampleSize;
+	private int size;
+	
+	public FrequencySketch(int maximumSize) {
+		super();
+		
+		int capacity = 8;
+		while (capacity<maximumSize)
+			capacity <<= 1;
+		table = new long[capacity];
+		tableMask = capacity-1;
+		sampleSize = 10*Math.max(maximumSize, 1);
+	}
+	
+	/**
+	 * Returns the estimated number of accesses of the key (at most 15).
+	 */
+	public int frequency(K key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int result = Integer.MAX_VALUE;
+		for (int i=0; i<4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int)((table[index] >>> ((start+i) << 2)) & 0xFL);
+			result = Math.min(result, count);
+		}
+		
+		return result;
+	}
+	
+	public void increment(K key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i=0; i<4; i++)
+			added |= incrementAt(indexOf(hash, i), start+i);
+		
+		if (added && ++size==sampleSize)
+			reset();
+	}
+	
+	public void clear() {
+		for (int i=0; i<table.length; i++)
+			table[i] = 0;
+		size = 0;
+	}
+	
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xFL << offset;
+		if ((table[index] & mask)!=mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		
+		return false;
+	}
+	
+	// halves all counters, the odd counters lose their remainder
+	private void reset() {
+		int count = 0;
+		for (int i=0; i<table.length; i++) {
+			count += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size-(count >>> 2)) >>> 1;
+	}
+	
+	private int indexOf(int hash, int i) {
+		long result = (hash+SEEDS[i])*SEEDS[i];
+		result += result >>> 32;
+		
+		return ((int)result) & tableMask;
+	}
+	
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x)*0x45d9f3b;
+		x = ((x >>> 16) ^ x)*0x45d9f3b;
+		
+		return (x >>> 16) ^ x;
+	}
+}
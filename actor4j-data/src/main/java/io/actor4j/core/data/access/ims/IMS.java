@@ -15,21 +15,38 @@
  */
 package io.actor4j.core.data.access.ims;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
 
 // In-Memory Storage (IMS) with Multi-Index-Support
 public class IMS<K, V> {
 	protected final Map<K, V> data;
 	protected final Map<String, IMSIndex<K, V>> indexMap;
+	protected IMSWriteAheadLog<K, V> writeAheadLog; // optional
 
-	public IMS() {
-		data = new HashMap<>();
+	public IMS(Map<K, V> data) {
+		this.data = data;
 		indexMap = new HashMap<>();
 	}
 	
+	public IMS() {
+		this(new HashMap<>());
+	}
+	
+	// IMS over long primary keys, with an open addressing map of primitive keys
+	public static <V> IMS<Long, V> ofLongKeys() {
+		return new IMS<>(new LongHashMap<>());
+	}
+	
 	public Map<K, V> getData() {
 		return data;
 	}
@@ -37,47 +54,141 @@ public class IMS<K, V> {
 	public Map<String, IMSIndex<K, V>> getIndexMap() {
 		return indexMap;
 	}
+	
+	public IMSWriteAheadLog<K, V> getWriteAheadLog() {
+		return writeAheadLog;
+	}
+
+	// Logs the changes of put and remove, before they are applied
+	public void setWriteAheadLog(IMSWriteAheadLog<K, V> writeAheadLog) {
+		this.writeAheadLog = writeAheadLog;
+	}
 
 	public void create(IMSIndex<K, V> indexObject) {
 		indexObject.idxMap = indexObject.idxCreate.apply(data);
 	}
 	
+	// (Re)builds all indexes from the data
+	public void create() {
+		for (IMSIndex<K, V> indexObject : indexMap.values())
+			if (indexObject.idxCreate!=null)
+				create(indexObject);
+	}
+	
 	public void add(IMSIndex<K, V> indexObject) {
 		indexMap.put(indexObject.name, indexObject);
 	}
 	
 	public void put(K key, V value, IMSIndex<K, V> indexObject) {
-		data.put(key, value);
-		if (indexObject.insertToIdx!=null)
+		if (writeAheadLog!=null)
+			writeAheadLog.put(key, value);
+		V oldValue = data.put(key, value);
+		if (oldValue!=null)
+			indexObject.updateInIdx(key, oldValue, value);
+		else if (indexObject.insertToIdx!=null)
 			indexObject.insertToIdx.accept(key, value);
 	}
 	
 	public void remove(K key, IMSIndex<K, V> indexObject) {
-		if (indexObject.removeFromIdx!=null)
-			indexObject.removeFromIdx.accept(key, data.get(key));
-		
-		data.remove(key);
+		if (writeAheadLog!=null)
+			writeAheadLog.remove(key);
+		V oldValue = data.remove(key);
+		if (oldValue!=null && indexObject.removeFromIdx!=null)
+			indexObject.removeFromIdx.accept(key, oldValue);
 	}
 	
 	public void put(K key, V value) {
-		data.put(key, value);
+		if (writeAheadLog!=null)
+			writeAheadLog.put(key, value);
+		V oldValue = data.put(key, value);
 		
 		Iterator<Entry<String, IMSIndex<K, V>>> iterator = indexMap.entrySet().iterator();
 		while (iterator.hasNext()) {
 			Entry<String, IMSIndex<K, V>> entry = iterator.next();
-			if (entry.getValue().insertToIdx!=null)
+			if (oldValue!=null)
+				entry.getValue().updateInIdx(key, oldValue, value);
+			else if (entry.getValue().insertToIdx!=null)
 				entry.getValue().insertToIdx.accept(key, value);
 		}
 	}
 	
 	public void remove(K key) {
-		Iterator<Entry<String, IMSIndex<K, V>>> iterator = indexMap.entrySet().iterator();
-		while (iterator.hasNext()) {
-			Entry<String, IMSIndex<K, V>> entry = iterator.next();
-			if (entry.getValue().removeFromIdx!=null)
-				entry.getValue().removeFromIdx.accept(key, data.get(key));
+		if (writeAheadLog!=null)
+			writeAheadLog.remove(key);
+		V oldValue = data.remove(key);
+		
+		if (oldValue!=null) {
+			Iterator<Entry<String, IMSIndex<K, V>>> iterator = indexMap.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<String, IMSIndex<K, V>> entry = iterator.next();
+				if (entry.getValue().removeFromIdx!=null)
+					entry.getValue().removeFromIdx.accept(key, oldValue);
+			}
 		}
+	}
+	
+	// Returns the values matching the query
+	public Stream<V> find(IMSQuery query) {
+		Stream<V> result = null;
+		
+		if (query.operator()==IMSQuery.Operator.EQ && index(query).idxGet!=null)
+			result = index(query).idxGet.apply(data, query.key());
+		else
+			result = keysOf(query).stream().map(data::get);
+		
+		return result;
+	}
+	
+	// Returns the primary keys matching the query, for EQ a read-only view of the index
+	public Set<K> keys(IMSQuery query) {
+		Set<K> result = keysOf(query);
+		
+		return query.operator()==IMSQuery.Operator.EQ ? Collections.unmodifiableSet(result) : result;
+	}
+	
+	// For EQ the set of the index itself (not copied), must not be modified
+	protected Set<K> keysOf(IMSQuery query) {
+		Set<K> result = null;
+		
+		if (query.operator()==IMSQuery.Operator.EQ)
+			result = index(query).keys(query.key());
+		else if (query.operator()==IMSQuery.Operator.RANGE)
+			result = index(query).keys(query.key(), query.toKey());
+		else if (query.operator()==IMSQuery.Operator.AND) {
+			List<Set<K>> sets = new ArrayList<>(query.queries().size());
+			for (IMSQuery subQuery : query.queries())
+				sets.add(keysOf(subQuery));
+			
+			if (!sets.isEmpty()) {
+				// starts with the smallest set, to keep the intersection cheap
+				sets.sort(Comparator.comparingInt(Set::size));
+				result = copy(sets.get(0));
+				for (int i=1; i<sets.size() && !result.isEmpty(); i++)
+					result.retainAll(sets.get(i));
+			}
+			else
+				result = Collections.emptySet();
+		}
+		
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected Set<K> copy(Set<K> set) {
+		Set<K> result = null;
+		if (set instanceof LongBitmapSet bitmapSet)
+			result = (Set<K>)new LongBitmapSet(bitmapSet);
+		else
+			result = new HashSet<>(set);
+		
+		return result;
+	}
+	
+	protected IMSIndex<K, V> index(IMSQuery query) {
+		IMSIndex<K, V> result = indexMap.get(query.indexName());
+		if (result==null)
+			throw new IllegalArgumentException("Unknown index: "+query.indexName());
 		
-		data.remove(key);
+		return result;
 	}
 }
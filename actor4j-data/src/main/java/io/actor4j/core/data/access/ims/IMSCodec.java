@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes keys and values of the IMS for snapshots and the write-ahead log.
+ *
+ * {@code encode} writes at the position of the buffer and throws a {@link BufferOverflowException},
+ * if the buffer is too small (it is then retried with a larger buffer). {@code decode} reads from
+ * the position to the limit and must not keep a reference to the buffer (it may be memory-mapped).
+ *
+ * @param <T> the type of the objects
+ */
+public interface IMSCodec<T> {
+	public void encode(T obj, ByteBuffer buffer);
+	public T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+public final class IMSCodecs {
+	private IMSCodecs() {
+		super();
+	}
+	
+	public static IMSCodec<Long> longCodec() {
+		return new IMSCodec<>() {
+			@Override
+			public void encode(Long obj, ByteBuffer buffer) {
+				buffer.putLong(obj);
+			}
+
+			@Override
+			public Long decode(ByteBuffer buffer) {
+				return buffer.getLong(buffer.position());
+			}
+		};
+	}
+	
+	public static IMSCodec<String> stringCodec() {
+		return new IMSCodec<>() {
+			@Override
+			public void encode(String obj, ByteBuffer buffer) {
+				buffer.put(obj.getBytes(StandardCharsets.UTF_8));
+			}
+
+			@Override
+			public String decode(ByteBuffer buffer) {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(buffer.position(), bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+	}
+	
+	// Adapter for serializers based on byte arrays (e.g. of a data format)
+	public static <T> IMSCodec<T> of(Function<T, byte[]> encode, Function<byte[], T> decode) {
+		return new IMSCodec<>() {
+			@Override
+			public void encode(T obj, ByteBuffer buffer) {
+				buffer.put(encode.apply(obj));
+			}
+
+			@Override
+			public T decode(ByteBuffer buffer) {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(buffer.position(), bytes);
+				return decode.apply(bytes);
+			}
+		};
+	}
+	
+	/**
+	 * Writes the object with a length prefix (-1 for null) and returns the buffer, which is
+	 * replaced by a larger one (with the same content) if necessary.
+	 */
+	public static <T> ByteBuffer put(IMSCodec<T> codec, T obj, ByteBuffer buffer) {
+		ByteBuffer result = buffer;
+		
+		int start = result.position();
+		for (;;) {
+			try {
+				if (result.remaining()<4)
+					throw new BufferOverflowException();
+				if (obj!=null) {
+					result.position(start+4);
+					codec.encode(obj, result);
+					result.putInt(start, result.position()-start-4);
+				}
+				else
+					result.putInt(-1);
+				break;
+			}
+			catch (BufferOverflowException e) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(result.capacity()*2, 64));
+				larger.put(result.position(0).limit(start));
+				result = larger;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads an object written by {@link #put(IMSCodec, Object, ByteBuffer)} and advances the buffer.
+	 */
+	public static <T> T get(IMSCodec<T> codec, ByteBuffer buffer) {
+		T result = null;
+		
+		int length = buffer.getInt();
+		if (length>=0) {
+			result = codec.decode(buffer.slice(buffer.position(), length));
+			buffer.position(buffer.position()+length);
+		}
+		
+		return result;
+	}
+}
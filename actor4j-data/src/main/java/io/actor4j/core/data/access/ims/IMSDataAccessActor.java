@@ -15,6 +15,8 @@
  */
 package io.actor4j.core.data.access.ims;
 
+import java.util.List;
+
 import io.actor4j.core.actors.Actor;
 import io.actor4j.core.messages.ActorMessage;
 
@@ -22,9 +24,19 @@ public class IMSDataAccessActor<K, V> extends Actor {
 	protected IMSDataAccessActorImpl<K, V> impl;
 	
 	public IMSDataAccessActor(String name) {
+		this(name, List.of());
+	}
+	
+	// The indexes are created and kept in sync with the data, they are queried with IMSQuery
+	public IMSDataAccessActor(String name, List<IMSIndex<K, V>> indexes) {
+		this(name, new IMS<>(), indexes);
+	}
+	
+	// Uses the given storage, e.g. IMS.ofLongKeys() for long primary keys
+	public IMSDataAccessActor(String name, IMS<K, V> ims, List<IMSIndex<K, V>> indexes) {
 		super(name);
 
-		impl = new IMSDataAccessActorImpl<K, V>(this);
+		impl = new IMSDataAccessActorImpl<K, V>(this, ims, indexes);
 	}
 
 	@Override
@@ -17,6 +17,14 @@ package io.actor4j.core.data.access.ims;
 
 import static io.actor4j.core.data.access.DataAccessActor.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 import io.actor4j.core.actors.ActorRef;
 import io.actor4j.core.actors.ActorWithCache;
 import io.actor4j.core.data.access.BaseDataAccessActorImpl;
@@ -30,10 +38,26 @@ import io.actor4j.core.utils.DeepCopyable;
 public class IMSDataAccessActorImpl<K, V> extends BaseDataAccessActorImpl<K, V>{
 	protected IMS<K, V> ims;
 	
-	public IMSDataAccessActorImpl(ActorRef dataAccess) {
+	public IMSDataAccessActorImpl(ActorRef dataAccess, IMS<K, V> ims, List<IMSIndex<K, V>> indexes) {
 		super(dataAccess);
 		
-		ims = new IMS<>();
+		this.ims = ims;
+		for (IMSIndex<K, V> index : indexes) {
+			ims.add(index);
+			ims.create(index);
+		}
+	}
+	
+	public IMSDataAccessActorImpl(ActorRef dataAccess, List<IMSIndex<K, V>> indexes) {
+		this(dataAccess, new IMS<>(), indexes);
+	}
+	
+	public IMSDataAccessActorImpl(ActorRef dataAccess) {
+		this(dataAccess, List.of());
+	}
+	
+	public IMS<K, V> getIMS() {
+		return ims;
 	}
 
 	@Override
@@ -41,14 +65,58 @@ public class IMSDataAccessActorImpl<K, V> extends BaseDataAccessActorImpl<K, V>{
 		// empty
 	}
 	
+	@SuppressWarnings("unchecked")
 	@Override
 	public void queryOne(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto) {
-		throw new UnsupportedOperationException();
+		if (dto.context() instanceof IMSQuery query) {
+			Optional<V> optional = ims.find(query).filter((v) -> v!=null).findFirst();
+			if (optional.isPresent()) {
+				V value = optional.get();
+				if (value instanceof DeepCopyable)
+					value = ((DeepCopyable<V>)value).deepCopy();
+				dataAccess.tell(dto.shallowCopy(value), FIND_ONE, msg.source(), msg.interaction());
+			}
+			else
+				dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
+		}
+		else
+			throw new IllegalArgumentException("Wrong context");
 	}
 	
 	@Override
 	public void queryAll(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto) {
-		throw new UnsupportedOperationException();
+		if (dto.context() instanceof IMSQuery query)
+			stream(msg, dto, ims.find(query), query.batchSize());
+		else
+			throw new IllegalArgumentException("Wrong context");
+	}
+	
+	// Replies in batches (FIND_ALL) or with FIND_NONE, the end of the stream is signaled by SUCCESS
+	@SuppressWarnings("unchecked")
+	protected void stream(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto, Stream<V> stream, int batchSize) {
+		boolean empty = true;
+		List<V> batch = new ArrayList<>(batchSize);
+		
+		Iterator<V> iterator = stream.iterator();
+		while (iterator.hasNext()) {
+			V value = iterator.next();
+			if (value!=null) {
+				if (value instanceof DeepCopyable)
+					value = ((DeepCopyable<V>)value).deepCopy();
+				batch.add(value);
+			}
+			
+			if (batch.size()==batchSize) {
+				dataAccess.tell(dto.shallowCopyWithEntities(batch), FIND_ALL, msg.source(), msg.interaction());
+				batch = new ArrayList<>(batchSize);
+				empty = false;
+			}
+		}
+		
+		if (!batch.isEmpty())
+			dataAccess.tell(dto.shallowCopyWithEntities(batch), FIND_ALL, msg.source(), msg.interaction());
+		else if (empty)
+			dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -72,9 +140,25 @@ public class IMSDataAccessActorImpl<K, V> extends BaseDataAccessActorImpl<K, V>{
 			dataAccess.tell(dto, FIND_NONE, msg.source(), msg.interaction());
 	}
 	
+	@SuppressWarnings("unchecked")
 	@Override
 	public void findAll(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto) {
-		throw new UnsupportedOperationException();
+		if (msg.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List) {
+			Map<K, V> entries = new HashMap<>();
+			for (K key : dto.keys()) {
+				V value = ims.getData().get(key);
+				if (value!=null) {
+					if (value instanceof DeepCopyable)
+						value = ((DeepCopyable<V>)value).deepCopy();
+					entries.put(key, value);
+				}
+			}
+			dataAccess.tell(dto.shallowCopyWithEntries(entries), FIND_ALL, msg.source(), msg.interaction());
+		}
+		else if (dto.context() instanceof IMSQuery query)
+			stream(msg, dto, ims.find(query), query.batchSize());
+		else
+			stream(msg, dto, ims.getData().values().stream(), IMSQuery.DEFAULT_BATCH_SIZE);
 	}
 
 	@Override
@@ -116,7 +200,7 @@ public class IMSDataAccessActorImpl<K, V> extends BaseDataAccessActorImpl<K, V>{
 
 	@Override
 	public void onSuccess(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto) {
-		if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=HAS_ONE)
+		if (msg.tag()!=FIND_ONE && msg.tag()!=ActorWithCache.GET && msg.tag()!=ActorWithCache.GET_ALL && msg.tag()!=HAS_ONE)
 			dataAccess.tell(PersistentSuccessDTO.of(dto, msg.tag()), DataAccessActor.SUCCESS, msg.source(), msg.interaction());
 	}
 
@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -34,6 +35,8 @@ import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class IMSIndex<K, V> {
+	protected static final int PARALLEL_THRESHOLD = 10_000;
+	
 	public final String name;
 	
 	public Map<Object, Set<K>> idxMap;
@@ -59,42 +62,70 @@ public class IMSIndex<K, V> {
 	public BiConsumer<K, V> insertToIdx;
 	// removes entry of data of the index
 	public BiConsumer<K, V> removeFromIdx;
+	// index key of an entry of data, if insertion and removal are in sync
+	protected BiFunction<K, V, Object> syncFunction;
+	
+	// creates the sets of primary keys
+	protected final Supplier<Set<K>> setFactory;
 	 
-	public IMSIndex(String name) {
+	public IMSIndex(String name, Supplier<Set<K>> setFactory) {
 		this.name = name;
+		this.setFactory = setFactory;
+	}
+	
+	public IMSIndex(String name) {
+		this(name, HashSet::new);
+	}
+	
+	// Index over long primary keys, with compact bitmap sets of primary keys
+	@SuppressWarnings("unchecked")
+	public static <V> IMSIndex<Long, V> ofLongKeys(String name) {
+		return new IMSIndex<>(name, () -> (Set<Long>)(Set<?>)new LongBitmapSet());
 	}
 	
 	public IMSIndex<K, V> create(BiFunction<K, V, Object> function) {
 		return create(function, false);
 	}
 
+	/**
+	 * The index is created in parallel (fork-join) for larger data, the function must be free of side effects.
+	 */
 	public IMSIndex<K, V> create(BiFunction<K, V, Object> function, boolean sorted) {
 		if (function!=null) {
 			idxCreate = (data) -> { 
-				Map<Object, Set<K>> map = sorted ? new TreeMap<>() : new HashMap<>();
+				Stream<Entry<K, V>> stream = data.size()>=PARALLEL_THRESHOLD ? data.entrySet().parallelStream() : data.entrySet().stream();
 				
-				Iterator<Entry<K, V>> iterator = data.entrySet().iterator();
-				while (iterator.hasNext()) {
-					Entry<K, V> entry = iterator.next();
-					
-					Object key = function.apply(entry.getKey(), entry.getValue());
-					
-					Set<K> set = map.get(key);
-					if (set==null) {
-						set = new HashSet<>();
-						set.add(entry.getKey());
-						map.put(key, set);
-					}
-					else
-						set.add(entry.getKey());
-				}
-				return map;
+				return stream.collect(
+					() -> sorted ? new TreeMap<>() : new HashMap<>(),
+					(map, entry) -> add(map, function.apply(entry.getKey(), entry.getValue()), entry.getKey()),
+					(map, other) -> other.forEach((key, set) -> {
+						Set<K> existing = map.get(key);
+						if (existing==null)
+							map.put(key, set);
+						else if (existing.size()>=set.size())
+							existing.addAll(set);
+						else {
+							set.addAll(existing);
+							map.put(key, set);
+						}
+					}));
 			};
 		}
 		
 		return this;
 	}
 	
+	protected void add(Map<Object, Set<K>> map, Object key, K k) {
+		Set<K> set = map.get(key);
+		if (set==null) {
+			set = setFactory.get();
+			set.add(k);
+			map.put(key, set);
+		}
+		else
+			set.add(k);
+	}
+	
 	public SortedMap<Object, Set<K>> subMap(Object fromKey, Object toKey) {
 		SortedMap<Object, Set<K>> result = null;
 		if (idxMap instanceof TreeMap)
@@ -103,6 +134,33 @@ public class IMSIndex<K, V> {
 		return result;
 	}
 	
+	// Primary keys of the entries with the given index key
+	public Set<K> keys(Object key) {
+		return idxMap.getOrDefault(key, Collections.emptySet());
+	}
+	
+	// Primary keys of the entries with an index key within [fromKey, toKey), null for an open bound
+	public Set<K> keys(Object fromKey, Object toKey) {
+		if (!(idxMap instanceof TreeMap<Object, Set<K>> map))
+			throw new IllegalStateException("Index is not sorted: "+name);
+		
+		SortedMap<Object, Set<K>> range = null;
+		if (fromKey!=null && toKey!=null)
+			range = subMap(fromKey, toKey);
+		else if (fromKey!=null)
+			range = map.tailMap(fromKey);
+		else if (toKey!=null)
+			range = map.headMap(toKey);
+		else
+			range = map;
+		
+		Set<K> result = setFactory.get();
+		for (Set<K> set : range.values())
+			result.addAll(set);
+		
+		return result;
+	}
+	
 	public IMSIndex<K, V> get() {
 		idxGet = (data, key) -> idxMap.getOrDefault(key, Collections.emptySet()).stream().map(data::get);
 		
@@ -134,18 +192,7 @@ public class IMSIndex<K, V> {
 	}
 	
 	public IMSIndex<K, V> insertData(BiFunction<K, V, Object> function) {
-		insertToIdx = (k, v) -> {
-			Object key = function.apply(k, v);
-			
-			Set<K> set = idxMap.get(key);
-			if (set==null) {
-				set = new HashSet<>();
-				set.add(k);
-				idxMap.put(key, set);
-			}
-			else
-				set.add(k);
-		};
+		insertToIdx = (k, v) -> add(idxMap, function.apply(k, v), k);
 		
 		return this;
 	}
@@ -155,14 +202,34 @@ public class IMSIndex<K, V> {
 			Object key = function.apply(k, v);
 			
 			Set<K> set = idxMap.get(key);
-			if (set!=null)
-				set.remove(k);
+			if (set!=null && set.remove(k) && set.isEmpty())
+				idxMap.remove(key);
 		};
 		
 		return this;
 	}
 	
 	public IMSIndex<K, V> syncData(BiFunction<K, V, Object> function) {
+		syncFunction = function;
+		
 		return insertData(function).removeData(function);
 	}
+	
+	// Moves the entry of data within the index, only if its index key has changed
+	public void updateInIdx(K k, V oldValue, V newValue) {
+		if (syncFunction!=null) {
+			Object oldKey = syncFunction.apply(k, oldValue);
+			Object newKey = syncFunction.apply(k, newValue);
+			if (!Objects.equals(oldKey, newKey)) {
+				removeFromIdx.accept(k, oldValue);
+				insertToIdx.accept(k, newValue);
+			}
+		}
+		else {
+			if (removeFromIdx!=null)
+				removeFromIdx.accept(k, oldValue);
+			if (insertToIdx!=null)
+				insertToIdx.accept(k, newValue);
+		}
+	}
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.util.List;
+
+import io.actor4j.core.data.access.PersistentContext;
+
+/**
+ * Query over the indexes of the IMS, used as context of QUERY_ONE, QUERY_ALL and FIND_ALL.
+ */
+public record IMSQuery(Operator operator, String indexName, Object key, Object toKey, List<IMSQuery> queries, int batchSize) implements PersistentContext {
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
+	public enum Operator {
+		EQ, RANGE, AND
+	}
+	
+	// Entries with the given index key
+	public static IMSQuery eq(String indexName, Object key) {
+		return new IMSQuery(Operator.EQ, indexName, key, null, null, DEFAULT_BATCH_SIZE);
+	}
+	
+	// Entries with an index key within [fromKey, toKey), null for an open bound (sorted index only)
+	public static IMSQuery range(String indexName, Object fromKey, Object toKey) {
+		return new IMSQuery(Operator.RANGE, indexName, fromKey, toKey, null, DEFAULT_BATCH_SIZE);
+	}
+	
+	// Entries matching all given queries (intersection)
+	public static IMSQuery and(IMSQuery... queries) {
+		return new IMSQuery(Operator.AND, null, null, null, List.of(queries), DEFAULT_BATCH_SIZE);
+	}
+	
+	// Maximum number of entries per FIND_ALL reply
+	public IMSQuery withBatchSize(int batchSize) {
+		return new IMSQuery(operator, indexName, key, toKey, queries, batchSize);
+	}
+}
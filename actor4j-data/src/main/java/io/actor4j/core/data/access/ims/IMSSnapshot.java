@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Binary snapshot of the data of an IMS and the names of its indexes.
+ * 
+ * The snapshot is written to a temporary file, which then replaces the previous snapshot. It is restored
+ * by a sequential read of the memory-mapped file. The indexes themselves are defined by functions, they
+ * must be added to the IMS before restoring and are created again from the restored data.
+ * 
+ * If a write-ahead log is set for the IMS, it is truncated after writing and replayed after restoring.
+ * 
+ * Layout: magic, index count, index names, entry count, entries (length-prefixed key and value).
+ */
+public class IMSSnapshot<K, V> {
+	protected static final int MAGIC = 0x494D5301; // "IMS", version 1
+	protected static final int BUFFER_SIZE = 1 << 16;
+	protected static final long MAX_REGION_SIZE = 1L << 30; // of a single mapping
+	
+	protected final Path path;
+	protected final IMSCodec<K> keyCodec;
+	protected final IMSCodec<V> valueCodec;
+	
+	public IMSSnapshot(Path path, IMSCodec<K> keyCodec, IMSCodec<V> valueCodec) {
+		super();
+		
+		this.path = path;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+	}
+	
+	public Path getPath() {
+		return path;
+	}
+	
+	public void write(IMS<K, V> ims) throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName()+".tmp");
+		
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			buffer.putInt(MAGIC);
+			buffer.putInt(ims.getIndexMap().size());
+			for (String name : ims.getIndexMap().keySet())
+				buffer = IMSCodecs.put(IMSCodecs.stringCodec(), name, buffer);
+			buffer.putLong(ims.getData().size());
+			
+			for (Entry<K, V> entry : ims.getData().entrySet()) {
+				buffer = IMSCodecs.put(keyCodec, entry.getKey(), buffer);
+				buffer = IMSCodecs.put(valueCodec, entry.getValue(), buffer);
+				if (buffer.position()>=BUFFER_SIZE/2)
+					flush(channel, buffer);
+			}
+			flush(channel, buffer);
+			channel.force(true);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		if (ims.getWriteAheadLog()!=null)
+			ims.getWriteAheadLog().truncate();
+	}
+	
+	protected static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * Replaces the data of the IMS by the snapshot, creates the indexes and replays the write-ahead log.
+	 * Returns false, if there is no snapshot.
+	 */
+	public boolean restore(IMS<K, V> ims) throws IOException {
+		boolean result = false;
+		
+		if (Files.exists(path)) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				Region region = new Region(channel);
+				
+				if (region.require(8).getInt()!=MAGIC)
+					throw new IOException("Not an IMS snapshot: "+path);
+				int indexCount = region.buffer.getInt();
+				List<String> names = new ArrayList<>(indexCount);
+				for (int i=0; i<indexCount; i++)
+					names.add(get(region, IMSCodecs.stringCodec()));
+				for (String name : names)
+					if (!ims.getIndexMap().containsKey(name))
+						throw new IllegalStateException("Index definition missing: "+name);
+				
+				ims.getData().clear();
+				long count = region.require(8).getLong();
+				for (long i=0; i<count; i++) {
+					K key = get(region, keyCodec);
+					V value = get(region, valueCodec);
+					ims.getData().put(key, value);
+				}
+			}
+			result = true;
+		}
+		
+		ims.create();
+		if (ims.getWriteAheadLog()!=null)
+			ims.getWriteAheadLog().replay(ims);
+		
+		return result;
+	}
+	
+	protected static <T> T get(Region region, IMSCodec<T> codec) throws IOException {
+		int length = region.require(4).getInt(region.buffer.position());
+		
+		return IMSCodecs.get(codec, region.require(4+Math.max(length, 0)));
+	}
+	
+	// Sequentially maps the file in regions, an entry never crosses the end of a region
+	protected static class Region {
+		protected final FileChannel channel;
+		protected final long size;
+		protected long offset;
+		protected MappedByteBuffer buffer;
+		
+		public Region(FileChannel channel) throws IOException {
+			this.channel = channel;
+			size = channel.size();
+			map(0);
+		}
+		
+		protected void map(long offset) throws IOException {
+			this.offset = offset;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size-offset, MAX_REGION_SIZE));
+		}
+		
+		public ByteBuffer require(int bytes) throws IOException {
+			if (buffer.remaining()<bytes) {
+				long position = offset+buffer.position();
+				if (size-position<bytes)
+					throw new IOException("Truncated IMS snapshot");
+				map(position);
+				if (buffer.remaining()<bytes)
+					throw new IOException("Entry exceeds the region size");
+			}
+			
+			return buffer;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the changes of an IMS between two snapshots (see {@link IMSSnapshot}).
+ * 
+ * Each change is appended as a record (length, CRC32, operation, key and value), before it is applied
+ * to the IMS. A torn or corrupted tail (e.g. after a crash) ends the replay and is cut off.
+ */
+public class IMSWriteAheadLog<K, V> implements Closeable {
+	protected static final byte PUT = 1;
+	protected static final byte REMOVE = 2;
+	
+	protected final Path path;
+	protected final IMSCodec<K> keyCodec;
+	protected final IMSCodec<V> valueCodec;
+	// forces each record to the storage device, otherwise left to the operating system
+	protected final boolean force;
+	
+	protected final FileChannel channel;
+	protected final CRC32 crc32;
+	protected ByteBuffer buffer;
+	
+	public IMSWriteAheadLog(Path path, IMSCodec<K> keyCodec, IMSCodec<V> valueCodec, boolean force) throws IOException {
+		super();
+		
+		this.path = path;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.force = force;
+		
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		crc32 = new CRC32();
+		buffer = ByteBuffer.allocate(256);
+	}
+	
+	public IMSWriteAheadLog(Path path, IMSCodec<K> keyCodec, IMSCodec<V> valueCodec) throws IOException {
+		this(path, keyCodec, valueCodec, false);
+	}
+	
+	public Path getPath() {
+		return path;
+	}
+	
+	public void put(K key, V value) {
+		append(PUT, key, value);
+	}
+	
+	public void remove(K key) {
+		append(REMOVE, key, null);
+	}
+	
+	protected void append(byte operation, K key, V value) {
+		try {
+			buffer.clear();
+			buffer.position(8);
+			buffer.put(operation);
+			buffer = IMSCodecs.put(keyCodec, key, buffer);
+			if (operation==PUT)
+				buffer = IMSCodecs.put(valueCodec, value, buffer);
+			
+			int length = buffer.position()-8;
+			crc32.reset();
+			crc32.update(buffer.array(), 8, length);
+			buffer.putInt(0, length);
+			buffer.putInt(4, (int)crc32.getValue());
+			
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			if (force)
+				channel.force(false);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Applies the logged changes to the IMS (including its indexes) and returns the number of records.
+	 */
+	public long replay(IMS<K, V> ims) throws IOException {
+		long result = 0;
+		
+		long valid = 0; // end of the last valid record
+		if (channel.size()>0) {
+			IMSWriteAheadLog<K, V> writeAheadLog = ims.getWriteAheadLog();
+			ims.setWriteAheadLog(null);
+			try {
+				IMSSnapshot.Region region = new IMSSnapshot.Region(channel);
+				boolean done = false;
+				while (!done) {
+					long position = region.offset+region.buffer.position();
+					int length = region.size-position>=8 ? region.require(8).getInt(region.buffer.position()) : 0;
+					if (length>0 && region.size-position-8>=length) {
+						ByteBuffer buffer = region.require(8+length);
+						buffer.getInt();
+						int crc = buffer.getInt();
+						ByteBuffer record = buffer.slice(buffer.position(), length);
+						crc32.reset();
+						crc32.update(record.duplicate());
+						if ((int)crc32.getValue()==crc) {
+							byte operation = record.get();
+							K key = IMSCodecs.get(keyCodec, record);
+							if (operation==PUT)
+								ims.put(key, IMSCodecs.get(valueCodec, record));
+							else
+								ims.remove(key);
+							buffer.position(buffer.position()+length);
+							valid = position+8+length;
+							result++;
+						}
+						else
+							done = true;
+					}
+					else
+						done = true;
+				}
+			}
+			finally {
+				ims.setWriteAheadLog(writeAheadLog);
+			}
+			
+			if (valid<channel.size())
+				channel.truncate(valid);
+		}
+		channel.position(valid);
+		
+		return result;
+	}
+	
+	// Discards the log, after a snapshot was written
+	public void truncate() throws IOException {
+		channel.truncate(0);
+		channel.position(0);
+		channel.force(true);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact set of long values in the style of roaring bitmaps, used as posting list of an index.
+ * 
+ * The values are partitioned by their upper 48 bits into containers of the lower 16 bits. Sparse
+ * containers are sorted char arrays, dense containers (more than 4096 values) are bitmaps of 8 kB.
+ * Intersections of two bitmap sets are computed container by container.
+ */
+public class LongBitmapSet extends AbstractSet<Long> {
+	protected static final int MAX_ARRAY_SIZE = 4096;
+	
+	protected static final class Container {
+		protected char[] array; // sorted, null if bitmap
+		protected long[] bitmap; // null if array
+		protected int cardinality;
+		
+		public Container() {
+			array = new char[4];
+		}
+		
+		public Container(Container other) {
+			array = other.array!=null ? Arrays.copyOf(other.array, other.cardinality) : null;
+			bitmap = other.bitmap!=null ? other.bitmap.clone() : null;
+			cardinality = other.cardinality;
+		}
+		
+		public boolean contains(char low) {
+			if (bitmap!=null)
+				return (bitmap[low >>> 6] & (1L << low))!=0;
+			else
+				return Arrays.binarySearch(array, 0, cardinality, low)>=0;
+		}
+		
+		public boolean add(char low) {
+			boolean result = false;
+			
+			if (bitmap!=null) {
+				long word = bitmap[low >>> 6];
+				long bit = 1L << low;
+				if ((word & bit)==0) {
+					bitmap[low >>> 6] = word | bit;
+					cardinality++;
+					result = true;
+				}
+			}
+			else {
+				int i = Arrays.binarySearch(array, 0, cardinality, low);
+				if (i<0) {
+					i = -i-1;
+					if (cardinality==MAX_ARRAY_SIZE) {
+						toBitmap();
+						return add(low);
+					}
+					if (cardinality==array.length)
+						array = Arrays.copyOf(array, Math.min(array.length*2, MAX_ARRAY_SIZE));
+					System.arraycopy(array, i, array, i+1, cardinality-i);
+					array[i] = low;
+					cardinality++;
+					result = true;
+				}
+			}
+			
+			return result;
+		}
+		
+		public boolean remove(char low) {
+			boolean result = false;
+			
+			if (bitmap!=null) {
+				long word = bitmap[low >>> 6];
+				long bit = 1L << low;
+				if ((word & bit)!=0) {
+					bitmap[low >>> 6] = word & ~bit;
+					cardinality--;
+					result = true;
+					if (cardinality<=MAX_ARRAY_SIZE/2)
+						toArray();
+				}
+			}
+			else {
+				int i = Arrays.binarySearch(array, 0, cardinality, low);
+				if (i>=0) {
+					System.arraycopy(array, i+1, array, i, cardinality-i-1);
+					cardinality--;
+					result = true;
+				}
+			}
+			
+			return result;
+		}
+		
+		public Container and(Container other) {
+			Container result = new Container();
+			
+			if (bitmap!=null && other.bitmap!=null) {
+				long[] words = new long[1024];
+				int count = 0;
+				for (int i=0; i<words.length; i++) {
+					words[i] = bitmap[i] & other.bitmap[i];
+					count += Long.bitCount(words[i]);
+				}
+				result.array = null;
+				result.bitmap = words;
+				result.cardinality = count;
+				if (count<=MAX_ARRAY_SIZE/2)
+					result.toArray();
+			}
+			else {
+				// iterates the sparse side
+				Container sparse = bitmap==null ? this : other;
+				Container dense = sparse==this ? other : this;
+				for (int i=0; i<sparse.cardinality; i++)
+					if (dense.contains(sparse.array[i]))
+						result.add(sparse.array[i]);
+			}
+			
+			return result;
+		}
+		
+		// Returns the next set bit of the bitmap at or after the given position, or -1
+		public int nextSetBit(int from) {
+			int i = from >>> 6;
+			if (i>=bitmap.length)
+				return -1;
+			long word = bitmap[i] & (-1L << from);
+			while (true) {
+				if (word!=0)
+					return (i << 6)+Long.numberOfTrailingZeros(word);
+				if (++i==bitmap.length)
+					return -1;
+				word = bitmap[i];
+			}
+		}
+		
+		protected void toBitmap() {
+			bitmap = new long[1024];
+			for (int i=0; i<cardinality; i++)
+				bitmap[array[i] >>> 6] |= 1L << array[i];
+			array = null;
+		}
+		
+		protected void toArray() {
+			char[] values = new char[Math.max(cardinality, 4)];
+			int n = 0;
+			for (int i=nextSetBit(0); i>=0; i=nextSetBit(i+1))
+				values[n++] = (char)i;
+			array = values;
+			bitmap = null;
+		}
+	}
+	
+	protected final LongHashMap<Container> containers; // high bits -> container
+	protected int size;
+	
+	public LongBitmapSet() {
+		super();
+		
+		containers = new LongHashMap<>();
+	}
+	
+	public LongBitmapSet(LongBitmapSet other) {
+		super();
+		
+		containers = new LongHashMap<>(other.containers.size());
+		for (Entry<Long, Container> entry : other.containers.entrySet())
+			containers.put(entry.getKey().longValue(), new Container(entry.getValue()));
+		size = other.size;
+	}
+	
+	public boolean contains(long value) {
+		Container container = containers.get(value >>> 16);
+		
+		return container!=null && container.contains((char)value);
+	}
+	
+	public boolean add(long value) {
+		boolean result = false;
+		
+		Container container = containers.get(value >>> 16);
+		if (container==null) {
+			container = new Container();
+			containers.put(value >>> 16, container);
+		}
+		if (container.add((char)value)) {
+			size++;
+			result = true;
+		}
+		
+		return result;
+	}
+	
+	public boolean remove(long value) {
+		boolean result = false;
+		
+		Container container = containers.get(value >>> 16);
+		if (container!=null && container.remove((char)value)) {
+			size--;
+			result = true;
+			if (container.cardinality==0)
+				containers.remove(value >>> 16);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public boolean contains(Object value) {
+		return value instanceof Long v && contains(v.longValue());
+	}
+	
+	@Override
+	public boolean add(Long value) {
+		return add(value.longValue());
+	}
+	
+	@Override
+	public boolean remove(Object value) {
+		return value instanceof Long v && remove(v.longValue());
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> other) {
+		boolean result = false;
+		
+		if (other instanceof LongBitmapSet bitmapSet) {
+			LongHashMap<Container> retained = new LongHashMap<>(containers.size());
+			int retainedSize = 0;
+			for (Entry<Long, Container> entry : containers.entrySet()) {
+				Container container = bitmapSet.containers.get(entry.getKey().longValue());
+				if (container!=null) {
+					Container intersection = entry.getValue().and(container);
+					if (intersection.cardinality>0) {
+						retained.put(entry.getKey().longValue(), intersection);
+						retainedSize += intersection.cardinality;
+					}
+				}
+			}
+			result = retainedSize!=size;
+			containers.clear();
+			containers.putAll(retained);
+			size = retainedSize;
+		}
+		else {
+			LongBitmapSet retained = new LongBitmapSet();
+			for (Long value : this)
+				if (other.contains(value))
+					retained.add(value.longValue());
+			result = retained.size!=size;
+			containers.clear();
+			containers.putAll(retained.containers);
+			size = retained.size;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public void clear() {
+		containers.clear();
+		size = 0;
+	}
+	
+	// The iterator does not support remove
+	@Override
+	public Iterator<Long> iterator() {
+		return new Iterator<>() {
+			protected final Iterator<Entry<Long, Container>> iterator = containers.entrySet().iterator();
+			protected long high;
+			protected Container container;
+			protected int next = -1; // index (array) or bit (bitmap) of the next value
+			
+			@Override
+			public boolean hasNext() {
+				while (next<0) {
+					if (!iterator.hasNext())
+						return false;
+					Entry<Long, Container> entry = iterator.next();
+					high = entry.getKey().longValue() << 16;
+					container = entry.getValue();
+					next = container.bitmap!=null ? container.nextSetBit(0) : (container.cardinality>0 ? 0 : -1);
+				}
+				
+				return true;
+			}
+			
+			@Override
+			public Long next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				
+				long result = 0;
+				if (container.bitmap!=null) {
+					result = high | next;
+					next = container.nextSetBit(next+1);
+				}
+				else {
+					result = high | container.array[next];
+					next = next+1<container.cardinality ? next+1 : -1;
+				}
+				
+				return result;
+			}
+		};
+	}
+}
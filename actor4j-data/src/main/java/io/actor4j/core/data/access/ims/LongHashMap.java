@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open addressing hash map with primitive long keys (linear probing, backward shift deletion).
+ * 
+ * Keys and values are stored in parallel arrays, there are no entry objects and no boxed keys
+ * kept in memory. Null values are permitted, removal via iterators is not supported.
+ *
+ * @param <V> the type of the values
+ */
+public class LongHashMap<V> extends AbstractMap<Long, V> {
+	protected static final int DEFAULT_CAPACITY = 16;
+	protected static final float LOAD_FACTOR = 0.75f;
+	
+	protected long[] keys;
+	protected Object[] values;
+	protected boolean[] used;
+	
+	protected int size;
+	protected int threshold;
+	
+	public LongHashMap(int expectedSize) {
+		super();
+		
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity*LOAD_FACTOR<expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+	
+	public LongHashMap() {
+		this(DEFAULT_CAPACITY/2);
+	}
+	
+	protected void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		used = new boolean[capacity];
+		threshold = (int)(capacity*LOAD_FACTOR);
+	}
+	
+	protected static int hash(long key) {
+		long h = key*0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+	
+	// Returns the slot of the key, or -1 if absent
+	protected int indexOf(long key) {
+		int mask = keys.length-1;
+		int i = hash(key) & mask;
+		while (used[i]) {
+			if (keys[i]==key)
+				return i;
+			i = (i+1) & mask;
+		}
+		
+		return -1;
+	}
+	
+	public boolean containsKey(long key) {
+		return indexOf(key)>=0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int i = indexOf(key);
+		
+		return i>=0 ? (V)values[i] : null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		V result = null;
+		
+		int mask = keys.length-1;
+		int i = hash(key) & mask;
+		while (used[i] && keys[i]!=key)
+			i = (i+1) & mask;
+		
+		if (used[i]) {
+			result = (V)values[i];
+			values[i] = value;
+		}
+		else {
+			keys[i] = key;
+			values[i] = value;
+			used[i] = true;
+			if (++size>threshold)
+				resize(keys.length<<1);
+		}
+		
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		V result = null;
+		
+		int i = indexOf(key);
+		if (i>=0) {
+			result = (V)values[i];
+			removeAt(i);
+		}
+		
+		return result;
+	}
+	
+	protected void removeAt(int i) {
+		int mask = keys.length-1;
+		// shifts following entries of the same cluster back, instead of tombstones
+		int j = i;
+		while (true) {
+			j = (j+1) & mask;
+			if (!used[j])
+				break;
+			int k = hash(keys[j]) & mask;
+			if ((j>i && (k<=i || k>j)) || (j<i && (k<=i && k>j))) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		used[i] = false;
+		values[i] = null;
+		size--;
+	}
+	
+	protected void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldUsed = used;
+		
+		allocate(capacity);
+		int mask = capacity-1;
+		for (int j=0; j<oldKeys.length; j++)
+			if (oldUsed[j]) {
+				int i = hash(oldKeys[j]) & mask;
+				while (used[i])
+					i = (i+1) & mask;
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+				used[i] = true;
+			}
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof Long k && containsKey(k.longValue());
+	}
+	
+	@Override
+	public V get(Object key) {
+		return key instanceof Long k ? get(k.longValue()) : null;
+	}
+	
+	@Override
+	public V put(Long key, V value) {
+		return put(key.longValue(), value);
+	}
+	
+	@Override
+	public V remove(Object key) {
+		return key instanceof Long k ? remove(k.longValue()) : null;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(used, false);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	protected static int advance(boolean[] used, int i) {
+		while (i<used.length && !used[i])
+			i++;
+		
+		return i;
+	}
+	
+	// The iterator does not support remove, entries are removed by key
+	@Override
+	public Set<Entry<Long, V>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Entry<Long, V>> iterator() {
+				return new Iterator<>() {
+					protected int next = advance(used, 0);
+					
+					@Override
+					public boolean hasNext() {
+						return next<used.length;
+					}
+					
+					@SuppressWarnings("unchecked")
+					@Override
+					public Entry<Long, V> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						int i = next;
+						next = advance(used, next+1);
+						
+						return new SimpleEntry<>(keys[i], (V)values[i]);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.core.data.access.ims;
+
+import static io.actor4j.core.data.access.DataAccessActor.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import io.actor4j.core.actors.Actor;
+import io.actor4j.core.actors.ActorWithCache;
+import io.actor4j.core.data.access.PersistentDataAccessDTO;
+import io.actor4j.core.data.access.PersistentSuccessDTO;
+import io.actor4j.core.id.ActorId;
+import io.actor4j.core.messages.ActorMessage;
+
+/**
+ * Data access actor, that hash-partitions the data across a number of IMSDataAccessActor shards (children).
+ * 
+ * Keyed requests are routed to the shard of the key, GET_ALL with keys is split by shard and gathered
+ * into one FIND_ALL. FIND_ALL and QUERY_ALL are scattered to all shards, their batches are relayed as
+ * they arrive and the stream is completed by SUCCESS (or FAILURE) after all shards have completed.
+ * QUERY_ONE replies with the first FIND_ONE of any shard.
+ */
+public class ShardedIMSDataAccessActor<K, V> extends Actor {
+	protected final int numberOfShards;
+	protected final Supplier<IMS<K, V>> imsFactory;
+	protected final Supplier<List<IMSIndex<K, V>>> indexesFactory;
+	
+	protected ActorId[] shards;
+	protected final Map<UUID, Request<K, V>> requests; // interaction with the shard -> pending request
+	
+	protected static class Request<K, V> {
+		protected final ActorId source;
+		protected final UUID interaction;
+		protected final int tag;
+		protected final PersistentDataAccessDTO<K, V> dto;
+		
+		protected int pending;
+		protected boolean found;
+		protected Map<K, V> entries;
+		protected ActorMessage<?> failure;
+		
+		public Request(ActorMessage<?> msg, PersistentDataAccessDTO<K, V> dto, int pending) {
+			source = msg.source();
+			interaction = msg.interaction();
+			tag = msg.tag();
+			this.dto = dto;
+			this.pending = pending;
+		}
+	}
+	
+	// The factories are called once per shard, each shard needs its own IMS and index objects
+	public ShardedIMSDataAccessActor(String name, int numberOfShards, Supplier<IMS<K, V>> imsFactory, Supplier<List<IMSIndex<K, V>>> indexesFactory) {
+		super(name);
+		
+		this.numberOfShards = numberOfShards;
+		this.imsFactory = imsFactory;
+		this.indexesFactory = indexesFactory;
+		
+		requests = new HashMap<>();
+	}
+	
+	public ShardedIMSDataAccessActor(String name, int numberOfShards) {
+		this(name, numberOfShards, IMS::new, List::of);
+	}
+	
+	@Override
+	public void preStart() {
+		shards = new ActorId[numberOfShards];
+		for (int i=0; i<numberOfShards; i++) {
+			final String shardName = getName()+"-shard-"+i;
+			shards[i] = addChild(() -> new IMSDataAccessActor<K, V>(shardName, imsFactory.get(), indexesFactory.get()));
+		}
+	}
+	
+	protected int shardOf(K key) {
+		return Math.floorMod(Objects.hashCode(key), numberOfShards);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public void receive(ActorMessage<?> message) {
+		Request<K, V> request = message.interaction()!=null ? requests.remove(message.interaction()) : null;
+		
+		if (request!=null)
+			onShardReply(message, request);
+		else if (message.value()!=null && message.value() instanceof PersistentDataAccessDTO) {
+			PersistentDataAccessDTO<K, V> dto = (PersistentDataAccessDTO<K, V>)message.value();
+			
+			if (message.tag()==ActorWithCache.GET_ALL && dto.value() instanceof List) {
+				Map<Integer, List<K>> keysByShard = new HashMap<>();
+				for (K key : dto.keys())
+					keysByShard.computeIfAbsent(shardOf(key), (i) -> new ArrayList<>()).add(key);
+				
+				request = new Request<>(message, dto, keysByShard.size());
+				request.entries = new HashMap<>();
+				if (!keysByShard.isEmpty())
+					for (Entry<Integer, List<K>> entry : keysByShard.entrySet())
+						sendToShard(shards[entry.getKey()], dto.shallowCopyWithKeys(entry.getValue()), ActorWithCache.GET_ALL, request);
+				else
+					tell(dto.shallowCopyWithEntries(request.entries), FIND_ALL, message.source(), message.interaction());
+			}
+			else if (message.tag()==FIND_ALL || message.tag()==ActorWithCache.GET_ALL || message.tag()==QUERY_ALL || message.tag()==QUERY_ONE) {
+				request = new Request<>(message, dto, numberOfShards);
+				// GET_ALL without keys is streamed like FIND_ALL, to be completed by SUCCESS
+				int tag = message.tag()==ActorWithCache.GET_ALL ? FIND_ALL : message.tag();
+				for (ActorId shard : shards)
+					sendToShard(shard, dto, tag, request);
+			}
+			else
+				sendToShard(shards[shardOf(dto.key())], dto, message.tag(), new Request<>(message, dto, 1));
+		}
+		else
+			unhandled(message);
+	}
+	
+	protected void sendToShard(ActorId shard, PersistentDataAccessDTO<K, V> dto, int tag, Request<K, V> request) {
+		UUID interaction = UUID.randomUUID();
+		requests.put(interaction, request);
+		tell(dto, tag, shard, interaction);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void onShardReply(ActorMessage<?> message, Request<K, V> request) {
+		boolean completed = message.tag()==SUCCESS || message.tag()==FAILURE || message.tag()==ActorMessage.UNHANDLED;
+		
+		if (request.entries!=null) {
+			// gathers GET_ALL with keys
+			if (message.tag()==FIND_ALL)
+				request.entries.putAll(((PersistentDataAccessDTO<K, V>)message.value()).entries());
+			else if (completed && request.failure==null)
+				request.failure = message;
+			request.pending--;
+			
+			if (request.pending==0) {
+				if (request.failure!=null)
+					tell(request.failure.value(), request.failure.tag(), request.source, request.interaction);
+				else
+					tell(request.dto.shallowCopyWithEntries(request.entries), FIND_ALL, request.source, request.interaction);
+			}
+		}
+		else if (request.tag==FIND_ALL || request.tag==ActorWithCache.GET_ALL || request.tag==QUERY_ALL || request.tag==QUERY_ONE) {
+			// scatter/gather of FIND_ALL, QUERY_ALL and QUERY_ONE
+			if (message.tag()==FIND_ALL) {
+				tell(message.value(), FIND_ALL, request.source, request.interaction);
+				request.found = true;
+			}
+			else if (message.tag()==FIND_ONE && !request.found) {
+				tell(message.value(), FIND_ONE, request.source, request.interaction);
+				request.found = true;
+			}
+			else if (message.tag()==FAILURE || message.tag()==ActorMessage.UNHANDLED) {
+				if (request.failure==null)
+					request.failure = message;
+			}
+			
+			if (completed) {
+				request.pending--;
+				if (request.pending==0) {
+					if (request.failure!=null)
+						tell(request.failure.value(), request.failure.tag(), request.source, request.interaction);
+					else {
+						if (!request.found)
+							tell(request.dto, FIND_NONE, request.source, request.interaction);
+						tell(PersistentSuccessDTO.of(request.dto, request.tag), SUCCESS, request.source, request.interaction);
+					}
+				}
+			}
+			else
+				requests.put(message.interaction(), request); // further replies of the shard
+		}
+		else
+			tell(message.value(), message.tag(), request.source, request.interaction);
+	}
+}
@@ -17,6 +17,8 @@ package io.actor4j.core.data.access.utils;
 
 import static io.actor4j.core.actors.ActorWithCache.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -31,6 +33,7 @@ import io.actor4j.core.data.access.DataAccessActor;
 import io.actor4j.core.data.access.DocPersistentContext;
 import io.actor4j.core.data.access.DataAccessType;
 import io.actor4j.core.data.access.PersistentDTO;
+import io.actor4j.core.data.access.PersistentDataAccessDTO;
 import io.actor4j.core.data.access.PrimaryPersistentCacheActor;
 import io.actor4j.core.data.access.SecondaryPersistentCacheActor;
 import io.actor4j.core.data.access.SqlPersistentContext;
@@ -100,6 +103,16 @@ public class PersistentActorCacheManager<K, V> {
 			return null;
 	}
 	
+	@SuppressWarnings("unchecked")
+	public Map<K, V> getAll(ActorMessage<?> message) {	
+		if (message.tag()==GET_ALL && message.value()!=null && message.value() instanceof PersistentDataAccessDTO) {
+			PersistentDataAccessDTO<K, V> dto = (PersistentDataAccessDTO<K, V>)message.value();
+			return dto.entries();
+		}
+		else
+			return null;
+	}
+	
 	protected void tell(Object value, int tag) {
 		if (replica!=null)
 			actorRef.tell(value, tag, replica);
@@ -116,6 +129,16 @@ public class PersistentActorCacheManager<K, V> {
 			tell(PersistentDTO.create(key, null, actorRef.self()), GET);
 	}
 	
+	// Answered with one message, containing the entries of all keys found
+	public void getAll(List<K> keys) {
+		if (dataAccessType==DOC) {
+			if (keyname!=null)
+				tell(PersistentDTO.createWithKeys(keys, DocPersistentContext.of(keyname, collectionName), actorRef.self()), GET_ALL);
+		}
+		else
+			tell(PersistentDTO.createWithKeys(keys, null, actorRef.self()), GET_ALL);
+	}
+	
 	public void set(K key, V value) {
 		if (dataAccessType==DOC) {
 			if (keyname!=null)
@@ -125,6 +148,15 @@ public class PersistentActorCacheManager<K, V> {
 			tell(PersistentDTO.create(key, value, actorRef.self()), SET);
 	}
 	
+	public void setAll(Map<K, V> entries) {
+		if (dataAccessType==DOC) {
+			if (keyname!=null)
+				tell(PersistentDTO.createWithEntries(entries, DocPersistentContext.of(keyname, collectionName), actorRef.self()), SET_ALL);
+		}
+		else
+			tell(PersistentDTO.createWithEntries(entries, null, actorRef.self()), SET_ALL);
+	}
+	
 	public void writeAround(K key, V value) {
 		if (dataAccessType==DOC) {
 			if (keyname!=null)
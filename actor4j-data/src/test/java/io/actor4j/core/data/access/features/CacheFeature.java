@@ -17,13 +17,17 @@ package io.actor4j.core.data.access.features;
 
 import org.junit.Test;
 
+import io.actor4j.cache.ExpiryPolicy;
+import io.actor4j.cache.Weigher;
+import io.actor4j.core.actors.ActorWithCache;
+import io.actor4j.core.data.access.DataAccessActor;
 import io.actor4j.core.data.access.cache.AsyncCacheLRU;
+import io.actor4j.core.data.access.cache.AsyncCacheTinyLFU;
 import io.actor4j.core.data.access.cache.AsyncCacheVolatileLRU;
 
 import static org.junit.Assert.*;
 
 import java.util.Iterator;
-import java.util.Map.Entry;
 
 public class CacheFeature {
 	@Test
@@ -64,12 +68,12 @@ public class CacheFeature {
 		cache.get(data[5][0], ()->{}, ()->{}, ()->{});
 		cache.get(data[4][0], ()->{}, ()->{}, ()->{});
 		
-		Iterator<Entry<Long, String>> iterator = cache.getLru().entrySet().iterator();
-		assertEquals(data[2][0], iterator.next().getValue());
-		assertEquals(data[3][0], iterator.next().getValue());
-		assertEquals(data[6][0], iterator.next().getValue());
-		assertEquals(data[5][0], iterator.next().getValue());
-		assertEquals(data[4][0], iterator.next().getValue());
+		Iterator<String> iterator = cache.getLru().iterator();
+		assertEquals(data[2][0], iterator.next());
+		assertEquals(data[3][0], iterator.next());
+		assertEquals(data[6][0], iterator.next());
+		assertEquals(data[5][0], iterator.next());
+		assertEquals(data[4][0], iterator.next());
 		/*
 		String nextToLast = null;
 		String last = null;
@@ -83,6 +87,28 @@ public class CacheFeature {
 		*/
 	}
 	
+	@Test(timeout=10000)
+	public void test_cache_lru_with_gc__expiry() throws InterruptedException {
+		AsyncCacheVolatileLRU<String, String> cache = new AsyncCacheVolatileLRU<>(100, 200, ExpiryPolicy.EXPIRE_AFTER_ACCESS);
+		
+		for (int i=0; i<50; i++)
+			cache.put("K"+i, "V"+i);
+		for (int i=0; i<50; i++)
+			cache.complete(ActorWithCache.SET, "K"+i, "V"+i);
+		
+		Thread.sleep(150);
+		assertEquals("V0", cache.get("K0", ()->{}, ()->{}, ()->{}).get()); // extends the expiration
+		Thread.sleep(150);
+		assertEquals("V0", cache.get("K0", ()->{}, ()->{}, ()->{}).get());
+		assertFalse(cache.get("K1", ()->{}, ()->{}, ()->{}).isPresent()); // expired on read
+		
+		// the timer wheel has a resolution of about one second
+		Thread.sleep(2_500);
+		cache.evict(Long.MAX_VALUE);
+		assertEquals(0, cache.getMap().size());
+		assertEquals(0, cache.getLru().size());
+	}
+	
 	@Test
 	public void test_cache_lru__get_put_resize() {
 		AsyncCacheLRU<String, String> cache = new AsyncCacheLRU<>(5);
@@ -129,6 +155,70 @@ public class CacheFeature {
 		assertEquals(data[4][0], iterator.next());
 	}
 	
+	@Test
+	public void test_cache_tiny_lfu__admission() {
+		AsyncCacheTinyLFU<String, String> cache = new AsyncCacheTinyLFU<>(100);
+		
+		// hot working set
+		for (int j=0; j<8; j++)
+			for (int i=0; i<100; i++) {
+				String key = "H"+i;
+				if (!cache.get(key, ()->{}, ()->{}, ()->{}).isPresent())
+					cache.complete(DataAccessActor.FIND_ONE, key, "V"+i);
+			}
+		assertEquals(100, cache.getMap().size());
+		
+		// scan of cold keys, each accessed only once
+		for (int i=0; i<300; i++) {
+			String key = "C"+i;
+			cache.get(key, ()->{}, ()->{}, ()->{});
+			cache.complete(DataAccessActor.FIND_ONE, key, "V"+i);
+		}
+		assertEquals(100, cache.getMap().size());
+		for (int i=0; i<100; i++)
+			assertTrue(cache.getMap().containsKey("H"+i));
+		
+		// written values are always admitted
+		cache.put("C0", "V0");
+		assertTrue(cache.getMap().containsKey("C0"));
+		assertEquals(100, cache.getMap().size());
+	}
+	
+	@Test
+	public void test_cache_lru__weight() {
+		Weigher<String, String> weigher = (key, value) -> value.length();
+		AsyncCacheLRU<String, String> cache = new AsyncCacheLRU<>(100, weigher);
+		AsyncCacheVolatileLRU<String, String> volatileCache = new AsyncCacheVolatileLRU<>(100, weigher);
+		
+		for (String key : new String[] {"A", "B", "C"}) {
+			cache.put(key, "x".repeat(30));
+			volatileCache.put(key, "x".repeat(30));
+		}
+		assertEquals(90, cache.weight());
+		assertEquals(90, volatileCache.weight());
+		cache.get("A", ()->{}, ()->{}, ()->{});
+		volatileCache.get("A", ()->{}, ()->{}, ()->{});
+		
+		cache.put("D", "x".repeat(50)); // evicts B and C
+		volatileCache.put("D", "x".repeat(50));
+		assertEquals(80, cache.weight());
+		assertEquals(80, volatileCache.weight());
+		assertTrue(cache.getMap().containsKey("A") && volatileCache.getMap().containsKey("A"));
+		assertFalse(cache.getMap().containsKey("B") || volatileCache.getMap().containsKey("B"));
+		
+		cache.put("A", "x".repeat(70)); // evicts D
+		volatileCache.put("A", "x".repeat(70));
+		assertEquals(70, cache.weight());
+		assertEquals(70, volatileCache.weight());
+		assertEquals(1, cache.getMap().size());
+		assertEquals(1, volatileCache.getLru().size());
+		
+		cache.remove("A", ()->{}, ()->{});
+		volatileCache.remove("A", ()->{}, ()->{});
+		assertEquals(0, cache.weight());
+		assertEquals(0, volatileCache.weight());
+	}
+	
 //	@Test
 //	public void test_cache_default__get_put() {
 //		CacheAsMap<String, String> cache = new CacheAsMap<>();
@@ -18,10 +18,24 @@ package io.actor4j.core.data.access.features;
 import org.junit.Test;
 
 import io.actor4j.core.data.access.ims.IMS;
+import io.actor4j.core.data.access.ims.IMSCodecs;
 import io.actor4j.core.data.access.ims.IMSIndex;
+import io.actor4j.core.data.access.ims.IMSQuery;
+import io.actor4j.core.data.access.ims.IMSSnapshot;
+import io.actor4j.core.data.access.ims.IMSWriteAheadLog;
+import io.actor4j.core.data.access.ims.LongBitmapSet;
+import io.actor4j.core.data.access.ims.LongHashMap;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public class IMSFeature {
 	@Test(timeout=5000)
 	public void test_basic() {
@@ -91,4 +105,177 @@ public class IMSFeature {
 		soundex.idxRemove.apply("KUCHEN");
 		assertEquals(3, soundex.idxReduce.get().get());
 	}
+	
+	@Test(timeout=5000)
+	public void test_query() {
+		IMS<String, String> imdb = new IMS<>();
+		
+		IMSIndex<String, String> initial = new IMSIndex<>("initial");
+		initial
+			.create((k, v) -> v.substring(0, 1))
+			.get()
+			.syncData((k, v) -> v.substring(0, 1));
+		IMSIndex<String, String> length = new IMSIndex<>("length");
+		length
+			.create((k, v) -> v.length(), true)
+			.syncData((k, v) -> v.length());
+		
+		imdb.add(initial);
+		imdb.create(initial);
+		imdb.add(length);
+		imdb.create(length);
+		
+		imdb.put("1", "Insel");
+		imdb.put("2", "Sonne");
+		imdb.put("3", "Erde");
+		imdb.put("4", "Mond");
+		imdb.put("5", "Kuchen");
+		imdb.put("6", "Mars");
+		
+		assertEquals(Set.of("Sonne"), imdb.find(IMSQuery.eq("initial", "S")).collect(Collectors.toSet()));
+		assertEquals(Set.of("Erde", "Mond", "Mars"), imdb.find(IMSQuery.range("length", 4, 5)).collect(Collectors.toSet()));
+		assertEquals(Set.of("Insel", "Sonne", "Kuchen"), imdb.find(IMSQuery.range("length", 5, null)).collect(Collectors.toSet()));
+		assertEquals(Set.of("Mond", "Mars"), imdb.find(IMSQuery.and(IMSQuery.eq("initial", "M"), IMSQuery.range("length", null, 5))).collect(Collectors.toSet()));
+		assertEquals(Set.of("4", "6"), imdb.keys(IMSQuery.and(IMSQuery.eq("initial", "M"), IMSQuery.range("length", 4, 5))));
+		assertEquals(0, imdb.find(IMSQuery.and(IMSQuery.eq("initial", "K"), IMSQuery.eq("length", 4))).count());
+		
+		// the index can not be modified through the returned keys
+		Set<String> keys = imdb.keys(IMSQuery.eq("initial", "M"));
+		assertEquals(Set.of("4", "6"), keys);
+		try {
+			keys.clear();
+			fail();
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(Set.of("Mond", "Mars"), imdb.find(IMSQuery.eq("initial", "M")).collect(Collectors.toSet()));
+	}
+	
+	@Test(timeout=5000)
+	public void test_long_keys() {
+		LongHashMap<String> map = new LongHashMap<>();
+		for (long i=0; i<10_000; i++)
+			map.put(i*31, String.valueOf(i));
+		for (long i=0; i<10_000; i+=2)
+			map.remove(i*31);
+		assertEquals(5_000, map.size());
+		assertEquals("9999", map.get(9999L*31));
+		assertNull(map.get(9998L*31));
+		
+		LongBitmapSet bitmap = new LongBitmapSet();
+		Set<Long> expected = new HashSet<>();
+		for (long i=0; i<20_000; i+=3) { // dense and sparse containers
+			bitmap.add(i);
+			expected.add(i);
+		}
+		bitmap.add(-1L);
+		expected.add(-1L);
+		assertEquals(expected, bitmap);
+		
+		LongBitmapSet other = new LongBitmapSet();
+		for (long i=0; i<20_000; i+=2)
+			other.add(i);
+		bitmap.retainAll(other);
+		expected.retainAll(other);
+		assertEquals(expected, bitmap);
+		
+		IMS<Long, String> imdb = IMS.ofLongKeys();
+		IMSIndex<Long, String> initial = IMSIndex.ofLongKeys("initial");
+		initial
+			.create((k, v) -> v.substring(0, 1))
+			.syncData((k, v) -> v.substring(0, 1));
+		IMSIndex<Long, String> length = IMSIndex.ofLongKeys("length");
+		length
+			.create((k, v) -> v.length(), true)
+			.syncData((k, v) -> v.length());
+		
+		imdb.add(initial);
+		imdb.create(initial);
+		imdb.add(length);
+		imdb.create(length);
+		
+		imdb.put(1L, "Insel");
+		imdb.put(2L, "Sonne");
+		imdb.put(3L, "Erde");
+		imdb.put(4L, "Mond");
+		imdb.put(5L, "Kuchen");
+		imdb.put(6L, "Mars");
+		
+		assertEquals(Set.of("Erde", "Mond", "Mars"), imdb.find(IMSQuery.range("length", 4, 5)).collect(Collectors.toSet()));
+		assertEquals(Set.of(4L, 6L), imdb.keys(IMSQuery.and(IMSQuery.eq("initial", "M"), IMSQuery.range("length", 4, 5))));
+	}
+	
+	@Test(timeout=5000)
+	public void test_snapshot() throws IOException {
+		Path dir = Files.createTempDirectory("ims");
+		
+		IMS<Long, String> imdb = new IMS<>();
+		IMSIndex<Long, String> initial = new IMSIndex<>("initial");
+		initial
+			.create((k, v) -> v.substring(0, 1))
+			.syncData((k, v) -> v.substring(0, 1));
+		imdb.add(initial);
+		imdb.create(initial);
+		
+		IMSSnapshot<Long, String> snapshot = new IMSSnapshot<>(dir.resolve("ims.snapshot"), IMSCodecs.longCodec(), IMSCodecs.stringCodec());
+		try (IMSWriteAheadLog<Long, String> wal = new IMSWriteAheadLog<>(dir.resolve("ims.wal"), IMSCodecs.longCodec(), IMSCodecs.stringCodec())) {
+			imdb.setWriteAheadLog(wal);
+			imdb.put(1L, "Insel");
+			imdb.put(2L, "Sonne");
+			imdb.put(3L, "Erde");
+			snapshot.write(imdb);
+			assertEquals(0, Files.size(wal.getPath()));
+			imdb.put(4L, "Mond");
+			imdb.remove(1L);
+		}
+		
+		IMS<Long, String> restored = new IMS<>();
+		IMSIndex<Long, String> restoredInitial = new IMSIndex<>("initial");
+		restoredInitial
+			.create((k, v) -> v.substring(0, 1))
+			.syncData((k, v) -> v.substring(0, 1));
+		restored.add(restoredInitial);
+		try (IMSWriteAheadLog<Long, String> wal = new IMSWriteAheadLog<>(dir.resolve("ims.wal"), IMSCodecs.longCodec(), IMSCodecs.stringCodec())) {
+			restored.setWriteAheadLog(wal);
+			assertTrue(snapshot.restore(restored));
+		}
+		
+		assertEquals(Map.of(2L, "Sonne", 3L, "Erde", 4L, "Mond"), restored.getData());
+		assertEquals(Set.of("Mond"), restored.find(IMSQuery.eq("initial", "M")).collect(Collectors.toSet()));
+		
+		Files.delete(dir.resolve("ims.wal"));
+		Files.delete(dir.resolve("ims.snapshot"));
+		Files.delete(dir);
+	}
+	
+	@Test(timeout=5000)
+	public void test_update() {
+		IMS<String, String> imdb = new IMS<>();
+		IMSIndex<String, String> initial = new IMSIndex<>("initial");
+		initial
+			.create((k, v) -> v.substring(0, 1))
+			.get()
+			.syncData((k, v) -> v.substring(0, 1));
+		imdb.add(initial);
+		imdb.create(initial);
+		
+		imdb.put("1", "Insel");
+		imdb.put("2", "Mond");
+		imdb.put("1", "Erde");
+		assertEquals(0, imdb.find(IMSQuery.eq("initial", "I")).count());
+		assertEquals(Set.of("Erde"), imdb.find(IMSQuery.eq("initial", "E")).collect(Collectors.toSet()));
+		assertFalse(initial.idxMap.containsKey("I"));
+		imdb.remove("2");
+		imdb.remove("3");
+		assertEquals(Set.of("E"), initial.idxMap.keySet());
+		
+		// parallel creation
+		for (int i=0; i<50_000; i++)
+			imdb.getData().put("k"+i, "v"+i);
+		imdb.create();
+		assertEquals(2, initial.idxMap.size());
+		assertEquals(50_000, initial.idxMap.get("v").size());
+		assertEquals(Set.of("1"), initial.idxMap.get("E"));
+	}
 }
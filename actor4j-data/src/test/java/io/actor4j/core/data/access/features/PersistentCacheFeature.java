@@ -28,12 +28,15 @@ import io.actor4j.core.data.access.PersistentDTO;
 import io.actor4j.core.data.access.PrimaryPersistentCacheActor;
 import io.actor4j.core.data.access.SecondaryPersistentCacheActor;
 import io.actor4j.core.data.access.ims.IMSDataAccessActor;
+import io.actor4j.core.data.access.ims.ShardedIMSDataAccessActor;
 import io.actor4j.core.data.access.utils.PersistentActorCacheManager;
 import io.actor4j.core.id.ActorId;
 
 import static io.actor4j.core.logging.ActorLogger.*;
 import static org.junit.Assert.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
@@ -180,4 +183,134 @@ public class PersistentCacheFeature {
 		
 		system.shutdownWithActors(true);
 	}
+	
+	@Test(timeout=5000)
+	public void test_primary_secondary_persistent_cache_actor_with_manager_imdb_get_all() {
+		ActorSystem system = ActorSystem.create(AllFeaturesTest.factory());
+		final int COUNT = 4/*system.getParallelismMin()*system.getParallelismFactor()*/;
+		
+		CountDownLatch testDone = new CountDownLatch(1);
+		
+		ActorId mediator = system.addActor(() -> new Actor("mediator") {
+			protected PersistentActorCacheManager<String, TestObject> manager;
+			
+			protected final List<String> keys = List.of("key4", "key1", "key3", "key2");
+			protected final List<String> values = List.of("value4", "value1", "value3", "value2");
+			
+			@Override 
+			public void preStart() {
+				ActorId dataAccess = system.addActor(() -> new IMSDataAccessActor<String, TestObject>("dc"));
+				
+				manager = new PersistentActorCacheManager<>(this, "cache1", "key", "test");
+				system.addActor(manager.create(COUNT, 500, dataAccess, NONE));
+				
+				manager.writeAround("key1", new TestObject("key1", "value1"));
+				manager.writeAround("key2", new TestObject("key2", "value2"));
+				manager.setAll(Map.of("key3", new TestObject("key3", "value3"), "key4", new TestObject("key4", "value4")));
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				manager.getAll(keys);
+				
+				await((msg) -> msg.tag()==ActorWithCache.GET_ALL && msg.source()!=system.SYSTEM_ID() && msg.value()!=null, (msg) -> {
+					Map<String, TestObject> entries = manager.getAll(msg);
+					
+					if (entries!=null && entries.size()==keys.size()) {
+						for (int i=0; i<keys.size(); i++) {
+							assertEquals(keys.get(i), entries.get(keys.get(i)).key());
+							assertEquals(values.get(i), entries.get(keys.get(i)).value());
+						}
+						logger().log(DEBUG, entries.toString());
+						testDone.countDown();
+					}
+					unbecome();
+				});
+			}
+		});
+		
+		system.start();
+		
+		Timer timer = new Timer();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				system.send(ActorMessage.create(null, 0, system.SYSTEM_ID(), mediator));
+			}
+		}, 0, 100);
+		
+		try {
+			testDone.await();
+			timer.cancel();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		system.shutdownWithActors(true);
+	}
+	
+	@Test(timeout=5000)
+	public void test_primary_secondary_persistent_cache_actor_with_manager_sharded_imdb_get_all() {
+		ActorSystem system = ActorSystem.create(AllFeaturesTest.factory());
+		final int COUNT = 4/*system.getParallelismMin()*system.getParallelismFactor()*/;
+		
+		CountDownLatch testDone = new CountDownLatch(1);
+		
+		ActorId mediator = system.addActor(() -> new Actor("mediator") {
+			protected PersistentActorCacheManager<String, TestObject> manager;
+			
+			protected final List<String> keys = List.of("key4", "key1", "key3", "key2");
+			protected final List<String> values = List.of("value4", "value1", "value3", "value2");
+			
+			@Override 
+			public void preStart() {
+				ActorId dataAccess = system.addActor(() -> new ShardedIMSDataAccessActor<String, TestObject>("dc", 3));
+				
+				manager = new PersistentActorCacheManager<>(this, "cache1", "key", "test");
+				system.addActor(manager.create(COUNT, 500, dataAccess, NONE));
+				
+				manager.writeAround("key1", new TestObject("key1", "value1"));
+				manager.writeAround("key2", new TestObject("key2", "value2"));
+				manager.setAll(Map.of("key3", new TestObject("key3", "value3"), "key4", new TestObject("key4", "value4")));
+			}
+			
+			@Override
+			public void receive(ActorMessage<?> message) {
+				manager.getAll(keys);
+				
+				await((msg) -> msg.tag()==ActorWithCache.GET_ALL && msg.source()!=system.SYSTEM_ID() && msg.value()!=null, (msg) -> {
+					Map<String, TestObject> entries = manager.getAll(msg);
+					
+					if (entries!=null && entries.size()==keys.size()) {
+						for (int i=0; i<keys.size(); i++) {
+							assertEquals(keys.get(i), entries.get(keys.get(i)).key());
+							assertEquals(values.get(i), entries.get(keys.get(i)).value());
+						}
+						logger().log(DEBUG, entries.toString());
+						testDone.countDown();
+					}
+					unbecome();
+				});
+			}
+		});
+		
+		system.start();
+		
+		Timer timer = new Timer();
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				system.send(ActorMessage.create(null, 0, system.SYSTEM_ID(), mediator));
+			}
+		}, 0, 100);
+		
+		try {
+			testDone.await();
+			timer.cancel();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		system.shutdownWithActors(true);
+	}
 }
@@ -19,17 +19,18 @@ import java.util.List;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import io.actor4j.core.utils.Pair;
 import jakarta.persistence.EntityManager;
 
 public interface ConcurrentJPABatchWriter<K, E> extends JPABatchWriter<K, E> {
-	public static <K, E> ConcurrentJPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+	public static <K, E> ConcurrentJPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator,
 		Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
 		ConcurrentJPABatchWriter<K, E> result = null;
 		
 		try {
-			result = new ConcurrentJPABatchWriterImpl<K, E>(entityManager, entityType, ordered, size, onSuccess, onError);
+			result = new ConcurrentJPABatchWriterImpl<K, E>(entityManager, entityType, ordered, size, maxLingerTime, maxBytes, sizeEstimator, onSuccess, onError);
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -37,4 +38,9 @@ public interface ConcurrentJPABatchWriter<K, E> extends JPABatchWriter<K, E> {
 		
 		return result;
 	}
+	
+	public static <K, E> ConcurrentJPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+		Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
+		return create(entityManager, entityType, ordered, size, 0, 0, null, onSuccess, onError);
+	}
 }
@@ -21,6 +21,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import io.actor4j.core.utils.Pair;
 import jakarta.persistence.EntityManager;
@@ -29,13 +30,19 @@ public class ConcurrentJPABatchWriterImpl<K, E> extends JPABatchWriterImpl<K, E>
 	protected final Lock lock;
 
 	public ConcurrentJPABatchWriterImpl(EntityManager entityManager, Class<E> entityType,
-			boolean ordered, int size, Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess,
-			BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
-		super(entityManager, entityType, ordered, size, onSuccess, onError);
+			boolean ordered, int size, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator, 
+			Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
+		super(entityManager, entityType, ordered, size, maxLingerTime, maxBytes, sizeEstimator, onSuccess, onError);
 		
 		lock = new ReentrantLock();
 	}
 	
+	public ConcurrentJPABatchWriterImpl(EntityManager entityManager, Class<E> entityType,
+			boolean ordered, int size, Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess,
+			BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
+		this(entityManager, entityType, ordered, size, 0, 0, null, onSuccess, onError);
+	}
+	
 	@Override
 	public void write(JPAWriteModel request, UUID id) {
 		lock.lock();
@@ -57,4 +64,19 @@ public class ConcurrentJPABatchWriterImpl<K, E> extends JPABatchWriterImpl<K, E>
 			lock.unlock();
 		}
 	}
+	
+	@Override
+	public boolean flushIfExpired() {
+		boolean result = false;
+		
+		lock.lock();
+		try {
+			result = super.flushIfExpired();
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		return result;
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.database.jpa;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+import io.actor4j.core.utils.Pair;
+
+/**
+ * Reusable, array-backed buffer of write requests with parallel id and model arrays.
+ * 
+ * The list returned by {@link #requests()} is a view of the buffer (without copying)
+ * and is only valid until the buffer is cleared.
+ */
+public class JPABatchBuffer {
+	protected UUID[] ids;
+	protected JPAWriteModel[] models;
+	protected int size;
+	
+	protected final List<Pair<UUID, JPAWriteModel>> requestsView;
+	
+	protected final class RequestsView extends AbstractList<Pair<UUID, JPAWriteModel>> implements RandomAccess {
+		@Override
+		public Pair<UUID, JPAWriteModel> get(int index) {
+			return Pair.of(getId(index), getModel(index));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+	
+	public JPABatchBuffer(int capacity) {
+		super();
+		
+		capacity = Math.max(capacity, 1);
+		ids = new UUID[capacity];
+		models = new JPAWriteModel[capacity];
+		size = 0;
+		
+		requestsView = new RequestsView();
+	}
+	
+	public void add(UUID id, JPAWriteModel model) {
+		if (size==ids.length) {
+			ids = Arrays.copyOf(ids, size<<1);
+			models = Arrays.copyOf(models, size<<1);
+		}
+		ids[size] = id;
+		models[size] = model;
+		size++;
+	}
+	
+	public UUID getId(int index) {
+		if (index>=size)
+			throw new IndexOutOfBoundsException(index);
+		
+		return ids[index];
+	}
+	
+	public JPAWriteModel getModel(int index) {
+		if (index>=size)
+			throw new IndexOutOfBoundsException(index);
+		
+		return models[index];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size==0;
+	}
+	
+	public List<Pair<UUID, JPAWriteModel>> requests() {
+		return requestsView;
+	}
+	
+	/**
+	 * Releases the references for the garbage collector, the arrays are kept for reuse.
+	 */
+	public void clear() {
+		Arrays.fill(ids, 0, size, null);
+		Arrays.fill(models, 0, size, null);
+		size = 0;
+	}
+}
@@ -19,20 +19,29 @@ import java.util.List;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import io.actor4j.core.utils.Pair;
 import jakarta.persistence.EntityManager;
 
+/**
+ * The list passed to the callbacks is a view of a reused buffer, it is only valid during the call.
+ */
 public interface JPABatchWriter<K, E> {
 	public void write(JPAWriteModel request, UUID id);
 	public void flush();
+	/**
+	 * Flushes the buffered requests, if the oldest one has exceeded the max linger time.
+	 * Should be called periodically (e.g., by the timer of the owning actor).
+	 */
+	public boolean flushIfExpired();
 	
-	public static <K, E> JPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+	public static <K, E> JPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator,
 		Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
 		JPABatchWriter<K, E> result = null;
 		
 		try {
-			result = new JPABatchWriterImpl<K, E>(entityManager, entityType, ordered, size, onSuccess, onError);
+			result = new JPABatchWriterImpl<K, E>(entityManager, entityType, ordered, size, maxLingerTime, maxBytes, sizeEstimator, onSuccess, onError);
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -40,4 +49,9 @@ public interface JPABatchWriter<K, E> {
 		
 		return result;
 	}
+	
+	public static <K, E> JPABatchWriter<K, E> create(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+		Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
+		return create(entityManager, entityType, ordered, size, 0, 0, null, onSuccess, onError);
+	}
 }
@@ -15,12 +15,11 @@
  */
 package io.actor4j.database.jpa;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import io.actor4j.core.utils.Pair;
 import jakarta.persistence.EntityManager;
@@ -32,34 +31,66 @@ public class JPABatchWriterImpl<K, E> implements JPABatchWriter<K, E> {
 	protected final EntityManager entityManager;
 	protected final Class<E> entityType;
 	
-	protected final Queue<Pair<UUID, JPAWriteModel>> requestsQueue;
+	protected final JPABatchBuffer buffer;
 	protected final boolean ordered;
 	
 	protected final int size;
-	protected int count;
+	
+	protected final long maxLingerTime; // in ms, 0 = disabled
+	protected final long maxBytes; // 0 = disabled
+	protected final ToLongFunction<JPAWriteModel> sizeEstimator;
+	protected long bytes;
+	protected long firstWriteTime; // in ns, of the oldest buffered request
 	
 	protected final Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess;
 	protected final BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError;
 
-	public JPABatchWriterImpl(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+	public JPABatchWriterImpl(EntityManager entityManager, Class<E> entityType, boolean ordered, int size, long maxLingerTime, long maxBytes, ToLongFunction<JPAWriteModel> sizeEstimator,
 			Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
 		super();
 		this.entityManager = entityManager;
 		this.entityType = entityType;
 		this.ordered = ordered;
 		this.size = size;
+		this.maxLingerTime = maxLingerTime;
+		this.maxBytes = maxBytes;
+		this.sizeEstimator = sizeEstimator;
 		this.onSuccess = onSuccess;
 		this.onError = onError;
 		
-		count = 0;
-		requestsQueue = new LinkedList<>();
+		bytes = 0;
+		buffer = new JPABatchBuffer(size);
+	}
+	
+	public JPABatchWriterImpl(EntityManager entityManager, Class<E> entityType, boolean ordered, int size,
+			Consumer<List<Pair<UUID, JPAWriteModel>>> onSuccess, BiConsumer<List<Pair<UUID, JPAWriteModel>>, Throwable> onError) {
+		this(entityManager, entityType, ordered, size, 0, 0, null, onSuccess, onError);
 	}
 	
 	@Override
 	public void write(JPAWriteModel request, UUID id) {
-		requestsQueue.offer(Pair.of(id, request));
-		if (++count==size)
+		if (buffer.isEmpty())
+			firstWriteTime = System.nanoTime();
+		buffer.add(id, request);
+		if (maxBytes>0 && sizeEstimator!=null)
+			bytes += sizeEstimator.applyAsLong(request);
+		
+		if (buffer.size()==size || (maxBytes>0 && bytes>=maxBytes) || isExpired())
+			flush();
+	}
+	
+	@Override
+	public boolean flushIfExpired() {
+		boolean result = isExpired();
+		
+		if (result)
 			flush();
+		
+		return result;
+	}
+	
+	protected boolean isExpired() {
+		return maxLingerTime>0 && !buffer.isEmpty() && System.nanoTime()-firstWriteTime>=maxLingerTime*1_000_000L;
 	}
 	
 	protected void write(JPAWriteModel request) {
@@ -76,13 +107,17 @@ public class JPABatchWriterImpl<K, E> implements JPABatchWriter<K, E> {
 	
 	@Override
 	public void flush() {
-		List<Pair<UUID, JPAWriteModel>> writeRequests = new LinkedList<>(requestsQueue);
+		if (buffer.isEmpty())
+			return;
+		
+		List<Pair<UUID, JPAWriteModel>> writeRequests = buffer.requests();
 		
 		EntityTransaction transaction = null;
 		try {
 			transaction = entityManager.getTransaction();
 			transaction.begin();
-			writeRequests.forEach((r) -> write(r.right()));
+			for (int i=0; i<buffer.size(); i++)
+				write(buffer.getModel(i));
 			try {
 				entityManager.flush();
 				
@@ -95,11 +130,12 @@ public class JPABatchWriterImpl<K, E> implements JPABatchWriter<K, E> {
 				transaction.rollback();
 				if (!ordered) {
 					// Transactions Manually
-					writeRequests.forEach((r) -> {
+					for (int i=0; i<buffer.size(); i++) {
+						JPAWriteModel request = buffer.getModel(i);
 						EntityTransaction newTransaction = entityManager.getTransaction();
 						try {
 							newTransaction.begin();
-							write(r.right());
+							write(request);
 							entityManager.flush();
 						}
 						catch (Exception ex) {
@@ -113,9 +149,9 @@ public class JPABatchWriterImpl<K, E> implements JPABatchWriter<K, E> {
 						    }
 							
 							if (onError!=null)
-								onError.accept(List.of(r), e);
+								onError.accept(List.of(Pair.of(buffer.getId(i), request)), e);
 						}
-					});
+					}
 				}
 				else {
 					if (onError!=null)
@@ -136,7 +172,7 @@ public class JPABatchWriterImpl<K, E> implements JPABatchWriter<K, E> {
 		    }
 		}
 		
-		requestsQueue.clear();
-		count = 0;
+		buffer.clear();
+		bytes = 0;
 	}
 }
@@ -20,11 +20,14 @@ import static io.actor4j.core.messages.ActorReservedTag.RESERVED_DATA_ACCESS_INS
 import static io.actor4j.core.messages.ActorReservedTag.RESERVED_DATA_ACCESS_REPLACE_ONE;
 import static io.actor4j.core.messages.ActorReservedTag.RESERVED_DATA_ACCESS_UPDATE_ONE;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
 
 public class JPAOperations {
 	public static boolean hasOne(Object primaryKey, Class<?> entityType, EntityManager entityManager) {
@@ -118,4 +121,32 @@ public class JPAOperations {
 		TypedQuery<E> query = entityManager.createQuery("SELECT * FROM "+entityType.getSimpleName(), entityType);
 		return query.getResultList();
 	}
+	
+	// Loads all entities with one of the given primary keys, with a single IN query
+	public static <E> List<E> findAll(Collection<?> primaryKeys, Class<E> entityType, EntityManager entityManager) {
+		EntityType<E> type = entityManager.getMetamodel().entity(entityType);
+		
+		TypedQuery<E> query = entityManager.createQuery("SELECT e FROM "+type.getName()+" e WHERE e."+getIdName(type)+" IN :keys", entityType);
+		query.setParameter("keys", primaryKeys);
+		return query.getResultList();
+	}
+	
+	// Resolved without the id type, getId(Class) fails for primitive ids (long vs. Long)
+	protected static String getIdName(EntityType<?> type) {
+		String result = null;
+		
+		for (SingularAttribute<?, ?> attribute : type.getSingularAttributes())
+			if (attribute.isId()) {
+				result = attribute.getName();
+				break;
+			}
+		if (result==null)
+			throw new IllegalArgumentException("No single id attribute: "+type.getName());
+		
+		return result;
+	}
+	
+	public static Object getPrimaryKey(Object entity, EntityManager entityManager) {
+		return entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+	}
 }
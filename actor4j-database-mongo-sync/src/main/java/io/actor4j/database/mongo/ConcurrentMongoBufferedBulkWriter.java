@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015-2017, David A. Bauer. All rights reserved.
+ * Copyright (c) 2015-2023, David A. Bauer. All rights reserved.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package io.actor4j.database.mongo;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -28,14 +29,34 @@ import com.mongodb.client.model.WriteModel;
 
 import io.actor4j.core.utils.Pair;
 
+/**
+ * Bulk writer that may be shared between threads. Full buffers are handed over to a dedicated flusher,
+ * producers are only blocked when the limit of pending batches is reached. The callbacks are invoked
+ * by the flusher and must not write to the same bulk writer.
+ */
 public interface ConcurrentMongoBufferedBulkWriter extends MongoBufferedBulkWriter {
-	public static ConcurrentMongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, 
+	public static final int DEFAULT_MAX_PENDING_BATCHES = 4;
+	public static final int DEFAULT_MAX_RETRIES = 3;
+	public static final long DEFAULT_RETRY_BACKOFF = 100; // in ms
+	
+	/**
+	 * Hands over the buffered requests to the flusher. The future completes, when they (and all previously
+	 * buffered requests) are written.
+	 */
+	public CompletableFuture<Void> flushAsync();
+	/**
+	 * Flushes the buffered requests and stops the flusher.
+	 */
+	public void close();
+	
+	public static ConcurrentMongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, long maxLingerTime, long maxBytes, int maxPendingBatches,
+			int maxRetries, long retryBackoff,
 			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
 		ConcurrentMongoBufferedBulkWriter result = null;
 
 		try {
 			MongoCollection<Document> collection = client.getDatabase(databaseName).getCollection(collectionName);
-			result =  new ConcurrentMongoBufferedBulkWriterImpl(collection, ordered, size, onSuccess, onError);
+			result =  new ConcurrentMongoBufferedBulkWriterImpl(collection, ordered, size, maxLingerTime, maxBytes, maxPendingBatches, maxRetries, retryBackoff, onSuccess, onError);
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -43,4 +64,19 @@ public interface ConcurrentMongoBufferedBulkWriter extends MongoBufferedBulkWrit
 		
 		return result;
 	}
+	
+	public static ConcurrentMongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, long maxLingerTime, long maxBytes, int maxPendingBatches,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		return create(client, databaseName, collectionName, ordered, size, maxLingerTime, maxBytes, maxPendingBatches, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF, onSuccess, onError);
+	}
+	
+	public static ConcurrentMongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, long maxLingerTime, long maxBytes,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		return create(client, databaseName, collectionName, ordered, size, maxLingerTime, maxBytes, DEFAULT_MAX_PENDING_BATCHES, onSuccess, onError);
+	}
+	
+	public static ConcurrentMongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, 
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		return create(client, databaseName, collectionName, ordered, size, 0, 0, onSuccess, onError);
+	}
 }
@@ -17,6 +17,10 @@ package io.actor4j.database.mongo;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
@@ -29,23 +33,70 @@ import com.mongodb.client.model.WriteModel;
 
 import io.actor4j.core.utils.Pair;
 
+/**
+ * Unlike {@link MongoBufferedBulkWriterImpl}, the bulk writes and therefore the callbacks run on the flusher thread
+ * and no longer on the thread calling {@code write} or {@code flush}.
+ */
 public class ConcurrentMongoBufferedBulkWriterImpl extends MongoBufferedBulkWriterImpl implements ConcurrentMongoBufferedBulkWriter {
-	protected final Lock lock;
+	protected record Batch(MongoBulkBuffer buffer, CompletableFuture<Void> done) {
+	}
+	protected static final Batch POISON = new Batch(null, null);
+	
+	protected final Lock lock; // guards the active buffer, never held during a bulk write
+	protected final BlockingQueue<Batch> pendingBatches;
+	protected final BlockingQueue<MongoBulkBuffer> freeBuffers;
+	protected final Thread flusher;
+	protected final long idleTimeout; // in ms, polling period of the flusher for the max linger time
+	
+	protected volatile boolean closed;
 
-	public ConcurrentMongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size,
+	public ConcurrentMongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, long maxLingerTime, long maxBytes, int maxPendingBatches,
+			int maxRetries, long retryBackoff,
 			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess,
 			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
-		super(collection, ordered, size, onSuccess, onError);
-
+		super(collection, ordered, size, maxLingerTime, maxBytes, maxRetries, retryBackoff, onSuccess, onError);
 
 		lock = new ReentrantLock();
+		pendingBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+		// one active, one in flight and the pending ones
+		freeBuffers = new ArrayBlockingQueue<>(maxPendingBatches+1);
+		for (int i=0; i<maxPendingBatches+1; i++)
+			freeBuffers.offer(new MongoBulkBuffer(size));
+		idleTimeout = maxLingerTime>0 ? Math.max(maxLingerTime/2, 1) : 0;
+		
+		flusher = Thread.ofVirtual().name("mongo-bulk-flusher-"+collection.getNamespace().getCollectionName()).start(this::runFlusher);
+	}
+	
+	public ConcurrentMongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, long maxLingerTime, long maxBytes, int maxPendingBatches,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess,
+			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		this(collection, ordered, size, maxLingerTime, maxBytes, maxPendingBatches, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF, onSuccess, onError);
+	}
+	
+	public ConcurrentMongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, long maxLingerTime, long maxBytes,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess,
+			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		this(collection, ordered, size, maxLingerTime, maxBytes, DEFAULT_MAX_PENDING_BATCHES, onSuccess, onError);
+	}
+	
+	public ConcurrentMongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess,
+			BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		this(collection, ordered, size, 0, 0, onSuccess, onError);
 	}
 	
 	@Override
 	public void write(WriteModel<Document> request, UUID id) {
 		lock.lock();
 		try {
-			super.write(request, id);
+			if (buffer.isEmpty())
+				firstWriteTime = System.nanoTime();
+			buffer.add(id, request);
+			if (maxBytes>0)
+				bytes += estimateSize(request);
+			
+			if (buffer.size()==size || (maxBytes>0 && bytes>=maxBytes) || isExpired())
+				submit(swap()); // blocks only, if the limit of pending batches is reached
 		}
 		finally {
 			lock.unlock();
@@ -54,12 +105,177 @@ public class ConcurrentMongoBufferedBulkWriterImpl extends MongoBufferedBulkWrit
 	
 	@Override
 	public void flush() {
+		flushAsync().join();
+	}
+	
+	@Override
+	public CompletableFuture<Void> flushAsync() {
+		CompletableFuture<Void> result = null;
+		
+		lock.lock();
+		try {
+			// an empty batch still completes after all previously submitted batches
+			Batch batch = swap();
+			submit(batch);
+			result = batch.done();
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public boolean flushIfExpired() {
+		boolean result = false;
+		
+		lock.lock();
+		try {
+			result = isExpired();
+			if (result)
+				submit(swap());
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		
+		flush();
+		closed = true;
+		
 		lock.lock();
 		try {
-			super.flush();
+			pendingBatches.put(POISON);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			flusher.interrupt();
 		}
 		finally {
 			lock.unlock();
 		}
+		
+		try {
+			flusher.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	// must be called while holding the lock
+	protected Batch swap() {
+		MongoBulkBuffer next = freeBuffers.poll();
+		if (next==null)
+			try {
+				next = freeBuffers.take(); // all buffers are pending or in flight
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				next = new MongoBulkBuffer(size);
+			}
+		
+		return swap(next);
+	}
+	
+	// must be called while holding the lock
+	protected Batch swap(MongoBulkBuffer next) {
+		Batch result = new Batch(buffer, new CompletableFuture<>());
+		
+		buffer = next;
+		bytes = 0;
+		
+		return result;
+	}
+	
+	// must be called while holding the lock, so that batches are written in order
+	protected void submit(Batch batch) {
+		if (closed) {
+			execute(batch);
+			return;
+		}
+		
+		try {
+			pendingBatches.put(batch);
+			if (closed)
+				drain(); // the flusher may have stopped before the batch was queued
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			execute(batch); // requests are not dropped
+		}
+	}
+	
+	protected void execute(Batch batch) {
+		try {
+			bulkWrite(batch.buffer());
+		}
+		finally {
+			batch.buffer().clear();
+			freeBuffers.offer(batch.buffer());
+			batch.done().complete(null);
+		}
+	}
+	
+	protected void runFlusher() {
+		while (true) {
+			try {
+				Batch batch = idleTimeout>0 ? pendingBatches.poll(idleTimeout, TimeUnit.MILLISECONDS) : pendingBatches.take();
+				if (batch==POISON)
+					break;
+				else if (batch!=null)
+					execute(batch);
+				else
+					flushIdle();
+			}
+			catch (InterruptedException e) {
+				// the batches already handed over are written, so that threads waiting in flush are released
+				closed = true;
+				drain();
+				break;
+			}
+			catch (Exception e) {
+				// e.g. thrown by a callback, the flusher must keep running for the following batches
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	// writes the remaining batches after the flusher was stopped
+	protected void drain() {
+		Batch batch;
+		while ((batch = pendingBatches.poll())!=null)
+			if (batch!=POISON)
+				try {
+					execute(batch);
+				}
+				catch (Exception e) {
+					e.printStackTrace();
+				}
+	}
+	
+	// drives the max linger time, if there is no owner calling flushIfExpired
+	protected void flushIdle() {
+		// never blocks the flusher, a producer holding the lock may wait for free space in the queue
+		if (lock.tryLock()) {
+			try {
+				if (isExpired() && pendingBatches.remainingCapacity()>0) {
+					MongoBulkBuffer next = freeBuffers.poll();
+					if (next!=null)
+						pendingBatches.offer(swap(next));
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
 	}
 }
@@ -28,17 +28,32 @@ import com.mongodb.client.model.WriteModel;
 
 import io.actor4j.core.utils.Pair;
 
+/**
+ * The list passed to the callbacks is a view of a reused buffer, it is only valid during the call.
+ */
 public interface MongoBufferedBulkWriter {
 	public void write(WriteModel<Document> request, UUID id);
 	public void flush();
+	/**
+	 * Flushes the buffered requests, if the oldest one has exceeded the max linger time.
+	 * Should be called periodically (e.g., by the timer of the owning actor).
+	 */
+	public boolean flushIfExpired();
 	
-	public static MongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, 
+	/**
+	 * @param maxRetries max retries of the requests of a bulk write, that failed with a transient error (0 = disabled).
+	 * The retries are blocking the caller of write/flush. Only write errors of a MongoBulkWriteException
+	 * are retried, other errors fail the whole bulk write.
+	 * @param retryBackoff initial backoff in ms, doubled for each retry
+	 */
+	public static MongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, long maxLingerTime, long maxBytes,
+			int maxRetries, long retryBackoff,
 			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
 		MongoBufferedBulkWriter result = null;
 
 		try {
 			MongoCollection<Document> collection = client.getDatabase(databaseName).getCollection(collectionName);
-			result =  new MongoBufferedBulkWriterImpl(collection, ordered, size, onSuccess, onError);
+			result =  new MongoBufferedBulkWriterImpl(collection, ordered, size, maxLingerTime, maxBytes, maxRetries, retryBackoff, onSuccess, onError);
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -46,4 +61,15 @@ public interface MongoBufferedBulkWriter {
 		
 		return result;
 	}
+	
+	// without retries
+	public static MongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, long maxLingerTime, long maxBytes,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		return create(client, databaseName, collectionName, ordered, size, maxLingerTime, maxBytes, 0, 0, onSuccess, onError);
+	}
+	
+	public static MongoBufferedBulkWriter create(MongoClient client, String databaseName, String collectionName, boolean ordered, int size, 
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		return create(client, databaseName, collectionName, ordered, size, 0, 0, onSuccess, onError);
+	}
 }
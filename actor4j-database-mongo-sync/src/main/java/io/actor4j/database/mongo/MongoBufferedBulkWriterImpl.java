@@ -15,76 +15,279 @@
  */
 package io.actor4j.database.mongo;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.WriteModel;
 
 import io.actor4j.core.utils.Pair;
 
 public class MongoBufferedBulkWriterImpl implements MongoBufferedBulkWriter {
+	protected static final long MAX_RETRY_BACKOFF = 10_000; // in ms
+	// transient server errors, a write failing with one of them was not applied and can be retried
+	protected static final Set<Integer> RETRYABLE_ERROR_CODES = Set.of(
+		6/*HostUnreachable*/, 7/*HostNotFound*/, 89/*NetworkTimeout*/, 91/*ShutdownInProgress*/, 112/*WriteConflict*/,
+		189/*PrimarySteppedDown*/, 262/*ExceededTimeLimit*/, 9001/*SocketException*/, 10107/*NotWritablePrimary*/,
+		11600/*InterruptedAtShutdown*/, 11602/*InterruptedDueToReplStateChange*/, 13435/*NotPrimaryNoSecondaryOk*/,
+		13436/*NotPrimaryOrSecondary*/);
+	
+	protected static final byte SUCCEEDED = 0;
+	protected static final byte RETRY     = 1;
+	protected static final byte FAILED    = 2;
+	
 	protected final MongoCollection<Document> collection;
 	
-	protected final Queue<Pair<UUID, WriteModel<Document>>> requestsQueue;
+	protected MongoBulkBuffer buffer;
 	protected final boolean ordered;
+	protected final BulkWriteOptions bulkWriteOptions;
 	
 	protected final int size;
-	protected int count;
+	
+	protected final long maxLingerTime; // in ms, 0 = disabled
+	protected final long maxBytes; // 0 = disabled
+	protected long bytes;
+	protected long firstWriteTime; // in ns, of the oldest buffered request
+	
+	protected final int maxRetries; // of the failed subset of a bulk write
+	protected final long retryBackoff; // in ms, doubled for each retry
 	
 	protected final Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess;
 	protected final BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError;
 
-	public MongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, 
+	public MongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, long maxLingerTime, long maxBytes, int maxRetries, long retryBackoff,
 			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
 		super();
 		this.collection = collection;
 		this.ordered = ordered;
 		this.size = size;
+		this.maxLingerTime = maxLingerTime;
+		this.maxBytes = maxBytes;
+		this.maxRetries = maxRetries;
+		this.retryBackoff = retryBackoff;
 		this.onSuccess = onSuccess;
 		this.onError = onError;
 		
-		count = 0;
-		requestsQueue = new LinkedList<>();
+		bulkWriteOptions = new BulkWriteOptions().ordered(ordered);
+		bytes = 0;
+		buffer = new MongoBulkBuffer(size);
+	}
+	
+	public MongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, long maxLingerTime, long maxBytes,
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		this(collection, ordered, size, maxLingerTime, maxBytes, 0, 0, onSuccess, onError);
+	}
+	
+	public MongoBufferedBulkWriterImpl(MongoCollection<Document> collection, boolean ordered, int size, 
+			Consumer<List<Pair<UUID, WriteModel<Document>>>> onSuccess, BiConsumer<List<Pair<UUID, WriteModel<Document>>>, Throwable> onError) {
+		this(collection, ordered, size, 0, 0, onSuccess, onError);
 	}
 	
 	@Override
 	public void write(WriteModel<Document> request, UUID id) {
-		requestsQueue.offer(Pair.of(id, request));
-		if (++count==size)
+		if (buffer.isEmpty())
+			firstWriteTime = System.nanoTime();
+		buffer.add(id, request);
+		if (maxBytes>0)
+			bytes += estimateSize(request);
+		
+		if (buffer.size()==size || (maxBytes>0 && bytes>=maxBytes) || isExpired())
 			flush();
 	}
 	
+	@Override
+	public boolean flushIfExpired() {
+		boolean result = isExpired();
+		
+		if (result)
+			flush();
+		
+		return result;
+	}
+	
+	protected boolean isExpired() {
+		return maxLingerTime>0 && !buffer.isEmpty() && System.nanoTime()-firstWriteTime>=maxLingerTime*1_000_000L;
+	}
+	
 	@Override
 	public void flush() {
-		List<Pair<UUID, WriteModel<Document>>> requests = new LinkedList<>(requestsQueue);
-		try {
-			List<WriteModel<Document>> writeModels = requestsQueue.stream().map((r) -> r.b()).collect(Collectors.toList());
-			
-			if (ordered)
-				collection.bulkWrite(writeModels);
-			else
-				collection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
-			
-			if (onSuccess!=null)
-				onSuccess.accept(requests);
+		bulkWrite(buffer);
+		
+		buffer.clear();
+		bytes = 0;
+	}
+	
+	/**
+	 * Writes the buffer. If the bulk write fails partially, the succeeded and failed requests are reported
+	 * separately, and only the requests failed with a transient error are retried (with exponential backoff).
+	 * Other errors (e.g., network errors, not raised as MongoBulkWriteException) are not retried here, the
+	 * requests are reported as failed. Such errors are retried once by the driver (retryable writes).
+	 */
+	protected void bulkWrite(MongoBulkBuffer buffer) {
+		if (buffer.isEmpty())
+			return;
+		
+		int[] indices = null; // of the requests to retry, null = all
+		long backoff = retryBackoff;
+		for (int retry=0; ; retry++) {
+			try {
+				collection.bulkWrite(indices==null ? buffer.models() : models(buffer, indices), bulkWriteOptions);
+				
+				if (onSuccess!=null)
+					onSuccess.accept(indices==null ? buffer.requests() : requests(buffer, indices, null, (byte)0));
+				break;
+			}
+			catch (MongoBulkWriteException e) {
+				int count = indices==null ? buffer.size() : indices.length;
+				byte[] status = partition(e, count);
+				
+				if (onSuccess!=null) {
+					List<Pair<UUID, WriteModel<Document>>> succeeded = requests(buffer, indices, status, SUCCEEDED);
+					if (!succeeded.isEmpty())
+						onSuccess.accept(succeeded);
+				}
+				
+				boolean retryable = retry<maxRetries;
+				if (!retryable)
+					for (int i=0; i<count; i++)
+						if (status[i]==RETRY)
+							status[i] = FAILED;
+				
+				List<Pair<UUID, WriteModel<Document>>> failed = requests(buffer, indices, status, FAILED);
+				if (!failed.isEmpty()) {
+					e.printStackTrace();
+					if (onError!=null)
+						onError.accept(failed, e);
+				}
+				
+				indices = retryable ? indices(indices, status) : null;
+				if (indices==null || indices.length==0)
+					break;
+				
+				try {
+					Thread.sleep(backoff);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					if (onError!=null)
+						onError.accept(requests(buffer, indices, null, (byte)0), e);
+					break;
+				}
+				backoff = Math.min(backoff*2, MAX_RETRY_BACKOFF);
+			}
+			catch(Exception e) {
+				e.printStackTrace();
+				
+				if (onError!=null)
+					onError.accept(indices==null ? buffer.requests() : requests(buffer, indices, null, (byte)0), e);
+				break;
+			}
 		}
-		catch(Exception e) {
-			e.printStackTrace();
-			
-			if (onError!=null)
-				onError.accept(requests, e);
+	}
+	
+	/**
+	 * Attributes the result of a partially failed bulk write to each request (by index).
+	 */
+	protected byte[] partition(MongoBulkWriteException e, int count) {
+		byte[] result = new byte[count];
+		
+		if (ordered) {
+			// the bulk write stops at the first error, the following requests were not executed
+			int index = e.getWriteErrors().isEmpty() ? count : e.getWriteErrors().get(0).getIndex();
+			for (int i=index; i<count; i++)
+				result[i] = RETRY;
+			if (index<count && !RETRYABLE_ERROR_CODES.contains(e.getWriteErrors().get(0).getCode()))
+				for (int i=index; i<count; i++)
+					result[i] = FAILED;
 		}
+		else
+			for (BulkWriteError error : e.getWriteErrors())
+				result[error.getIndex()] = RETRYABLE_ERROR_CODES.contains(error.getCode()) ? RETRY : FAILED;
+		
+		// applied, but the write concern was not satisfied, a retry could duplicate the writes
+		if (e.getWriteConcernError()!=null)
+			for (int i=0; i<count; i++)
+				result[i] = FAILED;
+		
+		return result;
+	}
+	
+	protected static List<WriteModel<Document>> models(MongoBulkBuffer buffer, int[] indices) {
+		List<WriteModel<Document>> result = new ArrayList<>(indices.length);
+		for (int index : indices)
+			result.add(buffer.getModel(index));
+		
+		return result;
+	}
+	
+	// the requests (of the indices) with the status, all if status is null
+	protected static List<Pair<UUID, WriteModel<Document>>> requests(MongoBulkBuffer buffer, int[] indices, byte[] status, byte value) {
+		int count = indices==null ? buffer.size() : indices.length;
+		
+		List<Pair<UUID, WriteModel<Document>>> result = new ArrayList<>();
+		for (int i=0; i<count; i++)
+			if (status==null || status[i]==value) {
+				int index = indices==null ? i : indices[i];
+				result.add(Pair.of(buffer.getId(index), buffer.getModel(index)));
+			}
+		
+		return result;
+	}
+	
+	// the buffer indices of the requests to retry
+	protected static int[] indices(int[] indices, byte[] status) {
+		int length = 0;
+		for (byte s : status)
+			if (s==RETRY)
+				length++;
+		
+		int[] result = new int[length];
+		for (int i=0, j=0; i<status.length; i++)
+			if (status[i]==RETRY)
+				result[j++] = indices==null ? i : indices[i];
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the BSON size of the document carried by the request.
+	 */
+	public static long estimateSize(WriteModel<Document> request) {
+		Bson bson = null;
+		if (request instanceof InsertOneModel<Document> model)
+			bson = model.getDocument();
+		else if (request instanceof ReplaceOneModel<Document> model)
+			bson = model.getReplacement();
+		else if (request instanceof UpdateOneModel<Document> model)
+			bson = model.getUpdate();
+		else if (request instanceof DeleteOneModel<Document> model)
+			bson = model.getFilter();
+		
+		long result = 0;
+		if (bson instanceof Document document)
+			result = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+		else if (bson!=null)
+			result = new RawBsonDocument(bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()), new BsonDocumentCodec()).getByteBuffer().remaining();
 		
-		requestsQueue.clear();
-		count = 0;
+		return result;
 	}
 }
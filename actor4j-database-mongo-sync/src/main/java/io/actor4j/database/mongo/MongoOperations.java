@@ -15,8 +15,11 @@
  */
 package io.actor4j.database.mongo;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -167,6 +170,14 @@ public final class MongoOperations {
 		return find(filter, sort, projection, 0, 0, client, databaseName, collectionName);
 	}
 	
+	// Matches all documents with one of the given keys, the filter is extended if present
+	public static Document filterWithKeys(Document filter, String keyName, Collection<?> keys) {
+		Document result = filter!=null ? filter : new Document();
+		result.append(keyName, new Document("$in", keys));
+		
+		return result;
+	}
+	
 	public static <E> Document convertToDocument(E entity) {
 		return Document.parse(objectMapper.mapFrom(entity));
 	}
@@ -193,6 +204,23 @@ public final class MongoOperations {
 		return result;
 	}
 	
+	// Maps the documents to the requested keys, the stored key may differ in its type (e.g. Integer vs. Long)
+	public static <K, E> Map<K, E> convertToEntries(List<Document> documents, String keyName, Collection<K> keys, Class<E> entityType) {
+		Map<K, E> result = new HashMap<>();
+		
+		Map<String, K> lookup = new HashMap<>();
+		for (K key : keys)
+			lookup.put(String.valueOf(key), key);
+		
+		for (Document document : documents) {
+			K key = lookup.get(String.valueOf(document.get(keyName)));
+			if (key!=null)
+				result.put(key, objectMapper.mapTo(document.toJson(), entityType));
+		}
+		
+		return result;
+	}
+	
 	public static <V> V convertToValue(Document document, GenericType<V> valueTypeRef) {
 		return convertToEntity(document, valueTypeRef);
 	}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.database.mongo.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+
+import io.actor4j.core.utils.Pair;
+import io.actor4j.database.mongo.MongoBufferedBulkWriter;
+import io.actor4j.database.mongo.MongoBufferedBulkWriterImpl;
+
+/**
+ * Cost of buffering and flushing 1000 write models against a collection without I/O,
+ * the previous linked list buffers (baseline) versus the reusable array-backed buffers.
+ * 
+ * Run the main method with the test classpath (e.g., from the IDE).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BulkWriterFlushBenchmark {
+	protected static final int SIZE = 1000;
+	
+	protected MongoCollection<Document> collection;
+	protected List<WriteModel<Document>> models;
+	protected UUID[] ids;
+	
+	protected Queue<Pair<UUID, WriteModel<Document>>> requestsQueue;
+	protected MongoBufferedBulkWriter bulkWriter;
+	
+	protected Blackhole blackhole;
+	
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup(Blackhole blackhole) {
+		this.blackhole = blackhole;
+		
+		collection = (MongoCollection<Document>)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MongoCollection.class }, 
+			(proxy, method, args) -> {
+				if (method.getName().equals("bulkWrite"))
+					blackhole.consume(args[0]);
+				return null;
+			});
+		
+		models = new ArrayList<>(SIZE);
+		ids = new UUID[SIZE];
+		for (int i=0; i<SIZE; i++) {
+			models.add(new InsertOneModel<>(new Document("key", i)));
+			ids[i] = UUID.randomUUID();
+		}
+		
+		requestsQueue = new LinkedList<>();
+		bulkWriter = new MongoBufferedBulkWriterImpl(collection, false, SIZE, 
+			(requests) -> blackhole.consume(requests.size()), (requests, t) -> blackhole.consume(t));
+	}
+	
+	@Benchmark
+	public void linkedListBuffer() {
+		for (int i=0; i<SIZE; i++)
+			requestsQueue.offer(Pair.of(ids[i], models.get(i)));
+		
+		// flush as before: copy of the queue, stream into a list of models
+		List<Pair<UUID, WriteModel<Document>>> requests = new LinkedList<>(requestsQueue);
+		List<WriteModel<Document>> writeModels = requestsQueue.stream().map((r) -> r.b()).collect(Collectors.toList());
+		collection.bulkWrite(writeModels);
+		blackhole.consume(requests.size());
+		
+		requestsQueue.clear();
+	}
+	
+	@Benchmark
+	public void arrayBuffer() {
+		for (int i=0; i<SIZE; i++)
+			bulkWriter.write(models.get(i), ids[i]); // flushes at SIZE
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(BulkWriterFlushBenchmark.class.getSimpleName()).build()).run();
+	}
+}
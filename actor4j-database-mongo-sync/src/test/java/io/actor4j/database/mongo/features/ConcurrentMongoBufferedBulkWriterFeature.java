@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.database.mongo.features;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertOneModel;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.actor4j.database.mongo.ConcurrentMongoBufferedBulkWriterImpl;
+import io.actor4j.database.mongo.MongoBulkBuffer;
+
+public class ConcurrentMongoBufferedBulkWriterFeature {
+	protected MongoServer mongoServer;
+	protected MongoClient client;
+	protected MongoCollection<Document> collection;
+	
+	protected CountDownLatch inFlight;
+	protected CountDownLatch release;
+	protected List<Integer> batches;
+	
+	@Before
+	public void before() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		InetSocketAddress address = mongoServer.bind();
+		
+		client = MongoClients.create("mongodb://"+address.getHostString()+":"+address.getPort());
+		collection = client.getDatabase("actor4j-test").getCollection("test");
+		
+		inFlight = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		batches = new CopyOnWriteArrayList<>();
+	}
+	
+	@After
+	public void after() {
+		client.close();
+		mongoServer.shutdown();
+	}
+	
+	// the first bulk write is held back until released
+	protected ConcurrentMongoBufferedBulkWriterImpl createBulkWriter(int size, int maxPendingBatches) {
+		return new ConcurrentMongoBufferedBulkWriterImpl(collection, true, size, 0, 0, maxPendingBatches, 
+			(requests) -> batches.add(requests.size()), null) {
+			@Override
+			protected void bulkWrite(MongoBulkBuffer buffer) {
+				inFlight.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.bulkWrite(buffer);
+			}
+		};
+	}
+	
+	protected void write(ConcurrentMongoBufferedBulkWriterImpl bulkWriter, int from, int to) {
+		for (int i=from; i<to; i++)
+			bulkWriter.write(new InsertOneModel<>(new Document("_id", i)), UUID.randomUUID());
+	}
+	
+	@Test(timeout=10000)
+	public void test_double_buffer_swap() throws InterruptedException {
+		ConcurrentMongoBufferedBulkWriterImpl bulkWriter = createBulkWriter(2, 1);
+		
+		write(bulkWriter, 0, 2); // full, swapped and handed over to the flusher
+		assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+		write(bulkWriter, 2, 5); // the producer is not blocked by the write in flight
+		assertEquals(0, collection.countDocuments());
+		
+		release.countDown();
+		bulkWriter.flush();
+		assertEquals(5, collection.countDocuments());
+		assertEquals(List.of(2, 2, 1), batches);
+		
+		bulkWriter.close();
+	}
+	
+	@Test(timeout=10000)
+	public void test_flush_during_in_flight_write() throws InterruptedException {
+		ConcurrentMongoBufferedBulkWriterImpl bulkWriter = createBulkWriter(2, 1);
+		
+		write(bulkWriter, 0, 3);
+		assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Void> future = bulkWriter.flushAsync();
+		Thread.sleep(100);
+		assertFalse(future.isDone()); // completes after the write in flight
+		
+		release.countDown();
+		future.join();
+		assertEquals(3, collection.countDocuments());
+		assertEquals(List.of(2, 1), batches);
+		
+		bulkWriter.close();
+	}
+	
+	@Test(timeout=10000)
+	public void test_close() {
+		release.countDown();
+		ConcurrentMongoBufferedBulkWriterImpl bulkWriter = createBulkWriter(10, 1);
+		
+		write(bulkWriter, 0, 3);
+		bulkWriter.close(); // returns after the final flush
+		assertEquals(3, collection.countDocuments());
+		assertEquals(List.of(3), batches);
+		bulkWriter.close();
+		
+		// written by the caller after close
+		write(bulkWriter, 3, 4);
+		bulkWriter.flush();
+		assertEquals(4, collection.countDocuments());
+	}
+}
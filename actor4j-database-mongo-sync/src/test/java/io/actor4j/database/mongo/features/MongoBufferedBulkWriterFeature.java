@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2015-2026, David A. Bauer. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.actor4j.database.mongo.features;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.actor4j.database.mongo.MongoBufferedBulkWriter;
+import io.actor4j.database.mongo.MongoBufferedBulkWriterImpl;
+
+public class MongoBufferedBulkWriterFeature {
+	protected static final int WRITE_CONFLICT = 112; // transient
+	
+	protected MongoServer mongoServer;
+	protected MongoClient client;
+	protected MongoCollection<Document> collection;
+	
+	protected List<UUID> succeeded;
+	protected List<UUID> failed;
+	protected List<List<WriteModel<Document>>> bulkWrites;
+	
+	@Before
+	public void before() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		InetSocketAddress address = mongoServer.bind();
+		
+		client = MongoClients.create("mongodb://"+address.getHostString()+":"+address.getPort());
+		collection = client.getDatabase("actor4j-test").getCollection("test");
+		
+		succeeded = new CopyOnWriteArrayList<>();
+		failed = new CopyOnWriteArrayList<>();
+		bulkWrites = new CopyOnWriteArrayList<>();
+	}
+	
+	@After
+	public void after() {
+		client.close();
+		mongoServer.shutdown();
+	}
+	
+	protected MongoBufferedBulkWriter createBulkWriter(MongoCollection<Document> collection, boolean ordered, int maxRetries) {
+		return new MongoBufferedBulkWriterImpl(collection, ordered, 10, 0, 0, maxRetries, 1, 
+			(requests) -> requests.forEach((pair) -> succeeded.add(pair.a())), 
+			(requests, t) -> requests.forEach((pair) -> failed.add(pair.a())));
+	}
+	
+	// records the bulk writes, the first one fails with a transient error at the indices (the other requests are applied)
+	@SuppressWarnings("unchecked")
+	protected MongoCollection<Document> failingCollection(Set<Integer> indices) {
+		return (MongoCollection<Document>)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MongoCollection.class }, 
+			(proxy, method, args) -> {
+				try {
+					if (method.getName().equals("bulkWrite")) {
+						List<WriteModel<Document>> models = new ArrayList<>((List<WriteModel<Document>>)args[0]);
+						bulkWrites.add(models);
+						
+						if (bulkWrites.size()==1) {
+							List<WriteModel<Document>> applied = new ArrayList<>();
+							List<BulkWriteError> errors = new ArrayList<>();
+							for (int i=0; i<models.size(); i++)
+								if (indices.contains(i))
+									errors.add(new BulkWriteError(WRITE_CONFLICT, "WriteConflict", new BsonDocument(), i));
+								else
+									applied.add(models.get(i));
+							collection.bulkWrite(applied);
+							throw new MongoBulkWriteException(BulkWriteResult.unacknowledged(), errors, null, new ServerAddress(), Set.of());
+						}
+					}
+					return method.invoke(collection, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			});
+	}
+	
+	protected List<UUID> write(MongoBufferedBulkWriter bulkWriter, int... keys) {
+		List<UUID> result = new ArrayList<>();
+		for (int key : keys) {
+			UUID id = UUID.randomUUID();
+			bulkWriter.write(new InsertOneModel<>(new Document("_id", key)), id);
+			result.add(id);
+		}
+		
+		return result;
+	}
+	
+	@Test(timeout=10000)
+	public void test_unordered_duplicate_keys() {
+		MongoBufferedBulkWriter bulkWriter = createBulkWriter(collection, false, 3);
+		write(bulkWriter, 1, 3);
+		bulkWriter.flush();
+		succeeded.clear();
+		
+		List<UUID> ids = write(bulkWriter, 0, 1, 2, 3, 4);
+		bulkWriter.flush();
+		
+		// duplicate keys are not transient, exactly the failed requests are reported and not retried
+		assertEquals(List.of(ids.get(1), ids.get(3)), failed);
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4)), succeeded);
+		assertEquals(5, collection.countDocuments());
+	}
+	
+	@Test(timeout=10000)
+	public void test_ordered_duplicate_key() {
+		MongoBufferedBulkWriter bulkWriter = createBulkWriter(collection, true, 3);
+		write(bulkWriter, 1);
+		bulkWriter.flush();
+		succeeded.clear();
+		
+		List<UUID> ids = write(bulkWriter, 0, 1, 2);
+		bulkWriter.flush();
+		
+		// the bulk write stopped at the duplicate key, the following request was not executed
+		assertEquals(List.of(ids.get(1), ids.get(2)), failed);
+		assertEquals(List.of(ids.get(0)), succeeded);
+		assertEquals(2, collection.countDocuments());
+	}
+	
+	@Test(timeout=10000)
+	public void test_retry_failed_subset() {
+		MongoBufferedBulkWriter bulkWriter = createBulkWriter(failingCollection(Set.of(1, 3)), false, 3);
+		
+		List<UUID> ids = write(bulkWriter, 0, 1, 2, 3, 4);
+		bulkWriter.flush();
+		
+		// only the requests failed with a transient error are retried
+		assertEquals(2, bulkWrites.size());
+		assertEquals(List.of(bulkWrites.get(0).get(1), bulkWrites.get(0).get(3)), bulkWrites.get(1));
+		assertTrue(failed.isEmpty());
+		assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4), ids.get(1), ids.get(3)), succeeded);
+		assertEquals(5, collection.countDocuments());
+	}
+	
+	@Test(timeout=10000)
+	public void test_retry_disabled() {
+		MongoBufferedBulkWriter bulkWriter = createBulkWriter(failingCollection(Set.of(1, 3)), false, 0);
+		
+		List<UUID> ids = write(bulkWriter, 0, 1, 2, 3, 4);
+		bulkWriter.flush();
+		
+		assertEquals(1, bulkWrites.size());
+		assertEquals(List.of(ids.get(1), ids.get(3)), failed);
+		assertEquals(3, collection.countDocuments());
+	}
+}